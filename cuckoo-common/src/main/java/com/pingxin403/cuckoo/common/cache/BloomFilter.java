@@ -0,0 +1,158 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内位图布隆过滤器
+ * 位数 m 与哈希函数个数 k 由预计元素数 n 和目标误判率 p 计算：
+ * m = -n·ln(p) / (ln2)²，k = (m/n)·ln2
+ * 每个元素只计算一次 MurmurHash3 128 位哈希，第 i 个位下标为 (h1 + i·h2) mod m（双重哈希）。
+ *
+ * 线程安全：写入只会置位（CAS），查询无锁。
+ */
+public class BloomFilter {
+
+    private static final int SNAPSHOT_MAGIC = 0x424c4f4d;
+
+    private final long bitSize;
+    private final int hashCount;
+    private final AtomicLongArray words;
+
+    private BloomFilter(long bitSize, int hashCount) {
+        this.bitSize = bitSize;
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray(Math.toIntExact((bitSize + 63) / 64));
+    }
+
+    /**
+     * 按预计元素数和目标误判率创建布隆过滤器
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        long bitSize = Math.max(64, (long) Math.ceil(
+                -expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        return new BloomFilter(bitSize, hashCount);
+    }
+
+    /**
+     * 从 toByteArray 生成的快照恢复
+     */
+    public static BloomFilter fromByteArray(byte[] snapshot) {
+        ByteBuffer buffer = ByteBuffer.wrap(snapshot);
+        if (buffer.remaining() < 16 || buffer.getInt() != SNAPSHOT_MAGIC) {
+            throw new IllegalArgumentException("Not a bloom filter snapshot");
+        }
+        int hashCount = buffer.getInt();
+        long bitSize = buffer.getLong();
+        BloomFilter filter = new BloomFilter(bitSize, hashCount);
+        if (buffer.remaining() != filter.words.length() * 8) {
+            throw new IllegalArgumentException("Bloom filter snapshot is truncated");
+        }
+        for (int i = 0; i < filter.words.length(); i++) {
+            filter.words.set(i, buffer.getLong());
+        }
+        return filter;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @return true 表示至少有一位由 0 变为 1（元素此前一定不存在）
+     */
+    public boolean put(String value) {
+        long[] hash = hash(value);
+        boolean changed = false;
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            changed |= setBit(Long.remainderUnsigned(combined, bitSize));
+            combined += hash[1];
+        }
+        return changed;
+    }
+
+    /**
+     * 检查元素是否可能存在
+     *
+     * @return true 表示可能存在，false 表示一定不存在
+     */
+    public boolean mightContain(String value) {
+        long[] hash = hash(value);
+        long combined = hash[0];
+        for (int i = 0; i < hashCount; i++) {
+            long index = Long.remainderUnsigned(combined, bitSize);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += hash[1];
+        }
+        return true;
+    }
+
+    /**
+     * 合并另一个相同参数的过滤器（按位或）
+     */
+    public void putAll(BloomFilter other) {
+        if (!isCompatible(other)) {
+            throw new IllegalArgumentException("Bloom filters have different sizes");
+        }
+        for (int i = 0; i < words.length(); i++) {
+            long bits = other.words.get(i);
+            if (bits != 0) {
+                words.accumulateAndGet(i, bits, (current, update) -> current | update);
+            }
+        }
+    }
+
+    /**
+     * 是否与另一个过滤器的位数和哈希函数个数相同
+     */
+    public boolean isCompatible(BloomFilter other) {
+        return bitSize == other.bitSize && hashCount == other.hashCount;
+    }
+
+    /**
+     * 序列化为快照：魔数、k、m、位图
+     */
+    public byte[] toByteArray() {
+        ByteBuffer buffer = ByteBuffer.allocate(16 + words.length() * 8);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(hashCount).putLong(bitSize);
+        for (int i = 0; i < words.length(); i++) {
+            buffer.putLong(words.get(i));
+        }
+        return buffer.array();
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private boolean setBit(long index) {
+        int wordIndex = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long current = words.get(wordIndex);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(wordIndex, current, current | mask)) {
+                return true;
+            }
+        }
+    }
+
+    private static long[] hash(String value) {
+        return Murmur3.hash128(value.getBytes(StandardCharsets.UTF_8), 0);
+    }
+}
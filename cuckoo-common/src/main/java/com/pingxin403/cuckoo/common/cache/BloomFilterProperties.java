@@ -0,0 +1,51 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 布隆过滤器配置属性
+ * 每个命名过滤器单独配置容量和误判率（bloom.filters.&lt;name&gt;.*），未配置的名称使用 defaults。
+ * 修改容量后由 BloomFilterService.rebuild 按新大小重建。
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "bloom")
+public class BloomFilterProperties {
+
+    /**
+     * 未单独配置的过滤器使用的默认规格
+     */
+    private Spec defaults = new Spec(1_000_000, 0.01);
+
+    /**
+     * 命名过滤器规格（products、usernames、emails、skus 等）
+     */
+    private Map<String, Spec> filters = new HashMap<>();
+
+    public Spec specFor(String name) {
+        return filters.getOrDefault(name, defaults);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Spec {
+
+        /**
+         * 预计元素数
+         */
+        private long expectedInsertions = 1_000_000;
+
+        /**
+         * 目标误判率
+         */
+        private double falsePositiveRate = 0.01;
+    }
+}
@@ -2,97 +2,415 @@ package com.pingxin403.cuckoo.common.cache;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /**
  * 布隆过滤器服务
  * 用于防止缓存穿透
- * 
- * 使用 Redis Bitmap 实现布隆过滤器
- * 误判率约为 1%（使用 3 个哈希函数，bitmap 大小为 10M）
+ *
+ * 按名称管理多个过滤器（products、usernames、emails、skus），每个过滤器的容量和误判率由
+ * BloomFilterProperties 配置。查询只访问进程内的 BloomFilter，不做任何 I/O。
+ *
+ * 多实例通过 Redis 收敛（键前缀 bloom:filter:&lt;name&gt;）：
+ * 1. add / addAll 写本地过滤器，并以一条记录追加到 Redis Stream 增量日志
+ * 2. 每个实例按 bloom.sync-interval-ms 从上次位置读取增量日志并写入本地过滤器
+ * 3. 某个实例按 bloom.snapshot-interval-ms 把本地过滤器写成快照（记录已覆盖的日志位置），
+ *    并裁剪上一个快照之前的日志；落后于裁剪点的实例重新加载快照
+ * 4. rebuild 在本地按当前配置的大小重建，写入影子键后 RENAME 原子替换快照，并递增代数；
+ *    其他实例发现代数变化后加载新快照（可借此调整容量）
+ * 新增元素在其他实例上最多延迟一个同步周期可见。
  */
 @Slf4j
 @Component
 @ConditionalOnClass(RedisTemplate.class)
 public class BloomFilterService {
-    
-    private static final String BLOOM_FILTER_KEY = "bloom:filter:products";
-    private static final int BIT_SIZE = 10_000_000; // 10M bits
-    private static final int HASH_COUNT = 3; // 哈希函数数量
-    
-    private final RedisTemplate<String, Object> redisTemplate;
-    
-    public BloomFilterService(RedisTemplate<String, Object> redisTemplate) {
-        this.redisTemplate = redisTemplate;
-    }
-    
+
+    public static final String PRODUCTS = "products";
+    public static final String USERNAMES = "usernames";
+    public static final String EMAILS = "emails";
+    public static final String SKUS = "skus";
+
+    private static final String KEY_PREFIX = "bloom:filter:";
+    private static final String LOG_FIELD = "v";
+    private static final String LOG_SEPARATOR = "\n";
+    private static final String LOG_START = "0-0";
+    private static final int SYNC_BATCH_SIZE = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final BloomFilterProperties properties;
+    private final Map<String, NamedFilter> filters = new ConcurrentHashMap<>();
+
+    public BloomFilterService(StringRedisTemplate stringRedisTemplate, BloomFilterProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.properties = properties;
+    }
+
     /**
-     * 添加元素到布隆过滤器
-     * 
+     * 添加元素到商品布隆过滤器
+     *
      * @param value 要添加的值
      */
     public void add(String value) {
-        for (int i = 0; i < HASH_COUNT; i++) {
-            long hash = hash(value, i);
-            long bitIndex = Math.abs(hash % BIT_SIZE);
-            redisTemplate.opsForValue().setBit(BLOOM_FILTER_KEY, bitIndex, true);
-        }
-        log.debug("Added to bloom filter: value={}", value);
+        add(PRODUCTS, value);
     }
-    
+
     /**
-     * 检查元素是否可能存在
-     * 
+     * 检查元素是否可能存在于商品布隆过滤器
+     *
      * @param value 要检查的值
      * @return true 表示可能存在，false 表示一定不存在
      */
     public boolean mightContain(String value) {
-        for (int i = 0; i < HASH_COUNT; i++) {
-            long hash = hash(value, i);
-            long bitIndex = Math.abs(hash % BIT_SIZE);
-            Boolean bit = redisTemplate.opsForValue().getBit(BLOOM_FILTER_KEY, bitIndex);
-            if (bit == null || !bit) {
-                log.debug("Bloom filter check failed: value={}", value);
-                return false;
+        return mightContain(PRODUCTS, value);
+    }
+
+    /**
+     * 添加元素到指定过滤器
+     */
+    public void add(String name, String value) {
+        addAll(name, List.of(value));
+    }
+
+    /**
+     * 批量添加元素：先写本地过滤器，再以一条增量日志记录写入 Redis
+     */
+    public void addAll(String name, Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        NamedFilter named = filter(name);
+        values.forEach(named.filter::put);
+        stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                .in(named.logKey)
+                .ofMap(Map.of(LOG_FIELD, String.join(LOG_SEPARATOR, values))));
+        log.debug("Added to bloom filter: name={}, values={}", name, values.size());
+    }
+
+    /**
+     * 检查元素是否可能存在于指定过滤器（只查询本地过滤器）
+     * 过滤器完成 load 或 rebuild 之前只含本实例新增的元素，此时一律返回 true（放行到缓存与数据库），
+     * 避免初始化失败后把已存在的元素判为不存在
+     *
+     * @return true 表示可能存在，false 表示一定不存在
+     */
+    public boolean mightContain(String name, String value) {
+        NamedFilter named = filter(name);
+        if (!named.initialized) {
+            return true;
+        }
+        boolean result = named.filter.mightContain(value);
+        if (!result) {
+            log.debug("Bloom filter check failed: name={}, value={}", name, value);
+        }
+        return result;
+    }
+
+    /**
+     * 指定过滤器是否已通过 load 或 rebuild 完成初始化
+     */
+    public boolean isInitialized(String name) {
+        return filter(name).initialized;
+    }
+
+    /**
+     * 从 Redis 快照加载指定过滤器，并重放快照之后的增量日志
+     *
+     * @return false 表示没有可用快照（不存在，或大小与当前配置不一致），需要调用 rebuild
+     */
+    public boolean load(String name) {
+        NamedFilter named = filter(name);
+        synchronized (named) {
+            return named.load(true);
+        }
+    }
+
+    /**
+     * 按当前配置的大小重建指定过滤器
+     * loader 把全部元素逐个交给传入的 Consumer（调用方负责分页读取）；
+     * 重建期间查询仍使用旧过滤器，完成后写入影子键并原子替换 Redis 中的快照
+     */
+    public void rebuild(String name, Consumer<Consumer<String>> loader) {
+        NamedFilter named = filter(name);
+        BloomFilterProperties.Spec spec = properties.specFor(name);
+        BloomFilter rebuilt = BloomFilter.create(spec.getExpectedInsertions(), spec.getFalsePositiveRate());
+        long[] count = new long[1];
+        loader.accept(value -> {
+            rebuilt.put(value);
+            count[0]++;
+        });
+        synchronized (named) {
+            named.rebuilt(rebuilt);
+        }
+        log.info("Bloom filter rebuilt: name={}, values={}, bits={}, hashes={}",
+                name, count[0], rebuilt.bitSize(), rebuilt.hashCount());
+    }
+
+    /**
+     * 清空指定过滤器（本地与 Redis）
+     */
+    public void clear(String name) {
+        NamedFilter named = filter(name);
+        synchronized (named) {
+            named.clear();
+        }
+        log.info("Bloom filter cleared: name={}", name);
+    }
+
+    /**
+     * 定时读取已初始化过滤器的增量日志
+     */
+    @Scheduled(fixedDelayString = "${bloom.sync-interval-ms:500}")
+    public void sync() {
+        for (NamedFilter named : filters.values()) {
+            if (!named.initialized) {
+                continue;
+            }
+            try {
+                synchronized (named) {
+                    named.sync();
+                }
+            } catch (Exception e) {
+                log.warn("Bloom filter sync failed: name={}, error={}", named.name, e.getMessage());
             }
         }
-        log.debug("Bloom filter check passed: value={}", value);
-        return true;
     }
-    
+
     /**
-     * 计算哈希值
-     * 
-     * @param value 要哈希的值
-     * @param seed 哈希种子
-     * @return 哈希值
+     * 定时发布快照并裁剪增量日志（每个过滤器同一时刻只有一个实例执行）
      */
-    private long hash(String value, int seed) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest((value + seed).getBytes(StandardCharsets.UTF_8));
-            
-            // 取前 8 个字节转换为 long
-            long hash = 0;
-            for (int i = 0; i < 8; i++) {
-                hash = (hash << 8) | (digest[i] & 0xFF);
+    @Scheduled(initialDelayString = "${bloom.snapshot-interval-ms:300000}",
+            fixedDelayString = "${bloom.snapshot-interval-ms:300000}")
+    public void scheduledSnapshot() {
+        for (NamedFilter named : filters.values()) {
+            if (!named.initialized) {
+                continue;
+            }
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(named.lockKey, "1", Duration.ofMinutes(1));
+            if (!Boolean.TRUE.equals(acquired)) {
+                continue;
+            }
+            try {
+                synchronized (named) {
+                    named.replay();
+                    named.snapshot(named.snapshotKey);
+                }
+            } catch (Exception e) {
+                log.warn("Bloom filter snapshot failed: name={}, error={}", named.name, e.getMessage());
             }
-            return hash;
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 algorithm not found", e);
         }
     }
-    
+
+    private NamedFilter filter(String name) {
+        return filters.computeIfAbsent(name, NamedFilter::new);
+    }
+
     /**
-     * 清空布隆过滤器
+     * 单个命名过滤器的本地状态与 Redis 键
+     * 除 filter 的读写外，所有方法都在持有该对象的锁时调用
      */
-    public void clear() {
-        redisTemplate.delete(BLOOM_FILTER_KEY);
-        log.info("Bloom filter cleared");
+    private class NamedFilter {
+
+        private final String name;
+        private final String snapshotKey;
+        private final String shadowKey;
+        private final String snapshotIdKey;
+        private final String trimmedKey;
+        private final String generationKey;
+        private final String lockKey;
+        private final String logKey;
+
+        private volatile BloomFilter filter;
+
+        /**
+         * 本地过滤器已包含的最后一条增量日志 ID
+         */
+        private String lastLogId = LOG_START;
+
+        /**
+         * 本地过滤器对应的快照代数
+         */
+        private String generation;
+
+        /**
+         * 调用过 load 或 rebuild 后才定时同步（未使用的过滤器不访问 Redis）
+         */
+        private volatile boolean initialized;
+
+        NamedFilter(String name) {
+            String base = KEY_PREFIX + name;
+            this.name = name;
+            this.snapshotKey = base + ":snapshot";
+            this.shadowKey = base + ":snapshot:shadow";
+            this.snapshotIdKey = base + ":snapshot-id";
+            this.trimmedKey = base + ":trimmed";
+            this.generationKey = base + ":generation";
+            this.lockKey = base + ":snapshot-lock";
+            this.logKey = base + ":log";
+            this.filter = newFilter();
+        }
+
+        /**
+         * 加载快照；requireSpec 为 true 时，大小与当前配置不一致的快照视为不可用
+         */
+        boolean load(boolean requireSpec) {
+            String currentGeneration = stringRedisTemplate.opsForValue().get(generationKey);
+            byte[] raw = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                    connection.stringCommands().get(bytes(snapshotKey)));
+            if (raw == null) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(raw);
+            byte[] idBytes = new byte[buffer.getInt()];
+            buffer.get(idBytes);
+            BloomFilter snapshot = BloomFilter.fromByteArray(Arrays.copyOfRange(raw, buffer.position(), raw.length));
+            if (requireSpec && !snapshot.isCompatible(newFilter())) {
+                log.warn("Bloom filter snapshot ignored, size changed: name={}, snapshotBits={}", name,
+                        snapshot.bitSize());
+                return false;
+            }
+            filter = snapshot;
+            lastLogId = new String(idBytes, StandardCharsets.UTF_8);
+            generation = currentGeneration;
+            initialized = true;
+            int replayed = replay();
+            log.info("Bloom filter loaded from snapshot: name={}, logId={}, replayed={}", name, lastLogId, replayed);
+            return true;
+        }
+
+        /**
+         * 换上重建好的过滤器：重放增量日志，写入影子键后原子替换快照，并递增代数通知其他实例
+         */
+        void rebuilt(BloomFilter rebuilt) {
+            filter = rebuilt;
+            initialized = true;
+            // 重建期间新增的元素在增量日志中，从头重放
+            lastLogId = LOG_START;
+            replay();
+            snapshot(shadowKey);
+            stringRedisTemplate.rename(shadowKey, snapshotKey);
+            Long next = stringRedisTemplate.opsForValue().increment(generationKey);
+            generation = String.valueOf(next);
+        }
+
+        void sync() {
+            String before = lastLogId;
+            int applied = replay();
+            // 读取日志之后再检查裁剪点与代数：日志在读取前已被裁剪到本地位置之后说明有缺失，
+            // 代数变化说明快照已被重建，两种情况都重新加载快照
+            List<String> markers = stringRedisTemplate.opsForValue().multiGet(List.of(trimmedKey, generationKey));
+            String trimmed = markers == null ? null : markers.get(0);
+            String currentGeneration = markers == null ? null : markers.get(1);
+            boolean gap = trimmed != null && compare(before, trimmed) < 0;
+            boolean regenerated = currentGeneration != null && !Objects.equals(currentGeneration, generation);
+            if ((gap || regenerated) && load(false)) {
+                return;
+            }
+            if (applied > 0) {
+                log.debug("Bloom filter synced: name={}, applied={}, logId={}", name, applied, lastLogId);
+            }
+        }
+
+        void clear() {
+            filter = newFilter();
+            lastLogId = LOG_START;
+            generation = null;
+            stringRedisTemplate.delete(List.of(snapshotKey, shadowKey, snapshotIdKey, trimmedKey, generationKey,
+                    logKey));
+        }
+
+        /**
+         * 写入快照（覆盖到 lastLogId），并把日志裁剪到上一个快照的位置
+         * 保留一个快照周期的日志，正常落后的实例无需重新加载快照
+         */
+        void snapshot(String targetKey) {
+            String coveredId = lastLogId;
+            byte[] idBytes = bytes(coveredId);
+            byte[] filterBytes = filter.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocate(4 + idBytes.length + filterBytes.length);
+            buffer.putInt(idBytes.length).put(idBytes).put(filterBytes);
+
+            String previousId = stringRedisTemplate.opsForValue().get(snapshotIdKey);
+            stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    connection.stringCommands().set(bytes(targetKey), buffer.array()));
+            stringRedisTemplate.opsForValue().set(snapshotIdKey, coveredId);
+            if (previousId != null && !LOG_START.equals(previousId)) {
+                // 先发布裁剪点再裁剪，读取日志的实例总能发现缺失
+                stringRedisTemplate.opsForValue().set(trimmedKey, previousId);
+                stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                        connection.execute("XTRIM", bytes(logKey), bytes("MINID"), bytes(previousId)));
+            }
+            log.info("Bloom filter snapshot published: name={}, logId={}, bytes={}", name, coveredId,
+                    filterBytes.length);
+        }
+
+        /**
+         * 从 lastLogId 之后读取全部增量日志写入本地过滤器
+         */
+        int replay() {
+            int applied = 0;
+            while (true) {
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().range(logKey,
+                        Range.rightUnbounded(Range.Bound.inclusive(lastLogId)), Limit.limit().count(SYNC_BATCH_SIZE + 1));
+                if (records == null) {
+                    return applied;
+                }
+                int fresh = 0;
+                for (MapRecord<String, Object, Object> record : records) {
+                    String id = record.getId().getValue();
+                    if (compare(id, lastLogId) <= 0) {
+                        continue;
+                    }
+                    Object values = record.getValue().get(LOG_FIELD);
+                    if (values != null) {
+                        for (String value : values.toString().split(LOG_SEPARATOR)) {
+                            filter.put(value);
+                        }
+                    }
+                    lastLogId = id;
+                    fresh++;
+                }
+                applied += fresh;
+                if (fresh < SYNC_BATCH_SIZE) {
+                    return applied;
+                }
+            }
+        }
+
+        private BloomFilter newFilter() {
+            BloomFilterProperties.Spec spec = properties.specFor(name);
+            return BloomFilter.create(spec.getExpectedInsertions(), spec.getFalsePositiveRate());
+        }
+    }
+
+    private static int compare(String left, String right) {
+        RecordId l = RecordId.of(left);
+        RecordId r = RecordId.of(right);
+        int byTime = Long.compare(l.getTimestamp(), r.getTimestamp());
+        return byTime != 0 ? byTime : Long.compare(l.getSequence(), r.getSequence());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,21 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.util.Collection;
+
+/**
+ * 多级缓存条目变更监听
+ * 本实例写入、删除、提前刷新条目，或收到其他实例的失效通知后回调；
+ * 用于派生自缓存值的数据（如预编码响应体）与缓存保持一致
+ */
+public interface CacheChangeListener {
+
+    /**
+     * 这些键的值已被写入或删除
+     */
+    void changed(Collection<String> keys);
+
+    /**
+     * 本地缓存已整体清空（如跟踪连接重连）
+     */
+    void cleared();
+}
@@ -0,0 +1,167 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 基于 Redis 6+ 客户端缓存跟踪（CLIENT TRACKING ... BCAST PREFIX）的本地缓存失效
+ * 专用 RESP3 连接开启广播跟踪后，任何客户端修改匹配前缀的键（包括绕过 evict 直接写 Redis 的代码、过期与淘汰），
+ * Redis 都会在该连接上推送 invalidate 消息，应用无需发布失效通知。
+ * 本实例自己写 L2 同样会收到推送，刚写入的本地条目会被清除，下一次读取从 Redis 回填。
+ * 跟踪连接断开期间的推送会丢失，重连后重新开启跟踪并清空整个本地缓存。
+ */
+@Slf4j
+class ClientTrackingInvalidation implements LocalCacheInvalidation {
+
+    private static final String INVALIDATE = "invalidate";
+
+    private final LettuceConnectionFactory connectionFactory;
+    private final MultiLevelCacheProperties.Invalidation config;
+    private final Consumer<Collection<String>> invalidateKeys;
+    private final Runnable invalidateAll;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile StatefulRedisConnection<String, String> connection;
+
+    private final Counter keyCounter;
+    private final Counter resyncCounter;
+
+    ClientTrackingInvalidation(LettuceConnectionFactory connectionFactory,
+                               MultiLevelCacheProperties.Invalidation config,
+                               MeterRegistry meterRegistry,
+                               Consumer<Collection<String>> invalidateKeys,
+                               Runnable invalidateAll) {
+        this.connectionFactory = connectionFactory;
+        this.config = config;
+        this.invalidateKeys = invalidateKeys;
+        this.invalidateAll = invalidateAll;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-tracking");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.keyCounter = Counter.builder("cache.invalidation.tracking.keys")
+                .description("Keys invalidated by Redis client tracking pushes")
+                .register(meterRegistry);
+        this.resyncCounter = Counter.builder("cache.invalidation.tracking.resyncs")
+                .description("Full local cache flushes after the tracking connection was re-established")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 仅支持 Lettuce 单机/哨兵连接，集群与 Jedis 返回 null（调用方回退到 pubsub）
+     */
+    static LettuceConnectionFactory supportedFactory(RedisTemplate<String, Object> redisTemplate) {
+        RedisConnectionFactory factory = redisTemplate.getConnectionFactory();
+        if (factory instanceof LettuceConnectionFactory lettuce && !lettuce.isClusterAware()) {
+            return lettuce;
+        }
+        return null;
+    }
+
+    @Override
+    public void start(RedisMessageListenerContainer container) {
+        scheduler.execute(this::connect);
+    }
+
+    @Override
+    public void invalidate(Collection<String> keys) {
+        // Redis 在键被修改时自行推送，无需发布
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        StatefulRedisConnection<String, String> current = connection;
+        if (current != null) {
+            current.closeAsync();
+        }
+    }
+
+    /**
+     * 建立跟踪连接；失败时按心跳间隔重试
+     */
+    private void connect() {
+        try {
+            RedisClient redisClient = (RedisClient) connectionFactory.getRequiredNativeClient();
+            StatefulRedisConnection<String, String> created = redisClient.connect();
+            created.addListener(this::onPush);
+            created.addListener(new RedisConnectionStateListener() {
+                @Override
+                public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress address) {
+                    // 回调在 I/O 线程上，不能执行同步命令
+                    scheduler.execute(ClientTrackingInvalidation.this::resync);
+                }
+            });
+            connection = created;
+            resync();
+        } catch (RuntimeException e) {
+            log.warn("建立缓存跟踪连接失败，{}ms 后重试: {}", config.getHeartbeatIntervalMs(), e.getMessage());
+            scheduler.schedule(this::connect, config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * （重新）开启广播跟踪，然后清空本地缓存：此前未被跟踪期间的修改无从得知
+     */
+    private void resync() {
+        StatefulRedisConnection<String, String> current = connection;
+        if (current == null) {
+            return;
+        }
+        try {
+            TrackingArgs args = TrackingArgs.Builder.enabled().bcast();
+            if (!config.getTrackingPrefixes().isEmpty()) {
+                args.prefixes(config.getTrackingPrefixes().toArray(new String[0]));
+            }
+            current.sync().clientTracking(args);
+            invalidateAll.run();
+            resyncCounter.increment();
+            log.info("Redis client tracking enabled: prefixes={}", config.getTrackingPrefixes());
+        } catch (RuntimeException e) {
+            log.warn("开启缓存跟踪失败，{}ms 后重试: {}", config.getHeartbeatIntervalMs(), e.getMessage());
+            scheduler.schedule(this::resync, config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * invalidate 推送：[invalidate, [key...]]；键列表为空（null）表示 FLUSHDB/FLUSHALL
+     */
+    void onPush(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (!(keys instanceof List<?> list)) {
+            invalidateAll.run();
+            return;
+        }
+        List<String> decoded = new ArrayList<>(list.size());
+        list.forEach(key -> decoded.add(String.valueOf(key)));
+        invalidateKeys.accept(decoded);
+        keyCounter.increment(decoded.size());
+    }
+}
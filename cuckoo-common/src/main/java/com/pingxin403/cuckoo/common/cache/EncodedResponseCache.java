@@ -0,0 +1,217 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预编码响应体缓存
+ * 以多级缓存键保存响应编码后的 JSON 字节、预压缩的 gzip 字节和 ETag；命中时直接写出字节，
+ * 不再调用服务读取缓存、也不再经过 Jackson 序列化与压缩（堆外层、Redis 与热键命中同样受益）。
+ * 作为 CacheChangeListener 注册到多级缓存：键被写入、删除、提前刷新或收到跨实例失效时，编码结果随之删除。
+ * 编码期间键发生变更时不保存编码结果（按键分段的版本号），避免旧值覆盖失效。
+ */
+@Component
+@ConditionalOnClass(Caffeine.class)
+public class EncodedResponseCache implements CacheChangeListener {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final MultiLevelCacheProperties.EncodedResponses config;
+    private final ObjectProvider<MultiLevelCacheManagerImpl> cacheManager;
+    private final Cache<String, EncodedBody> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final AtomicLong clears = new AtomicLong();
+    private final Counter hitCounter;
+    private final Counter encodeCounter;
+
+    public EncodedResponseCache(ObjectMapper objectMapper, MultiLevelCacheProperties properties,
+                                MeterRegistry meterRegistry,
+                                ObjectProvider<MultiLevelCacheManagerImpl> cacheManager) {
+        this.objectMapper = objectMapper;
+        this.config = properties.getEncodedResponses();
+        this.cacheManager = cacheManager;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaximumWeight().toBytes())
+                .weigher((String key, EncodedBody body) -> body.weight())
+                .expireAfterWrite(config.getExpireAfterWrite())
+                .build();
+        this.hitCounter = Counter.builder("cache.encoded.responses")
+                .tag("result", "hit")
+                .description("Responses written from pre-encoded bytes")
+                .register(meterRegistry);
+        this.encodeCounter = Counter.builder("cache.encoded.responses")
+                .tag("result", "encode")
+                .description("Responses encoded because no pre-encoded bytes were cached")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        cacheManager.ifAvailable(manager -> manager.addChangeListener(this));
+    }
+
+    /**
+     * 写出 key 对应的 JSON 响应，编码结果未缓存时调用 loader 读取响应对象
+     *
+     * @param key    响应对象在多级缓存中的键（如 "product:1"），必须与服务读写缓存时使用的键一致，
+     *               否则编码结果不会随缓存失效
+     * @param loader 读取响应对象，通常是经过多级缓存的服务方法
+     */
+    public ResponseEntity<byte[]> respond(String key, Supplier<?> loader, HttpServletRequest request) {
+        return respond(encoded(key, loader), request);
+    }
+
+    /**
+     * 写出不缓存编码结果的 JSON 响应（响应对象不经过多级缓存失效时使用）
+     */
+    public ResponseEntity<byte[]> respond(Object body, HttpServletRequest request) {
+        return respond(encode(body), request);
+    }
+
+    @Override
+    public void changed(Collection<String> keys) {
+        // 先推进版本号再删除：编码中的请求要么在删除前写入（随后被删除），要么看到新版本放弃写入
+        for (String key : keys) {
+            generations.incrementAndGet(stripe(key));
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void cleared() {
+        clears.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * 客户端 If-None-Match 匹配时返回 304，接受 gzip 且有预压缩版本时返回 gzip 字节；
+     * 两种编码的字节不同，各自使用独立的强 ETag（gzip 版本带 -gz 后缀）
+     */
+    private ResponseEntity<byte[]> respond(EncodedBody encoded, HttpServletRequest request) {
+        boolean gzip = encoded.gzip() != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? encoded.gzipEtag() : encoded.etag();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (matches(ifNoneMatch, etag) || ifNoneMatch.trim().equals("*"))) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return new ResponseEntity<>(encoded.gzip(), headers, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(encoded.json(), headers, HttpStatus.OK);
+    }
+
+    EncodedBody encoded(String key, Supplier<?> loader) {
+        if (!config.isEnabled()) {
+            return encode(loader.get());
+        }
+        EncodedBody cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hitCounter.increment();
+            return cached;
+        }
+
+        int stripe = stripe(key);
+        long generation = generations.get(stripe);
+        long clearCount = clears.get();
+        EncodedBody encoded = encode(loader.get());
+        cache.asMap().compute(key, (k, current) ->
+                generations.get(stripe) == generation && clears.get() == clearCount ? encoded : current);
+        return encoded;
+    }
+
+    private EncodedBody encode(Object body) {
+        encodeCounter.increment();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            byte[] gzip = json.length >= config.getGzipMinSize().toBytes() ? gzip(json) : null;
+            String digest = DigestUtils.md5DigestAsHex(json);
+            return new EncodedBody(json, gzip, "\"" + digest + "\"", "\"" + digest + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to encode response body: " + body.getClass().getName(), e);
+        }
+    }
+
+    private static int stripe(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % GENERATION_STRIPES;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param gzip     预压缩的 JSON，JSON 小于 gzip-min-size 时为 null
+     * @param etag     JSON 字节的 ETag
+     * @param gzipEtag gzip 字节的 ETag
+     */
+    record EncodedBody(byte[] json, byte[] gzip, String etag, String gzipEtag) {
+
+        int weight() {
+            return json.length + (gzip != null ? gzip.length : 0) + etag.length() + gzipEtag.length() + 64;
+        }
+    }
+}
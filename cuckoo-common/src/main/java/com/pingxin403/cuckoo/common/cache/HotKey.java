@@ -0,0 +1,11 @@
+package com.pingxin403.cuckoo.common.cache;
+
+/**
+ * 热键统计
+ *
+ * @param key                     缓存键
+ * @param estimatedReadsPerWindow 本实例每个统计窗口读取 Redis 的估计次数
+ * @param pinned                  是否已固定在本地缓存
+ */
+public record HotKey(String key, long estimatedReadsPerWindow, boolean pinned) {
+}
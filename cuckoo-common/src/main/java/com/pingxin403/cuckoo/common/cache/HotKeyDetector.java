@@ -0,0 +1,151 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Redis 热键探测
+ * 每次读 Redis 时在 Count-Min Sketch（4 行）中计数，每个窗口结束时所有计数减半，
+ * 计数近似为最近一两个窗口内的访问次数；估计值达到阈值的键视为热键。
+ * 同时维护估计值最大的 top-K 键，供 actuator 端点与指标展示。
+ * 计数更新无锁，减半与并发自增之间可能丢失少量计数，对热度判断没有影响。
+ */
+@Slf4j
+class HotKeyDetector {
+
+    private static final int DEPTH = 4;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+    private final MultiLevelCacheProperties.HotKeys config;
+    private final AtomicIntegerArray counters;
+    private final int width;
+    private final int indexShift;
+    private final ScheduledExecutorService scheduler;
+
+    // top-K 候选（键 -> 最近一次的估计值），在 this 上同步
+    private final Map<String, Long> topKeys = new HashMap<>();
+    // top-K 已满时的最小估计值，低于它的键无需加锁比较
+    private volatile long topKeysFloor;
+
+    private final Counter detectedCounter;
+    private final MultiGauge topKeysGauge;
+
+    HotKeyDetector(MultiLevelCacheProperties.HotKeys config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.width = Integer.highestOneBit(Math.max(16, config.getSketchWidth()));
+        this.indexShift = 32 - Integer.numberOfTrailingZeros(width);
+        this.counters = new AtomicIntegerArray(DEPTH * width);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-hotkeys");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.detectedCounter = Counter.builder("cache.hotkeys.detected")
+                .description("Keys whose Redis read rate crossed the hot-key threshold")
+                .register(meterRegistry);
+        this.topKeysGauge = MultiGauge.builder("cache.hotkeys.top")
+                .description("Estimated Redis reads per window of the current top keys")
+                .register(meterRegistry);
+
+        long windowMillis = config.getWindow().toMillis();
+        scheduler.scheduleWithFixedDelay(this::age, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次 Redis 读取
+     *
+     * @return 该键当前是否为热键
+     */
+    boolean record(String key) {
+        int hash = spread(key.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(hash, row)));
+        }
+        if (estimate > topKeysFloor) {
+            offerTopKey(key, estimate);
+        }
+        if (estimate == config.getThreshold()) {
+            detectedCounter.increment();
+            log.info("Hot key detected: key={}, readsPerWindow>={}", key, estimate);
+        }
+        return estimate >= config.getThreshold();
+    }
+
+    /**
+     * 当前 top-K 键，按估计值降序
+     */
+    synchronized List<Map.Entry<String, Long>> topKeys() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(topKeys.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return entries.stream().map(entry -> Map.entry(entry.getKey(), entry.getValue())).toList();
+    }
+
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private synchronized void offerTopKey(String key, long estimate) {
+        topKeys.put(key, estimate);
+        if (topKeys.size() > config.getTopK()) {
+            topKeys.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .ifPresent(topKeys::remove);
+        }
+        updateFloor();
+    }
+
+    /**
+     * 窗口结束：计数与 top-K 估计值减半，并刷新 top-K 指标
+     */
+    void age() {
+        for (int i = 0; i < counters.length(); i++) {
+            int value = counters.get(i);
+            if (value != 0) {
+                counters.set(i, value >>> 1);
+            }
+        }
+        List<MultiGauge.Row<?>> rows = new ArrayList<>();
+        synchronized (this) {
+            topKeys.replaceAll((key, estimate) -> estimate >>> 1);
+            topKeys.values().removeIf(estimate -> estimate == 0);
+            updateFloor();
+            topKeys.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .forEach(entry -> rows.add(MultiGauge.Row.of(Tags.of("key", entry.getKey()), entry.getValue())));
+        }
+        topKeysGauge.register(rows, true);
+    }
+
+    private void updateFloor() {
+        topKeysFloor = topKeys.size() < config.getTopK()
+                ? 0
+                : topKeys.values().stream().min(Comparator.naturalOrder()).orElse(0L);
+    }
+
+    private int index(int hash, int row) {
+        return row * width + ((hash * SEEDS[row]) >>> indexShift);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x7feb352d;
+        hash ^= hash >>> 15;
+        return hash;
+    }
+}
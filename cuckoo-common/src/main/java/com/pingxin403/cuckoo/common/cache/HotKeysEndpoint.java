@@ -0,0 +1,32 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 热键 actuator 端点：/actuator/hotkeys
+ * 返回本实例 Redis 读取最频繁的 top-K 键、每个窗口的估计读取次数以及是否已固定在本地缓存
+ * 默认不通过 HTTP 暴露，需要的服务在 management.endpoints.web.exposure.include 中加入 hotkeys
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+public class HotKeysEndpoint {
+
+    private final ObjectProvider<MultiLevelCacheManagerImpl> cacheManager;
+
+    public HotKeysEndpoint(ObjectProvider<MultiLevelCacheManagerImpl> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeys() {
+        MultiLevelCacheManagerImpl manager = cacheManager.getIfAvailable();
+        return manager != null ? manager.hotKeys() : List.of();
+    }
+}
@@ -0,0 +1,65 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 跨实例本地缓存失效批次
+ * 二进制格式：格式版本(1) + 发布者 ID(16) + 序号(8) + 键数量(4) + [键长度(2) + UTF-8 键]...
+ * 序号由发布者单调递增，订阅方据此发现丢失的批次
+ */
+record InvalidationBatch(UUID publisherId, long sequence, List<String> keys) {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 1 + 16 + 8 + 4;
+
+    byte[] encode() {
+        List<byte[]> encodedKeys = new ArrayList<>(keys.size());
+        int size = HEADER_BYTES;
+        for (String key : keys) {
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Cache key too long: " + bytes.length + " bytes");
+            }
+            encodedKeys.add(bytes);
+            size += 2 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT_VERSION);
+        buffer.putLong(publisherId.getMostSignificantBits());
+        buffer.putLong(publisherId.getLeastSignificantBits());
+        buffer.putLong(sequence);
+        buffer.putInt(encodedKeys.size());
+        for (byte[] bytes : encodedKeys) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        return buffer.array();
+    }
+
+    static InvalidationBatch decode(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        if (body.length < HEADER_BYTES || buffer.get() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported invalidation batch format");
+        }
+        UUID publisherId = new UUID(buffer.getLong(), buffer.getLong());
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        List<String> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getShort()];
+            buffer.get(bytes);
+            keys.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return new InvalidationBatch(publisherId, sequence, keys);
+    }
+
+    static InvalidationBatch of(UUID publisherId, long sequence, Collection<String> keys) {
+        return new InvalidationBatch(publisherId, sequence, List.copyOf(keys));
+    }
+}
@@ -0,0 +1,263 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 跨实例本地缓存失效广播
+ * 发布端：失效键在合并窗口内去重合并，以二进制批次发布到 cache:invalidate，每个批次带本实例单调递增的序号；
+ * 定期发布空批次作为心跳。
+ * 订阅端：按发布者跟踪序号，缺口在容忍时间内未补齐（断线期间丢失了消息）则清空整个本地缓存，
+ * 避免继续提供已失效的数据。本实例自己的批次只用于检测订阅端是否断线。
+ */
+@Slf4j
+class InvalidationBroadcaster implements LocalCacheInvalidation {
+
+    static final String CHANNEL = "cache:invalidate";
+    private static final byte[] CHANNEL_BYTES = CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 单个发布者一次缺失超过该数量时不再逐个等待补齐，直接清空本地缓存
+     */
+    private static final int MAX_TRACKED_GAP = 100;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MultiLevelCacheProperties.Invalidation config;
+    private final Consumer<Collection<String>> invalidateKeys;
+    private final Runnable invalidateAll;
+
+    private final UUID publisherId = UUID.randomUUID();
+    private final ScheduledExecutorService scheduler;
+
+    // 待发布的失效键
+    private final Object pendingLock = new Object();
+    private Set<String> pendingKeys = new LinkedHashSet<>();
+
+    // 本实例已分配的最大序号（分配与发布都在 publishLock 下进行，保证序号与发布顺序一致）
+    private final Object publishLock = new Object();
+    private long sequence;
+
+    // 各发布者的接收进度
+    private final Map<UUID, PublisherProgress> progress = new ConcurrentHashMap<>();
+
+    private final Counter batchCounter;
+    private final Counter keyCounter;
+    private final Counter gapFlushCounter;
+
+    InvalidationBroadcaster(RedisTemplate<String, Object> redisTemplate,
+                            MultiLevelCacheProperties.Invalidation config,
+                            MeterRegistry meterRegistry,
+                            Consumer<Collection<String>> invalidateKeys,
+                            Runnable invalidateAll) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.invalidateKeys = invalidateKeys;
+        this.invalidateAll = invalidateAll;
+
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+
+        this.batchCounter = Counter.builder("cache.invalidation.batches")
+                .description("Invalidation batches published")
+                .register(meterRegistry);
+        this.keyCounter = Counter.builder("cache.invalidation.keys")
+                .description("Keys carried by published invalidation batches")
+                .register(meterRegistry);
+        this.gapFlushCounter = Counter.builder("cache.invalidation.gap.flushes")
+                .description("Full local cache flushes after missed invalidation batches")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 订阅失效频道并启动心跳与缺口检查
+     */
+    @Override
+    public void start(RedisMessageListenerContainer container) {
+        container.addMessageListener((message, pattern) -> onMessage(message.getBody()), new ChannelTopic(CHANNEL));
+        scheduler.scheduleWithFixedDelay(this::tick, config.getHeartbeatIntervalMs(),
+                config.getHeartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+        log.info("Subscribed to cache invalidation channel: {}, publisherId={}", CHANNEL, publisherId);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    /**
+     * 登记失效键，合并窗口结束后统一发布
+     */
+    @Override
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        boolean flushNow;
+        boolean scheduleFlush;
+        synchronized (pendingLock) {
+            scheduleFlush = pendingKeys.isEmpty();
+            pendingKeys.addAll(keys);
+            flushNow = pendingKeys.size() >= config.getMaxBatchKeys();
+        }
+        if (flushNow) {
+            flush();
+        } else if (scheduleFlush) {
+            scheduler.schedule(this::flush, config.getBatchWindowMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 发布全部待发布的失效键（超过单批上限时拆分）
+     */
+    void flush() {
+        List<String> keys;
+        synchronized (pendingLock) {
+            if (pendingKeys.isEmpty()) {
+                return;
+            }
+            keys = new ArrayList<>(pendingKeys);
+            pendingKeys = new LinkedHashSet<>();
+        }
+        for (int from = 0; from < keys.size(); from += config.getMaxBatchKeys()) {
+            publish(keys.subList(from, Math.min(keys.size(), from + config.getMaxBatchKeys())));
+        }
+    }
+
+    private void tick() {
+        try {
+            publish(List.of());
+            checkGaps();
+        } catch (RuntimeException e) {
+            log.warn("Cache invalidation heartbeat failed", e);
+        }
+    }
+
+    /**
+     * 发布一个批次；发布失败时序号照常消耗，订阅方会把它当作丢失的批次处理
+     * 心跳（空批次）同样占用序号，使订阅方在没有失效时也能发现断线期间丢失的批次
+     */
+    private void publish(List<String> keys) {
+        synchronized (publishLock) {
+            InvalidationBatch batch = InvalidationBatch.of(publisherId, ++sequence, keys);
+            byte[] payload = batch.encode();
+            try {
+                redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(CHANNEL_BYTES, payload));
+                if (!keys.isEmpty()) {
+                    batchCounter.increment();
+                    keyCounter.increment(keys.size());
+                    log.debug("Cache invalidation batch published: sequence={}, keys={}", batch.sequence(), keys.size());
+                }
+            } catch (RuntimeException e) {
+                log.warn("发布缓存失效批次失败: sequence={}, keys={}", batch.sequence(), keys.size(), e);
+            }
+        }
+    }
+
+    void onMessage(byte[] body) {
+        InvalidationBatch batch;
+        try {
+            batch = InvalidationBatch.decode(body);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring malformed cache invalidation message: {} bytes", body.length);
+            return;
+        }
+
+        boolean overflow = progress.computeIfAbsent(batch.publisherId(), id -> new PublisherProgress())
+                .record(batch.sequence(), System.nanoTime());
+        if (overflow) {
+            flushLocal("missed more than " + MAX_TRACKED_GAP + " batches from " + batch.publisherId());
+        }
+        if (!publisherId.equals(batch.publisherId()) && !batch.keys().isEmpty()) {
+            invalidateKeys.accept(batch.keys());
+        }
+    }
+
+    /**
+     * 缺口超过容忍时间仍未补齐：视为消息丢失，清空本地缓存
+     */
+    void checkGaps() {
+        long expiredBefore = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(config.getGapGraceMs());
+        for (Map.Entry<UUID, PublisherProgress> entry : progress.entrySet()) {
+            if (entry.getValue().hasGapDetectedBefore(expiredBefore)) {
+                flushLocal("missed invalidation batches from " + entry.getKey());
+                return;
+            }
+        }
+    }
+
+    private void flushLocal(String reason) {
+        progress.values().forEach(PublisherProgress::clearGaps);
+        invalidateAll.run();
+        gapFlushCounter.increment();
+        log.warn("本地缓存已全部清空: {}", reason);
+    }
+
+    /**
+     * 单个发布者的接收进度：已收到的最大序号，以及尚未收到的序号（序号 -> 发现缺口的时间）
+     */
+    private static final class PublisherProgress {
+
+        private long highest;
+        private final TreeMap<Long, Long> missing = new TreeMap<>();
+
+        /**
+         * @return 缺失数量超过跟踪上限时返回 true
+         */
+        synchronized boolean record(long sequence, long now) {
+            if (highest == 0) {
+                // 首次收到该发布者的消息，此前的批次发生在订阅之前
+                highest = sequence;
+                return false;
+            }
+            if (sequence <= highest) {
+                missing.remove(sequence);
+                return false;
+            }
+            long gap = sequence - highest - 1;
+            highest = sequence;
+            if (gap + missing.size() > MAX_TRACKED_GAP) {
+                missing.clear();
+                return true;
+            }
+            for (long missed = sequence - gap; missed < sequence; missed++) {
+                missing.put(missed, now);
+            }
+            return false;
+        }
+
+        synchronized boolean hasGapDetectedBefore(long expiredBefore) {
+            // 序号越小发现得越早，只需检查最早的缺口
+            return !missing.isEmpty() && missing.firstEntry().getValue() - expiredBefore <= 0;
+        }
+
+        synchronized void clearGaps() {
+            missing.clear();
+        }
+    }
+}
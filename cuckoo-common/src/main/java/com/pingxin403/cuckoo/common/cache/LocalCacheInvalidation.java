@@ -0,0 +1,28 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Collection;
+
+/**
+ * 跨实例本地缓存失效方式
+ * - pubsub：InvalidationBroadcaster，应用在删除键后发布失效批次
+ * - tracking：ClientTrackingInvalidation，由 Redis 客户端缓存跟踪推送被修改的键
+ */
+interface LocalCacheInvalidation {
+
+    String MODE_PUBSUB = "pubsub";
+    String MODE_TRACKING = "tracking";
+
+    /**
+     * 开始接收其他实例（或 Redis）的失效通知
+     */
+    void start(RedisMessageListenerContainer container);
+
+    /**
+     * 本实例删除了这些键，需要通知其他实例
+     */
+    void invalidate(Collection<String> keys);
+
+    void shutdown();
+}
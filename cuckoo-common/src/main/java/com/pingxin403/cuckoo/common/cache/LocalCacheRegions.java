@@ -0,0 +1,336 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 本地缓存分区（L1）
+ * 按键前缀把本地缓存划分为多个 Caffeine 分区，每个分区独立的字节上限（按估算的条目大小加权淘汰）、
+ * 写入后过期与访问后过期策略，以及按分区打标签的命中、淘汰与内存指标。
+ * 配置变更时原地调整：字节上限与过期策略立即生效；分区前缀变化会导致路由变化，此时清空全部分区。
+ * 热键固定在独立的 pinned 缓存中，不参与分区淘汰，读取时优先查找；写入与失效同时作用于两者。
+ */
+@Slf4j
+class LocalCacheRegions {
+
+    static final String DEFAULT_REGION = "default";
+
+    /**
+     * Caffeine 条目本身的固定开销（节点对象、哈希表槽位、LocalEntry 字段）
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final MeterRegistry meterRegistry;
+
+    // 分区名 -> 分区（reconfigure 在锁内修改，读取走 routes 快照）
+    private final Map<String, Region> regions = new LinkedHashMap<>();
+
+    // 按前缀长度降序排列的路由表，默认分区排在最后
+    private volatile List<Region> routes = List.of();
+
+    // 固定的热键（按条目自身的过期时间过期）
+    private final Cache<String, LocalEntry> pinned;
+    private final Duration pinTtl;
+
+    LocalCacheRegions(MultiLevelCacheProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.pinTtl = properties.getHotKeys().getPinTtl();
+        this.pinned = Caffeine.newBuilder()
+                .maximumSize(properties.getHotKeys().getMaxPinned())
+                .expireAfter(new EntryExpiry())
+                .build();
+        Gauge.builder("cache.hotkeys.pinned", pinned, Cache::estimatedSize)
+                .description("Hot keys currently pinned in the local cache")
+                .register(meterRegistry);
+        reconfigure(properties);
+    }
+
+    /**
+     * 按最新配置新建、调整或移除分区
+     */
+    synchronized void reconfigure(MultiLevelCacheProperties properties) {
+        Map<String, MultiLevelCacheProperties.LocalRegion> desired = new LinkedHashMap<>(properties.getRegions());
+        desired.remove(DEFAULT_REGION);
+        desired.put(DEFAULT_REGION, properties.getDefaultRegion());
+
+        Map<String, String> previousPrefixes = prefixes();
+        for (Map.Entry<String, MultiLevelCacheProperties.LocalRegion> entry : desired.entrySet()) {
+            String name = entry.getKey();
+            String prefix = DEFAULT_REGION.equals(name) ? "" : Objects.requireNonNullElse(entry.getValue().getPrefix(), "");
+            Region region = regions.get(name);
+            if (region == null) {
+                regions.put(name, new Region(name, prefix, entry.getValue()));
+            } else {
+                region.apply(prefix, entry.getValue());
+            }
+        }
+        Set<String> removed = regions.keySet().stream()
+                .filter(name -> !desired.containsKey(name))
+                .collect(Collectors.toSet());
+        removed.forEach(name -> regions.remove(name).close());
+
+        List<Region> sorted = new ArrayList<>(regions.values());
+        sorted.sort(Comparator.comparingInt((Region region) -> region.prefix.length()).reversed());
+        routes = List.copyOf(sorted);
+
+        if (!previousPrefixes.isEmpty() && !previousPrefixes.equals(prefixes())) {
+            // 路由变化后，原分区中的条目可能再也不会被读到或失效，全部清空
+            invalidateAll();
+            log.info("Local cache region prefixes changed, all regions flushed: {}", prefixes());
+        }
+        log.info("Local cache regions configured: {}", regions.values());
+    }
+
+    Region region(String key) {
+        for (Region region : routes) {
+            if (key.startsWith(region.prefix)) {
+                return region;
+            }
+        }
+        // 默认分区前缀为空，不会走到这里
+        throw new IllegalStateException("No local cache region for key: " + key);
+    }
+
+    LocalEntry get(String key) {
+        LocalEntry entry = pinned.getIfPresent(key);
+        return entry != null ? entry : region(key).cache.getIfPresent(key);
+    }
+
+    /**
+     * 写入；已固定的热键更新固定条目，保持固定
+     */
+    LocalEntry put(String key, Object value, Duration ttl, long loadNanos) {
+        LocalEntry pinnedEntry = pinned.asMap().computeIfPresent(key,
+                (k, previous) -> LocalEntry.of(value, ttl, loadNanos, pinTtl));
+        if (pinnedEntry != null) {
+            return pinnedEntry;
+        }
+        Region region = region(key);
+        LocalEntry entry = region.newEntry(value, ttl, loadNanos);
+        region.cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * 仅当当前条目仍是 expected 时替换
+     */
+    boolean replace(String key, LocalEntry expected, Object value, Duration ttl, long loadNanos) {
+        if (pinned.asMap().replace(key, expected, LocalEntry.of(value, ttl, loadNanos, pinTtl))) {
+            return true;
+        }
+        Region region = region(key);
+        return region.cache.asMap().replace(key, expected, region.newEntry(value, ttl, loadNanos));
+    }
+
+    void remove(String key, LocalEntry expected) {
+        pinned.asMap().remove(key, expected);
+        region(key).cache.asMap().remove(key, expected);
+    }
+
+    /**
+     * 把热键固定到本地缓存（从所在分区移出），存活时间为固定时长
+     */
+    LocalEntry pin(String key, Object value) {
+        LocalEntry entry = LocalEntry.of(value, null, 0, pinTtl);
+        pinned.put(key, entry);
+        region(key).cache.invalidate(key);
+        return entry;
+    }
+
+    boolean isPinned(String key) {
+        return pinned.asMap().containsKey(key);
+    }
+
+    void invalidateAll(Collection<String> keys) {
+        Map<Region, List<String>> byRegion = new HashMap<>();
+        for (String key : keys) {
+            byRegion.computeIfAbsent(region(key), region -> new ArrayList<>()).add(key);
+        }
+        byRegion.forEach((region, regionKeys) -> region.cache.invalidateAll(regionKeys));
+        pinned.invalidateAll(keys);
+    }
+
+    void invalidateAll() {
+        routes.forEach(region -> region.cache.invalidateAll());
+        pinned.invalidateAll();
+    }
+
+    /**
+     * 固定的热键，以及各分区按 Caffeine 频率统计由热到冷的条目（每个分区最多 limit 个）
+     */
+    List<Map<String, LocalEntry>> hottest(int limit) {
+        List<Map<String, LocalEntry>> hottest = new ArrayList<>();
+        hottest.add(new LinkedHashMap<>(pinned.asMap()));
+        for (Region region : routes) {
+            region.cache.policy().eviction().ifPresent(eviction -> hottest.add(eviction.hottest(limit)));
+        }
+        return hottest;
+    }
+
+    long estimatedSize() {
+        return routes.stream().mapToLong(region -> region.cache.estimatedSize()).sum() + pinned.estimatedSize();
+    }
+
+    /**
+     * 执行挂起的淘汰与过期清理（测试用）
+     */
+    void cleanUp() {
+        routes.forEach(region -> region.cache.cleanUp());
+    }
+
+    private Map<String, String> prefixes() {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        regions.forEach((name, region) -> prefixes.put(name, region.prefix));
+        return prefixes;
+    }
+
+    private static int weigh(String key, LocalEntry entry) {
+        long bytes = ENTRY_OVERHEAD + ObjectSizeEstimator.estimate(key) + ObjectSizeEstimator.estimate(entry.value);
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按条目自身的过期时间过期
+     */
+    private static final class EntryExpiry implements Expiry<String, LocalEntry> {
+
+        @Override
+        public long expireAfterCreate(String key, LocalEntry entry, long currentTime) {
+            return Math.max(0, entry.expiresAt - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, LocalEntry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, LocalEntry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * 单个分区：配置可变，Caffeine 实例与指标在分区生命周期内不变
+     */
+    final class Region {
+
+        final String name;
+        volatile String prefix;
+        volatile MultiLevelCacheProperties.LocalRegion config;
+        final Cache<String, LocalEntry> cache;
+        private final List<Meter> meters = new ArrayList<>();
+
+        Region(String name, String prefix, MultiLevelCacheProperties.LocalRegion config) {
+            this.name = name;
+            this.prefix = prefix;
+            this.config = config;
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(config.getMaximumWeight().toBytes())
+                    .weigher(LocalCacheRegions::weigh)
+                    .expireAfter(new RegionExpiry())
+                    .recordStats()
+                    .build();
+            registerMetrics();
+        }
+
+        LocalEntry newEntry(Object value, Duration ttl, long loadNanos) {
+            return LocalEntry.of(value, ttl, loadNanos, config.getExpireAfterWrite());
+        }
+
+        void apply(String prefix, MultiLevelCacheProperties.LocalRegion config) {
+            this.prefix = prefix;
+            this.config = config;
+            cache.policy().eviction().ifPresent(eviction -> eviction.setMaximum(config.getMaximumWeight().toBytes()));
+        }
+
+        void close() {
+            cache.invalidateAll();
+            meters.forEach(meterRegistry::remove);
+        }
+
+        private void registerMetrics() {
+            meters.add(FunctionCounter.builder("cache.local.hits", cache, c -> c.stats().hitCount())
+                    .tag("region", name)
+                    .description("Local cache region hits")
+                    .register(meterRegistry));
+            meters.add(FunctionCounter.builder("cache.local.misses", cache, c -> c.stats().missCount())
+                    .tag("region", name)
+                    .description("Local cache region misses")
+                    .register(meterRegistry));
+            meters.add(FunctionCounter.builder("cache.local.evictions", cache, c -> c.stats().evictionCount())
+                    .tag("region", name)
+                    .description("Local cache region evictions by size or expiry")
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("cache.local.size", cache, Cache::estimatedSize)
+                    .tag("region", name)
+                    .description("Local cache region entry count")
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("cache.local.weight", cache,
+                            c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                    .tag("region", name)
+                    .baseUnit("bytes")
+                    .description("Estimated heap bytes held by the local cache region")
+                    .register(meterRegistry));
+            meters.add(Gauge.builder("cache.local.max.weight", this, region -> region.config.getMaximumWeight().toBytes())
+                    .tag("region", name)
+                    .baseUnit("bytes")
+                    .description("Configured heap byte limit of the local cache region")
+                    .register(meterRegistry));
+        }
+
+        @Override
+        public String toString() {
+            return name + "{prefix='" + prefix + "', maximumWeight=" + config.getMaximumWeight()
+                    + ", expireAfterWrite=" + config.getExpireAfterWrite()
+                    + ", expireAfterAccess=" + config.getExpireAfterAccess() + "}";
+        }
+
+        /**
+         * 写入时按条目自身的过期时间（已受分区写入过期时间约束）；启用访问后过期时，每次读取把剩余时间收紧到访问窗口内
+         */
+        private final class RegionExpiry implements Expiry<String, LocalEntry> {
+
+            @Override
+            public long expireAfterCreate(String key, LocalEntry entry, long currentTime) {
+                return withinAccessWindow(Math.max(0, entry.expiresAt - currentTime));
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, LocalEntry entry, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, entry, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, LocalEntry entry, long currentTime, long currentDuration) {
+                if (config.getExpireAfterAccess() == null) {
+                    return currentDuration;
+                }
+                return withinAccessWindow(Math.max(0, entry.expiresAt - currentTime));
+            }
+
+            private long withinAccessWindow(long remaining) {
+                Duration expireAfterAccess = config.getExpireAfterAccess();
+                return expireAfterAccess == null ? remaining : Math.min(remaining, expireAfterAccess.toNanos());
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Nacos 配置刷新后重新应用本地缓存分区配置
+ * RefreshScopeRefreshedEvent 在 @ConfigurationProperties 重新绑定之后发布，此时 MultiLevelCacheProperties 已是最新值
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent")
+public class LocalCacheRegionsRefreshListener {
+
+    private final ObjectProvider<MultiLevelCacheManagerImpl> cacheManager;
+
+    public LocalCacheRegionsRefreshListener(ObjectProvider<MultiLevelCacheManagerImpl> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        cacheManager.ifAvailable(MultiLevelCacheManagerImpl::reconfigureLocalRegions);
+    }
+}
@@ -0,0 +1,129 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地缓存热数据快照文件（内存映射读写）
+ * 格式：魔数(4) + 版本(1) + 写入时间毫秒(8) + 条目数(4) + 条目...
+ * 条目：热度排名(4) + 键长度(2) + UTF-8 键 + 过期时间毫秒(8) + 值摘要 SHA-1(20) + 值长度(4) + 序列化值
+ * 值按 Redis 值序列化器序列化，摘要与 Redis 中同一值的 SHA-1 一致，恢复时据此判断值是否仍是最新版本
+ */
+final class LocalCacheSnapshot {
+
+    private static final int MAGIC = 0x434b4c31;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 1 + 8 + 4;
+    private static final int DIGEST_BYTES = 20;
+
+    private LocalCacheSnapshot() {
+    }
+
+    /**
+     * @param rank 热度排名（所在分区内由热到冷，从 0 开始）
+     */
+    record Entry(int rank, String key, long expiresAt, byte[] digest, byte[] value) {
+
+        static Entry of(int rank, String key, long expiresAt, byte[] value) {
+            return new Entry(rank, key, expiresAt, sha1(value), value);
+        }
+
+        private int size() {
+            return 4 + 2 + key.getBytes(StandardCharsets.UTF_8).length + 8 + DIGEST_BYTES + 4 + value.length;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程中途退出不会留下半个快照
+     *
+     * @return 实际写入的条目数（超过 maxBytes 的部分丢弃）
+     */
+    static int write(Path path, List<Entry> entries, long maxBytes) throws IOException {
+        long size = HEADER_BYTES;
+        int count = 0;
+        for (Entry entry : entries) {
+            if (size + entry.size() > Math.min(maxBytes, Integer.MAX_VALUE)) {
+                break;
+            }
+            size += entry.size();
+            count++;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).put(FORMAT_VERSION).putLong(System.currentTimeMillis()).putInt(count);
+            for (Entry entry : entries.subList(0, count)) {
+                byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+                buffer.putInt(entry.rank())
+                        .putShort((short) key.length)
+                        .put(key)
+                        .putLong(entry.expiresAt())
+                        .put(entry.digest())
+                        .putInt(entry.value().length)
+                        .put(entry.value());
+            }
+            buffer.force();
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * @return 快照条目；快照早于 maxAge 时返回空列表
+     * @throws IllegalArgumentException 文件格式不正确
+     */
+    static List<Entry> read(Path path, Duration maxAge) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.get() != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported local cache snapshot format: " + path);
+            }
+            long writtenAt = buffer.getLong();
+            if (System.currentTimeMillis() - writtenAt > maxAge.toMillis()) {
+                return List.of();
+            }
+            int count = buffer.getInt();
+            List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int rank = buffer.getInt();
+                byte[] key = new byte[buffer.getShort()];
+                buffer.get(key);
+                long expiresAt = buffer.getLong();
+                byte[] digest = new byte[DIGEST_BYTES];
+                buffer.get(digest);
+                byte[] value = new byte[buffer.getInt()];
+                buffer.get(value);
+                entries.add(new Entry(rank, new String(key, StandardCharsets.UTF_8), expiresAt, digest, value));
+            }
+            return entries;
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Truncated local cache snapshot: " + path, e);
+        }
+    }
+
+    static byte[] sha1(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-1").digest(value);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 本地缓存条目
+ * expiresAt 取调用方 TTL 与所在分区写入过期时间中较小者；loadNanos 为回源耗时（未知时为 0，XFetch 不生效）
+ */
+final class LocalEntry {
+
+    final Object value;
+    final long writtenAt;
+    final long expiresAt;
+    final long loadNanos;
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private LocalEntry(Object value, long writtenAt, long expiresAt, long loadNanos) {
+        this.value = value;
+        this.writtenAt = writtenAt;
+        this.expiresAt = expiresAt;
+        this.loadNanos = loadNanos;
+    }
+
+    /**
+     * @param ttl    调用方 TTL，为 null（从 Redis 回填，剩余 TTL 未知）时按 maxTtl 计
+     * @param maxTtl 分区写入过期时间
+     */
+    static LocalEntry of(Object value, Duration ttl, long loadNanos, Duration maxTtl) {
+        long now = System.nanoTime();
+        long ttlNanos = ttl == null ? maxTtl.toNanos() : Math.min(ttl.toNanos(), maxTtl.toNanos());
+        return new LocalEntry(value, now, now + ttlNanos, loadNanos);
+    }
+
+    boolean isExpired(long now) {
+        return now - expiresAt >= 0;
+    }
+
+    /**
+     * 超过 ratio 比例的存活时间，或 XFetch：now - loadNanos * beta * ln(rand) >= expiresAt
+     */
+    boolean isRefreshDue(long now, MultiLevelCacheProperties.RefreshAhead config) {
+        if (refreshing.get()) {
+            return true;
+        }
+        long ttlNanos = expiresAt - writtenAt;
+        if (now - writtenAt >= (long) (ttlNanos * config.getRatio())) {
+            return true;
+        }
+        if (loadNanos <= 0 || config.getBeta() <= 0) {
+            return false;
+        }
+        double gap = -loadNanos * config.getBeta() * Math.log(ThreadLocalRandom.current().nextDouble());
+        return now + (long) gap - expiresAt >= 0;
+    }
+}
@@ -1,6 +1,10 @@
 package com.pingxin403.cuckoo.common.cache;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 多级缓存管理器接口
@@ -18,6 +22,30 @@ public interface MultiLevelCacheManager {
      */
     <T> T get(String key, Class<T> type);
     
+    /**
+     * 批量获取缓存值
+     * 本地缓存命中的键直接返回，其余键以一次 MGET 从 Redis 读取并回填本地缓存
+     * 
+     * @param keys 缓存键
+     * @param type 值类型
+     * @return 命中的键值（未命中的键不在结果中）
+     */
+    <T> Map<String, T> getAll(Collection<String> keys, Class<T> type);
+    
+    /**
+     * 获取缓存值，未命中时回源加载并写入两级缓存（防止缓存击穿）
+     * - 同一 JVM 内并发未命中共享同一个加载结果，只有一个线程执行 loader
+     * - 跨实例通过短租约（Redis SETNX）选出一个加载者，其余实例短暂轮询 Redis 等待回填，超时后自行加载
+     * 调用方不应在持有数据库连接（外层事务）时调用本方法，loader 内部自行开启短事务
+     *
+     * @param key 缓存键
+     * @param type 值类型
+     * @param ttl 写入缓存的过期时间
+     * @param loader 回源加载函数，返回 null 时不写入缓存；抛出的异常原样传递给所有等待者
+     * @return 缓存值或加载结果
+     */
+    <T> T getOrLoad(String key, Class<T> type, Duration ttl, Supplier<T> loader);
+    
     /**
      * 设置缓存值
      * 同时写入本地缓存和 Redis 缓存
@@ -28,15 +56,47 @@ public interface MultiLevelCacheManager {
      */
     void put(String key, Object value, Duration ttl);
     
+    /**
+     * 批量设置缓存值
+     * 同时写入本地缓存和 Redis 缓存，Redis 写入以流水线方式一次往返完成
+     * 
+     * @param values 缓存键值
+     * @param ttl 按键计算过期时间（例如各自加随机抖动）
+     */
+    void putAll(Map<String, ?> values, Function<String, Duration> ttl);
+    
+    /**
+     * 批量设置缓存值，所有键使用相同的过期时间
+     */
+    default void putAll(Map<String, ?> values, Duration ttl) {
+        putAll(values, key -> ttl);
+    }
+    
     /**
      * 删除缓存
      * 同时删除本地缓存和 Redis 缓存
-     * 并通过 Redis Pub/Sub 通知其他实例删除本地缓存
+     * 并在合并窗口结束后通过 Redis Pub/Sub 批量通知其他实例删除本地缓存
      * 
      * @param key 缓存键
      */
     void evict(String key);
     
+    /**
+     * 批量删除缓存
+     * 以一条 DEL 删除 Redis 缓存，失效键与窗口内其他失效合并后批量通知其他实例
+     * 
+     * @param keys 缓存键
+     */
+    void evictAll(Collection<String> keys);
+    
+    /**
+     * 从本地快照恢复上次下线前的热点缓存（服务预热时调用，就绪前完成）
+     * 快照中的值与 Redis 当前值的摘要一致才使用，不一致时从 Redis 重新读取，Redis 中已不存在的键丢弃
+     * 
+     * @return 恢复到本地缓存的条目数，未启用快照或快照不可用时返回 0
+     */
+    int restoreSnapshot();
+    
     /**
      * 获取缓存统计信息
      * 
@@ -1,26 +1,56 @@
 package com.pingxin403.cuckoo.common.cache;
 
-import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * 多级缓存管理器实现
- * L1: 本地缓存（Caffeine）- 5分钟过期，最大10000条
+ * L1: 本地缓存（Caffeine）- 按键前缀分区，每个分区独立的字节上限、写入/访问后过期策略（cache.multi-level.regions）
+ * 可选堆外层（cache.multi-level.off-heap）：序列化后存入直接内存，位于 L1 与 L2 之间，命中后回填 L1
+ * 热键探测（cache.multi-level.hot-keys）：统计 Redis 读取频率，热键以更长的存活时间固定在 L1，不再访问 Redis
  * L2: 分布式缓存（Redis）- 1小时过期
  * 
+ * 提前刷新（仅 getOrLoad）：条目存活超过 TTL 的 ratio 比例，或按 XFetch 以回源耗时为尺度概率性提前，
+ * 读取方继续拿到当前值，同时由有界刷新线程池在后台回源一次，避免热点键在固定过期点集中回源
+ * 
  * 条件加载：
  * - 需要 Caffeine 在 classpath 中（本地缓存）
  * - 需要 RedisTemplate 在 classpath 中（分布式缓存）
@@ -30,19 +60,65 @@ import java.util.concurrent.atomic.AtomicLong;
 @ConditionalOnClass(value = Caffeine.class, name = "org.springframework.data.redis.core.RedisTemplate")
 public class MultiLevelCacheManagerImpl implements MultiLevelCacheManager {
     
-    private static final String CACHE_EVICT_CHANNEL = "cache:evict";
-    private static final int LOCAL_CACHE_MAX_SIZE = 10000;
-    private static final int LOCAL_CACHE_TTL_MINUTES = 5;
+    private static final String LEASE_KEY_PREFIX = "cache:lease:";
+    private static final Duration LEASE_TTL = Duration.ofSeconds(5);
+    private static final long LEASE_WAIT_MILLIS = 500;
+    private static final long LEASE_POLL_MILLIS = 20;
+    
+    /**
+     * 仅当租约仍属于自己时才释放，避免误删租约过期后其他实例取得的新租约
+     */
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+    
+    /**
+     * 返回各键当前值的 SHA-1，只传摘要不传值；键不存在时对应位置为 nil
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> VALUE_DIGEST_SCRIPT = new DefaultRedisScript<>(
+            "local result = {} "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "local value = redis.call('get', key) "
+                    + "if value then result[i] = redis.sha1hex(value) else result[i] = false end "
+                    + "end "
+                    + "return result",
+            List.class);
+    
+    private static final int SNAPSHOT_VERIFY_BATCH = 500;
+    
+    // L1: 按前缀分区的本地缓存（Caffeine），值带写入时间和回源耗时，用于提前刷新判断
+    private final LocalCacheRegions localCache;
+    private final MultiLevelCacheProperties properties;
     
-    // L1: 本地缓存（Caffeine）
-    private final Cache<String, Object> localCache;
+    // 堆外缓存层与本地快照使用的值序列化器（与 Redis 相同）
+    private final RedisSerializer<Object> valueSerializer;
+    
+    // 堆外缓存层，未启用时为 null
+    private final OffHeapCache offHeapCache;
     
     // L2: 分布式缓存（Redis）
     private final RedisTemplate<String, Object> redisTemplate;
     
+    // 进行中的回源加载（同一 JVM 内的并发未命中共享）
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+    
     // Redis 消息监听容器
     private final RedisMessageListenerContainer messageListenerContainer;
     
+    // 提前刷新配置与后台刷新线程池
+    private final MultiLevelCacheProperties.RefreshAhead refreshAhead;
+    private final ThreadPoolExecutor refreshExecutor;
+    
+    // 跨实例本地缓存失效（pubsub 批量广播或 Redis 客户端缓存跟踪）
+    private final LocalCacheInvalidation invalidation;
+    
+    // Redis 热键探测，未启用时为 null
+    private final HotKeyDetector hotKeyDetector;
+    
+    // 条目变更监听（预编码响应体等派生数据）
+    private final List<CacheChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    
     // 缓存统计
     private final AtomicLong localHits = new AtomicLong(0);
     private final AtomicLong redisHits = new AtomicLong(0);
@@ -52,20 +128,45 @@ public class MultiLevelCacheManagerImpl implements MultiLevelCacheManager {
     private final Counter localHitCounter;
     private final Counter redisHitCounter;
     private final Counter missCounter;
+    private final Counter loadCounter;
+    private final Counter localSharedCounter;
+    private final Counter remoteSharedCounter;
+    private final Counter refreshSuccessCounter;
+    private final Counter refreshFailureCounter;
+    private final Counter refreshSkippedCounter;
+    private final Counter staleServeCounter;
     
     public MultiLevelCacheManagerImpl(
             RedisTemplate<String, Object> redisTemplate,
             RedisMessageListenerContainer messageListenerContainer,
-            MeterRegistry meterRegistry) {
+            MeterRegistry meterRegistry,
+            MultiLevelCacheProperties properties) {
         this.redisTemplate = redisTemplate;
         this.messageListenerContainer = messageListenerContainer;
+        this.properties = properties;
+        this.refreshAhead = properties.getRefreshAhead();
         
-        // 初始化本地缓存
-        this.localCache = Caffeine.newBuilder()
-                .maximumSize(LOCAL_CACHE_MAX_SIZE)
-                .expireAfterWrite(LOCAL_CACHE_TTL_MINUTES, TimeUnit.MINUTES)
-                .recordStats()
-                .build();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.refreshExecutor = new ThreadPoolExecutor(
+                refreshAhead.getThreads(), refreshAhead.getThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshAhead.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        
+        // 初始化本地缓存分区
+        this.localCache = new LocalCacheRegions(properties, meterRegistry);
+        this.valueSerializer = valueSerializer(redisTemplate);
+        this.offHeapCache = properties.getOffHeap().isEnabled()
+                ? new OffHeapCache(properties.getOffHeap(), valueSerializer, meterRegistry)
+                : null;
+        
+        this.invalidation = createInvalidation(redisTemplate, properties.getInvalidation(), meterRegistry);
+        this.hotKeyDetector = properties.getHotKeys().isEnabled()
+                ? new HotKeyDetector(properties.getHotKeys(), meterRegistry)
+                : null;
         
         // 初始化 Micrometer 指标
         this.localHitCounter = Counter.builder("cache.hits")
@@ -82,77 +183,595 @@ public class MultiLevelCacheManagerImpl implements MultiLevelCacheManager {
                 .description("Cache miss count")
                 .register(meterRegistry);
         
-        log.info("MultiLevelCacheManager initialized: maxSize={}, ttl={}min", 
-                LOCAL_CACHE_MAX_SIZE, LOCAL_CACHE_TTL_MINUTES);
+        this.loadCounter = Counter.builder("cache.loads")
+                .description("Cache loader invocations")
+                .register(meterRegistry);
+        
+        this.localSharedCounter = Counter.builder("cache.loads.shared")
+                .tag("scope", "local")
+                .description("Cache misses served by an in-flight load in this instance")
+                .register(meterRegistry);
+        
+        this.remoteSharedCounter = Counter.builder("cache.loads.shared")
+                .tag("scope", "remote")
+                .description("Cache misses served by a load on another instance")
+                .register(meterRegistry);
+        
+        this.refreshSuccessCounter = Counter.builder("cache.refreshes")
+                .tag("result", "success")
+                .description("Background refresh-ahead reloads")
+                .register(meterRegistry);
+        
+        this.refreshFailureCounter = Counter.builder("cache.refreshes")
+                .tag("result", "failure")
+                .description("Background refresh-ahead reloads")
+                .register(meterRegistry);
+        
+        this.refreshSkippedCounter = Counter.builder("cache.refreshes")
+                .tag("result", "skipped")
+                .description("Background refresh-ahead reloads")
+                .register(meterRegistry);
+        
+        this.staleServeCounter = Counter.builder("cache.stale.serves")
+                .description("Reads served the current value while a refresh was due")
+                .register(meterRegistry);
+        
+        log.info("MultiLevelCacheManager initialized: regions={}, refreshAhead={}", 
+                properties.getRegions().keySet(), refreshAhead);
     }
     
     @PostConstruct
     public void init() {
-        // 订阅缓存失效通知
-        messageListenerContainer.addMessageListener(
-                (message, pattern) -> {
-                    String key = new String(message.getBody());
-                    log.debug("Received cache eviction notification: key={}", key);
-                    localCache.invalidate(key);
-                },
-                new ChannelTopic(CACHE_EVICT_CHANNEL)
-        );
-        log.info("Subscribed to cache eviction channel: {}", CACHE_EVICT_CHANNEL);
+        // 开始接收跨实例失效通知
+        invalidation.start(messageListenerContainer);
+    }
+    
+    /**
+     * 按配置选择失效方式；tracking 需要 Lettuce 非集群连接，不满足时回退到 pubsub
+     */
+    private LocalCacheInvalidation createInvalidation(RedisTemplate<String, Object> redisTemplate,
+                                                      MultiLevelCacheProperties.Invalidation config,
+                                                      MeterRegistry meterRegistry) {
+        if (LocalCacheInvalidation.MODE_TRACKING.equalsIgnoreCase(config.getMode())) {
+            LettuceConnectionFactory factory = ClientTrackingInvalidation.supportedFactory(redisTemplate);
+            if (factory != null) {
+                return new ClientTrackingInvalidation(factory, config, meterRegistry,
+                        this::onRemoteInvalidation, this::onRemoteInvalidationAll);
+            }
+            log.warn("当前 Redis 连接不支持客户端缓存跟踪（需要 Lettuce 非集群连接），回退到 pubsub 失效");
+        }
+        return new InvalidationBroadcaster(redisTemplate, config, meterRegistry,
+                this::onRemoteInvalidation, this::onRemoteInvalidationAll);
+    }
+    
+    /**
+     * 堆外层、本地快照与 Redis 使用同一个值序列化器（Jackson 带类型信息），反序列化后得到原类型
+     */
+    @SuppressWarnings("unchecked")
+    private static RedisSerializer<Object> valueSerializer(RedisTemplate<String, Object> redisTemplate) {
+        RedisSerializer<?> serializer = redisTemplate.getValueSerializer();
+        return serializer != null ? (RedisSerializer<Object>) serializer : RedisSerializer.json();
+    }
+    
+    /**
+     * 按最新配置调整本地缓存分区（Nacos 刷新后调用）
+     */
+    public void reconfigureLocalRegions() {
+        localCache.reconfigure(properties);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
+        refreshExecutor.shutdownNow();
+        invalidation.shutdown();
+        if (hotKeyDetector != null) {
+            hotKeyDetector.shutdown();
+        }
+    }
+    
+    /**
+     * 注册条目变更监听；写入、删除、提前刷新与跨实例失效都会回调
+     */
+    public void addChangeListener(CacheChangeListener listener) {
+        changeListeners.add(listener);
+    }
+    
+    /**
+     * 当前 Redis 读取最频繁的键（按估计值降序），未启用热键探测时为空
+     */
+    public List<HotKey> hotKeys() {
+        if (hotKeyDetector == null) {
+            return List.of();
+        }
+        return hotKeyDetector.topKeys().stream()
+                .map(entry -> new HotKey(entry.getKey(), entry.getValue(), localCache.isPinned(entry.getKey())))
+                .toList();
     }
     
     @Override
     public <T> T get(String key, Class<T> type) {
         // 1. 先查本地缓存
-        Object value = localCache.getIfPresent(key);
-        if (value != null) {
-            log.debug("Local cache hit: key={}", key);
-            localHits.incrementAndGet();
-            localHitCounter.increment();
-            return type.cast(value);
+        LocalEntry entry = getLocal(key);
+        if (entry != null) {
+            return type.cast(entry.value);
         }
         
-        // 2. 查 Redis 缓存
-        value = redisTemplate.opsForValue().get(key);
+        // 2. 查 Redis 缓存，未命中返回 null
+        return getRemote(key, type);
+    }
+    
+    private LocalEntry getLocal(String key) {
+        LocalEntry entry = localCache.get(key);
+        if (entry != null && entry.isExpired(System.nanoTime())) {
+            // 调用方给定的 TTL 短于本地缓存过期时间
+            localCache.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null && offHeapCache != null) {
+            entry = getOffHeap(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        log.debug("Local cache hit: key={}", key);
+        localHits.incrementAndGet();
+        localHitCounter.increment();
+        return entry;
+    }
+    
+    /**
+     * 堆外命中后回填 Caffeine（按剩余存活时间），是否长期留在堆上由 Caffeine 的准入策略决定
+     */
+    private LocalEntry getOffHeap(String key) {
+        OffHeapCache.Hit hit = offHeapCache.get(key);
+        if (hit == null) {
+            return null;
+        }
+        return localCache.put(key, hit.value(), hit.remainingTtl(), 0);
+    }
+    
+    private <T> T getRemote(String key, Class<T> type) {
+        Object value = redisTemplate.opsForValue().get(key);
         if (value != null) {
             log.debug("Redis cache hit: key={}", key);
             redisHits.incrementAndGet();
             redisHitCounter.increment();
             
-            // 回填本地缓存
-            localCache.put(key, value);
+            // 回填本地缓存（剩余 TTL 未知，按本地缓存过期时间计）
+            backfill(key, value);
             return type.cast(value);
         }
         
-        // 3. 缓存未命中
+        // 缓存未命中
         log.debug("Cache miss: key={}", key);
         misses.incrementAndGet();
         missCounter.increment();
         return null;
     }
     
+    @Override
+    public <T> Map<String, T> getAll(Collection<String> keys, Class<T> type) {
+        Map<String, T> result = new LinkedHashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        
+        // 1. 先查本地缓存
+        for (String key : keys) {
+            LocalEntry entry = getLocal(key);
+            if (entry != null) {
+                result.put(key, type.cast(entry.value));
+            } else if (!result.containsKey(key) && !remoteKeys.contains(key)) {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty()) {
+            return result;
+        }
+        
+        // 2. 其余键一次 MGET
+        List<Object> values = redisTemplate.opsForValue().multiGet(remoteKeys);
+        int hits = 0;
+        for (int i = 0; i < remoteKeys.size(); i++) {
+            Object value = values == null ? null : values.get(i);
+            if (value != null) {
+                backfill(remoteKeys.get(i), value);
+                result.put(remoteKeys.get(i), type.cast(value));
+                hits++;
+            }
+        }
+        redisHits.addAndGet(hits);
+        redisHitCounter.increment(hits);
+        misses.addAndGet(remoteKeys.size() - hits);
+        missCounter.increment(remoteKeys.size() - hits);
+        log.debug("Batch cache lookup: keys={}, localHits={}, redisHits={}",
+                keys.size(), result.size() - hits, hits);
+        return result;
+    }
+    
+    @Override
+    public <T> T getOrLoad(String key, Class<T> type, Duration ttl, Supplier<T> loader) {
+        LocalEntry entry = getLocal(key);
+        if (entry != null) {
+            if (refreshAhead.isEnabled() && entry.isRefreshDue(System.nanoTime(), refreshAhead)) {
+                staleServeCounter.increment();
+                scheduleRefresh(key, ttl, loader, entry);
+            }
+            return type.cast(entry.value);
+        }
+        
+        T cached = getRemote(key, type);
+        if (cached != null) {
+            return cached;
+        }
+        
+        // 同一 JVM 内只有第一个未命中的线程回源，其余线程等待同一个结果
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = inFlightLoads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            localSharedCounter.increment();
+            return type.cast(await(inFlight));
+        }
+        
+        try {
+            T value = loadWithLease(key, type, ttl, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+    
+    /**
+     * 跨实例回源：取得租约的实例执行 loader；未取得租约时短暂轮询 Redis，等待加载者回填
+     * 等待超时（加载者宕机或加载失败）后自行回源
+     */
+    private <T> T loadWithLease(String key, Class<T> type, Duration ttl, Supplier<T> loader) {
+        String leaseKey = LEASE_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token, LEASE_TTL);
+        
+        if (Boolean.FALSE.equals(acquired)) {
+            T value = awaitRemoteLoad(key, type);
+            if (value != null) {
+                remoteSharedCounter.increment();
+                return value;
+            }
+            log.debug("Cache lease wait timed out, loading locally: key={}", key);
+        }
+        
+        try {
+            loadCounter.increment();
+            long startedAt = System.nanoTime();
+            T value = loader.get();
+            if (value != null) {
+                store(key, value, ttl, System.nanoTime() - startedAt);
+            }
+            return value;
+        } finally {
+            if (Boolean.TRUE.equals(acquired)) {
+                redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey), token);
+            }
+        }
+    }
+    
+    private <T> T awaitRemoteLoad(String key, Class<T> type) {
+        long deadline = System.currentTimeMillis() + LEASE_WAIT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                backfill(key, value);
+                return type.cast(value);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 后台刷新：每个本地条目最多触发一次；取不到租约说明其他实例正在回源，本次跳过
+     * 回源结果仅在本地条目未被替换或失效时写回，避免覆盖刷新期间的更新与失效
+     */
+    private void scheduleRefresh(String key, Duration ttl, Supplier<?> loader, LocalEntry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> refresh(key, ttl, loader, entry));
+        } catch (RejectedExecutionException e) {
+            refreshSkippedCounter.increment();
+            log.debug("Cache refresh queue full, skipping refresh: key={}", key);
+        }
+    }
+    
+    private void refresh(String key, Duration ttl, Supplier<?> loader, LocalEntry entry) {
+        String leaseKey = LEASE_KEY_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = null;
+        try {
+            acquired = redisTemplate.opsForValue().setIfAbsent(leaseKey, token, LEASE_TTL);
+            if (Boolean.FALSE.equals(acquired)) {
+                refreshSkippedCounter.increment();
+                return;
+            }
+            
+            long startedAt = System.nanoTime();
+            Object value = loader.get();
+            long loadNanos = System.nanoTime() - startedAt;
+            if (value != null && localCache.replace(key, entry, value, ttl, loadNanos)) {
+                if (offHeapCache != null) {
+                    offHeapCache.put(key, value, ttl);
+                }
+                redisTemplate.opsForValue().set(key, value, ttl);
+                notifyChanged(List.of(key));
+            }
+            refreshSuccessCounter.increment();
+            log.debug("Cache refreshed ahead of expiry: key={}, loadMs={}", key, loadNanos / 1_000_000);
+        } catch (RuntimeException e) {
+            // 刷新失败不影响读取，条目到期后按普通未命中回源
+            refreshFailureCounter.increment();
+            log.warn("Cache refresh failed: key={}", key, e);
+        } finally {
+            if (Boolean.TRUE.equals(acquired)) {
+                redisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey), token);
+            }
+        }
+    }
+    
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+    
     @Override
     public void put(String key, Object value, Duration ttl) {
+        store(key, value, ttl, 0);
+        notifyChanged(List.of(key));
+    }
+    
+    private void store(String key, Object value, Duration ttl, long loadNanos) {
         // 同时写入两级缓存
-        localCache.put(key, value);
+        putLocal(key, value, ttl, loadNanos);
         redisTemplate.opsForValue().set(key, value, ttl);
         log.debug("Cache updated: key={}, ttl={}", key, ttl);
     }
     
+    @Override
+    public void putAll(Map<String, ?> values, Function<String, Duration> ttl) {
+        if (values.isEmpty()) {
+            return;
+        }
+        values.forEach((key, value) -> putLocal(key, value, ttl.apply(key), 0));
+        
+        // SET 不支持多键，MSET 不支持过期时间：逐键 SET EX，以流水线一次往返发送
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> pipeline = (RedisOperations<String, Object>) operations;
+                values.forEach((key, value) -> pipeline.opsForValue().set(key, value, ttl.apply(key)));
+                return null;
+            }
+        });
+        notifyChanged(values.keySet());
+        log.debug("Cache batch updated: keys={}", values.size());
+    }
+    
     @Override
     public void evict(String key) {
         // 同时删除两级缓存
-        localCache.invalidate(key);
+        invalidateLocal(List.of(key));
         redisTemplate.delete(key);
+        notifyChanged(List.of(key));
         
-        // 发布缓存失效消息，通知其他实例
-        redisTemplate.convertAndSend(CACHE_EVICT_CHANNEL, key);
-        log.debug("Cache evicted and notification sent: key={}", key);
+        // 登记失效键，合并窗口结束后批量通知其他实例
+        invalidation.invalidate(List.of(key));
+        log.debug("Cache evicted: key={}", key);
     }
     
     @Override
-    public CacheStats getStats() {
-        com.github.benmanes.caffeine.cache.stats.CacheStats caffeineStats = localCache.stats();
+    public void evictAll(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        invalidateLocal(keys);
+        redisTemplate.delete(keys);
+        notifyChanged(keys);
         
+        invalidation.invalidate(keys);
+        log.debug("Cache batch evicted: keys={}", keys.size());
+    }
+    
+    /**
+     * 写入本实例的本地层（Caffeine 与堆外层）
+     */
+    private void putLocal(String key, Object value, Duration ttl, long loadNanos) {
+        localCache.put(key, value, ttl, loadNanos);
+        if (offHeapCache != null) {
+            offHeapCache.put(key, value, ttl);
+        }
+    }
+    
+    /**
+     * Redis 读取命中后回填本地缓存；热键固定在 L1（不写堆外层，固定期间读取不再经过 Redis）
+     */
+    private void backfill(String key, Object value) {
+        if (hotKeyDetector != null && hotKeyDetector.record(key)) {
+            localCache.pin(key, value);
+            return;
+        }
+        putLocal(key, value, null, 0);
+    }
+    
+    private void invalidateLocal(Collection<String> keys) {
+        localCache.invalidateAll(keys);
+        if (offHeapCache != null) {
+            keys.forEach(offHeapCache::remove);
+        }
+    }
+    
+    private void invalidateLocal() {
+        localCache.invalidateAll();
+        if (offHeapCache != null) {
+            offHeapCache.clear();
+        }
+    }
+    
+    private void onRemoteInvalidation(Collection<String> keys) {
+        invalidateLocal(keys);
+        notifyChanged(keys);
+    }
+    
+    private void onRemoteInvalidationAll() {
+        invalidateLocal();
+        changeListeners.forEach(CacheChangeListener::cleared);
+    }
+    
+    /**
+     * 在两级缓存都已更新之后回调，监听方此后派生的数据不会再基于旧值
+     */
+    private void notifyChanged(Collection<String> keys) {
+        for (CacheChangeListener listener : changeListeners) {
+            try {
+                listener.changed(keys);
+            } catch (RuntimeException e) {
+                log.warn("Cache change listener failed: keys={}", keys.size(), e);
+            }
+        }
+    }
+    
+    /**
+     * 保存各分区最热的条目；未过期的条目按墙钟时间记录过期时间，供新进程恢复
+     */
+    private void saveSnapshot() {
+        MultiLevelCacheProperties.Snapshot config = properties.getSnapshot();
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            long nowNanos = System.nanoTime();
+            long nowMillis = System.currentTimeMillis();
+            List<LocalCacheSnapshot.Entry> entries = new ArrayList<>();
+            for (Map<String, LocalEntry> hottest : localCache.hottest(config.getMaxEntries())) {
+                int rank = 0;
+                for (Map.Entry<String, LocalEntry> entry : hottest.entrySet()) {
+                    long remainingNanos = entry.getValue().expiresAt - nowNanos;
+                    byte[] value = valueSerializer.serialize(entry.getValue().value);
+                    if (remainingNanos > 0 && value != null) {
+                        entries.add(LocalCacheSnapshot.Entry.of(rank++, entry.getKey(),
+                                nowMillis + TimeUnit.NANOSECONDS.toMillis(remainingNanos), value));
+                    }
+                }
+            }
+            int written = LocalCacheSnapshot.write(Path.of(config.getPath()), entries, config.getMaxSize().toBytes());
+            log.info("Local cache snapshot saved: path={}, entries={}", config.getPath(), written);
+        } catch (IOException | RuntimeException e) {
+            log.warn("保存本地缓存快照失败: path={}", config.getPath(), e);
+        }
+    }
+    
+    @Override
+    public int restoreSnapshot() {
+        MultiLevelCacheProperties.Snapshot config = properties.getSnapshot();
+        if (!config.isEnabled()) {
+            return 0;
+        }
+        List<LocalCacheSnapshot.Entry> entries;
+        try {
+            entries = LocalCacheSnapshot.read(Path.of(config.getPath()), config.getMaxAge());
+        } catch (NoSuchFileException e) {
+            log.info("No local cache snapshot found: path={}", config.getPath());
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("读取本地缓存快照失败，跳过恢复: path={}", config.getPath(), e);
+            return 0;
+        }
+        
+        long now = System.currentTimeMillis();
+        List<LocalCacheSnapshot.Entry> live = entries.stream()
+                .filter(entry -> entry.expiresAt() > now)
+                .toList();
+        int restored = 0;
+        int refetched = 0;
+        for (int from = 0; from < live.size(); from += SNAPSHOT_VERIFY_BATCH) {
+            List<LocalCacheSnapshot.Entry> batch = live.subList(from, Math.min(live.size(), from + SNAPSHOT_VERIFY_BATCH));
+            List<String> keys = batch.stream().map(LocalCacheSnapshot.Entry::key).toList();
+            List<?> digests = remoteDigests(keys);
+            
+            List<LocalCacheSnapshot.Entry> stale = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                LocalCacheSnapshot.Entry entry = batch.get(i);
+                if (digests == null) {
+                    stale.add(entry);
+                } else if (digests.get(i) != null) {
+                    if (HexFormat.of().formatHex(entry.digest()).equals(digests.get(i))) {
+                        putLocal(entry.key(), valueSerializer.deserialize(entry.value()),
+                                Duration.ofMillis(entry.expiresAt() - now), 0);
+                        restored++;
+                    } else {
+                        stale.add(entry);
+                    }
+                }
+                // Redis 中已不存在：下线期间被更新删除或已过期，丢弃
+            }
+            refetched += refetch(stale, now);
+        }
+        log.info("Local cache snapshot restored: path={}, entries={}, restored={}, refetched={}",
+                config.getPath(), entries.size(), restored, refetched);
+        return restored + refetched;
+    }
+    
+    /**
+     * Redis 中各键当前值的 SHA-1（键不存在为 null）；脚本执行失败（如集群跨槽）返回 null，由调用方全部重新读取
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<?> remoteDigests(List<String> keys) {
+        try {
+            return redisTemplate.execute(VALUE_DIGEST_SCRIPT, RedisSerializer.string(),
+                    (RedisSerializer) RedisSerializer.string(), keys);
+        } catch (RuntimeException e) {
+            log.warn("Snapshot digest check failed, refetching from Redis: {}", e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * 快照值已过时（或无法校验）的键从 Redis 读取最新值
+     */
+    private int refetch(List<LocalCacheSnapshot.Entry> entries, long now) {
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<Object> values = redisTemplate.opsForValue().multiGet(
+                entries.stream().map(LocalCacheSnapshot.Entry::key).toList());
+        int refetched = 0;
+        for (int i = 0; values != null && i < entries.size(); i++) {
+            if (values.get(i) != null) {
+                putLocal(entries.get(i).key(), values.get(i), Duration.ofMillis(entries.get(i).expiresAt() - now), 0);
+                refetched++;
+            }
+        }
+        return refetched;
+    }
+    
+    @Override
+    public CacheStats getStats() {
         return CacheStats.builder()
                 .localHits(localHits.get())
                 .redisHits(redisHits.get())
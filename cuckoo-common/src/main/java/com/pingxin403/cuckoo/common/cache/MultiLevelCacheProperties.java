@@ -0,0 +1,265 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多级缓存配置属性（cache.multi-level.*）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "cache.multi-level")
+public class MultiLevelCacheProperties {
+
+    /**
+     * 未匹配任何分区前缀的键使用的本地缓存分区
+     */
+    private LocalRegion defaultRegion = new LocalRegion();
+
+    /**
+     * 按键前缀划分的本地缓存分区（分区名 -> 配置），键归属前缀最长的分区；支持 Nacos 动态刷新
+     */
+    private Map<String, LocalRegion> regions = new LinkedHashMap<>();
+
+    /**
+     * 堆外缓存层配置
+     */
+    private OffHeap offHeap = new OffHeap();
+
+    /**
+     * 本地缓存快照配置
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    /**
+     * 热键探测配置
+     */
+    private HotKeys hotKeys = new HotKeys();
+
+    /**
+     * 预编码响应体配置
+     */
+    private EncodedResponses encodedResponses = new EncodedResponses();
+
+    /**
+     * 提前刷新配置
+     */
+    private RefreshAhead refreshAhead = new RefreshAhead();
+
+    /**
+     * 跨实例失效通知配置
+     */
+    private Invalidation invalidation = new Invalidation();
+
+    @Data
+    public static class LocalRegion {
+
+        /**
+         * 键前缀，如 product:（默认分区忽略该配置）
+         */
+        private String prefix = "";
+
+        /**
+         * 分区内条目估算占用的堆内存上限，超过后按 W-TinyLFU 淘汰
+         */
+        private DataSize maximumWeight = DataSize.ofMegabytes(32);
+
+        /**
+         * 写入后过期时间（调用方 TTL 更短时以调用方为准），修改后对新写入的条目生效
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+        /**
+         * 访问后过期时间，为空表示不启用；启用后条目在该时间内未被读取即过期
+         */
+        private Duration expireAfterAccess;
+    }
+
+    @Data
+    public static class OffHeap {
+
+        /**
+         * 是否启用堆外缓存层（位于 Caffeine 与 Redis 之间）；启用后 Caffeine 分区可以只保留最热的键
+         */
+        private boolean enabled = false;
+
+        /**
+         * 堆外内存容量，需同时调大 -XX:MaxDirectMemorySize
+         */
+        private DataSize capacity = DataSize.ofMegabytes(256);
+
+        /**
+         * 分段数（向下取 2 的幂），每段一把锁，单段容量不能超过 2GB
+         */
+        private int segments = 64;
+
+        /**
+         * 写入后过期时间，调用方 TTL 更短时以调用方为准
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * 是否在优雅下线时保存本地缓存热数据快照，并在启动预热时恢复
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照文件路径（本地磁盘，滚动发布时需挂载到新实例可见的卷）
+         */
+        private String path = "/tmp/cuckoo-cache/l1.snapshot";
+
+        /**
+         * 每个分区保存的最热条目数
+         */
+        private int maxEntries = 50000;
+
+        /**
+         * 快照文件大小上限
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(256);
+
+        /**
+         * 快照超过该时间不再恢复
+         */
+        private Duration maxAge = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class HotKeys {
+
+        /**
+         * 是否统计 Redis 读取频率并把热键固定在本地缓存，默认关闭，由需要的服务显式开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 统计窗口，每个窗口结束时计数减半
+         */
+        private Duration window = Duration.ofSeconds(1);
+
+        /**
+         * 单个实例一个窗口内读取 Redis 达到该次数的键视为热键
+         */
+        private int threshold = 100;
+
+        /**
+         * 展示的热键数量
+         */
+        private int topK = 20;
+
+        /**
+         * Count-Min Sketch 每行的计数器数量（向下取 2 的幂）
+         */
+        private int sketchWidth = 16384;
+
+        /**
+         * 热键在本地缓存中的固定时长（不受分区淘汰与分区过期时间影响，失效通知照常生效）
+         */
+        private Duration pinTtl = Duration.ofMinutes(10);
+
+        /**
+         * 同时固定的热键数量上限
+         */
+        private int maxPinned = 1000;
+    }
+
+    @Data
+    public static class EncodedResponses {
+
+        /**
+         * 是否缓存热点接口编码后的响应体（JSON 字节、gzip 字节与 ETag）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 编码结果占用的字节上限
+         */
+        private DataSize maximumWeight = DataSize.ofMegabytes(32);
+
+        /**
+         * 编码结果写入后的存活时间；编码结果随多级缓存的写入与失效一起删除，
+         * 该时间只兜底绕过多级缓存直接修改 Redis 的写入
+         */
+        private Duration expireAfterWrite = Duration.ofMinutes(5);
+
+        /**
+         * JSON 达到该大小时同时预先压缩一份 gzip
+         */
+        private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+    }
+
+    @Data
+    public static class RefreshAhead {
+
+        /**
+         * 是否启用提前刷新（仅对通过 getOrLoad 读取的条目生效）
+         */
+        private boolean enabled = true;
+
+        /**
+         * 条目存活超过 TTL 的该比例后，下一次读取触发后台刷新
+         */
+        private double ratio = 0.8;
+
+        /**
+         * XFetch 提前重算系数，越大越倾向于提前刷新；0 表示只按 ratio 刷新
+         */
+        private double beta = 1.0;
+
+        /**
+         * 刷新线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 刷新队列容量，队列满时放弃本次刷新，条目到期后按普通未命中回源
+         */
+        private int queueCapacity = 1000;
+    }
+
+    @Data
+    public static class Invalidation {
+
+        /**
+         * 失效方式：pubsub（应用发布失效批次）或 tracking（Redis 6+ 客户端缓存跟踪，BCAST 模式按前缀推送）
+         */
+        private String mode = LocalCacheInvalidation.MODE_PUBSUB;
+
+        /**
+         * tracking 模式跟踪的键前缀，为空时跟踪全部键
+         */
+        private List<String> trackingPrefixes = new ArrayList<>();
+
+        /**
+         * 失效键的合并窗口（毫秒），窗口内的失效合并为一条消息发布
+         */
+        private long batchWindowMs = 5;
+
+        /**
+         * 单条消息最多携带的键数，超过后拆分为多条
+         */
+        private int maxBatchKeys = 1000;
+
+        /**
+         * 心跳间隔（毫秒），无失效时也发布空批次，便于订阅方及时发现丢失的消息
+         */
+        private long heartbeatIntervalMs = 1000;
+
+        /**
+         * 序号缺口的容忍时间（毫秒），消息可能乱序到达，超时仍未补齐才清空本地缓存
+         */
+        private long gapGraceMs = 1000;
+    }
+}
@@ -0,0 +1,158 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地缓存条目的堆内存占用估算（按 64 位 JVM、压缩指针计）
+ * 只求数量级准确、计算便宜：字符串按 UTF-16 计上界，对象图按字段反射遍历并限制深度，
+ * 无法反射的 JDK 内部类型按固定大小计。用于 Caffeine 按字节加权淘汰，不是精确的 retained size。
+ */
+final class ObjectSizeEstimator {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int MAX_DEPTH = 8;
+
+    /**
+     * 无法反射访问字段的类型按该大小计
+     */
+    private static final int OPAQUE_OBJECT = 64;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return instanceFields(type);
+        }
+    };
+
+    private ObjectSizeEstimator() {
+    }
+
+    static long estimate(Object value) {
+        return estimate(value, 0);
+    }
+
+    private static long estimate(Object value, int depth) {
+        if (value == null || value instanceof Enum<?> || value instanceof Class<?>) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            return align(OBJECT_HEADER + 12) + align(ARRAY_HEADER + 2L * string.length());
+        }
+        if (value instanceof Long || value instanceof Double) {
+            return 24;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            return 16;
+        }
+        if (value instanceof BigDecimal || value instanceof BigInteger) {
+            return 64;
+        }
+        if (value instanceof Temporal) {
+            return 48;
+        }
+        if (depth >= MAX_DEPTH) {
+            return OPAQUE_OBJECT;
+        }
+
+        Class<?> type = value.getClass();
+        if (type.isArray()) {
+            return estimateArray(value, type.getComponentType(), depth);
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = align(OBJECT_HEADER + 16) + align(ARRAY_HEADER + (long) REFERENCE * collection.size());
+            for (Object element : collection) {
+                size += estimate(element, depth + 1);
+            }
+            return size;
+        }
+        if (value instanceof Map<?, ?> map) {
+            // HashMap.Node：头 + hash + key/value/next 引用
+            long size = align(OBJECT_HEADER + 32) + align(ARRAY_HEADER + (long) REFERENCE * map.size() * 2)
+                    + 32L * map.size();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += estimate(entry.getKey(), depth + 1) + estimate(entry.getValue(), depth + 1);
+            }
+            return size;
+        }
+
+        Field[] fields = FIELDS.get(type);
+        if (fields == null) {
+            return OPAQUE_OBJECT;
+        }
+        long shallow = OBJECT_HEADER;
+        long nested = 0;
+        for (Field field : fields) {
+            Class<?> fieldType = field.getType();
+            if (fieldType.isPrimitive()) {
+                shallow += primitiveSize(fieldType);
+                continue;
+            }
+            shallow += REFERENCE;
+            try {
+                nested += estimate(field.get(value), depth + 1);
+            } catch (IllegalAccessException e) {
+                nested += OPAQUE_OBJECT;
+            }
+        }
+        return align(shallow) + nested;
+    }
+
+    private static long estimateArray(Object array, Class<?> componentType, int depth) {
+        int length = Array.getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(ARRAY_HEADER + (long) primitiveSize(componentType) * length);
+        }
+        long size = align(ARRAY_HEADER + (long) REFERENCE * length);
+        for (int i = 0; i < length; i++) {
+            size += estimate(Array.get(array, i), depth + 1);
+        }
+        return size;
+    }
+
+    /**
+     * 类型及其父类的实例字段；JDK 内部类型（模块未开放）无法访问时返回 null
+     */
+    private static Field[] instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (!field.getType().isPrimitive() && !field.trySetAccessible()) {
+                    return null;
+                }
+                fields.add(field);
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
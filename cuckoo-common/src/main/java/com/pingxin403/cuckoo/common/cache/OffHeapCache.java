@@ -0,0 +1,442 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 堆外本地缓存（L1 与 Redis 之间的可选层）
+ * 值按 Redis 值序列化器序列化后存入直接内存，GC 只看到少量缓冲区与索引数组，适合容纳千万级条目的热数据集。
+ * 按键的 64 位哈希分段，每段一把锁：
+ * - 数据区是环形日志，记录只追加，空间不足时从最旧的记录开始淘汰（FIFO），访问频率由其上的 Caffeine 层把关；
+ * - 索引是开放寻址的 long 数组（哈希 -> 记录的逻辑偏移），读取时比对键字节，哈希冲突按未命中处理。
+ * 删除与覆盖只移除索引项，旧记录占用的空间在被淘汰时回收。
+ */
+@Slf4j
+class OffHeapCache {
+
+    /**
+     * 记录头：记录长度(4) + 键哈希(8) + 键长度(4) + 值长度(4) + 过期时间毫秒(8)
+     */
+    private static final int HEADER_BYTES = 4 + 8 + 4 + 4 + 8;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final RedisSerializer<Object> serializer;
+    private final Duration expireAfterWrite;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    OffHeapCache(MultiLevelCacheProperties.OffHeap config, RedisSerializer<Object> serializer,
+                 MeterRegistry meterRegistry) {
+        int segmentCount = Integer.highestOneBit(Math.max(1, config.getSegments()));
+        long segmentBytes = config.getCapacity().toBytes() / segmentCount;
+        if (segmentBytes > Integer.MAX_VALUE || segmentBytes < HEADER_BYTES) {
+            throw new IllegalArgumentException("Off-heap segment size out of range: " + segmentBytes
+                    + " bytes, adjust capacity or segments");
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) segmentBytes);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.serializer = serializer;
+        this.expireAfterWrite = config.getExpireAfterWrite();
+
+        FunctionCounter.builder("cache.offheap.hits", hits, LongAdder::sum)
+                .description("Off-heap cache hits")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.misses", misses, LongAdder::sum)
+                .description("Off-heap cache misses")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.evictions", evictions, LongAdder::sum)
+                .description("Live off-heap entries evicted to make room")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.offheap.rejected", rejected, LongAdder::sum)
+                .description("Values not stored off-heap because they were too large or not serializable")
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.entries", this, OffHeapCache::size)
+                .description("Off-heap cache entry count")
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.used", this, OffHeapCache::usedBytes)
+                .baseUnit("bytes")
+                .description("Off-heap log bytes in use, including overwritten records not yet reclaimed")
+                .register(meterRegistry);
+        Gauge.builder("cache.offheap.capacity", this, cache -> (double) segmentBytes * segmentCount)
+                .baseUnit("bytes")
+                .description("Off-heap cache capacity")
+                .register(meterRegistry);
+
+        log.info("Off-heap cache initialized: capacity={}, segments={}, expireAfterWrite={}",
+                config.getCapacity(), segmentCount, expireAfterWrite);
+    }
+
+    /**
+     * 命中返回值与剩余存活时间；未命中、过期或反序列化失败返回 null
+     */
+    Hit get(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        Segment segment = segment(hash);
+        long now = System.currentTimeMillis();
+        Segment.Found found = segment.get(hash, keyBytes, now);
+        if (found == null) {
+            misses.increment();
+            return null;
+        }
+        try {
+            Object value = serializer.deserialize(found.value());
+            if (value == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return new Hit(value, Duration.ofMillis(found.expiresAt() - now));
+        } catch (SerializationException e) {
+            log.warn("Off-heap cache entry not deserializable, dropping: key={}", key, e);
+            segment.remove(hash, keyBytes);
+            misses.increment();
+            return null;
+        }
+    }
+
+    /**
+     * @param ttl 调用方 TTL，为 null 时按 expireAfterWrite 计，且不超过 expireAfterWrite
+     */
+    void put(String key, Object value, Duration ttl) {
+        byte[] valueBytes;
+        try {
+            valueBytes = serializer.serialize(value);
+        } catch (SerializationException e) {
+            rejected.increment();
+            log.debug("Value not serializable for off-heap cache: key={}", key);
+            return;
+        }
+        if (valueBytes == null) {
+            return;
+        }
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        long ttlMillis = ttl == null ? expireAfterWrite.toMillis() : Math.min(ttl.toMillis(), expireAfterWrite.toMillis());
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + keyBytes.length + valueBytes.length);
+        record.putInt(record.capacity())
+                .putLong(hash)
+                .putInt(keyBytes.length)
+                .putInt(valueBytes.length)
+                .putLong(expiresAt)
+                .put(keyBytes)
+                .put(valueBytes);
+        if (!segment(hash).put(hash, record.array())) {
+            rejected.increment();
+        }
+    }
+
+    void remove(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        segment(hash).remove(hash, keyBytes);
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long usedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.usedBytes();
+        }
+        return used;
+    }
+
+    private Segment segment(long hash) {
+        return segments[(int) (hash >>> 40) & segmentMask];
+    }
+
+    /**
+     * FNV-1a 64 位哈希 + murmur3 末端混合；0 保留给索引空槽
+     */
+    static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    record Hit(Object value, Duration remainingTtl) {
+    }
+
+    /**
+     * 单个分段：环形日志 + 开放寻址索引，全部操作在段锁内完成
+     * 日志位置使用单调递增的逻辑偏移，物理位置为逻辑偏移对容量取模，记录可以跨越缓冲区末尾
+     */
+    private final class Segment {
+
+        private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer buffer;
+        private final int capacity;
+        private final byte[] header = new byte[HEADER_BYTES];
+
+        // 日志中最旧记录与下一条记录的逻辑偏移，tail - head <= capacity
+        private long head;
+        private long tail;
+
+        // 索引：hashes[i] == 0 表示空槽
+        private long[] hashes = new long[INITIAL_INDEX_CAPACITY];
+        private long[] offsets = new long[INITIAL_INDEX_CAPACITY];
+        private int indexSize;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        record Found(byte[] value, long expiresAt) {
+        }
+
+        Found get(long hash, byte[] keyBytes, long now) {
+            lock.lock();
+            try {
+                int slot = find(hash);
+                if (slot < 0) {
+                    return null;
+                }
+                long position = offsets[slot];
+                ByteBuffer recordHeader = readHeader(position);
+                int keyLength = recordHeader.getInt(12);
+                int valueLength = recordHeader.getInt(16);
+                long expiresAt = recordHeader.getLong(20);
+                if (keyLength != keyBytes.length
+                        || !Arrays.equals(read(position + HEADER_BYTES, keyLength), keyBytes)) {
+                    // 不同的键哈希相同
+                    return null;
+                }
+                if (expiresAt <= now) {
+                    delete(slot);
+                    return null;
+                }
+                return new Found(read(position + HEADER_BYTES + keyLength, valueLength), expiresAt);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return 记录超过分段容量的一半时不存储，返回 false（避免单个大值冲掉整个分段）
+         */
+        boolean put(long hash, byte[] record) {
+            if (record.length > capacity / 2) {
+                return false;
+            }
+            lock.lock();
+            try {
+                while (tail + record.length - head > capacity) {
+                    evictOldest();
+                }
+                write(tail, record);
+                int slot = find(hash);
+                if (slot >= 0) {
+                    offsets[slot] = tail;
+                } else {
+                    insert(hash, tail);
+                }
+                tail += record.length;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long hash, byte[] keyBytes) {
+            lock.lock();
+            try {
+                int slot = find(hash);
+                if (slot >= 0) {
+                    // 哈希相同即删除：冲突的另一个键只是多一次未命中
+                    delete(slot);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                hashes = new long[INITIAL_INDEX_CAPACITY];
+                offsets = new long[INITIAL_INDEX_CAPACITY];
+                indexSize = 0;
+                head = tail;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long size() {
+            lock.lock();
+            try {
+                return indexSize;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long usedBytes() {
+            lock.lock();
+            try {
+                return tail - head;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 淘汰最旧的记录；仅当索引仍指向它（未被覆盖或删除）时才算一次淘汰
+         */
+        private void evictOldest() {
+            ByteBuffer recordHeader = readHeader(head);
+            int recordLength = recordHeader.getInt(0);
+            int slot = find(recordHeader.getLong(4));
+            if (slot >= 0 && offsets[slot] == head) {
+                delete(slot);
+                evictions.increment();
+            }
+            head += recordLength;
+        }
+
+        private ByteBuffer readHeader(long position) {
+            read(position, header);
+            return ByteBuffer.wrap(header);
+        }
+
+        private byte[] read(long position, int length) {
+            byte[] bytes = new byte[length];
+            read(position, bytes);
+            return bytes;
+        }
+
+        private void read(long position, byte[] target) {
+            int physical = (int) (position % capacity);
+            int first = Math.min(target.length, capacity - physical);
+            buffer.get(physical, target, 0, first);
+            if (first < target.length) {
+                buffer.get(0, target, first, target.length - first);
+            }
+        }
+
+        private void write(long position, byte[] source) {
+            int physical = (int) (position % capacity);
+            int first = Math.min(source.length, capacity - physical);
+            buffer.put(physical, source, 0, first);
+            if (first < source.length) {
+                buffer.put(0, source, first, source.length - first);
+            }
+        }
+
+        private int find(long hash) {
+            int mask = hashes.length - 1;
+            for (int slot = (int) hash & mask; ; slot = (slot + 1) & mask) {
+                if (hashes[slot] == 0) {
+                    return -1;
+                }
+                if (hashes[slot] == hash) {
+                    return slot;
+                }
+            }
+        }
+
+        private void insert(long hash, long offset) {
+            if ((indexSize + 1) * 4L > hashes.length * 3L) {
+                resize();
+            }
+            int mask = hashes.length - 1;
+            int slot = (int) hash & mask;
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            offsets[slot] = offset;
+            indexSize++;
+        }
+
+        private void resize() {
+            long[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new long[oldHashes.length * 2];
+            offsets = new long[oldOffsets.length * 2];
+            int mask = hashes.length - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldHashes[i] != 0) {
+                    int slot = (int) oldHashes[i] & mask;
+                    while (hashes[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    offsets[slot] = oldOffsets[i];
+                }
+            }
+        }
+
+        /**
+         * 线性探测删除：把后续探测链上的项前移填补空位，不留墓碑
+         */
+        private void delete(int slot) {
+            int mask = hashes.length - 1;
+            int gap = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (hashes[next] == 0) {
+                    break;
+                }
+                int ideal = (int) hashes[next] & mask;
+                // ideal 不在 (gap, next] 区间内时，该项可以前移到 gap
+                boolean movable = gap <= next
+                        ? ideal <= gap || ideal > next
+                        : ideal <= gap && ideal > next;
+                if (movable) {
+                    hashes[gap] = hashes[next];
+                    offsets[gap] = offsets[next];
+                    gap = next;
+                }
+            }
+            hashes[gap] = 0;
+            offsets[gap] = 0;
+            indexSize--;
+        }
+    }
+}
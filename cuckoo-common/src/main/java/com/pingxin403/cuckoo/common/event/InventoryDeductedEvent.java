@@ -11,6 +11,9 @@ import java.util.List;
  * 库存扣减事件
  * 发布者：Inventory_Service
  * 消费者：Order_Service, Notification_Service
+ *
+ * 合并发布时（inventory.events.coalesce.enabled），一个事件包含一个窗口内多个订单的扣减：
+ * orderId 为空，orderIds 为涉及的订单，changes 按 SKU 合并
  */
 @Data
 @NoArgsConstructor
@@ -21,6 +24,11 @@ public class InventoryDeductedEvent extends DomainEvent {
     private String orderId;
     private List<InventoryChange> changes;
 
+    /**
+     * 合并事件涉及的订单 ID（单笔扣减事件为空）
+     */
+    private List<String> orderIds;
+
     public InventoryDeductedEvent(String orderId, List<InventoryChange> changes, Integer version) {
         init("INVENTORY_DEDUCTED", version);
         this.orderId = orderId;
@@ -34,6 +42,15 @@ public class InventoryDeductedEvent extends DomainEvent {
         return new InventoryDeductedEvent(orderId, changes, 1);
     }
 
+    /**
+     * 创建合并多个订单扣减的事件
+     */
+    public static InventoryDeductedEvent coalesced(List<String> orderIds, List<InventoryChange> changes) {
+        InventoryDeductedEvent event = new InventoryDeductedEvent(null, changes, 1);
+        event.setOrderIds(orderIds);
+        return event;
+    }
+
     /**
      * 库存变更记录
      */
@@ -0,0 +1,46 @@
+package com.pingxin403.cuckoo.common.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+/**
+ * 库存水位事件
+ * 发布者：Inventory_Service（按 skuId 作为消息键发布到日志压缩 topic，每个 SKU 只保留最新水位）
+ * 消费者：需要库存数据的下游缓存（从头消费即可完成全量初始化）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class InventoryStockLevelEvent extends DomainEvent {
+
+    private Long skuId;
+    private Integer totalStock;
+    private Integer availableStock;
+    private Integer reservedStock;
+
+    /**
+     * 读取水位的时间（毫秒时间戳），多个实例并发发布时消费者按此丢弃较旧的水位
+     */
+    private Long observedAt;
+
+    public InventoryStockLevelEvent(Long skuId, Integer totalStock, Integer availableStock,
+                                    Integer reservedStock, Long observedAt, Integer version) {
+        init("STOCK_LEVEL_CHANGED", version);
+        this.skuId = skuId;
+        this.totalStock = totalStock;
+        this.availableStock = availableStock;
+        this.reservedStock = reservedStock;
+        this.observedAt = observedAt;
+    }
+
+    /**
+     * 使用默认版本号 1 创建事件
+     */
+    public static InventoryStockLevelEvent create(Long skuId, Integer totalStock, Integer availableStock,
+                                                  Integer reservedStock, Long observedAt) {
+        return new InventoryStockLevelEvent(skuId, totalStock, availableStock, reservedStock, observedAt, 1);
+    }
+}
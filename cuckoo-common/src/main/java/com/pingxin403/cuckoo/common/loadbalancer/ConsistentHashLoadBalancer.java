@@ -0,0 +1,90 @@
+package com.pingxin403.cuckoo.common.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一致性哈希负载均衡器
+ * 按请求头 X-Routing-Key 在实例列表构建的 ConsistentHashRing 上选择实例，
+ * 同一路由键的请求在实例列表不变时总是落到同一实例；没有路由键的请求轮询。
+ *
+ * 通过 @LoadBalancerClient(name = "...", configuration = ConsistentHashLoadBalancerConfiguration.class) 启用。
+ */
+@Slf4j
+public class ConsistentHashLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String ROUTING_KEY_HEADER = "X-Routing-Key";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final AtomicInteger position = new AtomicInteger();
+
+    /**
+     * 按实例列表缓存的哈希环，列表变化时重建
+     */
+    private volatile CachedRing cachedRing = new CachedRing(List.of(), new ConsistentHashRing<>(List.of(),
+            instance -> ConsistentHashRing.nodeId(instance.getHost(), instance.getPort())));
+
+    public ConsistentHashLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider, String serviceId) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String routingKey = routingKey(request);
+        return supplier.get(request).next().map(instances -> select(instances, routingKey));
+    }
+
+    private Response<ServiceInstance> select(List<ServiceInstance> instances, String routingKey) {
+        if (instances.isEmpty()) {
+            log.warn("No instances available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (routingKey == null || routingKey.isBlank()) {
+            int index = Math.floorMod(position.getAndIncrement(), instances.size());
+            return new DefaultResponse(instances.get(index));
+        }
+        return new DefaultResponse(ring(instances).locate(routingKey));
+    }
+
+    private ConsistentHashRing<ServiceInstance> ring(List<ServiceInstance> instances) {
+        List<String> nodeIds = instances.stream()
+                .map(instance -> ConsistentHashRing.nodeId(instance.getHost(), instance.getPort()))
+                .sorted()
+                .toList();
+        CachedRing current = cachedRing;
+        if (!current.nodeIds().equals(nodeIds)) {
+            current = new CachedRing(nodeIds, new ConsistentHashRing<>(instances,
+                    instance -> ConsistentHashRing.nodeId(instance.getHost(), instance.getPort())));
+            cachedRing = current;
+            log.info("Consistent hash ring rebuilt: service={}, instances={}", serviceId, nodeIds);
+        }
+        return current.ring();
+    }
+
+    private String routingKey(Request request) {
+        if (request != null && request.getContext() instanceof RequestDataContext context
+                && context.getClientRequest() != null && context.getClientRequest().getHeaders() != null) {
+            return context.getClientRequest().getHeaders().getFirst(ROUTING_KEY_HEADER);
+        }
+        return null;
+    }
+
+    private record CachedRing(List<String> nodeIds, ConsistentHashRing<ServiceInstance> ring) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.pingxin403.cuckoo.common.loadbalancer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 一致性哈希环（Ketama 风格，每个节点 160 个虚拟节点）
+ * 调用方（ConsistentHashLoadBalancer）与服务端（归属判断）对同一实例列表构建出相同的环，
+ * 节点标识统一使用 host:port。实例增减时只有约 1/N 的键改变归属。
+ *
+ * @param <T> 节点类型
+ */
+public final class ConsistentHashRing<T> {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<T> nodes, Function<T, String> nodeId) {
+        for (T node : nodes) {
+            String id = nodeId.apply(node);
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(id + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * 节点标识：host:port
+     */
+    public static String nodeId(String host, int port) {
+        return host + ":" + port;
+    }
+
+    /**
+     * 查找键所属的节点，环为空时返回 null
+     */
+    public T locate(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+
+    /**
+     * MD5 前 8 字节，保证不同 JVM 计算结果一致
+     */
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
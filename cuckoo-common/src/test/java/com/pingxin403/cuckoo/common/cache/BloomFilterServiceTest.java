@@ -0,0 +1,80 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * BloomFilterService 单元测试
+ */
+class BloomFilterServiceTest {
+
+    private StreamOperations<String, Object, Object> streamOperations;
+    private BloomFilterService bloomFilterService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        streamOperations = mock(StreamOperations.class);
+        when(stringRedisTemplate.opsForStream()).thenReturn(streamOperations);
+        when(stringRedisTemplate.opsForValue()).thenReturn(mock(ValueOperations.class));
+
+        BloomFilterProperties properties = new BloomFilterProperties();
+        properties.getFilters().put(BloomFilterService.USERNAMES, new BloomFilterProperties.Spec(1000, 0.001));
+        bloomFilterService = new BloomFilterService(stringRedisTemplate, properties);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addAll_writesOneLogRecordAndAnswersLocally() {
+        bloomFilterService.rebuild(BloomFilterService.USERNAMES, sink -> { });
+        bloomFilterService.addAll(BloomFilterService.USERNAMES, List.of("alice", "bob", "carol"));
+
+        verify(streamOperations, times(1)).add(any(MapRecord.class));
+        assertThat(bloomFilterService.mightContain(BloomFilterService.USERNAMES, "alice")).isTrue();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.USERNAMES, "carol")).isTrue();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.USERNAMES, "mallory")).isFalse();
+    }
+
+    @Test
+    void filters_areIsolatedByName() {
+        bloomFilterService.rebuild(BloomFilterService.PRODUCTS, sink -> { });
+        bloomFilterService.rebuild(BloomFilterService.SKUS, sink -> { });
+        bloomFilterService.add("42");
+
+        assertThat(bloomFilterService.mightContain("42")).isTrue();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.PRODUCTS, "42")).isTrue();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.SKUS, "42")).isFalse();
+    }
+
+    @Test
+    void mightContain_beforeInitialization_failsOpen() {
+        bloomFilterService.add(BloomFilterService.SKUS, "1");
+
+        assertThat(bloomFilterService.isInitialized(BloomFilterService.SKUS)).isFalse();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.SKUS, "2")).isTrue();
+
+        bloomFilterService.rebuild(BloomFilterService.SKUS, sink -> sink.accept("1"));
+
+        assertThat(bloomFilterService.isInitialized(BloomFilterService.SKUS)).isTrue();
+        assertThat(bloomFilterService.mightContain(BloomFilterService.SKUS, "2")).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void addAll_emptyBatch_noWrite() {
+        bloomFilterService.addAll(BloomFilterService.EMAILS, List.of());
+
+        verify(streamOperations, never()).add(any(MapRecord.class));
+    }
+}
@@ -0,0 +1,64 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BloomFilter 单元测试
+ */
+class BloomFilterTest {
+
+    @Test
+    void murmur3_matchesReferenceVector() {
+        long[] hash = Murmur3.hash128(
+                "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0);
+
+        // 参考实现输出（小端序）：6c1b07bc7bbc4be347939ac4a93c437a
+        assertThat(hash[0]).isEqualTo(0xe34bbc7bbc071b6cL);
+        assertThat(hash[1]).isEqualTo(0x7a433ca9c49a9347L);
+    }
+
+    @Test
+    void create_sizedFromExpectedInsertionsAndFalsePositiveRate() {
+        BloomFilter filter = BloomFilter.create(1_000_000, 0.01);
+
+        assertThat(filter.bitSize()).isBetween(9_500_000L, 9_700_000L);
+        assertThat(filter.hashCount()).isEqualTo(7);
+    }
+
+    @Test
+    void mightContain_noFalseNegativesAndFalsePositiveRateNearTarget() {
+        int n = 10_000;
+        BloomFilter filter = BloomFilter.create(n, 0.01);
+        for (int i = 0; i < n; i++) {
+            filter.put(String.valueOf(i));
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < n; i++) {
+            assertThat(filter.mightContain(String.valueOf(i))).isTrue();
+            if (filter.mightContain(String.valueOf(n + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(n * 2 / 100);
+    }
+
+    @Test
+    void toByteArray_roundTrip() {
+        BloomFilter filter = BloomFilter.create(1000, 0.01);
+        filter.put("42");
+
+        BloomFilter restored = BloomFilter.fromByteArray(filter.toByteArray());
+
+        assertThat(restored.isCompatible(filter)).isTrue();
+        assertThat(restored.mightContain("42")).isTrue();
+        assertThat(restored.mightContain("43")).isFalse();
+        assertThatThrownBy(() -> BloomFilter.fromByteArray(new byte[8]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
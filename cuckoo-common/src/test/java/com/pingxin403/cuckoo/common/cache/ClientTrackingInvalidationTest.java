@@ -0,0 +1,99 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.lettuce.core.api.push.PushMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * ClientTrackingInvalidation 单元测试
+ */
+class ClientTrackingInvalidationTest {
+
+    private final List<String> invalidatedKeys = new ArrayList<>();
+    private final AtomicInteger fullFlushes = new AtomicInteger();
+    private SimpleMeterRegistry meterRegistry;
+    private ClientTrackingInvalidation invalidation;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        invalidation = new ClientTrackingInvalidation(mock(LettuceConnectionFactory.class),
+                new MultiLevelCacheProperties.Invalidation(), meterRegistry,
+                (Collection<String> keys) -> invalidatedKeys.addAll(keys), fullFlushes::incrementAndGet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        invalidation.shutdown();
+    }
+
+    @Test
+    void onPush_invalidateWithKeys_invalidatesThoseKeys() {
+        invalidation.onPush(push("invalidate", List.of(bytes("product:1"), bytes("product:2"))));
+
+        assertThat(invalidatedKeys).containsExactly("product:1", "product:2");
+        assertThat(fullFlushes.get()).isZero();
+        assertThat(meterRegistry.counter("cache.invalidation.tracking.keys").count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void onPush_invalidateWithNullKeys_flushesWholeLocalCache() {
+        invalidation.onPush(push("invalidate", null));
+
+        assertThat(invalidatedKeys).isEmpty();
+        assertThat(fullFlushes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void onPush_otherPushType_ignored() {
+        invalidation.onPush(push("message", List.of(bytes("product:1"))));
+
+        assertThat(invalidatedKeys).isEmpty();
+        assertThat(fullFlushes.get()).isZero();
+    }
+
+    private static ByteBuffer bytes(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static PushMessage push(String type, List<ByteBuffer> keys) {
+        return new PushMessage() {
+            @Override
+            public String getType() {
+                return type;
+            }
+
+            @Override
+            public List<Object> getContent() {
+                return Arrays.asList(bytes(type), keys);
+            }
+
+            @Override
+            public List<Object> getContent(Function<ByteBuffer, Object> decodeFunction) {
+                List<Object> decodedKeys = null;
+                if (keys != null) {
+                    decodedKeys = new ArrayList<>();
+                    for (ByteBuffer key : keys) {
+                        decodedKeys.add(decodeFunction.apply(key.duplicate()));
+                    }
+                }
+                return Arrays.asList(type, decodedKeys);
+            }
+        };
+    }
+}
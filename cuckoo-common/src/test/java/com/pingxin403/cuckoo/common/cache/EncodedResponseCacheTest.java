@@ -0,0 +1,127 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EncodedResponseCache 单元测试
+ */
+class EncodedResponseCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MultiLevelCacheProperties properties;
+    private EncodedResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new MultiLevelCacheProperties();
+        properties.getEncodedResponses().setGzipMinSize(DataSize.ofBytes(64));
+        cache = new EncodedResponseCache(new ObjectMapper(), properties, meterRegistry,
+                new DefaultListableBeanFactory().getBeanProvider(MultiLevelCacheManagerImpl.class));
+    }
+
+    @Test
+    void respond_cachedKey_servesEncodedBytesWithoutLoading_untilKeyChanges() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Object> loader = () -> Map.of("id", 1, "name", loads.incrementAndGet() == 1 ? "商品" : "新商品");
+
+        ResponseEntity<byte[]> first = cache.respond("product:1", loader, new MockHttpServletRequest());
+        ResponseEntity<byte[]> second = cache.respond("product:1", loader, new MockHttpServletRequest());
+        cache.changed(List.of("product:1"));
+        ResponseEntity<byte[]> updated = cache.respond("product:1", loader, new MockHttpServletRequest());
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(second.getBody()).isSameAs(first.getBody());
+        assertThat(new String(first.getBody(), StandardCharsets.UTF_8)).contains("商品");
+        assertThat(new String(updated.getBody(), StandardCharsets.UTF_8)).contains("新商品");
+        assertThat(updated.getHeaders().getETag()).isNotEqualTo(first.getHeaders().getETag());
+        assertThat(meterRegistry.get("cache.encoded.responses").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.encoded.responses").tag("result", "encode").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void respond_keyChangedWhileLoading_doesNotCacheStaleEncoding() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Object> loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                // 读取旧值之后、保存编码结果之前，键被其他线程更新
+                cache.changed(List.of("product:1"));
+                return Map.of("name", "旧商品");
+            }
+            return Map.of("name", "新商品");
+        };
+
+        cache.respond("product:1", loader, new MockHttpServletRequest());
+        ResponseEntity<byte[]> next = cache.respond("product:1", loader, new MockHttpServletRequest());
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(new String(next.getBody(), StandardCharsets.UTF_8)).contains("新商品");
+    }
+
+    @Test
+    void cleared_dropsAllEncodings() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Object> loader = () -> Map.of("id", loads.incrementAndGet());
+
+        cache.respond("product:1", loader, new MockHttpServletRequest());
+        cache.cleared();
+        cache.respond("product:1", loader, new MockHttpServletRequest());
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    void respond_largeBody_servesPreGzippedBytesWhenAccepted() throws Exception {
+        Map<String, Object> body = Map.of("description", "x".repeat(500));
+        MockHttpServletRequest gzipRequest = new MockHttpServletRequest();
+        gzipRequest.addHeader("Accept-Encoding", "br, gzip;q=0.8");
+        MockHttpServletRequest refusingRequest = new MockHttpServletRequest();
+        refusingRequest.addHeader("Accept-Encoding", "gzip;q=0");
+
+        ResponseEntity<byte[]> gzipped = cache.respond("k", () -> body, gzipRequest);
+        ResponseEntity<byte[]> plain = cache.respond("k", () -> body, refusingRequest);
+
+        assertThat(gzipped.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gzipped.getBody().length).isLessThan(plain.getBody().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(plain.getBody());
+        }
+        assertThat(plain.getHeaders().getFirst("Content-Encoding")).isNull();
+        assertThat(plain.getHeaders().getVary()).containsExactly("Accept-Encoding");
+        String plainEtag = plain.getHeaders().getETag();
+        assertThat(gzipped.getHeaders().getETag())
+                .isEqualTo(plainEtag.substring(0, plainEtag.length() - 1) + "-gz\"");
+    }
+
+    @Test
+    void respond_matchingIfNoneMatch_notModified() {
+        Map<String, Object> body = Map.of("id", 1);
+        String etag = cache.respond(body, new MockHttpServletRequest()).getHeaders().getETag();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", etag);
+
+        ResponseEntity<byte[]> response = cache.respond(body, request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getHeaders().getETag()).isEqualTo(etag);
+    }
+}
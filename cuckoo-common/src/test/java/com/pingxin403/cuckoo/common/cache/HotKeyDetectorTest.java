@@ -0,0 +1,84 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * HotKeyDetector 单元测试
+ */
+class HotKeyDetectorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private HotKeyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        MultiLevelCacheProperties.HotKeys config = new MultiLevelCacheProperties.HotKeys();
+        config.setThreshold(50);
+        config.setTopK(3);
+        config.setSketchWidth(1024);
+        // 手动调用 age()，避免调度线程干扰
+        config.setWindow(Duration.ofHours(1));
+        detector = new HotKeyDetector(config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.shutdown();
+    }
+
+    @Test
+    void record_keyCrossingThreshold_isHot() {
+        for (int i = 1; i < 50; i++) {
+            assertThat(detector.record("product:1")).isFalse();
+        }
+        assertThat(detector.record("product:1")).isTrue();
+        assertThat(detector.record("product:1")).isTrue();
+        assertThat(detector.record("product:2")).isFalse();
+        assertThat(meterRegistry.get("cache.hotkeys.detected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void topKeys_keepsMostFrequentKeys_amongBackgroundTraffic() {
+        for (int i = 0; i < 5_000; i++) {
+            detector.record("cold:" + i);
+        }
+        record("hot:a", 300);
+        record("hot:b", 200);
+        record("hot:c", 100);
+
+        List<Map.Entry<String, Long>> top = detector.topKeys();
+
+        assertThat(top).extracting(Map.Entry::getKey).containsExactly("hot:a", "hot:b", "hot:c");
+        // Count-Min Sketch 只会高估
+        assertThat(top.get(0).getValue()).isGreaterThanOrEqualTo(300);
+    }
+
+    @Test
+    void age_halvesEstimates_andPublishesTopKeyGauges() {
+        record("hot:a", 80);
+
+        detector.age();
+
+        assertThat(detector.topKeys()).containsExactly(Map.entry("hot:a", 40L));
+        assertThat(meterRegistry.get("cache.hotkeys.top").tag("key", "hot:a").gauge().value()).isEqualTo(40);
+        // 减半后需要再读取 10 次才重新达到阈值
+        record("hot:a", 9);
+        assertThat(detector.record("hot:a")).isTrue();
+    }
+
+    private void record(String key, int times) {
+        for (int i = 0; i < times; i++) {
+            detector.record(key);
+        }
+    }
+}
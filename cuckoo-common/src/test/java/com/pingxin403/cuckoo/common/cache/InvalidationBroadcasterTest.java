@@ -0,0 +1,93 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * InvalidationBroadcaster 单元测试
+ */
+class InvalidationBroadcasterTest {
+
+    private final List<String> invalidatedKeys = new ArrayList<>();
+    private final AtomicInteger fullFlushes = new AtomicInteger();
+    private InvalidationBroadcaster broadcaster;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MultiLevelCacheProperties.Invalidation config = new MultiLevelCacheProperties.Invalidation();
+        config.setGapGraceMs(0);
+        broadcaster = new InvalidationBroadcaster(mock(RedisTemplate.class), config, new SimpleMeterRegistry(),
+                (Collection<String> keys) -> invalidatedKeys.addAll(keys), fullFlushes::incrementAndGet);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    @Test
+    void batch_encodeDecodeRoundTrip() {
+        UUID publisherId = UUID.randomUUID();
+        InvalidationBatch batch = InvalidationBatch.of(publisherId, 42, List.of("product:1", "商品:二"));
+
+        InvalidationBatch decoded = InvalidationBatch.decode(batch.encode());
+
+        assertThat(decoded).isEqualTo(batch);
+    }
+
+    @Test
+    void onMessage_outOfOrderBatchFillsGap_noFlush() {
+        UUID publisherId = UUID.randomUUID();
+
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 1, List.of("a")).encode());
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 3, List.of("c")).encode());
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 2, List.of("b")).encode());
+        broadcaster.checkGaps();
+
+        assertThat(invalidatedKeys).containsExactly("a", "c", "b");
+        assertThat(fullFlushes.get()).isZero();
+    }
+
+    @Test
+    void checkGaps_missingBatchNeverArrives_flushesWholeLocalCache() {
+        UUID publisherId = UUID.randomUUID();
+
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 1, List.of("a")).encode());
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 3, List.of("c")).encode());
+        broadcaster.checkGaps();
+        broadcaster.checkGaps();
+
+        assertThat(fullFlushes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void onMessage_largeGapAfterReconnect_flushesImmediately() {
+        UUID publisherId = UUID.randomUUID();
+
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 1, List.of()).encode());
+        broadcaster.onMessage(InvalidationBatch.of(publisherId, 1_000, List.of()).encode());
+
+        assertThat(fullFlushes.get()).isEqualTo(1);
+    }
+
+    @Test
+    void onMessage_malformedBody_ignored() {
+        broadcaster.onMessage("product:1".getBytes());
+
+        assertThat(invalidatedKeys).isEmpty();
+        assertThat(fullFlushes.get()).isZero();
+    }
+}
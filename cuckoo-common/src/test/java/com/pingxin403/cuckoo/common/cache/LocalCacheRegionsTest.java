@@ -0,0 +1,117 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LocalCacheRegions 单元测试
+ */
+class LocalCacheRegionsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MultiLevelCacheProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new MultiLevelCacheProperties();
+        properties.getRegions().put("product", region("product:", DataSize.ofMegabytes(1)));
+        properties.getRegions().put("product-detail", region("product:detail:", DataSize.ofMegabytes(1)));
+    }
+
+    @Test
+    void region_longestPrefixWins_unmatchedKeysUseDefault() {
+        LocalCacheRegions regions = new LocalCacheRegions(properties, meterRegistry);
+
+        assertThat(regions.region("product:1").name).isEqualTo("product");
+        assertThat(regions.region("product:detail:1").name).isEqualTo("product-detail");
+        assertThat(regions.region("user:1").name).isEqualTo(LocalCacheRegions.DEFAULT_REGION);
+    }
+
+    @Test
+    void put_regionOverByteLimit_evictsWithinThatRegionOnly() {
+        properties.getRegions().get("product").setMaximumWeight(DataSize.ofKilobytes(16));
+        LocalCacheRegions regions = new LocalCacheRegions(properties, meterRegistry);
+        regions.put("user:1", "u", null, 0);
+
+        String payload = "x".repeat(1024);
+        for (int i = 0; i < 100; i++) {
+            regions.put("product:" + i, payload, null, 0);
+        }
+        regions.cleanUp();
+
+        assertThat(regions.region("product:0").cache.estimatedSize()).isBetween(1L, 15L);
+        assertThat(regions.get("user:1")).isNotNull();
+        assertThat(meterRegistry.get("cache.local.weight").tag("region", "product").gauge().value())
+                .isLessThanOrEqualTo(16 * 1024);
+        assertThat(meterRegistry.get("cache.local.evictions").tag("region", "product").functionCounter().count())
+                .isGreaterThan(0);
+    }
+
+    @Test
+    void reconfigure_limitLowered_appliedInPlace() {
+        LocalCacheRegions regions = new LocalCacheRegions(properties, meterRegistry);
+        for (int i = 0; i < 50; i++) {
+            regions.put("product:" + i, "x".repeat(1024), null, 0);
+        }
+
+        properties.getRegions().get("product").setMaximumWeight(DataSize.ofKilobytes(8));
+        regions.reconfigure(properties);
+        regions.cleanUp();
+
+        assertThat(regions.region("product:0").cache.estimatedSize()).isLessThan(8);
+        assertThat(meterRegistry.get("cache.local.max.weight").tag("region", "product").gauge().value())
+                .isEqualTo(8 * 1024);
+    }
+
+    @Test
+    void reconfigure_prefixChanged_flushesAllRegions() {
+        LocalCacheRegions regions = new LocalCacheRegions(properties, meterRegistry);
+        regions.put("product:1", "p", null, 0);
+        regions.put("user:1", "u", null, 0);
+
+        properties.getRegions().remove("product-detail");
+        regions.reconfigure(properties);
+
+        assertThat(regions.get("product:1")).isNull();
+        assertThat(regions.get("user:1")).isNull();
+        assertThat(meterRegistry.find("cache.local.size").tag("region", "product-detail").gauge()).isNull();
+    }
+
+    @Test
+    void expireAfterWrite_capsCallerTtl() {
+        properties.getRegions().get("product").setExpireAfterWrite(Duration.ofSeconds(1));
+        LocalCacheRegions regions = new LocalCacheRegions(properties, meterRegistry);
+
+        regions.put("product:1", "p", Duration.ofMinutes(10), 0);
+        LocalEntry entry = regions.get("product:1");
+
+        assertThat(entry.expiresAt - entry.writtenAt).isEqualTo(Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void estimate_growsWithPayload() {
+        long small = ObjectSizeEstimator.estimate(List.of(new Sample("a", 1L)));
+        long large = ObjectSizeEstimator.estimate(List.of(new Sample("a".repeat(1000), 1L), new Sample("b", 2L)));
+
+        assertThat(small).isPositive();
+        assertThat(large - small).isGreaterThan(2000);
+    }
+
+    private static MultiLevelCacheProperties.LocalRegion region(String prefix, DataSize maximumWeight) {
+        MultiLevelCacheProperties.LocalRegion region = new MultiLevelCacheProperties.LocalRegion();
+        region.setPrefix(prefix);
+        region.setMaximumWeight(maximumWeight);
+        return region;
+    }
+
+    private record Sample(String name, Long id) {
+    }
+}
@@ -0,0 +1,333 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * MultiLevelCacheManagerImpl 单元测试
+ */
+class MultiLevelCacheManagerImplTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private ValueOperations<String, Object> valueOperations;
+    private SimpleMeterRegistry meterRegistry;
+    private RedisMessageListenerContainer listenerContainer;
+    private MultiLevelCacheManagerImpl cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        cacheManager = newCacheManager(new MultiLevelCacheProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    private MultiLevelCacheManagerImpl newCacheManager(MultiLevelCacheProperties properties) {
+        listenerContainer = mock(RedisMessageListenerContainer.class);
+        return new MultiLevelCacheManagerImpl(redisTemplate, listenerContainer, meterRegistry, properties);
+    }
+
+    @Test
+    void getOrLoad_concurrentMissesShareOneLoad() throws Exception {
+        when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderEntered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> {
+                loads.incrementAndGet();
+                loaderEntered.countDown();
+                await(release);
+                return "v";
+            })));
+            assertThat(loaderEntered.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> {
+                    loads.incrementAndGet();
+                    return "other";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("v");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        verify(valueOperations, times(1)).set(eq("k"), eq("v"), eq(Duration.ofMinutes(1)));
+        assertThat(cacheManager.get("k", String.class)).isEqualTo("v");
+    }
+
+    @Test
+    void getOrLoad_leaseHeldElsewhere_pollsRedisInsteadOfLoading() {
+        when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(false);
+        when(valueOperations.get("k")).thenReturn(null, null, "remote");
+
+        String value = cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> {
+            throw new AssertionError("loader should not run");
+        });
+
+        assertThat(value).isEqualTo("remote");
+        verify(valueOperations, never()).set(anyString(), any(), any(Duration.class));
+    }
+
+    @Test
+    void getOrLoad_loaderFailure_propagatesAndCachesNothing() {
+        when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
+
+        assertThatThrownBy(() -> cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> {
+            throw new IllegalStateException("not found");
+        })).isInstanceOf(IllegalStateException.class);
+
+        verify(valueOperations, never()).set(anyString(), any(), any(Duration.class));
+        assertThat(cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> "v")).isEqualTo("v");
+    }
+
+    @Test
+    void getOrLoad_pastRefreshPoint_servesCurrentValueAndRefreshesOnceInBackground() throws Exception {
+        when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.getRefreshAhead().setRatio(0.0);
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(properties);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertThat(cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> "v1")).isEqualTo("v1");
+        for (int i = 0; i < 5; i++) {
+            // ratio 为 0 时刷新完成后的下一次读取会再次刷新，因此刷新在读取结束前保持进行中
+            String value = cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "v2";
+            });
+            assertThat(value).isEqualTo("v1");
+        }
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("cache.refreshes", "result", "success").count() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cacheManager.get("k", String.class)).isEqualTo("v2");
+        assertThat(loads.get()).isEqualTo(1);
+        verify(valueOperations).set(eq("k"), eq("v2"), eq(Duration.ofMinutes(1)));
+        assertThat(meterRegistry.counter("cache.refreshes", "result", "success").count()).isEqualTo(1.0);
+        assertThat(meterRegistry.counter("cache.stale.serves").count()).isGreaterThanOrEqualTo(1.0);
+    }
+
+    @Test
+    void getOrLoad_refreshLeaseHeldElsewhere_skipsRefresh() throws Exception {
+        when(valueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true, false);
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.getRefreshAhead().setRatio(0.0);
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(properties);
+
+        cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> "v1");
+        assertThat(cacheManager.getOrLoad("k", String.class, Duration.ofMinutes(1), () -> "v2")).isEqualTo("v1");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("cache.refreshes", "result", "skipped").count() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.counter("cache.refreshes", "result", "skipped").count()).isEqualTo(1.0);
+        assertThat(cacheManager.get("k", String.class)).isEqualTo("v1");
+    }
+
+    @Test
+    void getAll_servesLocalHitsAndFetchesTheRestWithOneMget() {
+        cacheManager.put("a", "A", Duration.ofMinutes(1));
+        when(valueOperations.multiGet(List.of("b", "c"))).thenReturn(Arrays.asList("B", null));
+
+        Map<String, String> result = cacheManager.getAll(List.of("a", "b", "c"), String.class);
+
+        assertThat(result).containsExactly(Map.entry("a", "A"), Map.entry("b", "B"));
+        verify(valueOperations, times(1)).multiGet(anyCollection());
+
+        assertThat(cacheManager.getAll(List.of("a", "b"), String.class)).hasSize(2);
+        verify(valueOperations, times(1)).multiGet(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void putAll_writesThroughOnePipelineAndFillsLocalCache() {
+        cacheManager.putAll(Map.of("a", "A", "b", "B"), Duration.ofMinutes(1));
+
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        assertThat(cacheManager.getAll(List.of("a", "b"), String.class)).containsOnlyKeys("a", "b");
+        verify(valueOperations, never()).multiGet(anyCollection());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void evictAll_deletesOnceAndCoalescesNotifications() throws Exception {
+        cacheManager.putAll(Map.of("a", "A", "b", "B"), Duration.ofMinutes(1));
+
+        cacheManager.evictAll(List.of("a", "b"));
+        cacheManager.evict("c");
+        Thread.sleep(200);
+
+        verify(redisTemplate, times(1)).delete(List.of("a", "b"));
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+        assertThat(cacheManager.get("a", String.class)).isNull();
+    }
+
+    @Test
+    void invalidationBatch_fromAnotherInstanceInvalidatesEveryKey() {
+        cacheManager.init();
+        ArgumentCaptor<MessageListener> listener = ArgumentCaptor.forClass(MessageListener.class);
+        verify(listenerContainer).addMessageListener(listener.capture(), any(ChannelTopic.class));
+        cacheManager.putAll(Map.of("a", "A", "b", "B"), Duration.ofMinutes(1));
+
+        byte[] body = InvalidationBatch.of(UUID.randomUUID(), 1, List.of("a", "b")).encode();
+        listener.getValue().onMessage(new DefaultMessage(InvalidationBroadcaster.CHANNEL.getBytes(), body), null);
+
+        assertThat(cacheManager.get("a", String.class)).isNull();
+        assertThat(cacheManager.get("b", String.class)).isNull();
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void offHeap_servesEntriesEvictedFromCaffeine_andEvictRemovesThem() throws Exception {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.getDefaultRegion().setExpireAfterWrite(Duration.ofMillis(1));
+        properties.getOffHeap().setEnabled(true);
+        properties.getOffHeap().setCapacity(DataSize.ofMegabytes(1));
+        properties.getOffHeap().setSegments(1);
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) RedisSerializer.json());
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(properties);
+
+        cacheManager.put("k", "v", Duration.ofMinutes(1));
+        Thread.sleep(5);
+
+        assertThat(cacheManager.get("k", String.class)).isEqualTo("v");
+        verify(valueOperations, never()).get("k");
+
+        cacheManager.evict("k");
+        assertThat(cacheManager.get("k", String.class)).isNull();
+        verify(valueOperations).get("k");
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void snapshot_savedOnShutdown_restoredWithVersionCheck(@TempDir Path directory) {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setPath(directory.resolve("l1.snapshot").toString());
+        RedisSerializer<Object> serializer = RedisSerializer.json();
+        when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) serializer);
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(properties);
+        cacheManager.putAll(Map.of("a", "A", "b", "B", "c", "C"), Duration.ofMinutes(1));
+        cacheManager.shutdown();
+
+        // a 未变化；b 在下线期间被更新；c 已从 Redis 删除
+        Map<String, String> remoteDigests = Map.of(
+                "a", HexFormat.of().formatHex(LocalCacheSnapshot.sha1(serializer.serialize("A"))),
+                "b", HexFormat.of().formatHex(LocalCacheSnapshot.sha1(serializer.serialize("B"))) + "0");
+        when(redisTemplate.execute(any(RedisScript.class), any(RedisSerializer.class), any(RedisSerializer.class),
+                anyList(), any(Object[].class))).thenAnswer(invocation -> {
+                    List<String> keys = invocation.getArgument(3);
+                    return keys.stream().map(remoteDigests::get).toList();
+                });
+        when(valueOperations.multiGet(List.of("b"))).thenReturn(List.of("B2"));
+        cacheManager = newCacheManager(properties);
+
+        assertThat(cacheManager.restoreSnapshot()).isEqualTo(2);
+        assertThat(cacheManager.get("a", String.class)).isEqualTo("A");
+        assertThat(cacheManager.get("b", String.class)).isEqualTo("B2");
+        assertThat(cacheManager.get("c", String.class)).isNull();
+        verify(valueOperations, never()).get("a");
+        verify(valueOperations).get("c");
+    }
+
+    @Test
+    void hotKey_pinnedInLocalCache_servedWithoutRedis() throws Exception {
+        MultiLevelCacheProperties properties = new MultiLevelCacheProperties();
+        properties.getDefaultRegion().setExpireAfterWrite(Duration.ofMillis(1));
+        properties.getHotKeys().setEnabled(true);
+        properties.getHotKeys().setThreshold(2);
+        properties.getHotKeys().setWindow(Duration.ofHours(1));
+        cacheManager.shutdown();
+        cacheManager = newCacheManager(properties);
+        when(valueOperations.get("hot")).thenReturn("v");
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cacheManager.get("hot", String.class)).isEqualTo("v");
+            Thread.sleep(5);
+        }
+
+        // 第 2 次读取 Redis 时达到阈值并固定，之后不再随分区过期
+        verify(valueOperations, times(2)).get("hot");
+        assertThat(cacheManager.hotKeys()).containsExactly(new HotKey("hot", 2, true));
+
+        cacheManager.evict("hot");
+        when(valueOperations.get("hot")).thenReturn(null);
+        assertThat(cacheManager.get("hot", String.class)).isNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.pingxin403.cuckoo.common.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OffHeapCache 单元测试
+ */
+class OffHeapCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MultiLevelCacheProperties.OffHeap config;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        config = new MultiLevelCacheProperties.OffHeap();
+        config.setCapacity(DataSize.ofMegabytes(4));
+        config.setSegments(4);
+    }
+
+    private OffHeapCache newCache() {
+        return new OffHeapCache(config, RedisSerializer.json(), meterRegistry);
+    }
+
+    @Test
+    void put_get_roundTripsTypedValue() {
+        OffHeapCache cache = newCache();
+        Sample sample = new Sample(1L, "商品", new BigDecimal("9.90"), List.of("a", "b"));
+
+        cache.put("product:1", sample, Duration.ofMinutes(1));
+        OffHeapCache.Hit hit = cache.get("product:1");
+
+        assertThat(hit.value()).isEqualTo(sample);
+        assertThat(hit.remainingTtl()).isLessThanOrEqualTo(Duration.ofMinutes(1)).isPositive();
+        assertThat(cache.get("product:2")).isNull();
+    }
+
+    @Test
+    void put_overwriteAndRemove_manyKeys_indexStaysConsistent() {
+        OffHeapCache cache = newCache();
+        for (int i = 0; i < 20_000; i++) {
+            cache.put("k:" + i, i, null);
+        }
+        for (int i = 0; i < 20_000; i += 2) {
+            cache.remove("k:" + i);
+        }
+        for (int i = 1; i < 20_000; i += 4) {
+            cache.put("k:" + i, -i, null);
+        }
+
+        for (int i = 0; i < 20_000; i++) {
+            OffHeapCache.Hit hit = cache.get("k:" + i);
+            if (i % 2 == 0) {
+                assertThat(hit).isNull();
+            } else {
+                assertThat(hit.value()).isEqualTo(i % 4 == 1 ? -i : i);
+            }
+        }
+        assertThat(cache.size()).isEqualTo(10_000);
+    }
+
+    @Test
+    void put_beyondCapacity_evictsOldestEntries() {
+        OffHeapCache cache = newCache();
+        String payload = "x".repeat(1000);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("k:" + i, payload, null);
+        }
+
+        assertThat(cache.get("k:0")).isNull();
+        assertThat(cache.get("k:9999")).isNotNull();
+        assertThat(cache.usedBytes()).isLessThanOrEqualTo(DataSize.ofMegabytes(4).toBytes());
+        assertThat(meterRegistry.get("cache.offheap.evictions").functionCounter().count()).isGreaterThan(0);
+    }
+
+    @Test
+    void get_expiredEntry_miss() throws Exception {
+        OffHeapCache cache = newCache();
+
+        cache.put("k", "v", Duration.ofMillis(1));
+        Thread.sleep(5);
+
+        assertThat(cache.get("k")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void clear_dropsAllEntries() {
+        OffHeapCache cache = newCache();
+        cache.put("a", "1", null);
+        cache.put("b", "2", null);
+
+        cache.clear();
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.usedBytes()).isZero();
+    }
+
+    record Sample(Long id, String name, BigDecimal price, List<String> tags) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.pingxin403.cuckoo.common.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ConsistentHashRing 单元测试
+ */
+class ConsistentHashRingTest {
+
+    @Test
+    void locate_sameNodesInAnyOrder_sameOwner() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(List.of("a:1", "b:1", "c:1"), Function.identity());
+        ConsistentHashRing<String> reordered = new ConsistentHashRing<>(List.of("c:1", "a:1", "b:1"), Function.identity());
+
+        for (int sku = 0; sku < 1000; sku++) {
+            assertThat(reordered.locate(String.valueOf(sku))).isEqualTo(ring.locate(String.valueOf(sku)));
+        }
+    }
+
+    @Test
+    void locate_addNode_onlyMovesKeysToNewNode() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(List.of("a:1", "b:1", "c:1"), Function.identity());
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(List.of("a:1", "b:1", "c:1", "d:1"),
+                Function.identity());
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int sku = 0; sku < 10000; sku++) {
+            String key = String.valueOf(sku);
+            String owner = after.locate(key);
+            owned.merge(owner, 1, Integer::sum);
+            if (!owner.equals("d:1")) {
+                assertThat(owner).isEqualTo(before.locate(key));
+            }
+        }
+        // 新节点分到约 1/4 的键
+        assertThat(owned.get("d:1")).isBetween(1500, 3500);
+    }
+
+    @Test
+    void locate_emptyRing_returnsNull() {
+        assertThat(new ConsistentHashRing<String>(List.of(), Function.identity()).locate("1")).isNull();
+    }
+}
@@ -5,6 +5,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 库存服务配置
  * 支持 Nacos Config 动态刷新（@RefreshScope）
@@ -14,10 +18,138 @@ import org.springframework.stereotype.Component;
 @RefreshScope
 public class InventoryConfig {
 
+    /**
+     * 并发控制模式：Redis 分布式锁 + 数据库读改写
+     */
+    public static final String MODE_LOCK = "lock";
+
+    /**
+     * 并发控制模式：Redis Lua 脚本原子扣减，数据库异步落库
+     */
+    public static final String MODE_LUA = "lua";
+
+    /**
+     * 并发控制模式：数据库条件 UPDATE（CAS），不加分布式锁
+     */
+    public static final String MODE_CAS = "cas";
+
     /**
      * 分布式锁超时时间（秒），默认 5 秒
      * 可通过 Nacos Config 动态修改
      */
     @Value("${inventory.lock.timeout:5}")
     private int lockTimeout;
+
+    /**
+     * 并发控制模式：lock（默认）、lua、cas
+     * 可通过 Nacos Config 动态修改；切出 lua 模式后由 StockFlushJob 落库剩余变更，
+     * StockReconcileJob 删除 Redis 中的库存 Hash（重新进入 lua 模式时从数据库重新加载）
+     */
+    @Value("${inventory.concurrency-mode:lock}")
+    private String concurrencyMode;
+
+    /**
+     * 热点 SKU 库存分桶数，格式：skuId:分桶数,skuId:分桶数（如 1001:8,1002:4）
+     * 未配置的 SKU 不分桶；活动前调大分桶数，由 StockBucketRebalanceJob 完成拆分
+     * 可通过 Nacos Config 动态修改
+     */
+    private Map<Long, Integer> bucketCounts = Collections.emptyMap();
+
+    @Value("${inventory.bucket.counts:}")
+    public void setBucketCounts(String bucketCounts) {
+        Map<Long, Integer> parsed = new HashMap<>();
+        if (bucketCounts != null) {
+            for (String entry : bucketCounts.split(",")) {
+                String[] parts = entry.trim().split(":");
+                if (parts.length == 2) {
+                    parsed.put(Long.valueOf(parts[0].trim()), Integer.valueOf(parts[1].trim()));
+                }
+            }
+        }
+        this.bucketCounts = Collections.unmodifiableMap(parsed);
+    }
+
+    /**
+     * SKU 的库存分桶数（1 表示不分桶）
+     * lua 模式下库存已由 Redis 单 Key 原子处理，不分桶
+     */
+    public int getBucketCount(Long skuId) {
+        if (isConcurrencyMode(MODE_LUA)) {
+            return 1;
+        }
+        return Math.max(1, bucketCounts.getOrDefault(skuId, 1));
+    }
+
+    /**
+     * 是否合并同一 SKU 的并发预占请求（group commit），默认关闭
+     * 可通过 Nacos Config 动态修改
+     */
+    @Value("${inventory.combiner.enabled:false}")
+    private boolean combinerEnabled;
+
+    /**
+     * 合并窗口（毫秒）：第一个请求到达后最多等待的时间
+     */
+    @Value("${inventory.combiner.max-wait-ms:2}")
+    private long combinerMaxWaitMs;
+
+    /**
+     * 单批最多合并的请求数，达到后立即提交
+     */
+    @Value("${inventory.combiner.max-batch:64}")
+    private int combinerMaxBatch;
+
+    /**
+     * 预占有效期（秒），到期仍未扣减的预占自动释放；0 表示不过期
+     * 应略长于订单支付超时（order.timeout.minutes），默认 31 分钟
+     * 可通过 Nacos Config 动态修改（对之后的预占生效）
+     */
+    @Value("${inventory.reservation.ttl-seconds:1860}")
+    private long reservationTtlSeconds;
+
+    /**
+     * 是否启用库存查询的进程内近端缓存（InventoryNearCache），默认开启
+     * 可通过 Nacos Config 动态修改
+     */
+    @Value("${inventory.near-cache.enabled:true}")
+    private boolean nearCacheEnabled;
+
+    /**
+     * 近端缓存默认可接受的最大陈旧时间（毫秒），默认 0：不传 maxStalenessMs 的调用方不读取近端缓存，
+     * 需要时由调用方通过 maxStalenessMs 参数显式接受陈旧数据
+     */
+    @Value("${inventory.near-cache.max-staleness-ms:0}")
+    private long nearCacheMaxStalenessMs;
+
+    /**
+     * 单写者模式（lock 模式生效），默认关闭
+     * 调用方按 skuId 一致性哈希路由，归属实例用进程内分段锁代替 Redis 分布式锁，
+     * 归属切换由 SkuOwnership 的归属纪元在数据库行上 fencing
+     * 可通过 Nacos Config 动态修改
+     */
+    @Value("${inventory.ownership.enabled:false}")
+    private boolean ownershipEnabled;
+
+    /**
+     * 是否合并发布库存扣减事件，默认关闭（每笔扣减一个事件）
+     * 开启后由 InventoryEventCoalescer 在一个窗口内按 SKU 合并成一个事件，适合大促高峰
+     * 可通过 Nacos Config 动态修改
+     */
+    @Value("${inventory.events.coalesce.enabled:false}")
+    private boolean eventCoalescingEnabled;
+
+    /**
+     * 是否向日志压缩 topic 发布库存水位（StockLevelPublisher），默认开启
+     * 可通过 Nacos Config 动态修改
+     */
+    @Value("${inventory.events.stock-level.enabled:true}")
+    private boolean stockLevelEnabled;
+
+    /**
+     * 当前是否为指定的并发控制模式（未配置时视为 lock）
+     */
+    public boolean isConcurrencyMode(String mode) {
+        String current = concurrencyMode == null || concurrencyMode.isBlank() ? MODE_LOCK : concurrencyMode;
+        return mode.equalsIgnoreCase(current.trim());
+    }
 }
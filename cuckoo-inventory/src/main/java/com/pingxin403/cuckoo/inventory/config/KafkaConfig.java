@@ -1,6 +1,8 @@
 package com.pingxin403.cuckoo.inventory.config;
 
 import com.pingxin403.cuckoo.common.kafka.KafkaConsumerConfig;
+import com.pingxin403.cuckoo.inventory.service.StockLevelPublisher;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,6 +11,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.listener.CommonErrorHandler;
@@ -65,4 +68,16 @@ public class KafkaConfig {
         
         return factory;
     }
+
+    /**
+     * 库存水位 topic：按 skuId 日志压缩，每个 SKU 只保留最新水位
+     */
+    @Bean
+    public NewTopic stockLevelsTopic(
+            @Value("${inventory.events.stock-level.partitions:3}") int partitions) {
+        return TopicBuilder.name(StockLevelPublisher.STOCK_LEVELS_TOPIC)
+                .partitions(partitions)
+                .compact()
+                .build();
+    }
 }
@@ -2,7 +2,6 @@ package com.pingxin403.cuckoo.inventory.consumer;
 
 import com.pingxin403.cuckoo.common.event.OrderCancelledEvent;
 import com.pingxin403.cuckoo.common.kafka.AbstractEventConsumer;
-import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.service.InventoryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,7 +11,7 @@ import org.springframework.stereotype.Component;
 /**
  * 订单取消事件消费者
  * 监听 order-events 主题，处理 OrderCancelledEvent
- * 当订单取消时，释放该订单对应的预占库存
+ * 当订单取消时，按预占台账释放该订单仍未释放的预占库存（预占可能已过期自动释放）
  */
 @Slf4j
 @Component
@@ -32,13 +31,8 @@ public class OrderCancelledEventConsumer extends AbstractEventConsumer<OrderCanc
 
     @Override
     protected void handleEvent(OrderCancelledEvent event) {
-        InventoryOperationRequest releaseRequest = new InventoryOperationRequest(
-                event.getSkuId(),
-                event.getQuantity(),
-                String.valueOf(event.getOrderId())
-        );
-        inventoryService.releaseStock(releaseRequest);
-        log.info("Released stock for cancelled order: orderId={}, skuId={}, quantity={}",
-                event.getOrderId(), event.getSkuId(), event.getQuantity());
+        String orderId = String.valueOf(event.getOrderId());
+        int lines = inventoryService.cancelReservation(orderId);
+        log.info("Released stock for cancelled order: orderId={}, lines={}", orderId, lines);
     }
 }
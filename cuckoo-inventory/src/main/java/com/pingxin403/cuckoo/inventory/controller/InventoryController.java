@@ -1,10 +1,13 @@
 package com.pingxin403.cuckoo.inventory.controller;
 
+import com.pingxin403.cuckoo.common.cache.EncodedResponseCache;
 import com.pingxin403.cuckoo.common.controller.BaseController;
+import com.pingxin403.cuckoo.inventory.dto.BatchInventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.dto.InitInventoryRequest;
 import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
 import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.service.InventoryService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +22,7 @@ import org.springframework.web.bind.annotation.*;
 public class InventoryController extends BaseController {
 
     private final InventoryService inventoryService;
+    private final EncodedResponseCache encodedResponses;
 
     /**
      * 初始化库存
@@ -68,15 +72,61 @@ public class InventoryController extends BaseController {
         return ok(null);
     }
 
+    /**
+     * 批量预占库存（全部成功或全部失败）
+     * POST /api/inventory/reserve-batch
+     */
+    @PostMapping("/reserve-batch")
+    public ResponseEntity<Void> reserveStockBatch(@RequestBody BatchInventoryOperationRequest request) {
+        logRequest("批量预占库存", request.getOrderId(), request.getItems());
+        inventoryService.reserveStockBatch(request);
+        logResponse("批量预占库存", "成功");
+        return ok(null);
+    }
+
+    /**
+     * 批量扣减库存（全部成功或全部失败）
+     * POST /api/inventory/deduct-batch
+     */
+    @PostMapping("/deduct-batch")
+    public ResponseEntity<Void> deductStockBatch(@RequestBody BatchInventoryOperationRequest request) {
+        logRequest("批量扣减库存", request.getOrderId(), request.getItems());
+        inventoryService.deductStockBatch(request);
+        logResponse("批量扣减库存", "成功");
+        return ok(null);
+    }
+
+    /**
+     * 批量释放库存（全部成功或全部失败）
+     * POST /api/inventory/release-batch
+     */
+    @PostMapping("/release-batch")
+    public ResponseEntity<Void> releaseStockBatch(@RequestBody BatchInventoryOperationRequest request) {
+        logRequest("批量释放库存", request.getOrderId(), request.getItems());
+        inventoryService.releaseStockBatch(request);
+        logResponse("批量释放库存", "成功");
+        return ok(null);
+    }
+
     /**
      * 根据 SKU ID 查询库存
-     * GET /api/inventory/{skuId}
+     * GET /api/inventory/{skuId}?maxStalenessMs=500
+     * maxStalenessMs 为可接受的最大陈旧时间（毫秒），不传时使用服务端默认值（默认 0），0 表示不使用近端缓存
+     * 结果随多级缓存失效时按缓存键复用预编码的 JSON 字节（不再读取缓存），否则每次编码；支持 ETag 条件请求
      */
     @GetMapping("/{skuId}")
-    public ResponseEntity<InventoryDTO> getInventory(@PathVariable Long skuId) {
+    public ResponseEntity<byte[]> getInventory(@PathVariable Long skuId,
+                                               @RequestParam(required = false) Long maxStalenessMs,
+                                               HttpServletRequest request) {
         logRequest("查询库存", skuId);
-        InventoryDTO inventory = inventoryService.getInventoryBySkuId(skuId);
-        logResponse("查询库存", inventory.getId());
-        return ok(inventory);
+        if (!inventoryService.isCacheConsistentRead(maxStalenessMs)) {
+            InventoryDTO inventory = inventoryService.getInventoryBySkuId(skuId, maxStalenessMs);
+            logResponse("查询库存", inventory.getId());
+            return encodedResponses.respond(inventory, request);
+        }
+        ResponseEntity<byte[]> response = encodedResponses.respond(InventoryService.cacheKey(skuId),
+                () -> inventoryService.getInventoryBySkuId(skuId, maxStalenessMs), request);
+        logResponse("查询库存", skuId);
+        return response;
     }
 }
@@ -0,0 +1,30 @@
+package com.pingxin403.cuckoo.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量库存操作请求 DTO（同一订单的多个 SKU，全部成功或全部失败）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchInventoryOperationRequest {
+
+    private String orderId;
+    private List<Item> items;
+
+    /**
+     * 订单行：SKU 与数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long skuId;
+        private Integer quantity;
+    }
+}
@@ -48,6 +48,13 @@ public class Inventory {
     @Column(name = "reserved_stock", nullable = false)
     private Integer reservedStock;
 
+    /**
+     * 归属纪元（单写者模式的 fencing token），只由 InventoryRepository.fence 更新
+     */
+    @Column(name = "owner_epoch", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private Long ownerEpoch;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -0,0 +1,77 @@
+package com.pingxin403.cuckoo.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存分桶实体
+ * 热点 SKU 的部分可用库存拆分到多个分桶行，分散行锁竞争。
+ * SKU 的实际库存 = inventory 行 + 全部分桶之和；每个分桶同样满足
+ * total_stock = available_stock + reserved_stock
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_bucket", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_sku_bucket", columnNames = {"sku_id", "bucket_no"})
+})
+public class InventoryBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * SKU ID
+     */
+    @Column(name = "sku_id", nullable = false)
+    private Long skuId;
+
+    /**
+     * 分桶编号（从 0 开始）
+     */
+    @Column(name = "bucket_no", nullable = false)
+    private Integer bucketNo;
+
+    /**
+     * 总库存
+     */
+    @Column(name = "total_stock", nullable = false)
+    private Integer totalStock;
+
+    /**
+     * 可用库存
+     */
+    @Column(name = "available_stock", nullable = false)
+    private Integer availableStock;
+
+    /**
+     * 预占库存
+     */
+    @Column(name = "reserved_stock", nullable = false)
+    private Integer reservedStock;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
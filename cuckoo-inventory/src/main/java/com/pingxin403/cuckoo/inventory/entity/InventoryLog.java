@@ -40,7 +40,7 @@ public class InventoryLog {
     private String orderId;
 
     /**
-     * 操作类型：RESERVE, DEDUCT, RELEASE
+     * 操作类型：RESERVE, DEDUCT, RELEASE（lua 模式撤销未提交的扣减时为 RESTORE）
      */
     @Column(nullable = false, length = 20)
     private String operation;
@@ -0,0 +1,89 @@
+package com.pingxin403.cuckoo.inventory.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 预占台账实体
+ * 每个订单的每个 SKU 一行，记录预占数量及其状态（RESERVED -> DEDUCTED / RELEASED），
+ * 按订单 ID 查询，支付成功时一次性确认订单的全部预占，超过 expiresAt 仍未确认的预占自动释放
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_reservation", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_order_sku", columnNames = {"order_id", "sku_id"})
+}, indexes = {
+        @Index(name = "idx_status_expires_at", columnList = "status, expires_at")
+})
+public class InventoryReservation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * 订单 ID
+     */
+    @Column(name = "order_id", nullable = false, length = 50)
+    private String orderId;
+
+    /**
+     * SKU ID
+     */
+    @Column(name = "sku_id", nullable = false)
+    private Long skuId;
+
+    /**
+     * 预占数量
+     */
+    @Column(nullable = false)
+    private Integer quantity;
+
+    /**
+     * 预占状态
+     */
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private ReservationStatus status;
+
+    /**
+     * 预占过期时间，到期仍为 RESERVED 时自动释放（为空表示不过期）
+     */
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * 预占状态枚举
+     */
+    public enum ReservationStatus {
+        RESERVED,   // 已预占
+        DEDUCTED,   // 已扣减（支付成功）
+        RELEASED,   // 已释放（订单取消或超时）
+        UNFULFILLED // 支付成功时预占已释放且库存不足以重新预占，待补偿（退款或补货）
+    }
+}
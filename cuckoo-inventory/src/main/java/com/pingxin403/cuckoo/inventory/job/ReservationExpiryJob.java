@@ -0,0 +1,115 @@
+package com.pingxin403.cuckoo.inventory.job;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation.ReservationStatus;
+import com.pingxin403.cuckoo.inventory.repository.InventoryReservationRepository;
+import com.pingxin403.cuckoo.inventory.service.InventoryService;
+import com.pingxin403.cuckoo.inventory.service.ReservationExpiryWheel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 预占过期释放任务
+ * 1. 每个时间轮刻度推进 ReservationExpiryWheel，释放到期订单的预占，库存在到期后数秒内恢复可用
+ * 2. 定期兜底扫描台账中已过期的 RESERVED 行（其他实例创建、或时间轮释放失败的预占）
+ *
+ * 每个订单的到期行在一个事务内批量释放；订单取消事件晚到时台账已为 RELEASED，释放为空操作。
+ */
+@Slf4j
+@Component
+public class ReservationExpiryJob {
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final ReservationExpiryWheel reservationExpiryWheel;
+    private final InventoryReservationRepository reservationRepository;
+    private final InventoryService inventoryService;
+    private final Counter expiredCounter;
+    private final Counter lockedStockMinutes;
+    private final Timer releaseLag;
+
+    public ReservationExpiryJob(ReservationExpiryWheel reservationExpiryWheel,
+                                InventoryReservationRepository reservationRepository,
+                                InventoryService inventoryService,
+                                MeterRegistry meterRegistry) {
+        this.reservationExpiryWheel = reservationExpiryWheel;
+        this.reservationRepository = reservationRepository;
+        this.inventoryService = inventoryService;
+        this.expiredCounter = Counter.builder("inventory.reservation.expired")
+                .description("Number of reservation lines released on expiry")
+                .register(meterRegistry);
+        this.lockedStockMinutes = Counter.builder("inventory.reservation.locked.stock.minutes")
+                .description("Quantity times minutes that expired reservations held stock before release")
+                .register(meterRegistry);
+        this.releaseLag = Timer.builder("inventory.reservation.expiry.lag")
+                .description("Delay between reservation expiry and its release")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 默认每秒推进一次时间轮
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.expiry-tick-ms:1000}")
+    public void expire() {
+        try {
+            Set<String> orderIds = reservationExpiryWheel.poll();
+            if (!orderIds.isEmpty()) {
+                release(orderIds);
+            }
+        } catch (Exception e) {
+            log.error("Reservation expiry job failed", e);
+        }
+    }
+
+    /**
+     * 默认每 60 秒兜底扫描一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}", initialDelay = 30000)
+    public void sweep() {
+        try {
+            List<String> orderIds = reservationRepository.findExpiredOrderIds(
+                    ReservationStatus.RESERVED, LocalDateTime.now(), PageRequest.of(0, SWEEP_BATCH_SIZE));
+            if (!orderIds.isEmpty()) {
+                log.info("Expired reservations found by sweep: orders={}", orderIds.size());
+                release(orderIds);
+            }
+        } catch (Exception e) {
+            log.error("Reservation expiry sweep failed", e);
+        }
+    }
+
+    private void release(Collection<String> orderIds) {
+        for (String orderId : orderIds) {
+            try {
+                List<InventoryReservation> released = inventoryService.releaseExpiredReservations(orderId);
+                record(released);
+            } catch (Exception e) {
+                // 台账仍为 RESERVED，由下一次兜底扫描重试
+                log.error("Expired reservation release failed: orderId={}", orderId, e);
+            }
+        }
+    }
+
+    private void record(List<InventoryReservation> released) {
+        LocalDateTime now = LocalDateTime.now();
+        for (InventoryReservation reservation : released) {
+            expiredCounter.increment();
+            if (reservation.getCreatedAt() != null) {
+                double minutes = Duration.between(reservation.getCreatedAt(), now).toMillis() / 60000.0;
+                lockedStockMinutes.increment(reservation.getQuantity() * minutes);
+            }
+            releaseLag.record(Duration.between(reservation.getExpiresAt(), now));
+        }
+    }
+}
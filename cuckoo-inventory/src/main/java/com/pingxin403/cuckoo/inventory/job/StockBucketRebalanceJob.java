@@ -0,0 +1,54 @@
+package com.pingxin403.cuckoo.inventory.job;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.repository.InventoryBucketRepository;
+import com.pingxin403.cuckoo.inventory.service.BucketedStockService;
+import com.pingxin403.cuckoo.inventory.service.StockBucketRebalancer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 库存分桶再平衡任务
+ * 对配置了分桶数的 SKU 和仍存在分桶的 SKU 执行再平衡：
+ * 调大分桶数时拆分库存，调小或移除配置时把分桶合并回 inventory 行。
+ * lua 模式下库存由 Redis 维护、落库流只更新 inventory 行，不拆分分桶。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockBucketRebalanceJob {
+
+    private final InventoryConfig inventoryConfig;
+    private final InventoryBucketRepository inventoryBucketRepository;
+    private final StockBucketRebalancer stockBucketRebalancer;
+    private final BucketedStockService bucketedStockService;
+
+    /**
+     * 默认每 5 秒执行一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.bucket.rebalance-interval-ms:5000}")
+    public void rebalance() {
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            return;
+        }
+        try {
+            Set<Long> skuIds = new HashSet<>(inventoryConfig.getBucketCounts().keySet());
+            skuIds.addAll(inventoryBucketRepository.findShardedSkuIds());
+            for (Long skuId : skuIds) {
+                try {
+                    stockBucketRebalancer.rebalance(skuId);
+                } catch (Exception e) {
+                    log.error("Stock bucket rebalance failed: skuId={}", skuId, e);
+                }
+            }
+            bucketedStockService.refreshShardedSkuIds(inventoryBucketRepository.findShardedSkuIds());
+        } catch (Exception e) {
+            log.error("Stock bucket rebalance job failed", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.pingxin403.cuckoo.inventory.job;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.service.InventoryService;
+import com.pingxin403.cuckoo.inventory.service.RedisStockEngine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 库存落库任务（concurrency-mode=lua）
+ * 以消费者组方式读取 RedisStockEngine 写入的落库流，按流顺序逐条写入数据库，
+ * 成功后 ACK 并删除该条记录。
+ * 并发模式可动态刷新，任务始终注册、运行时判断：lua 模式下每轮读取；其他模式下只在流中还有记录时读取，
+ * 保证切出 lua 模式前产生的变更全部落库。
+ *
+ * 每轮先处理本消费者未 ACK 的记录（上次失败或由对账任务认领的），再读取新记录；
+ * 某条记录落库失败时立即结束本轮，保证同一消费者内的顺序。
+ */
+@Slf4j
+@Component
+public class StockFlushJob {
+
+    public static final String FLUSH_GROUP = "inventory-flush";
+
+    private static final int BATCH_SIZE = 200;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final InventoryService inventoryService;
+    private final InventoryConfig inventoryConfig;
+    private final String consumerName;
+
+    public StockFlushJob(StringRedisTemplate stringRedisTemplate, InventoryService inventoryService,
+                         InventoryConfig inventoryConfig) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.inventoryService = inventoryService;
+        this.inventoryConfig = inventoryConfig;
+        this.consumerName = ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            stringRedisTemplate.opsForStream()
+                    .createGroup(RedisStockEngine.FLUSH_STREAM_KEY, ReadOffset.from("0"), FLUSH_GROUP);
+            log.info("Stock flush consumer group created: stream={}, group={}",
+                    RedisStockEngine.FLUSH_STREAM_KEY, FLUSH_GROUP);
+        } catch (Exception e) {
+            // BUSYGROUP：消费者组已存在
+            log.debug("Stock flush consumer group already exists: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 每 200 毫秒落库一次（配置刷新时也会由 StockReconcileJob 调用，串行执行避免重复重放未 ACK 的记录）
+     */
+    @Scheduled(fixedDelayString = "${inventory.lua.flush-interval-ms:200}")
+    public synchronized void flush() {
+        try {
+            if (!inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA) && !hasBacklog()) {
+                return;
+            }
+            // 1. 先重放本消费者未 ACK 的记录
+            if (!drain(ReadOffset.from("0"))) {
+                return;
+            }
+            // 2. 再读取新记录
+            drain(ReadOffset.lastConsumed());
+        } catch (Exception e) {
+            log.error("Stock flush failed", e);
+        }
+    }
+
+    public String getConsumerName() {
+        return consumerName;
+    }
+
+    /**
+     * 落库流中是否还有记录（落库成功的记录会被删除）
+     */
+    private boolean hasBacklog() {
+        Long size = stringRedisTemplate.opsForStream().size(RedisStockEngine.FLUSH_STREAM_KEY);
+        return size != null && size > 0;
+    }
+
+    /**
+     * 读取并落库一批记录
+     *
+     * @return 本批全部落库成功返回 true
+     */
+    private boolean drain(ReadOffset offset) {
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                Consumer.from(FLUSH_GROUP, consumerName),
+                StreamReadOptions.empty().count(BATCH_SIZE),
+                StreamOffset.create(RedisStockEngine.FLUSH_STREAM_KEY, offset));
+        if (records == null || records.isEmpty()) {
+            return true;
+        }
+
+        for (MapRecord<String, Object, Object> record : records) {
+            Map<Object, Object> entry = record.getValue();
+            try {
+                inventoryService.applyStockChange(
+                        Long.valueOf(entry.get("skuId").toString()),
+                        entry.get("orderId").toString(),
+                        entry.get("operation").toString(),
+                        Integer.parseInt(entry.get("quantity").toString()),
+                        Integer.parseInt(entry.get("total").toString()));
+            } catch (Exception e) {
+                log.error("Stock change flush failed, will retry: recordId={}, entry={}", record.getId(), entry, e);
+                return false;
+            }
+            stringRedisTemplate.opsForStream().acknowledge(FLUSH_GROUP, record);
+            stringRedisTemplate.opsForStream().delete(record);
+        }
+        log.debug("Stock changes flushed: count={}", records.size());
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package com.pingxin403.cuckoo.inventory.job;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import com.pingxin403.cuckoo.inventory.service.RedisStockEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 库存对账任务（concurrency-mode=lua）
+ * 1. 认领长时间未 ACK 的落库记录（原消费者实例已下线），交给本实例的 StockFlushJob 重放
+ * 2. 落库流排空后比对 Redis 与数据库库存，不一致时以 Redis 为准修复数据库
+ *
+ * 修复使用以旧值为条件的 UPDATE，期间若有新的落库写入则放弃本次修复，等待下一轮。
+ *
+ * 并发模式可通过 Nacos 动态切换，任务始终注册、运行时判断：
+ * - 其他模式下落库流排空后删除 Redis 中的库存 Hash（此后以数据库为准，不再对账）
+ * - 配置刷新后进入 lua 模式时，先落库本实例积压的记录再删除残留的库存 Hash，
+ *   避免 LOAD_SCRIPT 因 Key 已存在而沿用切出 lua 模式之前的旧库存
+ * 切换期间各实例收到新配置有先后，建议在低峰期切换。
+ */
+@Slf4j
+@Component
+public class StockReconcileJob {
+
+    private static final Duration CLAIM_MIN_IDLE = Duration.ofSeconds(60);
+    private static final int CLAIM_BATCH_SIZE = 100;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final InventoryRepository inventoryRepository;
+    private final RedisStockEngine redisStockEngine;
+    private final StockFlushJob stockFlushJob;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryConfig inventoryConfig;
+    private final Counter driftCounter;
+
+    /**
+     * 上次观察到的模式是否为 lua（配置刷新后比较）
+     */
+    private volatile boolean luaMode;
+
+    public StockReconcileJob(StringRedisTemplate stringRedisTemplate,
+                             InventoryRepository inventoryRepository,
+                             RedisStockEngine redisStockEngine,
+                             StockFlushJob stockFlushJob,
+                             TransactionTemplate transactionTemplate,
+                             InventoryConfig inventoryConfig,
+                             MeterRegistry meterRegistry) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.inventoryRepository = inventoryRepository;
+        this.redisStockEngine = redisStockEngine;
+        this.stockFlushJob = stockFlushJob;
+        this.transactionTemplate = transactionTemplate;
+        this.inventoryConfig = inventoryConfig;
+        this.luaMode = inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA);
+        this.driftCounter = Counter.builder("inventory.stock.reconcile.drift")
+                .description("Number of SKUs whose database stock drifted from redis")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 每 60 秒执行一次
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 30000)
+    public void reconcile() {
+        boolean lua = inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA);
+        if (!lua && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisStockEngine.STOCK_SKU_SET_KEY))) {
+            return;
+        }
+        try {
+            claimStalePending();
+            if (!isFlushStreamDrained()) {
+                log.debug("Flush stream not drained, skip stock reconciliation");
+                return;
+            }
+            if (!lua) {
+                // 已切出 lua 模式且变更全部落库，数据库为准
+                redisStockEngine.unloadAll();
+                return;
+            }
+
+            Set<String> skuIds = stringRedisTemplate.opsForSet().members(RedisStockEngine.STOCK_SKU_SET_KEY);
+            if (skuIds == null || skuIds.isEmpty()) {
+                return;
+            }
+            int repaired = 0;
+            for (String skuId : skuIds) {
+                if (reconcileSku(Long.valueOf(skuId))) {
+                    repaired++;
+                }
+            }
+            log.info("Stock reconciliation completed: skus={}, repaired={}", skuIds.size(), repaired);
+        } catch (Exception e) {
+            log.error("Stock reconciliation failed", e);
+        }
+    }
+
+    /**
+     * 配置刷新后检查并发模式：重新进入 lua 模式时删除残留的库存 Hash，按数据库重新加载
+     * （切出 lua 模式时由 reconcile 在落库流排空后删除）
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        boolean lua = inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA);
+        if (lua == luaMode) {
+            return;
+        }
+        luaMode = lua;
+        log.info("Inventory concurrency mode changed: lua={}", lua);
+        if (!lua) {
+            return;
+        }
+        try {
+            stockFlushJob.flush();
+            if (!isFlushStreamDrained()) {
+                log.warn("Flush stream not drained when entering lua mode, reloaded stock may miss pending changes");
+            }
+            redisStockEngine.unloadAll();
+        } catch (Exception e) {
+            log.error("Failed to unload stale stock when entering lua mode", e);
+        }
+    }
+
+    /**
+     * 认领其他消费者空闲超过 60 秒的未 ACK 记录
+     */
+    private void claimStalePending() {
+        PendingMessages pending = stringRedisTemplate.opsForStream().pending(
+                RedisStockEngine.FLUSH_STREAM_KEY, StockFlushJob.FLUSH_GROUP, Range.unbounded(), CLAIM_BATCH_SIZE);
+        RecordId[] stale = pending.stream()
+                .filter(message -> !message.getConsumerName().equals(stockFlushJob.getConsumerName()))
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(CLAIM_MIN_IDLE) > 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (stale.length > 0) {
+            stringRedisTemplate.opsForStream().claim(RedisStockEngine.FLUSH_STREAM_KEY, StockFlushJob.FLUSH_GROUP,
+                    stockFlushJob.getConsumerName(), CLAIM_MIN_IDLE, stale);
+            log.warn("Claimed stale stock flush records: count={}", stale.length);
+        }
+    }
+
+    /**
+     * 落库流是否已全部投递且 ACK
+     */
+    private boolean isFlushStreamDrained() {
+        StreamInfo.XInfoStream info = stringRedisTemplate.opsForStream().info(RedisStockEngine.FLUSH_STREAM_KEY);
+        Optional<StreamInfo.XInfoGroup> group = stringRedisTemplate.opsForStream()
+                .groups(RedisStockEngine.FLUSH_STREAM_KEY).stream()
+                .filter(g -> StockFlushJob.FLUSH_GROUP.equals(g.groupName()))
+                .findFirst();
+        return group.isPresent()
+                && group.get().pendingCount() == 0
+                && info.lastGeneratedId().equals(group.get().lastDeliveredId());
+    }
+
+    /**
+     * 比对单个 SKU，必要时修复数据库
+     *
+     * @return 是否执行了修复
+     */
+    private boolean reconcileSku(Long skuId) {
+        // 先读数据库再读 Redis：期间发生的操作只会让 Redis 领先，并由条件 UPDATE 兜底
+        Optional<Inventory> dbStock = inventoryRepository.findBySkuId(skuId);
+        int[] redisStock = redisStockEngine.snapshot(skuId);
+        if (redisStock == null || dbStock.isEmpty()) {
+            return false;
+        }
+
+        Inventory inventory = dbStock.get();
+        if (redisStock[0] == inventory.getTotalStock()
+                && redisStock[1] == inventory.getAvailableStock()
+                && redisStock[2] == inventory.getReservedStock()) {
+            return false;
+        }
+
+        // 读取快照期间可能有新的库存操作，重新确认落库流已排空
+        if (!isFlushStreamDrained()) {
+            return false;
+        }
+        log.warn("Stock drift detected: skuId={}, redis=[{}, {}, {}], db=[{}, {}, {}]",
+                skuId, redisStock[0], redisStock[1], redisStock[2],
+                inventory.getTotalStock(), inventory.getAvailableStock(), inventory.getReservedStock());
+        driftCounter.increment();
+
+        Integer updated = transactionTemplate.execute(status -> inventoryRepository.overwriteStock(skuId,
+                redisStock[0], redisStock[1], redisStock[2],
+                inventory.getTotalStock(), inventory.getAvailableStock(), inventory.getReservedStock()));
+        return updated != null && updated > 0;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pingxin403.cuckoo.inventory.repository;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * 库存分桶数据访问层
+ */
+@Repository
+public interface InventoryBucketRepository extends JpaRepository<InventoryBucket, Long> {
+
+    /**
+     * 查询 SKU 的全部分桶（按编号排序）
+     */
+    List<InventoryBucket> findBySkuIdOrderByBucketNo(Long skuId);
+
+    /**
+     * 按编号顺序锁定 SKU 的全部分桶（再平衡用，固定加锁顺序避免死锁）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM InventoryBucket b WHERE b.skuId = :skuId ORDER BY b.bucketNo")
+    List<InventoryBucket> findBySkuIdForUpdate(@Param("skuId") Long skuId);
+
+    /**
+     * 查询存在分桶的 SKU
+     */
+    @Query("SELECT DISTINCT b.skuId FROM InventoryBucket b")
+    List<Long> findShardedSkuIds();
+
+    /**
+     * 分桶条件预占：可用库存充足时 available -= quantity, reserved += quantity
+     *
+     * @return 受影响行数，0 表示分桶不存在或可用库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE InventoryBucket b SET b.availableStock = b.availableStock - :quantity, "
+            + "b.reservedStock = b.reservedStock + :quantity "
+            + "WHERE b.skuId = :skuId AND b.bucketNo = :bucketNo AND b.availableStock >= :quantity")
+    int reserveIfAvailable(@Param("skuId") Long skuId,
+                           @Param("bucketNo") int bucketNo,
+                           @Param("quantity") int quantity);
+
+    /**
+     * 分桶条件扣减：预占库存充足时 reserved -= quantity, total -= quantity
+     *
+     * @return 受影响行数，0 表示分桶不存在或预占库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE InventoryBucket b SET b.reservedStock = b.reservedStock - :quantity, "
+            + "b.totalStock = b.totalStock - :quantity "
+            + "WHERE b.skuId = :skuId AND b.bucketNo = :bucketNo AND b.reservedStock >= :quantity")
+    int deductIfReserved(@Param("skuId") Long skuId,
+                         @Param("bucketNo") int bucketNo,
+                         @Param("quantity") int quantity);
+
+    /**
+     * 分桶条件释放：预占库存充足时 reserved -= quantity, available += quantity
+     *
+     * @return 受影响行数，0 表示分桶不存在或预占库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE InventoryBucket b SET b.reservedStock = b.reservedStock - :quantity, "
+            + "b.availableStock = b.availableStock + :quantity "
+            + "WHERE b.skuId = :skuId AND b.bucketNo = :bucketNo AND b.reservedStock >= :quantity")
+    int releaseIfReserved(@Param("skuId") Long skuId,
+                          @Param("bucketNo") int bucketNo,
+                          @Param("quantity") int quantity);
+}
@@ -0,0 +1,16 @@
+package com.pingxin403.cuckoo.inventory.repository;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+
+import java.util.List;
+
+/**
+ * 库存流水批量写入（JDBC batch，绕过 JPA 逐条 persist）
+ */
+public interface InventoryLogBatchRepository {
+
+    /**
+     * 以一次 JDBC batch 插入多条流水，需在调用方事务中执行
+     */
+    void batchInsert(List<InventoryLog> logs);
+}
@@ -0,0 +1,36 @@
+package com.pingxin403.cuckoo.inventory.repository;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * InventoryLogBatchRepository 实现（Spring Data 按 Impl 后缀自动装配到 InventoryLogRepository）
+ */
+@RequiredArgsConstructor
+public class InventoryLogBatchRepositoryImpl implements InventoryLogBatchRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_log (sku_id, order_id, operation, quantity, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void batchInsert(List<InventoryLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), (ps, logEntry) -> {
+            ps.setLong(1, logEntry.getSkuId());
+            ps.setString(2, logEntry.getOrderId());
+            ps.setString(3, logEntry.getOperation());
+            ps.setInt(4, logEntry.getQuantity());
+            ps.setTimestamp(5, now);
+        });
+    }
+}
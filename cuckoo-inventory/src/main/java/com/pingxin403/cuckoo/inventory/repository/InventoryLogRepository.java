@@ -10,13 +10,18 @@ import java.util.List;
  * 库存操作流水日志数据访问层
  */
 @Repository
-public interface InventoryLogRepository extends JpaRepository<InventoryLog, Long> {
+public interface InventoryLogRepository extends JpaRepository<InventoryLog, Long>, InventoryLogBatchRepository {
 
     /**
      * 根据订单 ID 查询操作流水
      */
     List<InventoryLog> findByOrderId(String orderId);
 
+    /**
+     * 按写入顺序查询订单的操作流水（补建预占台账用）
+     */
+    List<InventoryLog> findByOrderIdOrderById(String orderId);
+
     /**
      * 根据 SKU ID 查询操作流水
      */
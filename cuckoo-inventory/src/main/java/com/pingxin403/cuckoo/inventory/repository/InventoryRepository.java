@@ -1,9 +1,17 @@
 package com.pingxin403.cuckoo.inventory.repository;
 
 import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,8 +25,101 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
      */
     Optional<Inventory> findBySkuId(Long skuId);
 
+    /**
+     * 根据 SKU ID 查询并锁定库存行（SELECT ... FOR UPDATE）
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.skuId = :skuId")
+    Optional<Inventory> findBySkuIdForUpdate(@Param("skuId") Long skuId);
+
     /**
      * 根据 SKU ID 判断库存是否存在
      */
     boolean existsBySkuId(Long skuId);
+
+    /**
+     * 根据多个 SKU ID 查询库存
+     */
+    List<Inventory> findBySkuIdIn(Collection<Long> skuIds);
+
+    /**
+     * 按 ID 游标分页查询库存（ID 大于 afterId，按 ID 升序）
+     */
+    List<Inventory> findByIdGreaterThanOrderById(Long afterId, Pageable pageable);
+
+    /**
+     * 按增量更新库存（不读取、不校验，由调用方保证增量合法）
+     * 用于 Redis 库存引擎的异步落库
+     *
+     * @return 受影响行数，0 表示 SKU 不存在
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.totalStock = i.totalStock + :totalDelta, "
+            + "i.availableStock = i.availableStock + :availableDelta, "
+            + "i.reservedStock = i.reservedStock + :reservedDelta WHERE i.skuId = :skuId")
+    int applyStockDelta(@Param("skuId") Long skuId,
+                        @Param("totalDelta") int totalDelta,
+                        @Param("availableDelta") int availableDelta,
+                        @Param("reservedDelta") int reservedDelta);
+
+    /**
+     * 以期望的旧值为条件覆盖库存（对账修复用）
+     * 旧值不匹配说明期间有新的落库写入，本次修复放弃
+     *
+     * @return 受影响行数，0 表示旧值已变化
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.totalStock = :total, i.availableStock = :available, "
+            + "i.reservedStock = :reserved WHERE i.skuId = :skuId AND i.totalStock = :expectedTotal "
+            + "AND i.availableStock = :expectedAvailable AND i.reservedStock = :expectedReserved")
+    int overwriteStock(@Param("skuId") Long skuId,
+                       @Param("total") int total,
+                       @Param("available") int available,
+                       @Param("reserved") int reserved,
+                       @Param("expectedTotal") int expectedTotal,
+                       @Param("expectedAvailable") int expectedAvailable,
+                       @Param("expectedReserved") int expectedReserved);
+
+    /**
+     * 条件预占（CAS）：可用库存充足时 available -= quantity, reserved += quantity
+     *
+     * @return 受影响行数，0 表示 SKU 不存在或可用库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.availableStock = i.availableStock - :quantity, "
+            + "i.reservedStock = i.reservedStock + :quantity "
+            + "WHERE i.skuId = :skuId AND i.availableStock >= :quantity")
+    int reserveIfAvailable(@Param("skuId") Long skuId, @Param("quantity") int quantity);
+
+    /**
+     * 条件扣减（CAS）：预占库存充足时 reserved -= quantity, total -= quantity
+     *
+     * @return 受影响行数，0 表示 SKU 不存在或预占库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.reservedStock = i.reservedStock - :quantity, "
+            + "i.totalStock = i.totalStock - :quantity "
+            + "WHERE i.skuId = :skuId AND i.reservedStock >= :quantity")
+    int deductIfReserved(@Param("skuId") Long skuId, @Param("quantity") int quantity);
+
+    /**
+     * 条件释放（CAS）：预占库存充足时 reserved -= quantity, available += quantity
+     *
+     * @return 受影响行数，0 表示 SKU 不存在或预占库存不足
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.reservedStock = i.reservedStock - :quantity, "
+            + "i.availableStock = i.availableStock + :quantity "
+            + "WHERE i.skuId = :skuId AND i.reservedStock >= :quantity")
+    int releaseIfReserved(@Param("skuId") Long skuId, @Param("quantity") int quantity);
+
+    /**
+     * 单写者模式的 fencing：仅当行上的归属纪元不大于 epoch 时写入 epoch
+     * 同时取得行锁，之后同一事务内的读改写与其他实例的条件 UPDATE 串行
+     *
+     * @return 受影响行数，0 表示已有更新的归属者（或库存不存在）
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Inventory i SET i.ownerEpoch = :epoch WHERE i.skuId = :skuId AND i.ownerEpoch <= :epoch")
+    int fence(@Param("skuId") Long skuId, @Param("epoch") long epoch);
 }
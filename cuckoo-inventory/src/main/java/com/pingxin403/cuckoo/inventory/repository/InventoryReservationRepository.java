@@ -0,0 +1,75 @@
+package com.pingxin403.cuckoo.inventory.repository;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation.ReservationStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 预占台账数据访问层
+ */
+@Repository
+public interface InventoryReservationRepository extends JpaRepository<InventoryReservation, Long> {
+
+    /**
+     * 根据订单 ID 查询预占台账
+     */
+    List<InventoryReservation> findByOrderId(String orderId);
+
+    /**
+     * 订单是否已有预占台账
+     */
+    boolean existsByOrderId(String orderId);
+
+    /**
+     * 根据订单 ID 和 SKU ID 查询预占台账
+     */
+    Optional<InventoryReservation> findByOrderIdAndSkuId(String orderId, Long skuId);
+
+    /**
+     * 按 SKU 顺序锁定订单中指定状态的台账行（SELECT ... FOR UPDATE）
+     * 重复投递的支付事件在此串行化，后到者读不到 RESERVED 行
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM InventoryReservation r WHERE r.orderId = :orderId AND r.status = :status ORDER BY r.skuId")
+    List<InventoryReservation> findByOrderIdAndStatusForUpdate(@Param("orderId") String orderId,
+                                                               @Param("status") ReservationStatus status);
+
+    /**
+     * 条件状态迁移：仅当台账处于 from 状态时改为 to
+     *
+     * @return 受影响行数，0 表示台账不存在或已迁移
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE InventoryReservation r SET r.status = :to "
+            + "WHERE r.orderId = :orderId AND r.skuId = :skuId AND r.status = :from")
+    int transition(@Param("orderId") String orderId,
+                   @Param("skuId") Long skuId,
+                   @Param("from") ReservationStatus from,
+                   @Param("to") ReservationStatus to);
+
+    /**
+     * 按 ID 游标分页查询指定状态的台账（启动时加载过期时间轮）
+     */
+    List<InventoryReservation> findByStatusAndIdGreaterThanOrderById(ReservationStatus status, Long afterId,
+                                                                      Pageable pageable);
+
+    /**
+     * 查询存在已过期预占的订单 ID（兜底扫描，覆盖其他实例创建的预占）
+     */
+    @Query("SELECT DISTINCT r.orderId FROM InventoryReservation r "
+            + "WHERE r.status = :status AND r.expiresAt <= :now")
+    List<String> findExpiredOrderIds(@Param("status") ReservationStatus status,
+                                     @Param("now") LocalDateTime now,
+                                     Pageable pageable);
+}
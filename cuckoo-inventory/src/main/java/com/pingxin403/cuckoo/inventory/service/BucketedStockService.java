@@ -0,0 +1,192 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
+import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
+import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import com.pingxin403.cuckoo.inventory.entity.InventoryBucket;
+import com.pingxin403.cuckoo.inventory.repository.InventoryBucketRepository;
+import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * 分桶库存（热点 SKU）
+ * SKU 的库存分布在 inventory 行与若干分桶行上，每次操作只对其中一行执行条件 UPDATE：
+ * 1. 按订单 ID 哈希得到首选分桶，同一订单的预占、扣减、释放优先落在同一分桶
+ * 2. 首选分桶不足时依次尝试相邻分桶，最后尝试 inventory 行
+ * 3. 预占时若没有任何一行能单独满足、但合计充足，收拢分桶库存后重试
+ *
+ * 调用方需提供事务；查询时合计 inventory 行与全部分桶。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BucketedStockService {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryBucketRepository inventoryBucketRepository;
+    private final InventoryConfig inventoryConfig;
+    private final StockBucketRebalancer stockBucketRebalancer;
+
+    /**
+     * 仍存在分桶的 SKU（分桶数调小后，分桶合并回 inventory 行之前仍走分桶路径）
+     * 由 StockBucketRebalanceJob 定期刷新
+     */
+    private volatile Set<Long> shardedSkuIds = Set.of();
+
+    /**
+     * SKU 是否走分桶路径
+     */
+    public boolean isSharded(Long skuId) {
+        return inventoryConfig.getBucketCount(skuId) > 1 || shardedSkuIds.contains(skuId);
+    }
+
+    public void refreshShardedSkuIds(Collection<Long> skuIds) {
+        this.shardedSkuIds = Set.copyOf(skuIds);
+    }
+
+    /**
+     * 预占库存：available -= quantity, reserved += quantity
+     */
+    public void reserve(InventoryOperationRequest request) {
+        Long skuId = request.getSkuId();
+        int quantity = request.getQuantity();
+        int bucketCount = inventoryConfig.getBucketCount(skuId);
+        boolean consolidated = false;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<InventoryBucket> buckets = inventoryBucketRepository.findBySkuIdOrderByBucketNo(skuId);
+            Optional<InventoryBucket> candidate = pick(buckets, request.getOrderId(), bucketCount,
+                    b -> b.getBucketNo() < bucketCount ? b.getAvailableStock() : 0, quantity);
+            if (candidate.isPresent()
+                    && inventoryBucketRepository.reserveIfAvailable(skuId, candidate.get().getBucketNo(), quantity) > 0) {
+                log.debug("Stock reserved in bucket: skuId={}, bucketNo={}", skuId, candidate.get().getBucketNo());
+                return;
+            }
+            if (inventoryRepository.reserveIfAvailable(skuId, quantity) > 0) {
+                return;
+            }
+
+            int available = requireInventory(skuId).getAvailableStock() + sum(buckets, InventoryBucket::getAvailableStock);
+            if (available < quantity) {
+                throw new InsufficientStockException(skuId, quantity, available);
+            }
+            if (candidate.isEmpty() && !consolidated) {
+                stockBucketRebalancer.consolidate(skuId);
+                consolidated = true;
+            }
+        }
+        throw new BusinessException("服务繁忙，请稍后重试");
+    }
+
+    /**
+     * 扣减库存：reserved -= quantity, total -= quantity
+     *
+     * @return 扣减后的 SKU 总库存
+     */
+    public int deduct(InventoryOperationRequest request) {
+        Long skuId = request.getSkuId();
+        int quantity = request.getQuantity();
+        moveReserved(request, bucketNo -> inventoryBucketRepository.deductIfReserved(skuId, bucketNo, quantity),
+                () -> inventoryRepository.deductIfReserved(skuId, quantity),
+                "Insufficient reserved stock for SKU %d: requested %d, reserved %d");
+
+        Inventory inventory = requireInventory(skuId);
+        return inventory.getTotalStock()
+                + sum(inventoryBucketRepository.findBySkuIdOrderByBucketNo(skuId), InventoryBucket::getTotalStock);
+    }
+
+    /**
+     * 释放库存：reserved -= quantity, available += quantity
+     */
+    public void release(InventoryOperationRequest request) {
+        Long skuId = request.getSkuId();
+        int quantity = request.getQuantity();
+        moveReserved(request, bucketNo -> inventoryBucketRepository.releaseIfReserved(skuId, bucketNo, quantity),
+                () -> inventoryRepository.releaseIfReserved(skuId, quantity),
+                "Insufficient reserved stock to release for SKU %d: requested %d, reserved %d");
+    }
+
+    /**
+     * 将全部分桶的库存合计到 DTO（DTO 为 inventory 行的值）
+     */
+    public InventoryDTO aggregate(InventoryDTO dto) {
+        List<InventoryBucket> buckets = inventoryBucketRepository.findBySkuIdOrderByBucketNo(dto.getSkuId());
+        dto.setTotalStock(dto.getTotalStock() + sum(buckets, InventoryBucket::getTotalStock));
+        dto.setAvailableStock(dto.getAvailableStock() + sum(buckets, InventoryBucket::getAvailableStock));
+        dto.setReservedStock(dto.getReservedStock() + sum(buckets, InventoryBucket::getReservedStock));
+        return dto;
+    }
+
+    /**
+     * 扣减与释放共用：在预占库存充足的分桶或 inventory 行上执行条件 UPDATE
+     * 预占总是整笔落在某一行上，因此不需要跨行拆分
+     */
+    private void moveReserved(InventoryOperationRequest request, BucketUpdate bucketUpdate,
+                              IntSupplier rowUpdate, String insufficientMessage) {
+        Long skuId = request.getSkuId();
+        int quantity = request.getQuantity();
+        int bucketCount = inventoryConfig.getBucketCount(skuId);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<InventoryBucket> buckets = inventoryBucketRepository.findBySkuIdOrderByBucketNo(skuId);
+            Optional<InventoryBucket> candidate = pick(buckets, request.getOrderId(), bucketCount,
+                    InventoryBucket::getReservedStock, quantity);
+            if (candidate.isPresent() && bucketUpdate.apply(candidate.get().getBucketNo()) > 0) {
+                return;
+            }
+            if (rowUpdate.getAsInt() > 0) {
+                return;
+            }
+
+            int reserved = requireInventory(skuId).getReservedStock() + sum(buckets, InventoryBucket::getReservedStock);
+            if (reserved < quantity) {
+                throw new BusinessException(String.format(insufficientMessage, skuId, quantity, reserved));
+            }
+        }
+        throw new BusinessException("服务繁忙，请稍后重试");
+    }
+
+    /**
+     * 选出库存充足的分桶：从订单的首选分桶开始按编号环形查找，
+     * 编号不小于当前分桶数的（待回收）分桶排在最后
+     */
+    private Optional<InventoryBucket> pick(List<InventoryBucket> buckets, String orderId, int bucketCount,
+                                           ToIntFunction<InventoryBucket> stock, int quantity) {
+        int home = Math.floorMod(orderId == null ? 0 : orderId.hashCode(), Math.max(bucketCount, 1));
+        return buckets.stream()
+                .filter(b -> stock.applyAsInt(b) >= quantity)
+                .min(Comparator.comparingInt(b -> b.getBucketNo() < bucketCount
+                        ? Math.floorMod(b.getBucketNo() - home, bucketCount)
+                        : b.getBucketNo()));
+    }
+
+    private Inventory requireInventory(Long skuId) {
+        return inventoryRepository.findBySkuId(skuId)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", skuId));
+    }
+
+    private int sum(List<InventoryBucket> buckets, ToIntFunction<InventoryBucket> field) {
+        return buckets.stream().mapToInt(field).sum();
+    }
+
+    @FunctionalInterface
+    private interface BucketUpdate {
+        int apply(int bucketNo);
+    }
+}
@@ -0,0 +1,122 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分层时间轮
+ * 第一层每格 tickMs、共 wheelSize 格，上一层每格为下一层一圈的时长；超出当前层范围的任务放入上一层（按需创建），
+ * 上层的格到期时把其中的任务重新放回下层，直到落入第一层的格到期后交给调用方。
+ *
+ * 到期时间向上取整到刻度，任务不会早于到期时间触发，最多晚一个刻度。
+ * 由调用方按 tickMs 周期调用 advance 推进，添加与推进均为 O(1)（不计级联），公开方法均已同步。
+ *
+ * @param <T> 任务类型
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final Level<T> root;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be positive and wheelSize greater than 1");
+        }
+        this.root = new Level<>(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * 添加任务
+     *
+     * @return 到期时间不晚于当前时钟（已到期）时返回 false，任务不会被加入
+     */
+    public synchronized boolean add(T task, long expireAtMs) {
+        // 向上取整到刻度：格的到期时间为 floor(deadline / tickMs) * tickMs
+        if (!root.add(new Entry<>(task, expireAtMs + root.tickMs - 1))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进时钟到 nowMs，返回期间到期的任务
+     */
+    public synchronized List<T> advance(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        while (root.currentTime + root.tickMs <= nowMs) {
+            long time = root.currentTime + root.tickMs;
+            List<Entry<T>> fired = new ArrayList<>();
+            for (Level<T> level = root; level != null && time % level.tickMs == 0; level = level.overflow) {
+                level.currentTime = time;
+                fired.addAll(level.take(time));
+            }
+            for (Entry<T> entry : fired) {
+                if (!root.add(entry)) {
+                    expired.add(entry.task);
+                    size--;
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 当前时间轮中的任务数
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private record Entry<T>(T task, long expireAtMs) {
+    }
+
+    /**
+     * 时间轮的一层，currentTime 始终为 tickMs 的整数倍
+     */
+    private static final class Level<T> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final List<Entry<T>>[] buckets;
+        private long currentTime;
+        private Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.buckets = new List[wheelSize];
+            this.currentTime = startMs - Math.floorMod(startMs, tickMs);
+        }
+
+        private boolean add(Entry<T> entry) {
+            if (entry.expireAtMs < currentTime + tickMs) {
+                return false;
+            }
+            if (entry.expireAtMs < currentTime + interval) {
+                int slot = (int) Math.floorMod(entry.expireAtMs / tickMs, (long) wheelSize);
+                if (buckets[slot] == null) {
+                    buckets[slot] = new ArrayList<>();
+                }
+                buckets[slot].add(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(interval, wheelSize, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        /**
+         * 取出到期时间为 time 的格
+         */
+        private List<Entry<T>> take(long time) {
+            int slot = (int) Math.floorMod(time / tickMs, (long) wheelSize);
+            List<Entry<T>> bucket = buckets[slot];
+            buckets[slot] = null;
+            return bucket == null ? List.of() : bucket;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.event.EventPublisherUtil;
+import com.pingxin403.cuckoo.common.event.InventoryDeductedEvent;
+import com.pingxin403.cuckoo.common.message.LocalMessageService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 库存扣减事件合并发布（inventory.events.coalesce.enabled）
+ * 扣减事务提交后登记变更，每个窗口（inventory.events.coalesce.window-ms）把窗口内的变更按 SKU 合并成
+ * 一个 InventoryDeductedEvent：quantity 累加，beforeQuantity 取最大、afterQuantity 取最小
+ * （扣减只减少总库存，与事务提交顺序无关）。
+ *
+ * 合并后的事件在发布前写入本地消息表，之后的重试与逐笔事件相同；写入失败时变更放回队列，下一窗口重试。
+ * 但登记到写入之间（最多一个窗口）进程退出会丢失这部分事件，因此默认关闭，只在高峰期开启。
+ */
+@Slf4j
+@Component
+public class InventoryEventCoalescer {
+
+    private static final String INVENTORY_EVENTS_TOPIC = "inventory-events";
+
+    private final LocalMessageService localMessageService;
+    private final EventPublisherUtil eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter coalescedCounter;
+    private final Counter publishedCounter;
+
+    private final Object mutex = new Object();
+    private Set<String> pendingOrderIds = new LinkedHashSet<>();
+    private Map<Long, InventoryDeductedEvent.InventoryChange> pendingChanges = new LinkedHashMap<>();
+
+    public InventoryEventCoalescer(LocalMessageService localMessageService,
+                                   EventPublisherUtil eventPublisher,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry) {
+        this.localMessageService = localMessageService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.coalescedCounter = Counter.builder("inventory.events.coalesced")
+                .description("Number of deductions merged into coalesced InventoryDeductedEvents")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("inventory.events.coalesced.published")
+                .description("Number of coalesced InventoryDeductedEvents published")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记扣减变更；在事务中调用时于提交后登记，回滚的扣减不会发布
+     */
+    public void add(String orderId, List<InventoryDeductedEvent.InventoryChange> changes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    merge(orderId, changes);
+                }
+            });
+        } else {
+            merge(orderId, changes);
+        }
+    }
+
+    /**
+     * 默认每 50 毫秒发布一次合并事件
+     */
+    @Scheduled(fixedDelayString = "${inventory.events.coalesce.window-ms:50}")
+    public void flush() {
+        InventoryDeductedEvent event = drain();
+        if (event == null) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> localMessageService.saveMessage(event));
+        } catch (Exception e) {
+            // 放回待发布队列，与下一个窗口的变更合并后重试
+            requeue(event);
+            log.error("保存合并库存扣减事件失败，下一窗口重试: orderIds={}", event.getOrderIds(), e);
+            return;
+        }
+
+        try {
+            eventPublisher.publish(INVENTORY_EVENTS_TOPIC, event);
+            localMessageService.markAsSent(event.getEventId());
+            publishedCounter.increment();
+            log.info("合并库存扣减事件已发布: eventId={}, orders={}, skus={}",
+                    event.getEventId(), event.getOrderIds().size(), event.getChanges().size());
+        } catch (Exception e) {
+            log.error("发布合并库存扣减事件失败，将由定时任务重试: eventId={}", event.getEventId(), e);
+        }
+    }
+
+    /**
+     * 取出当前窗口的变更并合并成一个事件，没有变更时返回 null
+     */
+    InventoryDeductedEvent drain() {
+        Set<String> orderIds;
+        Map<Long, InventoryDeductedEvent.InventoryChange> changes;
+        synchronized (mutex) {
+            if (pendingChanges.isEmpty()) {
+                return null;
+            }
+            orderIds = pendingOrderIds;
+            changes = pendingChanges;
+            pendingOrderIds = new LinkedHashSet<>();
+            pendingChanges = new LinkedHashMap<>();
+        }
+        return InventoryDeductedEvent.coalesced(new ArrayList<>(orderIds), new ArrayList<>(changes.values()));
+    }
+
+    private void merge(String orderId, List<InventoryDeductedEvent.InventoryChange> changes) {
+        synchronized (mutex) {
+            if (orderId != null) {
+                pendingOrderIds.add(orderId);
+            }
+            mergeChanges(changes);
+        }
+        coalescedCounter.increment();
+    }
+
+    /**
+     * 未能写入本地消息表的合并事件放回待发布队列（合并规则与登记相同，顺序无关）
+     */
+    private void requeue(InventoryDeductedEvent event) {
+        synchronized (mutex) {
+            pendingOrderIds.addAll(event.getOrderIds());
+            mergeChanges(event.getChanges());
+        }
+    }
+
+    private void mergeChanges(List<InventoryDeductedEvent.InventoryChange> changes) {
+        for (InventoryDeductedEvent.InventoryChange change : changes) {
+            pendingChanges.merge(change.getSkuId(), copy(change), (merged, next) -> {
+                merged.setQuantity(merged.getQuantity() + next.getQuantity());
+                merged.setBeforeQuantity(Math.max(merged.getBeforeQuantity(), next.getBeforeQuantity()));
+                merged.setAfterQuantity(Math.min(merged.getAfterQuantity(), next.getAfterQuantity()));
+                return merged;
+            });
+        }
+    }
+
+    private static InventoryDeductedEvent.InventoryChange copy(InventoryDeductedEvent.InventoryChange change) {
+        return new InventoryDeductedEvent.InventoryChange(change.getSkuId(), change.getQuantity(),
+                change.getBeforeQuantity(), change.getAfterQuantity());
+    }
+}
@@ -0,0 +1,148 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 库存查询近端缓存（进程内 Caffeine）
+ * 位于 Redis 缓存之前，命中时不访问 Redis，也不开启数据库事务。
+ *
+ * 每个条目记录加载开始的时间，读取时按调用方给出的最大陈旧时间判断是否可用，
+ * 因此即使失效通知与加载并发，返回的数据也不会超过该陈旧上限。
+ *
+ * 库存变更时先删除本地条目，待失效的 SKU 在 invalidation-flush-ms 内合并为一条
+ * Pub/Sub 消息通知其他实例。
+ */
+@Slf4j
+@Component
+public class InventoryNearCache {
+
+    public static final String INVALIDATION_CHANNEL = "inventory:near-cache:evict";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer messageListenerContainer;
+    private final Cache<Long, Entry> cache;
+    private final Set<Long> pendingInvalidations = ConcurrentHashMap.newKeySet();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public InventoryNearCache(StringRedisTemplate stringRedisTemplate,
+                              RedisMessageListenerContainer messageListenerContainer,
+                              MeterRegistry meterRegistry,
+                              @Value("${inventory.near-cache.max-size:10000}") long maxSize,
+                              @Value("${inventory.near-cache.expire-ms:5000}") long expireMs) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.messageListenerContainer = messageListenerContainer;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireMs, TimeUnit.MILLISECONDS)
+                .build();
+        this.hitCounter = Counter.builder("inventory.near-cache.requests")
+                .tag("result", "hit")
+                .description("Inventory near-cache lookups")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("inventory.near-cache.requests")
+                .tag("result", "miss")
+                .description("Inventory near-cache lookups")
+                .register(meterRegistry);
+        Gauge.builder("inventory.near-cache.size", cache, Cache::estimatedSize)
+                .description("Number of entries in the inventory near-cache")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        messageListenerContainer.addMessageListener(
+                (message, pattern) -> invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(INVALIDATION_CHANNEL));
+        log.info("Subscribed to inventory near-cache invalidation channel: {}", INVALIDATION_CHANNEL);
+    }
+
+    /**
+     * 读取不超过 maxStalenessMs 的缓存条目
+     *
+     * @return 未命中或已超过陈旧上限时返回 null
+     */
+    public InventoryDTO get(Long skuId, long maxStalenessMs) {
+        Entry entry = cache.getIfPresent(skuId);
+        if (entry == null || System.nanoTime() - entry.loadStartedAt() > TimeUnit.MILLISECONDS.toNanos(maxStalenessMs)) {
+            missCounter.increment();
+            return null;
+        }
+        hitCounter.increment();
+        return entry.inventory();
+    }
+
+    /**
+     * 写入缓存，loadStartedAt 为开始读取 Redis/数据库前的 System.nanoTime()
+     * 写入后的 DTO 不应再被修改
+     */
+    public void put(Long skuId, InventoryDTO inventory, long loadStartedAt) {
+        cache.put(skuId, new Entry(inventory, loadStartedAt));
+    }
+
+    /**
+     * 删除本地条目，并登记待通知其他实例
+     */
+    public void invalidate(Collection<Long> skuIds) {
+        cache.invalidateAll(skuIds);
+        pendingInvalidations.addAll(skuIds);
+    }
+
+    /**
+     * 合并发布待失效的 SKU，默认每 20 毫秒一次
+     */
+    @Scheduled(fixedDelayString = "${inventory.near-cache.invalidation-flush-ms:20}")
+    public void publishInvalidations() {
+        if (pendingInvalidations.isEmpty()) {
+            return;
+        }
+        List<Long> skuIds = new ArrayList<>();
+        for (Iterator<Long> it = pendingInvalidations.iterator(); it.hasNext(); ) {
+            skuIds.add(it.next());
+            it.remove();
+        }
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                    skuIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            log.debug("Inventory near-cache invalidation published: skuIds={}", skuIds);
+        } catch (Exception e) {
+            // 其他实例的条目最迟在陈旧上限后不再被使用
+            log.warn("Inventory near-cache invalidation publish failed: skuIds={}", skuIds, e);
+        }
+    }
+
+    private void invalidateLocal(String payload) {
+        for (String skuId : payload.split(",")) {
+            if (!skuId.isBlank()) {
+                cache.invalidate(Long.valueOf(skuId.trim()));
+            }
+        }
+        log.debug("Inventory near-cache invalidated by notification: skuIds={}", payload);
+    }
+
+    private record Entry(InventoryDTO inventory, long loadStartedAt) {
+    }
+}
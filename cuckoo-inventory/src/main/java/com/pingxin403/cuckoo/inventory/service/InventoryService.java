@@ -1,5 +1,6 @@
 package com.pingxin403.cuckoo.inventory.service;
 
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManager;
 import com.pingxin403.cuckoo.common.event.EventPublisherUtil;
 import com.pingxin403.cuckoo.common.event.InventoryDeductedEvent;
 import com.pingxin403.cuckoo.common.exception.BusinessException;
@@ -8,30 +9,53 @@ import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
 import com.pingxin403.cuckoo.common.message.LocalMessageService;
 import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.BatchInventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.dto.InitInventoryRequest;
 import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
 import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.entity.Inventory;
 import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
 import com.pingxin403.cuckoo.inventory.mapper.InventoryMapper;
 import com.pingxin403.cuckoo.inventory.repository.InventoryLogRepository;
 import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * 库存服务
  * 提供库存初始化、预占、扣减、释放和查询功能。
- * 使用 Redis 分布式锁保证并发安全。
+ * 并发控制模式由 inventory.concurrency-mode 选择：
+ * - lock（默认）：Redis 分布式锁 + 数据库读改写
+ * - lua：RedisStockEngine 原子脚本扣减，数据库由 StockFlushJob 异步落库
+ * - cas：不加锁，每个操作是一条带库存条件的 UPDATE，按受影响行数判断成败
+ * 配置了分桶数的热点 SKU（lock/cas 模式）由 BucketedStockService 分散到多个分桶行处理。
+ * 开启 inventory.combiner.enabled 后，同一 SKU 的并发预占由 ReservationCombiner 合并成一次更新。
+ * 开启 inventory.ownership.enabled 后（lock 模式），SKU 的归属实例（SkuOwnership）用进程内分段锁 + 归属纪元 fencing 代替 Redis 分布式锁，非归属实例退化为 cas。
+ * 扣减事件可开启 inventory.events.coalesce.enabled 由 InventoryEventCoalescer 按窗口合并发布；库存变更后由 StockLevelPublisher 向日志压缩 topic 发布最新水位。
+ * 每次预占、扣减、释放同时维护按订单 ID 索引的预占台账（ReservationLedger），超过有效期仍未扣减的预占由 ReservationExpiryJob 自动释放。
  * 库存不变量：total_stock = available_stock + reserved_stock
  */
 @Slf4j
@@ -42,16 +66,26 @@ public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final InventoryLogRepository inventoryLogRepository;
     private final StringRedisTemplate stringRedisTemplate;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final MultiLevelCacheManager cacheManager;
     private final InventoryConfig inventoryConfig;
     private final EventPublisherUtil eventPublisher;
     private final LocalMessageService localMessageService;
     private final InventoryMapper inventoryMapper;
+    private final RedisStockEngine redisStockEngine;
+    private final BucketedStockService bucketedStockService;
+    private final ReservationCombiner reservationCombiner;
+    private final ReservationLedger reservationLedger;
+    private final InventoryNearCache inventoryNearCache;
+    private final SkuOwnership skuOwnership;
+    private final InventoryEventCoalescer inventoryEventCoalescer;
+    private final StockLevelPublisher stockLevelPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
 
     private static final String LOCK_KEY_PREFIX = "inventory:lock:";
     private static final String CACHE_KEY_PREFIX = "inventory:";
     private static final String INVENTORY_EVENTS_TOPIC = "inventory-events";
-    private static final long CACHE_TTL_MINUTES = 10;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
 
     /**
      * 初始化库存
@@ -82,6 +116,27 @@ public class InventoryService {
      * 操作：available_stock -= quantity, reserved_stock += quantity
      */
     public void reserveStock(InventoryOperationRequest request) {
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            executeInRedis(request.getOrderId(), List.of(request), "RESERVE", () -> redisStockEngine.reserve(request));
+            return;
+        }
+        if (bucketedStockService.isSharded(request.getSkuId())) {
+            transactionTemplate.executeWithoutResult(status -> doBucketReserveStock(request));
+            return;
+        }
+        if (inventoryConfig.isCombinerEnabled()) {
+            reservationCombiner.reserve(request, this::applyCombinedReservations);
+            return;
+        }
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)) {
+            transactionTemplate.executeWithoutResult(status -> doCasReserveStock(request));
+            return;
+        }
+        if (inventoryConfig.isOwnershipEnabled()) {
+            executeOwned(request, this::doReserveStock, this::doCasReserveStock);
+            return;
+        }
+
         String lockKey = LOCK_KEY_PREFIX + request.getSkuId();
         String lockValue = UUID.randomUUID().toString();
 
@@ -121,11 +176,99 @@ public class InventoryService {
                 request.getSkuId(), request.getQuantity(), request.getOrderId());
     }
 
+    /**
+     * 合并预占：同一 SKU 的一批请求在一次加锁、一个事务内完成
+     * 按到达顺序依次分配可用库存，库存不足的请求单独失败，不影响同批其他请求；
+     * 库存只更新一次，流水以 JDBC batch 写入，缓存只删除一次
+     */
+    private void applyCombinedReservations(List<ReservationCombiner.PendingReservation> batch) {
+        // 调用方已超时放弃的请求不再处理
+        List<ReservationCombiner.PendingReservation> claimed = batch.stream()
+                .filter(ReservationCombiner.PendingReservation::claim)
+                .toList();
+        if (claimed.isEmpty()) {
+            return;
+        }
+        Long skuId = claimed.get(0).request().getSkuId();
+
+        // cas 模式依赖行锁（SELECT ... FOR UPDATE）即可；lock 模式还需与扣减、释放共用分布式锁
+        boolean useLock = !inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS);
+        String lockKey = LOCK_KEY_PREFIX + skuId;
+        String lockValue = UUID.randomUUID().toString();
+        if (useLock && !tryLock(lockKey, lockValue)) {
+            claimed.forEach(pending -> pending.future().completeExceptionally(
+                    new BusinessException("服务繁忙，请稍后重试")));
+            return;
+        }
+
+        List<ReservationCombiner.PendingReservation> accepted = new ArrayList<>();
+        Map<ReservationCombiner.PendingReservation, RuntimeException> rejected = new LinkedHashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                accepted.clear();
+                rejected.clear();
+                Inventory inventory = inventoryRepository.findBySkuIdForUpdate(skuId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Inventory", skuId));
+
+                int available = inventory.getAvailableStock();
+                int reserved = 0;
+                List<InventoryLog> logs = new ArrayList<>();
+                for (ReservationCombiner.PendingReservation pending : claimed) {
+                    InventoryOperationRequest request = pending.request();
+                    if (request.getQuantity() > available) {
+                        rejected.put(pending, new InsufficientStockException(skuId, request.getQuantity(), available));
+                        continue;
+                    }
+                    available -= request.getQuantity();
+                    reserved += request.getQuantity();
+                    accepted.add(pending);
+                    logs.add(buildLog(skuId, request.getOrderId(), "RESERVE", request.getQuantity()));
+                }
+
+                if (reserved > 0) {
+                    inventoryRepository.applyStockDelta(skuId, 0, -reserved, reserved);
+                    inventoryLogRepository.batchInsert(logs);
+                    reservationLedger.applyAll(logs);
+                    invalidateCache(skuId);
+                }
+            });
+        } catch (RuntimeException e) {
+            claimed.forEach(pending -> pending.future().completeExceptionally(e));
+            return;
+        } finally {
+            if (useLock) {
+                unlock(lockKey, lockValue);
+            }
+        }
+
+        accepted.forEach(pending -> pending.future().complete(null));
+        rejected.forEach((pending, error) -> pending.future().completeExceptionally(error));
+        log.info("Stock reserved (combined): skuId={}, accepted={}, rejected={}",
+                skuId, accepted.size(), rejected.size());
+    }
+
     /**
      * 扣减库存
      * 将预占库存转为已扣减：reserved_stock -= quantity, total_stock -= quantity
      */
     public void deductStock(InventoryOperationRequest request) {
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            executeInRedis(request.getOrderId(), List.of(request), "DEDUCT", () -> redisStockEngine.deduct(request));
+            return;
+        }
+        if (bucketedStockService.isSharded(request.getSkuId())) {
+            transactionTemplate.executeWithoutResult(status -> doBucketDeductStock(request));
+            return;
+        }
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)) {
+            transactionTemplate.executeWithoutResult(status -> doCasDeductStock(request));
+            return;
+        }
+        if (inventoryConfig.isOwnershipEnabled()) {
+            executeOwned(request, this::doDeductStock, this::doCasDeductStock);
+            return;
+        }
+
         String lockKey = LOCK_KEY_PREFIX + request.getSkuId();
         String lockValue = UUID.randomUUID().toString();
 
@@ -169,31 +312,13 @@ public class InventoryService {
         log.info("Stock deducted: skuId={}, quantity={}, orderId={}",
                 request.getSkuId(), request.getQuantity(), request.getOrderId());
 
-        // 在同一事务中保存 InventoryDeductedEvent 到本地消息表
-        InventoryDeductedEvent.InventoryChange change = new InventoryDeductedEvent.InventoryChange(
+        // 在同一事务中保存 InventoryDeductedEvent 到本地消息表，并尝试发布到 Kafka
+        publishDeductedEvent(request.getOrderId(), new InventoryDeductedEvent.InventoryChange(
                 request.getSkuId(),
                 request.getQuantity(),
                 beforeTotalStock,
                 inventory.getTotalStock()
-        );
-        
-        InventoryDeductedEvent event = InventoryDeductedEvent.create(
-                request.getOrderId(),
-                Collections.singletonList(change)
-        );
-        
-        localMessageService.saveMessage(event);
-        log.info("库存扣减事件已保存到本地消息表: eventId={}, orderId={}", event.getEventId(), request.getOrderId());
-
-        // 异步发布事件到 Kafka（失败不影响事务提交）
-        try {
-            eventPublisher.publish(INVENTORY_EVENTS_TOPIC, event);
-            localMessageService.markAsSent(event.getEventId());
-            log.info("库存扣减事件已发布到 Kafka: eventId={}", event.getEventId());
-        } catch (Exception e) {
-            log.error("发布库存扣减事件失败，将由定时任务重试: eventId={}", event.getEventId(), e);
-            // 消息保持 PENDING 状态，等待定时任务重试
-        }
+        ));
     }
 
     /**
@@ -201,6 +326,23 @@ public class InventoryService {
      * 释放预占库存：reserved_stock -= quantity, available_stock += quantity
      */
     public void releaseStock(InventoryOperationRequest request) {
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            executeInRedis(request.getOrderId(), List.of(request), "RELEASE", () -> redisStockEngine.release(request));
+            return;
+        }
+        if (bucketedStockService.isSharded(request.getSkuId())) {
+            transactionTemplate.executeWithoutResult(status -> doBucketReleaseStock(request));
+            return;
+        }
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)) {
+            transactionTemplate.executeWithoutResult(status -> doCasReleaseStock(request));
+            return;
+        }
+        if (inventoryConfig.isOwnershipEnabled()) {
+            executeOwned(request, this::doReleaseStock, this::doCasReleaseStock);
+            return;
+        }
+
         String lockKey = LOCK_KEY_PREFIX + request.getSkuId();
         String lockValue = UUID.randomUUID().toString();
 
@@ -242,47 +384,616 @@ public class InventoryService {
     }
 
     /**
-     * 根据 SKU ID 查询库存
-     * 实现 Cache-Aside Pattern：
-     * 1. 先查询缓存
-     * 2. 缓存命中则直接返回
-     * 3. 缓存未命中则查询数据库
-     * 4. 将查询结果写入缓存（TTL 10分钟）
+     * CAS 预占：一条条件 UPDATE 完成校验与更新，失败时才读取库存行用于区分原因
+     */
+    private void doCasReserveStock(InventoryOperationRequest request) {
+        int updated = inventoryRepository.reserveIfAvailable(request.getSkuId(), request.getQuantity());
+        if (recordCasResult(request.getSkuId(), "RESERVE", updated)) {
+            throw conditionalUpdateMiss(request, "RESERVE");
+        }
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "RESERVE", request.getQuantity());
+
+        log.info("Stock reserved (cas): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * CAS 扣减：reserved_stock -= quantity, total_stock -= quantity
+     */
+    private void doCasDeductStock(InventoryOperationRequest request) {
+        int updated = inventoryRepository.deductIfReserved(request.getSkuId(), request.getQuantity());
+        if (recordCasResult(request.getSkuId(), "DEDUCT", updated)) {
+            throw conditionalUpdateMiss(request, "DEDUCT");
+        }
+        Inventory inventory = inventoryRepository.findBySkuId(request.getSkuId())
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", request.getSkuId()));
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "DEDUCT", request.getQuantity());
+
+        log.info("Stock deducted (cas): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+
+        // 扣减事件需要变更前后的总库存，更新后读取一次当前行
+        publishDeductedEvent(request.getOrderId(), new InventoryDeductedEvent.InventoryChange(
+                request.getSkuId(),
+                request.getQuantity(),
+                inventory.getTotalStock() + request.getQuantity(),
+                inventory.getTotalStock()
+        ));
+    }
+
+    /**
+     * CAS 释放：reserved_stock -= quantity, available_stock += quantity
+     */
+    private void doCasReleaseStock(InventoryOperationRequest request) {
+        int updated = inventoryRepository.releaseIfReserved(request.getSkuId(), request.getQuantity());
+        if (recordCasResult(request.getSkuId(), "RELEASE", updated)) {
+            throw conditionalUpdateMiss(request, "RELEASE");
+        }
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "RELEASE", request.getQuantity());
+
+        log.info("Stock released (cas): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 条件 UPDATE 未命中时读取库存行，构造与加锁路径一致的异常
+     */
+    private RuntimeException conditionalUpdateMiss(InventoryOperationRequest request, String operation) {
+        Inventory inventory = inventoryRepository.findBySkuId(request.getSkuId())
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", request.getSkuId()));
+        return switch (operation) {
+            case "RESERVE" -> new InsufficientStockException(
+                    request.getSkuId(), request.getQuantity(), inventory.getAvailableStock());
+            case "DEDUCT" -> new BusinessException(String.format(
+                    "Insufficient reserved stock for SKU %d: requested %d, reserved %d",
+                    request.getSkuId(), request.getQuantity(), inventory.getReservedStock()));
+            default -> new BusinessException(String.format(
+                    "Insufficient reserved stock to release for SKU %d: requested %d, reserved %d",
+                    request.getSkuId(), request.getQuantity(), inventory.getReservedStock()));
+        };
+    }
+
+    /**
+     * 记录 CAS 尝试与未命中次数（按 SKU 统计，未命中率 = misses / attempts）
+     *
+     * @return 条件 UPDATE 未命中返回 true
+     */
+    private boolean recordCasResult(Long skuId, String operation, int updated) {
+        String sku = String.valueOf(skuId);
+        Counter.builder("inventory.cas.attempts")
+                .tag("skuId", sku)
+                .tag("operation", operation)
+                .description("Conditional stock update attempts")
+                .register(meterRegistry)
+                .increment();
+        if (updated > 0) {
+            return false;
+        }
+        Counter.builder("inventory.cas.misses")
+                .tag("skuId", sku)
+                .tag("operation", operation)
+                .description("Conditional stock updates that matched no row")
+                .register(meterRegistry)
+                .increment();
+        return true;
+    }
+
+    /**
+     * 分桶预占：在订单对应的分桶（或相邻分桶）上执行条件 UPDATE
+     */
+    private void doBucketReserveStock(InventoryOperationRequest request) {
+        bucketedStockService.reserve(request);
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "RESERVE", request.getQuantity());
+
+        log.info("Stock reserved (bucket): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 分桶扣减：reserved_stock -= quantity, total_stock -= quantity
+     */
+    private void doBucketDeductStock(InventoryOperationRequest request) {
+        int totalAfter = bucketedStockService.deduct(request);
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "DEDUCT", request.getQuantity());
+
+        log.info("Stock deducted (bucket): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+
+        publishDeductedEvent(request.getOrderId(), new InventoryDeductedEvent.InventoryChange(
+                request.getSkuId(),
+                request.getQuantity(),
+                totalAfter + request.getQuantity(),
+                totalAfter
+        ));
+    }
+
+    /**
+     * 分桶释放：reserved_stock -= quantity, available_stock += quantity
+     */
+    private void doBucketReleaseStock(InventoryOperationRequest request) {
+        bucketedStockService.release(request);
+
+        invalidateCache(request.getSkuId());
+        saveLog(request.getSkuId(), request.getOrderId(), "RELEASE", request.getQuantity());
+
+        log.info("Stock released (bucket): skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 批量预占库存（同一订单的多个 SKU，全部成功或全部失败）
+     */
+    public void reserveStockBatch(BatchInventoryOperationRequest request) {
+        executeBatch(request, "RESERVE");
+    }
+
+    /**
+     * 批量扣减库存（全部成功或全部失败），发布一条包含全部 SKU 变更的扣减事件
+     */
+    public void deductStockBatch(BatchInventoryOperationRequest request) {
+        executeBatch(request, "DEDUCT");
+    }
+
+    /**
+     * 批量释放库存（全部成功或全部失败）
+     */
+    public void releaseStockBatch(BatchInventoryOperationRequest request) {
+        executeBatch(request, "RELEASE");
+    }
+
+    /**
+     * 确认订单预占（支付成功）
+     * 锁定台账中该订单仍为 RESERVED 的行，在同一事务内批量扣减并迁移为 DEDUCTED。
+     * 台账同时作为幂等保护：重复确认时读不到 RESERVED 行，直接返回。
+     * 没有 RESERVED 行但有 RELEASED 行说明支付晚于预占过期释放（或订单取消）到达，由 confirmAfterRelease 处理
+     *
+     * @return 本次扣减的订单行数
+     */
+    public int confirmReservation(String orderId) {
+        List<InventoryReservation> confirmed = settleReserved(orderId, "DEDUCT", line -> true);
+        if (!confirmed.isEmpty()) {
+            log.info("Reservation confirmed: orderId={}, lines={}", orderId, confirmed.size());
+            return confirmed.size();
+        }
+        return confirmAfterRelease(orderId);
+    }
+
+    /**
+     * 支付到达时预占已释放：锁定 RELEASED 台账行，在同一事务内重新预占并扣减；
+     * 库存已不足时台账行标记为 UNFULFILLED 等待补偿（退款或补货），不再静默返回。
+     * 已扣减的重复支付事件读不到 RELEASED 行，直接返回
+     *
+     * @return 本次扣减的订单行数
+     */
+    private int confirmAfterRelease(String orderId) {
+        Integer deducted;
+        try {
+            deducted = transactionTemplate.execute(status -> {
+                List<InventoryReservation> released = reservationLedger.lockReleased(orderId);
+                if (released.isEmpty()) {
+                    return 0;
+                }
+                BatchInventoryOperationRequest request = new BatchInventoryOperationRequest(orderId,
+                        released.stream()
+                                .map(line -> new BatchInventoryOperationRequest.Item(line.getSkuId(), line.getQuantity()))
+                                .toList());
+                executeBatch(request, "RESERVE");
+                executeBatch(request, "DEDUCT");
+                return released.size();
+            });
+        } catch (InsufficientStockException e) {
+            // 重新预占失败，整个事务已回滚；重新锁定仍为 RELEASED 的行并标记
+            transactionTemplate.executeWithoutResult(status ->
+                    reservationLedger.markUnfulfilled(reservationLedger.lockReleased(orderId)));
+            countLatePayment("unfulfilled");
+            log.error("支付到达时预占已释放且库存不足，订单需补偿（退款或补货）: orderId={}, reason={}",
+                    orderId, e.getMessage());
+            return 0;
+        }
+
+        if (deducted == null || deducted == 0) {
+            log.info("No reserved stock to confirm (already deducted), skip: orderId={}", orderId);
+            return 0;
+        }
+        countLatePayment("recovered");
+        log.warn("支付到达时预占已释放，已重新预占并扣减: orderId={}, lines={}", orderId, deducted);
+        return deducted;
+    }
+
+    private void countLatePayment(String result) {
+        Counter.builder("inventory.reservation.late.payments")
+                .tag("result", result)
+                .description("Payments confirmed after the reservation had been released")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 释放订单预占（订单取消）
+     * 与 confirmReservation 相同以台账为准：预占已过期释放或已扣减时读不到 RESERVED 行，直接返回
+     *
+     * @return 本次释放的订单行数
+     */
+    public int cancelReservation(String orderId) {
+        List<InventoryReservation> released = settleReserved(orderId, "RELEASE", line -> true);
+        if (released.isEmpty()) {
+            log.info("No reserved stock to release, skip: orderId={}", orderId);
+            return 0;
+        }
+        log.info("Reservation cancelled: orderId={}, lines={}", orderId, released.size());
+        return released.size();
+    }
+
+    /**
+     * 释放订单中已过期的预占（ReservationExpiryJob 调用）
+     * 支付确认、订单取消与过期释放在台账行锁上串行化，只有先到者生效
+     *
+     * @return 本次释放的台账行
+     */
+    public List<InventoryReservation> releaseExpiredReservations(String orderId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<InventoryReservation> expired = settleReserved(orderId, "RELEASE",
+                line -> line.getExpiresAt() != null && !line.getExpiresAt().isAfter(now));
+        if (!expired.isEmpty()) {
+            log.info("Expired reservation released: orderId={}, lines={}", orderId, expired.size());
+        }
+        return expired;
+    }
+
+    /**
+     * 锁定订单中 RESERVED 的台账行，把满足条件的行在同一事务内批量扣减或释放
+     *
+     * @return 本次处理的台账行
+     */
+    private List<InventoryReservation> settleReserved(String orderId, String operation,
+                                                      Predicate<InventoryReservation> filter) {
+        List<InventoryReservation> settled = transactionTemplate.execute(status -> {
+            List<InventoryReservation> reserved = reservationLedger.lockReserved(orderId);
+            // 台账上线前预占的订单没有台账行，按库存流水补建后再锁定
+            if (reserved.isEmpty() && reservationLedger.backfillFromLogs(orderId)) {
+                reserved = reservationLedger.lockReserved(orderId);
+            }
+            List<InventoryReservation> lines = reserved.stream()
+                    .filter(filter)
+                    .toList();
+            if (lines.isEmpty()) {
+                return List.<InventoryReservation>of();
+            }
+            List<BatchInventoryOperationRequest.Item> items = lines.stream()
+                    .map(line -> new BatchInventoryOperationRequest.Item(line.getSkuId(), line.getQuantity()))
+                    .toList();
+            executeBatch(new BatchInventoryOperationRequest(orderId, items), operation);
+            return lines;
+        });
+        return settled == null ? List.of() : settled;
+    }
+
+    /**
+     * 批量操作：
+     * 1. 合并重复 SKU 并按 skuId 排序，lock 模式下按此顺序获取分布式锁
+     * 2. 在一个事务内按 skuId 顺序对每个 SKU 执行条件 UPDATE（行锁同样按序获取，不会死锁），
+     *    任一 SKU 不满足时抛出异常，整个事务回滚
+     * 3. 流水以 JDBC batch 写入，缓存以一条 DEL 命令删除
+     * lua 模式由 RedisStockEngine 的批量脚本原子完成
+     */
+    private void executeBatch(BatchInventoryOperationRequest request, String operation) {
+        List<InventoryOperationRequest> lines = sortedLines(request);
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            executeInRedis(request.getOrderId(), lines, operation,
+                    () -> redisStockEngine.executeBatch(request.getOrderId(), lines, operation));
+            return;
+        }
+
+        boolean useLock = inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LOCK);
+        String lockValue = UUID.randomUUID().toString();
+        List<String> heldLocks = new ArrayList<>();
+        try {
+            if (useLock) {
+                for (InventoryOperationRequest line : lines) {
+                    String lockKey = LOCK_KEY_PREFIX + line.getSkuId();
+                    if (!tryLock(lockKey, lockValue)) {
+                        throw new BusinessException("服务繁忙，请稍后重试");
+                    }
+                    heldLocks.add(lockKey);
+                }
+            }
+            transactionTemplate.executeWithoutResult(status -> applyBatch(request.getOrderId(), lines, operation));
+        } finally {
+            heldLocks.forEach(lockKey -> unlock(lockKey, lockValue));
+        }
+        log.info("Stock batch {} completed: orderId={}, lines={}", operation, request.getOrderId(), lines.size());
+    }
+
+    private void applyBatch(String orderId, List<InventoryOperationRequest> lines, String operation) {
+        List<InventoryLog> logs = new ArrayList<>();
+        List<InventoryDeductedEvent.InventoryChange> changes = new ArrayList<>();
+        for (InventoryOperationRequest line : lines) {
+            Integer totalAfter = null;
+            if (bucketedStockService.isSharded(line.getSkuId())) {
+                switch (operation) {
+                    case "RESERVE" -> bucketedStockService.reserve(line);
+                    case "DEDUCT" -> totalAfter = bucketedStockService.deduct(line);
+                    default -> bucketedStockService.release(line);
+                }
+            } else {
+                int updated = switch (operation) {
+                    case "RESERVE" -> inventoryRepository.reserveIfAvailable(line.getSkuId(), line.getQuantity());
+                    case "DEDUCT" -> inventoryRepository.deductIfReserved(line.getSkuId(), line.getQuantity());
+                    default -> inventoryRepository.releaseIfReserved(line.getSkuId(), line.getQuantity());
+                };
+                if (updated == 0) {
+                    throw conditionalUpdateMiss(line, operation);
+                }
+                if ("DEDUCT".equals(operation)) {
+                    totalAfter = inventoryRepository.findBySkuId(line.getSkuId())
+                            .orElseThrow(() -> new ResourceNotFoundException("Inventory", line.getSkuId()))
+                            .getTotalStock();
+                }
+            }
+
+            logs.add(buildLog(line.getSkuId(), orderId, operation, line.getQuantity()));
+            if (totalAfter != null) {
+                changes.add(new InventoryDeductedEvent.InventoryChange(
+                        line.getSkuId(), line.getQuantity(), totalAfter + line.getQuantity(), totalAfter));
+            }
+        }
+
+        inventoryLogRepository.batchInsert(logs);
+        reservationLedger.applyAll(logs);
+        invalidateCaches(lines.stream().map(InventoryOperationRequest::getSkuId).toList());
+        if (!changes.isEmpty()) {
+            publishDeductedEvent(orderId, changes);
+        }
+    }
+
+    /**
+     * 校验批量请求，合并重复 SKU 并按 skuId 排序
+     */
+    private List<InventoryOperationRequest> sortedLines(BatchInventoryOperationRequest request) {
+        if (request.getItems() == null || request.getItems().isEmpty()) {
+            throw new BusinessException("批量库存操作的订单行不能为空");
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (BatchInventoryOperationRequest.Item item : request.getItems()) {
+            if (item.getSkuId() == null || item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new BusinessException("批量库存操作的订单行无效: skuId=" + item.getSkuId()
+                        + ", quantity=" + item.getQuantity());
+            }
+            quantities.merge(item.getSkuId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities.entrySet().stream()
+                .map(entry -> new InventoryOperationRequest(entry.getKey(), entry.getValue(), request.getOrderId()))
+                .toList();
+    }
+
+    /**
+     * 根据 SKU ID 查询库存，使用默认的近端缓存陈旧上限
      */
-    @Transactional(readOnly = true)
     public InventoryDTO getInventoryBySkuId(Long skuId) {
-        String cacheKey = CACHE_KEY_PREFIX + skuId;
-        
-        // 1. 先查询缓存
-        InventoryDTO cachedInventory = (InventoryDTO) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedInventory != null) {
-            log.debug("Cache hit for inventory: skuId={}", skuId);
-            return cachedInventory;
+        return getInventoryBySkuId(skuId, null);
+    }
+
+    /**
+     * 根据 SKU ID 查询库存
+     * 1. 先查询进程内近端缓存，命中且不超过陈旧上限时直接返回（不访问 Redis，不开启事务）
+     * 2. 再查询多级缓存（本地缓存 -> Redis，Cache-Aside）
+     * 3. 缓存未命中则合并并发回源，在只读事务中查询数据库，并写入多级缓存（TTL 10分钟）
+     *
+     * @param maxStalenessMs 可接受的最大陈旧时间（毫秒），为空时使用 inventory.near-cache.max-staleness-ms（默认 0），
+     *                       0 表示跳过近端缓存
+     */
+    public InventoryDTO getInventoryBySkuId(Long skuId, Long maxStalenessMs) {
+        long staleness = maxStalenessMs != null ? maxStalenessMs : inventoryConfig.getNearCacheMaxStalenessMs();
+        boolean nearCacheEnabled = inventoryConfig.isNearCacheEnabled();
+        if (nearCacheEnabled && staleness > 0) {
+            InventoryDTO nearCached = inventoryNearCache.get(skuId, staleness);
+            if (nearCached != null) {
+                return nearCached;
+            }
+        }
+
+        long loadStartedAt = System.nanoTime();
+        InventoryDTO inventoryDTO = overlayLiveStock(loadInventory(skuId));
+        if (nearCacheEnabled) {
+            inventoryNearCache.put(skuId, inventoryDTO, loadStartedAt);
+        }
+        return inventoryDTO;
+    }
+
+    /**
+     * 库存在多级缓存中的键，缓存预编码响应时使用同一个键，随库存缓存一起失效
+     */
+    public static String cacheKey(Long skuId) {
+        return CACHE_KEY_PREFIX + skuId;
+    }
+
+    /**
+     * 本次查询是否只返回多级缓存 inventory:{skuId} 条目的值（随库存变更一起失效），可按该键缓存编码后的响应
+     * lua 模式叠加的 Redis 实时库存、近端缓存中的旧值都不随该键失效，此时返回 false
+     */
+    public boolean isCacheConsistentRead(Long maxStalenessMs) {
+        long staleness = maxStalenessMs != null ? maxStalenessMs : inventoryConfig.getNearCacheMaxStalenessMs();
+        return !inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)
+                && !(inventoryConfig.isNearCacheEnabled() && staleness > 0);
+    }
+
+    /**
+     * 从多级缓存或数据库加载库存（不含 lua 模式的实时库存）
+     * 未命中时由 getOrLoad 合并并发回源，只有加载者在回调内开启只读事务，等待者不占用数据库连接
+     */
+    private InventoryDTO loadInventory(Long skuId) {
+        return cacheManager.getOrLoad(cacheKey(skuId), InventoryDTO.class, CACHE_TTL, () -> {
+            log.debug("Cache miss for inventory: skuId={}, querying database", skuId);
+            return readOnlyTransactionTemplate().execute(status -> {
+                Inventory inventory = inventoryRepository.findBySkuId(skuId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Inventory", skuId));
+                InventoryDTO dto = inventoryMapper.toDTO(inventory);
+                // 分桶 SKU 合计 inventory 行与全部分桶（再平衡不改变合计值）
+                return bucketedStockService.isSharded(skuId) ? bucketedStockService.aggregate(dto) : dto;
+            });
+        });
+    }
+
+    private TransactionTemplate readOnlyTransactionTemplate() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    /**
+     * 将 Redis 库存引擎的一条变更写入数据库（由 StockFlushJob 按流顺序调用）
+     * 库存校验已在 Lua 脚本中完成，这里只按增量更新，不再读取库存行
+     *
+     * @param totalAfter 变更后的总库存（用于构造扣减事件）
+     */
+    @Transactional
+    public void applyStockChange(Long skuId, String orderId, String operation, int quantity, int totalAfter) {
+        int updated = switch (operation) {
+            case "RESERVE" -> inventoryRepository.applyStockDelta(skuId, 0, -quantity, quantity);
+            case "DEDUCT" -> inventoryRepository.applyStockDelta(skuId, -quantity, 0, -quantity);
+            case "RELEASE" -> inventoryRepository.applyStockDelta(skuId, 0, quantity, -quantity);
+            case RedisStockEngine.OPERATION_RESTORE -> inventoryRepository.applyStockDelta(skuId, quantity, 0, quantity);
+            default -> throw new IllegalArgumentException("Unknown stock operation: " + operation);
+        };
+        if (updated == 0) {
+            log.error("Stock change skipped, inventory row missing: skuId={}, operation={}, orderId={}",
+                    skuId, operation, orderId);
+            return;
+        }
+
+        invalidateCache(skuId);
+        // 预占台账已在 Redis 操作成功时同步更新，这里只补写流水
+        inventoryLogRepository.save(buildLog(skuId, orderId, operation, quantity));
+
+        if ("DEDUCT".equals(operation)) {
+            publishDeductedEvent(orderId, new InventoryDeductedEvent.InventoryChange(
+                    skuId, quantity, totalAfter + quantity, totalAfter));
+        }
+        log.debug("Stock change flushed: skuId={}, operation={}, quantity={}, orderId={}",
+                skuId, operation, quantity, orderId);
+    }
+
+    /**
+     * lua 模式下数据库与缓存存在落库延迟，以 Redis 中的实时库存为准
+     * 返回覆盖后的副本，多级缓存中的共享实例保持不变
+     */
+    private InventoryDTO overlayLiveStock(InventoryDTO inventoryDTO) {
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            return redisStockEngine.overlay(inventoryDTO);
         }
-        
-        // 2. 缓存未命中，查询数据库
-        log.debug("Cache miss for inventory: skuId={}, querying database", skuId);
-        Inventory inventory = inventoryRepository.findBySkuId(skuId)
-                .orElseThrow(() -> new ResourceNotFoundException("Inventory", skuId));
-        
-        InventoryDTO inventoryDTO = inventoryMapper.toDTO(inventory);
-        
-        // 3. 将查询结果写入缓存，设置 TTL 为 10 分钟
-        redisTemplate.opsForValue().set(cacheKey, inventoryDTO, CACHE_TTL_MINUTES, TimeUnit.MINUTES);
-        log.debug("Inventory cached: skuId={}, ttl={}min", skuId, CACHE_TTL_MINUTES);
-        
         return inventoryDTO;
     }
 
+    private void publishDeductedEvent(String orderId, InventoryDeductedEvent.InventoryChange change) {
+        publishDeductedEvent(orderId, Collections.singletonList(change));
+    }
+
+    /**
+     * 保存 InventoryDeductedEvent 到本地消息表（需在调用方事务中），并异步发布到 Kafka
+     * 开启合并发布时改为交给 InventoryEventCoalescer，事务提交后按窗口合并发布
+     */
+    private void publishDeductedEvent(String orderId, List<InventoryDeductedEvent.InventoryChange> changes) {
+        if (inventoryConfig.isEventCoalescingEnabled()) {
+            inventoryEventCoalescer.add(orderId, changes);
+            return;
+        }
+        InventoryDeductedEvent event = InventoryDeductedEvent.create(orderId, changes);
+        
+        localMessageService.saveMessage(event);
+        log.info("库存扣减事件已保存到本地消息表: eventId={}, orderId={}", event.getEventId(), orderId);
+
+        // 异步发布事件到 Kafka（失败不影响事务提交）
+        try {
+            eventPublisher.publish(INVENTORY_EVENTS_TOPIC, event);
+            localMessageService.markAsSent(event.getEventId());
+            log.info("库存扣减事件已发布到 Kafka: eventId={}", event.getEventId());
+        } catch (Exception e) {
+            log.error("发布库存扣减事件失败，将由定时任务重试: eventId={}", event.getEventId(), e);
+            // 消息保持 PENDING 状态，等待定时任务重试
+        }
+    }
+
     /**
      * 删除库存缓存
      */
     private void invalidateCache(Long skuId) {
-        String cacheKey = CACHE_KEY_PREFIX + skuId;
-        redisTemplate.delete(cacheKey);
+        cacheManager.evict(cacheKey(skuId));
+        inventoryNearCache.invalidate(List.of(skuId));
+        stockLevelPublisher.markChanged(List.of(skuId));
         log.debug("Inventory cache deleted: skuId={}", skuId);
     }
 
+    /**
+     * 以一条 DEL 和一条失效消息删除多个 SKU 的库存缓存
+     */
+    private void invalidateCaches(List<Long> skuIds) {
+        cacheManager.evictAll(skuIds.stream().map(InventoryService::cacheKey).toList());
+        inventoryNearCache.invalidate(skuIds);
+        stockLevelPublisher.markChanged(skuIds);
+        log.debug("Inventory caches deleted: skuIds={}", skuIds);
+    }
+
+    /**
+     * 单写者模式下执行单 SKU 库存变更
+     * 归属实例：进程内分段锁串行读改写，事务内先以归属纪元 fence 库存行（同时取得行锁），纪元已过期则拒绝写入；
+     * 非归属实例（路由尚未收敛）或取不到归属纪元时：退化为 cas 条件更新
+     */
+    private void executeOwned(InventoryOperationRequest request,
+                              Consumer<InventoryOperationRequest> lockedOperation,
+                              Consumer<InventoryOperationRequest> casOperation) {
+        Long skuId = request.getSkuId();
+        Long epoch = null;
+        if (skuOwnership.isOwner(skuId)) {
+            try {
+                epoch = skuOwnership.acquireEpoch(skuId);
+            } catch (Exception e) {
+                log.warn("Acquire ownership epoch failed, fallback to cas: skuId={}", skuId, e);
+            }
+        }
+        if (epoch == null) {
+            transactionTemplate.executeWithoutResult(status -> casOperation.accept(request));
+            return;
+        }
+
+        long ownerEpoch = epoch;
+        ReentrantLock lock = skuOwnership.lockFor(skuId);
+        boolean locked;
+        try {
+            locked = lock.tryLock(inventoryConfig.getLockTimeout(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("服务繁忙，请稍后重试");
+        }
+        if (!locked) {
+            throw new BusinessException("服务繁忙，请稍后重试");
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (inventoryRepository.fence(skuId, ownerEpoch) == 0) {
+                    if (!inventoryRepository.existsBySkuId(skuId)) {
+                        throw new ResourceNotFoundException("Inventory", skuId);
+                    }
+                    skuOwnership.revoke(skuId, ownerEpoch);
+                    throw new BusinessException("库存归属已转移，请重试");
+                }
+                lockedOperation.accept(request);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
     /**
      * 尝试获取 Redis 分布式锁
      */
@@ -304,15 +1015,74 @@ public class InventoryService {
     }
 
     /**
-     * 记录库存操作流水日志
+     * 记录库存操作流水日志，并更新预占台账
      */
     private void saveLog(Long skuId, String orderId, String operation, Integer quantity) {
-        InventoryLog logEntry = InventoryLog.builder()
+        InventoryLog logEntry = buildLog(skuId, orderId, operation, quantity);
+        inventoryLogRepository.save(logEntry);
+        reservationLedger.apply(logEntry);
+    }
+
+    /**
+     * lua 模式：数据库流水异步落库，预占台账同步更新，保证随后到达的支付确认能查到台账
+     * 同一事务内先写台账、最后执行 Redis 脚本：脚本失败（库存不足等）时事务回滚，台账不变；
+     * 脚本成功而事务未提交时执行反向脚本，撤销 Redis 中已移动的库存，台账与 Redis 不会分叉
+     */
+    private void executeInRedis(String orderId, List<InventoryOperationRequest> lines, String operation,
+                                Runnable script) {
+        transactionTemplate.executeWithoutResult(status -> {
+            lines.forEach(line -> reservationLedger.apply(
+                    buildLog(line.getSkuId(), orderId, operation, line.getQuantity())));
+            script.run();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int completionStatus) {
+                        if (completionStatus != STATUS_COMMITTED) {
+                            revertInRedis(orderId, lines, operation);
+                        }
+                    }
+                });
+            }
+        });
+        inventoryNearCache.invalidate(lines.stream().map(InventoryOperationRequest::getSkuId).toList());
+    }
+
+    /**
+     * 以反向操作撤销 Redis 中的库存变更（预占 <-> 释放，扣减 -> 回补），反向记录同样经落库流写入数据库
+     */
+    private void revertInRedis(String orderId, List<InventoryOperationRequest> lines, String operation) {
+        String inverse = switch (operation) {
+            case "RESERVE" -> "RELEASE";
+            case "RELEASE" -> "RESERVE";
+            default -> RedisStockEngine.OPERATION_RESTORE;
+        };
+        try {
+            redisStockEngine.executeBatch(orderId, lines, inverse);
+            countRevert("success");
+            log.warn("预占台账未提交，已撤销 Redis 库存变更: orderId={}, operation={}, inverse={}, lines={}",
+                    orderId, operation, inverse, lines);
+        } catch (Exception e) {
+            countRevert("failure");
+            log.error("撤销 Redis 库存变更失败，台账与 Redis 库存不一致，需人工核对: orderId={}, operation={}, lines={}",
+                    orderId, operation, lines, e);
+        }
+    }
+
+    private void countRevert(String result) {
+        Counter.builder("inventory.lua.reverts")
+                .tag("result", result)
+                .description("Redis stock changes reverted because the reservation ledger did not commit")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private InventoryLog buildLog(Long skuId, String orderId, String operation, Integer quantity) {
+        return InventoryLog.builder()
                 .skuId(skuId)
                 .orderId(orderId)
                 .operation(operation)
                 .quantity(quantity)
                 .build();
-        inventoryLogRepository.save(logEntry);
     }
 }
@@ -0,0 +1,337 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
+import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
+import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
+import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Redis 库存引擎（concurrency-mode=lua）
+ * 每个库存操作是一次 Lua 脚本调用，在 Redis 服务端原子地完成：
+ * 1. 校验库存不变量 total = available + reserved
+ * 2. 校验可用/预占库存是否充足
+ * 3. 在 available 与 reserved 之间移动库存
+ * 4. 将变更追加到落库流（Redis Stream），由 StockFlushJob 按顺序异步写入数据库
+ *
+ * 库存以 Hash 形式保存在 inventory:stock:{skuId}，首次访问时从数据库加载（热点 SKU 的分桶先合并回 inventory 行）；切换并发模式后由 StockReconcileJob 删除，
+ * 下次进入 lua 模式时按数据库重新加载。
+ * 脚本同时访问库存 Hash 与落库流，要求单机或主从部署的 Redis（非 Cluster）。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisStockEngine {
+
+    public static final String STOCK_KEY_PREFIX = "inventory:stock:";
+    public static final String STOCK_SKU_SET_KEY = "inventory:stock:skus";
+    public static final String FLUSH_STREAM_KEY = "inventory:stock:flush";
+
+    /**
+     * 回补已扣减的库存（reserved += quantity, total += quantity），仅用于撤销台账未提交的扣减
+     */
+    public static final String OPERATION_RESTORE = "RESTORE";
+
+    public static final String FIELD_TOTAL = "total";
+    public static final String FIELD_AVAILABLE = "available";
+    public static final String FIELD_RESERVED = "reserved";
+
+    private static final long RESULT_INSUFFICIENT = 0;
+    private static final long RESULT_NOT_LOADED = -1;
+    private static final long RESULT_INVARIANT_BROKEN = -2;
+
+    /**
+     * 脚本公共部分：读取库存并校验不变量
+     * KEYS[1] 库存 Hash，KEYS[2] 落库流
+     * ARGV[1] skuId，ARGV[2] 数量，ARGV[3] 订单 ID，ARGV[4] 操作类型
+     * 返回 {结果码, total, available, reserved}（操作后的值）
+     */
+    private static final String SCRIPT_HEADER = """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return {-1, 0, 0, 0} end
+            local s = redis.call('HMGET', KEYS[1], 'total', 'available', 'reserved')
+            local total, available, reserved = tonumber(s[1]), tonumber(s[2]), tonumber(s[3])
+            if total ~= available + reserved then return {-2, total, available, reserved} end
+            local qty = tonumber(ARGV[2])
+            """;
+
+    private static final String SCRIPT_FOOTER = """
+            redis.call('HSET', KEYS[1], 'total', total, 'available', available, 'reserved', reserved)
+            redis.call('XADD', KEYS[2], '*', 'skuId', ARGV[1], 'orderId', ARGV[3],
+                    'operation', ARGV[4], 'quantity', qty, 'total', total)
+            return {1, total, available, reserved}
+            """;
+
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>(SCRIPT_HEADER + """
+            if available < qty then return {0, total, available, reserved} end
+            available = available - qty
+            reserved = reserved + qty
+            """ + SCRIPT_FOOTER, List.class);
+
+    private static final RedisScript<List> DEDUCT_SCRIPT = new DefaultRedisScript<>(SCRIPT_HEADER + """
+            if reserved < qty then return {0, total, available, reserved} end
+            reserved = reserved - qty
+            total = total - qty
+            """ + SCRIPT_FOOTER, List.class);
+
+    private static final RedisScript<List> RELEASE_SCRIPT = new DefaultRedisScript<>(SCRIPT_HEADER + """
+            if reserved < qty then return {0, total, available, reserved} end
+            reserved = reserved - qty
+            available = available + qty
+            """ + SCRIPT_FOOTER, List.class);
+
+    /**
+     * 批量操作：先校验全部 SKU，全部满足后再统一更新并写入落库流（全部成功或全部失败）
+     * KEYS[1..n] 库存 Hash（按 skuId 排序），KEYS[n+1] 落库流
+     * ARGV[1] 操作类型，ARGV[2] 订单 ID，之后依次为 skuId、数量
+     * 返回 {结果码, 出错的 SKU 下标, 当前可用或预占库存}
+     */
+    private static final RedisScript<List> BATCH_SCRIPT = new DefaultRedisScript<>("""
+            local n = #KEYS - 1
+            local op = ARGV[1]
+            local state = {}
+            for i = 1, n do
+                if redis.call('EXISTS', KEYS[i]) == 0 then return {-1, i, 0} end
+                local s = redis.call('HMGET', KEYS[i], 'total', 'available', 'reserved')
+                local total, available, reserved = tonumber(s[1]), tonumber(s[2]), tonumber(s[3])
+                if total ~= available + reserved then return {-2, i, 0} end
+                local qty = tonumber(ARGV[2 + 2 * i])
+                if op == 'RESERVE' then
+                    if available < qty then return {0, i, available} end
+                    available = available - qty
+                    reserved = reserved + qty
+                elseif op == 'DEDUCT' then
+                    if reserved < qty then return {0, i, reserved} end
+                    reserved = reserved - qty
+                    total = total - qty
+                elseif op == 'RESTORE' then
+                    reserved = reserved + qty
+                    total = total + qty
+                else
+                    if reserved < qty then return {0, i, reserved} end
+                    reserved = reserved - qty
+                    available = available + qty
+                end
+                state[i] = {total, available, reserved, qty}
+            end
+            for i = 1, n do
+                local st = state[i]
+                redis.call('HSET', KEYS[i], 'total', st[1], 'available', st[2], 'reserved', st[3])
+                redis.call('XADD', KEYS[n + 1], '*', 'skuId', ARGV[1 + 2 * i], 'orderId', ARGV[2],
+                        'operation', op, 'quantity', st[4], 'total', st[1])
+            end
+            return {1, 0, 0}
+            """, List.class);
+
+    /**
+     * 从数据库加载库存到 Redis（仅在 Key 不存在时写入）
+     * KEYS[1] 库存 Hash，KEYS[2] SKU 集合
+     */
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            redis.call('HSET', KEYS[1], 'total', ARGV[2], 'available', ARGV[3], 'reserved', ARGV[4])
+            redis.call('SADD', KEYS[2], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StockBucketRebalancer stockBucketRebalancer;
+
+    /**
+     * 预占库存：available -= quantity, reserved += quantity
+     */
+    public void reserve(InventoryOperationRequest request) {
+        List<Long> result = execute(RESERVE_SCRIPT, request, "RESERVE");
+        if (result.get(0) == RESULT_INSUFFICIENT) {
+            throw new InsufficientStockException(
+                    request.getSkuId(), request.getQuantity(), result.get(2).intValue());
+        }
+        log.info("Stock reserved in redis: skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 扣减库存：reserved -= quantity, total -= quantity
+     */
+    public void deduct(InventoryOperationRequest request) {
+        List<Long> result = execute(DEDUCT_SCRIPT, request, "DEDUCT");
+        if (result.get(0) == RESULT_INSUFFICIENT) {
+            throw new BusinessException(String.format(
+                    "Insufficient reserved stock for SKU %d: requested %d, reserved %d",
+                    request.getSkuId(), request.getQuantity(), result.get(3)));
+        }
+        log.info("Stock deducted in redis: skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 释放库存：reserved -= quantity, available += quantity
+     */
+    public void release(InventoryOperationRequest request) {
+        List<Long> result = execute(RELEASE_SCRIPT, request, "RELEASE");
+        if (result.get(0) == RESULT_INSUFFICIENT) {
+            throw new BusinessException(String.format(
+                    "Insufficient reserved stock to release for SKU %d: requested %d, reserved %d",
+                    request.getSkuId(), request.getQuantity(), result.get(3)));
+        }
+        log.info("Stock released in redis: skuId={}, quantity={}, orderId={}",
+                request.getSkuId(), request.getQuantity(), request.getOrderId());
+    }
+
+    /**
+     * 批量预占、扣减、释放或回补（lines 需按 skuId 排序且不重复）
+     * 任一 SKU 库存不足时所有 SKU 都不变更
+     */
+    @SuppressWarnings("unchecked")
+    public void executeBatch(String orderId, List<InventoryOperationRequest> lines, String operation) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>(Arrays.asList(operation, orderId));
+        for (InventoryOperationRequest line : lines) {
+            keys.add(stockKey(line.getSkuId()));
+            args.add(String.valueOf(line.getSkuId()));
+            args.add(String.valueOf(line.getQuantity()));
+        }
+        keys.add(FLUSH_STREAM_KEY);
+
+        // 每次最多发现一个未加载的 SKU，逐个加载后重试
+        List<Long> result = stringRedisTemplate.execute(BATCH_SCRIPT, keys, args.toArray());
+        for (int loads = 0; result.get(0) == RESULT_NOT_LOADED && loads < lines.size(); loads++) {
+            loadFromDatabase(lines.get(result.get(1).intValue() - 1).getSkuId());
+            result = stringRedisTemplate.execute(BATCH_SCRIPT, keys, args.toArray());
+        }
+
+        long code = result.get(0);
+        if (code == 1) {
+            log.info("Stock batch {} in redis: orderId={}, lines={}", operation, orderId, lines.size());
+            return;
+        }
+        InventoryOperationRequest failed = lines.get(result.get(1).intValue() - 1);
+        if (code == RESULT_INVARIANT_BROKEN) {
+            log.error("Stock invariant broken in redis: skuId={}", failed.getSkuId());
+            throw new BusinessException("库存数据异常，请稍后重试");
+        }
+        if (code != RESULT_INSUFFICIENT) {
+            throw new ResourceNotFoundException("Inventory", failed.getSkuId());
+        }
+        int current = result.get(2).intValue();
+        switch (operation) {
+            case "RESERVE" -> throw new InsufficientStockException(failed.getSkuId(), failed.getQuantity(), current);
+            case "DEDUCT" -> throw new BusinessException(String.format(
+                    "Insufficient reserved stock for SKU %d: requested %d, reserved %d",
+                    failed.getSkuId(), failed.getQuantity(), current));
+            default -> throw new BusinessException(String.format(
+                    "Insufficient reserved stock to release for SKU %d: requested %d, reserved %d",
+                    failed.getSkuId(), failed.getQuantity(), current));
+        }
+    }
+
+    /**
+     * 用 Redis 中的实时库存覆盖 DTO（数据库落库存在延迟）
+     * 返回新的 DTO，不修改传入对象（它可能是多级缓存中被并发读取、序列化的共享实例）；
+     * Redis 中尚未加载该 SKU 时原样返回
+     */
+    public InventoryDTO overlay(InventoryDTO dto) {
+        int[] stock = snapshot(dto.getSkuId());
+        if (stock == null) {
+            return dto;
+        }
+        return InventoryDTO.builder()
+                .id(dto.getId())
+                .skuId(dto.getSkuId())
+                .totalStock(stock[0])
+                .availableStock(stock[1])
+                .reservedStock(stock[2])
+                .createdAt(dto.getCreatedAt())
+                .updatedAt(dto.getUpdatedAt())
+                .build();
+    }
+
+    /**
+     * 读取 Redis 中的库存快照，返回 {total, available, reserved}；未加载时返回 null
+     */
+    public int[] snapshot(Long skuId) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(stockKey(skuId),
+                Arrays.asList(FIELD_TOTAL, FIELD_AVAILABLE, FIELD_RESERVED));
+        if (values == null || values.get(0) == null) {
+            return null;
+        }
+        return new int[]{
+                Integer.parseInt(values.get(0).toString()),
+                Integer.parseInt(values.get(1).toString()),
+                Integer.parseInt(values.get(2).toString())
+        };
+    }
+
+    /**
+     * 删除全部已加载的库存 Hash（离开或重新进入 lua 模式时调用）
+     * 其他模式下以数据库为准，之后再次进入 lua 模式时各 SKU 按需从数据库重新加载
+     *
+     * @return 删除的 SKU 数
+     */
+    public int unloadAll() {
+        Set<String> skuIds = stringRedisTemplate.opsForSet().members(STOCK_SKU_SET_KEY);
+        if (skuIds == null || skuIds.isEmpty()) {
+            return 0;
+        }
+        stringRedisTemplate.delete(skuIds.stream().map(skuId -> STOCK_KEY_PREFIX + skuId).toList());
+        stringRedisTemplate.opsForSet().remove(STOCK_SKU_SET_KEY, skuIds.toArray());
+        log.info("Stock unloaded from redis: skus={}", skuIds.size());
+        return skuIds.size();
+    }
+
+    public static String stockKey(Long skuId) {
+        return STOCK_KEY_PREFIX + skuId;
+    }
+
+    /**
+     * 执行库存脚本；Redis 中没有该 SKU 时先从数据库加载再重试一次
+     */
+    @SuppressWarnings("unchecked")
+    private List<Long> execute(RedisScript<List> script, InventoryOperationRequest request, String operation) {
+        List<String> keys = Arrays.asList(stockKey(request.getSkuId()), FLUSH_STREAM_KEY);
+        String[] args = {
+                String.valueOf(request.getSkuId()),
+                String.valueOf(request.getQuantity()),
+                request.getOrderId(),
+                operation
+        };
+
+        List<Long> result = stringRedisTemplate.execute(script, keys, (Object[]) args);
+        if (result.get(0) == RESULT_NOT_LOADED) {
+            loadFromDatabase(request.getSkuId());
+            result = stringRedisTemplate.execute(script, keys, (Object[]) args);
+        }
+        if (result.get(0) == RESULT_INVARIANT_BROKEN) {
+            log.error("Stock invariant broken in redis: skuId={}, total={}, available={}, reserved={}",
+                    request.getSkuId(), result.get(1), result.get(2), result.get(3));
+            throw new BusinessException("库存数据异常，请稍后重试");
+        }
+        return result;
+    }
+
+    /**
+     * 从数据库加载库存；热点 SKU 的分桶先合并回 inventory 行，Redis 中保存的是 SKU 的合计库存
+     */
+    private void loadFromDatabase(Long skuId) {
+        Inventory inventory = stockBucketRebalancer.mergeAll(skuId)
+                .orElseThrow(() -> new ResourceNotFoundException("Inventory", skuId));
+        Long loaded = stringRedisTemplate.execute(LOAD_SCRIPT,
+                Arrays.asList(stockKey(skuId), STOCK_SKU_SET_KEY),
+                String.valueOf(skuId),
+                String.valueOf(inventory.getTotalStock()),
+                String.valueOf(inventory.getAvailableStock()),
+                String.valueOf(inventory.getReservedStock()));
+        log.info("Stock loaded into redis: skuId={}, loaded={}", skuId, loaded);
+    }
+}
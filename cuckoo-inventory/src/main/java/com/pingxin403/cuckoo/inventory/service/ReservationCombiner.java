@@ -0,0 +1,206 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 预占请求合并器（group commit）
+ * 同一 SKU 的并发预占请求先排队，第一个请求到达后等待 max-wait-ms 或攒满 max-batch 条，
+ * 再交给批处理函数一次性处理，由批处理函数逐个完成调用方的 Future。
+ *
+ * 同一 SKU 同一时刻只有一批在执行，执行期间到达的请求进入下一批。
+ */
+@Slf4j
+@Component
+public class ReservationCombiner {
+
+    private final InventoryConfig inventoryConfig;
+    private final ExecutorService batchExecutor;
+    private final ScheduledExecutorService timer;
+    private final DistributionSummary batchSizeSummary;
+    private final ConcurrentHashMap<Long, SkuQueue> queues = new ConcurrentHashMap<>();
+
+    public ReservationCombiner(InventoryConfig inventoryConfig,
+                               MeterRegistry meterRegistry,
+                               @Value("${inventory.combiner.threads:8}") int threads) {
+        this.inventoryConfig = inventoryConfig;
+        this.batchExecutor = Executors.newFixedThreadPool(threads);
+        this.timer = Executors.newSingleThreadScheduledExecutor();
+        this.batchSizeSummary = DistributionSummary.builder("inventory.combiner.batch.size")
+                .description("Number of reservations applied per combined batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一条待合并的预占请求
+     * 批处理函数必须先 claim() 成功才能处理该请求；调用方等待超时时同样通过 claim 放弃，
+     * 保证超时返回给调用方的请求不会再被执行
+     */
+    public static final class PendingReservation {
+        private final InventoryOperationRequest request;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        PendingReservation(InventoryOperationRequest request) {
+            this.request = request;
+        }
+
+        public InventoryOperationRequest request() {
+            return request;
+        }
+
+        public CompletableFuture<Void> future() {
+            return future;
+        }
+
+        public boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    /**
+     * 提交预占请求并等待所在批次的处理结果
+     * 批处理函数抛出的异常会传给该批次中尚未完成的全部请求
+     */
+    public void reserve(InventoryOperationRequest request, Consumer<List<PendingReservation>> batchHandler) {
+        PendingReservation pending = new PendingReservation(request);
+        enqueue(pending, batchHandler);
+        try {
+            try {
+                pending.future().get(inventoryConfig.getLockTimeout(), TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                if (pending.claim()) {
+                    pending.future().cancel(false);
+                    throw new BusinessException("服务繁忙，请稍后重试");
+                }
+                // 批处理已接手该请求，等待其结果
+                pending.future().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException("预占库存失败: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("服务繁忙，请稍后重试");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        batchExecutor.shutdown();
+    }
+
+    private void enqueue(PendingReservation pending, Consumer<List<PendingReservation>> batchHandler) {
+        Long skuId = pending.request().getSkuId();
+        while (true) {
+            SkuQueue queue = queues.computeIfAbsent(skuId, id -> new SkuQueue(id, batchHandler));
+            synchronized (queue) {
+                if (queue.retired) {
+                    // 队列刚被回收，重新获取
+                    continue;
+                }
+                queue.pending.add(pending);
+                if (queue.running) {
+                    return;
+                }
+                if (queue.pending.size() >= inventoryConfig.getCombinerMaxBatch()) {
+                    startBatch(queue);
+                } else if (queue.timeout == null) {
+                    queue.timeout = timer.schedule(() -> onTimeout(queue),
+                            inventoryConfig.getCombinerMaxWaitMs(), TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+    }
+
+    private void onTimeout(SkuQueue queue) {
+        synchronized (queue) {
+            queue.timeout = null;
+            if (!queue.running && !queue.pending.isEmpty()) {
+                startBatch(queue);
+            }
+        }
+    }
+
+    /**
+     * 取出当前排队的请求作为一批提交执行（需持有 queue 锁）
+     */
+    private void startBatch(SkuQueue queue) {
+        if (queue.timeout != null) {
+            queue.timeout.cancel(false);
+            queue.timeout = null;
+        }
+        int size = Math.min(queue.pending.size(), Math.max(1, inventoryConfig.getCombinerMaxBatch()));
+        List<PendingReservation> batch = new ArrayList<>(queue.pending.subList(0, size));
+        queue.pending.subList(0, size).clear();
+        queue.running = true;
+        batchExecutor.execute(() -> runBatch(queue, batch));
+    }
+
+    private void runBatch(SkuQueue queue, List<PendingReservation> batch) {
+        batchSizeSummary.record(batch.size());
+        try {
+            queue.batchHandler.accept(batch);
+        } catch (Exception e) {
+            log.error("Combined reservation batch failed: skuId={}, size={}", queue.skuId, batch.size(), e);
+            batch.forEach(pending -> pending.future().completeExceptionally(e));
+        } finally {
+            batch.stream()
+                    .filter(pending -> !pending.future().isDone())
+                    .forEach(pending -> pending.future().completeExceptionally(
+                            new IllegalStateException("Reservation not completed by batch handler")));
+            synchronized (queue) {
+                queue.running = false;
+                if (!queue.pending.isEmpty()) {
+                    // 执行期间到达的请求已等待过一个批次，直接提交
+                    startBatch(queue);
+                } else if (queue.timeout == null) {
+                    queue.retired = true;
+                    queues.remove(queue.skuId, queue);
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个 SKU 的排队状态，所有字段在 synchronized(this) 下访问
+     */
+    private static final class SkuQueue {
+        private final Long skuId;
+        private final Consumer<List<PendingReservation>> batchHandler;
+        private final List<PendingReservation> pending = new ArrayList<>();
+        private ScheduledFuture<?> timeout;
+        private boolean running;
+        private boolean retired;
+
+        private SkuQueue(Long skuId, Consumer<List<PendingReservation>> batchHandler) {
+            this.skuId = skuId;
+            this.batchHandler = batchHandler;
+        }
+    }
+}
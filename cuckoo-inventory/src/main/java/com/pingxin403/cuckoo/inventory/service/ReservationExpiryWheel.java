@@ -0,0 +1,102 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation.ReservationStatus;
+import com.pingxin403.cuckoo.inventory.repository.InventoryReservationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * 预占过期时间轮
+ * 以订单 ID 为任务，在预占的 expiresAt 到期时交给 ReservationExpiryJob 释放。
+ * 启动后从台账加载全部 RESERVED 预占；之后由 ReservationLedger 在预占时登记。
+ *
+ * 台账状态是唯一依据：扣减、释放后不从时间轮中移除，到期时按台账重新判断即可。
+ * 时间轮只覆盖本实例登记或启动时加载的预占，其余由 ReservationExpiryJob 的兜底扫描处理。
+ */
+@Slf4j
+@Component
+public class ReservationExpiryWheel {
+
+    private static final int WHEEL_SIZE = 60;
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final InventoryReservationRepository reservationRepository;
+    private final HierarchicalTimingWheel<String> wheel;
+    private final Queue<String> due = new ConcurrentLinkedQueue<>();
+
+    public ReservationExpiryWheel(InventoryReservationRepository reservationRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${inventory.reservation.expiry-tick-ms:1000}") long tickMs) {
+        this.reservationRepository = reservationRepository;
+        this.wheel = new HierarchicalTimingWheel<>(tickMs, WHEEL_SIZE, System.currentTimeMillis());
+        Gauge.builder("inventory.reservation.expiry.scheduled", wheel, HierarchicalTimingWheel::size)
+                .description("Number of reservation expirations waiting in the timing wheel")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 启动完成后按 ID 游标分页加载 RESERVED 预占
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long afterId = 0;
+        int loaded = 0;
+        try {
+            while (true) {
+                List<InventoryReservation> page = reservationRepository.findByStatusAndIdGreaterThanOrderById(
+                        ReservationStatus.RESERVED, afterId, PageRequest.of(0, LOAD_PAGE_SIZE));
+                for (InventoryReservation reservation : page) {
+                    if (reservation.getExpiresAt() != null) {
+                        schedule(reservation.getOrderId(), reservation.getExpiresAt());
+                        loaded++;
+                    }
+                }
+                if (page.size() < LOAD_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            log.info("Reservation expiry wheel loaded: reservations={}", loaded);
+        } catch (Exception e) {
+            // 未加载的预占由兜底扫描释放
+            log.error("Reservation expiry wheel load failed: loaded={}", loaded, e);
+        }
+    }
+
+    /**
+     * 登记订单预占的过期时间（已过期的在下一次 poll 时返回）
+     */
+    public void schedule(String orderId, LocalDateTime expiresAt) {
+        long expireAtMs = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        if (!wheel.add(orderId, expireAtMs)) {
+            due.add(orderId);
+        }
+    }
+
+    /**
+     * 推进时间轮，返回已到期的订单 ID（去重）
+     */
+    public Set<String> poll() {
+        Set<String> orderIds = new LinkedHashSet<>(wheel.advance(System.currentTimeMillis()));
+        String orderId;
+        while ((orderId = due.poll()) != null) {
+            orderIds.add(orderId);
+        }
+        return orderIds;
+    }
+}
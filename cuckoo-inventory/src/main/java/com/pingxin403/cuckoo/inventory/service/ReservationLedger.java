@@ -0,0 +1,153 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation.ReservationStatus;
+import com.pingxin403.cuckoo.inventory.repository.InventoryLogRepository;
+import com.pingxin403.cuckoo.inventory.repository.InventoryReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 预占台账
+ * 与库存流水在同一事务中维护：
+ * - RESERVE：新增台账行，同一订单同一 SKU 多次预占时累加数量并顺延过期时间，过期时间登记到时间轮；
+ *   RELEASED 行重新打开，已结算（DEDUCTED / UNFULFILLED）的行忽略重放的预占
+ * - DEDUCT：RESERVED -> DEDUCTED
+ * - RELEASE：RESERVED -> RELEASED
+ * - 支付晚于释放到达且无法重新预占：RELEASED -> UNFULFILLED
+ * 台账上线前预占的订单没有台账行，结算时由 backfillFromLogs 按库存流水补建
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReservationLedger {
+
+    private final InventoryReservationRepository reservationRepository;
+    private final InventoryLogRepository inventoryLogRepository;
+    private final InventoryConfig inventoryConfig;
+    private final ReservationExpiryWheel reservationExpiryWheel;
+
+    /**
+     * 按一条库存流水更新台账（需在调用方事务中）
+     */
+    public void apply(InventoryLog entry) {
+        switch (entry.getOperation()) {
+            case "RESERVE" -> recordReserved(entry.getOrderId(), entry.getSkuId(), entry.getQuantity());
+            case "DEDUCT" -> transition(entry.getOrderId(), entry.getSkuId(),
+                    ReservationStatus.RESERVED, ReservationStatus.DEDUCTED);
+            case "RELEASE" -> transition(entry.getOrderId(), entry.getSkuId(),
+                    ReservationStatus.RESERVED, ReservationStatus.RELEASED);
+            default -> log.warn("Unknown stock operation for ledger: {}", entry.getOperation());
+        }
+    }
+
+    public void applyAll(List<InventoryLog> entries) {
+        entries.forEach(this::apply);
+    }
+
+    /**
+     * 订单没有任何台账行时，按该订单的库存流水顺序重放补建台账（需在调用方事务中）
+     * 用于台账上线前预占、尚未结算的订单；已有台账行的订单不处理
+     *
+     * @return 是否补建了台账
+     */
+    public boolean backfillFromLogs(String orderId) {
+        if (reservationRepository.existsByOrderId(orderId)) {
+            return false;
+        }
+        List<InventoryLog> logs = inventoryLogRepository.findByOrderIdOrderById(orderId);
+        if (logs.isEmpty()) {
+            return false;
+        }
+        applyAll(logs);
+        log.info("Reservation ledger backfilled from inventory logs: orderId={}, logs={}", orderId, logs.size());
+        return true;
+    }
+
+    /**
+     * 锁定订单中仍处于 RESERVED 的台账行（按 skuId 排序）
+     */
+    public List<InventoryReservation> lockReserved(String orderId) {
+        return reservationRepository.findByOrderIdAndStatusForUpdate(orderId, ReservationStatus.RESERVED);
+    }
+
+    /**
+     * 锁定订单中已释放的台账行（按 skuId 排序），支付晚于预占释放到达时使用
+     */
+    public List<InventoryReservation> lockReleased(String orderId) {
+        return reservationRepository.findByOrderIdAndStatusForUpdate(orderId, ReservationStatus.RELEASED);
+    }
+
+    /**
+     * 已释放且无法重新预占的台账行标记为 UNFULFILLED，等待补偿（需在调用方事务中）
+     * 行由 lockReleased 锁定，未能迁移说明台账状态异常，抛出异常而不是丢失补偿标记
+     */
+    public void markUnfulfilled(List<InventoryReservation> lines) {
+        for (InventoryReservation line : lines) {
+            int updated = reservationRepository.transition(line.getOrderId(), line.getSkuId(),
+                    ReservationStatus.RELEASED, ReservationStatus.UNFULFILLED);
+            if (updated == 0) {
+                throw new IllegalStateException(String.format(
+                        "Released ledger row not found when marking unfulfilled: orderId=%s, skuId=%d",
+                        line.getOrderId(), line.getSkuId()));
+            }
+        }
+    }
+
+    private void recordReserved(String orderId, Long skuId, int quantity) {
+        LocalDateTime expiresAt = expiresAt();
+        Optional<InventoryReservation> existing = reservationRepository.findByOrderIdAndSkuId(orderId, skuId);
+        if (existing.isEmpty()) {
+            reservationRepository.save(InventoryReservation.builder()
+                    .orderId(orderId)
+                    .skuId(skuId)
+                    .quantity(quantity)
+                    .status(ReservationStatus.RESERVED)
+                    .expiresAt(expiresAt)
+                    .build());
+        } else {
+            InventoryReservation reservation = existing.get();
+            if (reservation.getStatus() == ReservationStatus.RESERVED) {
+                reservation.setQuantity(reservation.getQuantity() + quantity);
+            } else if (reservation.getStatus() == ReservationStatus.RELEASED) {
+                // 释放后重新预占
+                reservation.setQuantity(quantity);
+                reservation.setStatus(ReservationStatus.RESERVED);
+            } else {
+                // 已结算的订单不能重新打开，否则到期释放会放出已售出的库存
+                log.warn("Ignoring reserve replay for settled ledger row: orderId={}, skuId={}, status={}",
+                        orderId, skuId, reservation.getStatus());
+                return;
+            }
+            reservation.setExpiresAt(expiresAt);
+            reservationRepository.save(reservation);
+        }
+
+        if (expiresAt != null) {
+            // 事务回滚时时间轮中的任务到期后按台账判断，不会误释放
+            reservationExpiryWheel.schedule(orderId, expiresAt);
+        }
+    }
+
+    /**
+     * 新预占的过期时间，未配置有效期时返回 null（不过期）
+     */
+    private LocalDateTime expiresAt() {
+        long ttlSeconds = inventoryConfig.getReservationTtlSeconds();
+        return ttlSeconds > 0 ? LocalDateTime.now().plusSeconds(ttlSeconds) : null;
+    }
+
+    private void transition(String orderId, Long skuId, ReservationStatus from, ReservationStatus to) {
+        int updated = reservationRepository.transition(orderId, skuId, from, to);
+        if (updated == 0) {
+            log.debug("No {} ledger row to transition: orderId={}, skuId={}, to={}", from, orderId, skuId, to);
+        }
+    }
+}
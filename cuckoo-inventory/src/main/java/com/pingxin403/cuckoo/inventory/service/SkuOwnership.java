@@ -0,0 +1,132 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.common.loadbalancer.ConsistentHashRing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * SKU 归属（单写者模式）
+ * 1. 按 Nacos 中本服务的实例列表构建与 ConsistentHashLoadBalancer 相同的一致性哈希环，判断本实例是否为 SKU 的归属者
+ * 2. 归属者首次写某个 SKU 时从 Redis（INCR）取得该 SKU 单调递增的归属纪元，之后缓存在本地；
+ *    实例列表变化时清空，切换后的新归属者会取得更大的纪元
+ * 3. 每次写入先以纪元对 inventory 行执行 fence，旧归属者的纪元较小，写入被拒绝
+ * 4. 归属者用进程内分段锁串行同一 SKU 的读改写，稳定期写路径不访问 Redis
+ */
+@Slf4j
+@Component
+public class SkuOwnership {
+
+    private static final String EPOCH_KEY_PREFIX = "inventory:owner:epoch:";
+
+    private final ObjectProvider<DiscoveryClient> discoveryClient;
+    private final ObjectProvider<Registration> registration;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final String serviceId;
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<Long, Long> epochs = new ConcurrentHashMap<>();
+    private final Counter fencedCounter;
+    private volatile View view = new View(List.of(), null, new ConsistentHashRing<>(List.of(), Function.identity()));
+
+    public SkuOwnership(ObjectProvider<DiscoveryClient> discoveryClient,
+                        ObjectProvider<Registration> registration,
+                        StringRedisTemplate stringRedisTemplate,
+                        MeterRegistry meterRegistry,
+                        @Value("${spring.application.name:inventory-service}") String serviceId,
+                        @Value("${inventory.ownership.lock-stripes:256}") int stripeCount) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.serviceId = serviceId;
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.fencedCounter = Counter.builder("inventory.ownership.fenced")
+                .description("Number of writes rejected because SKU ownership moved to another instance")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 默认每 5 秒刷新一次实例列表
+     */
+    @Scheduled(fixedDelayString = "${inventory.ownership.refresh-interval-ms:5000}")
+    public void refresh() {
+        try {
+            DiscoveryClient client = discoveryClient.getIfAvailable();
+            Registration self = registration.getIfAvailable();
+            if (client == null || self == null) {
+                return;
+            }
+            List<String> nodeIds = client.getInstances(serviceId).stream()
+                    .map(instance -> ConsistentHashRing.nodeId(instance.getHost(), instance.getPort()))
+                    .sorted()
+                    .toList();
+            String selfId = ConsistentHashRing.nodeId(self.getHost(), self.getPort());
+            if (nodeIds.equals(view.nodeIds()) && selfId.equals(view.self())) {
+                return;
+            }
+            view = new View(nodeIds, selfId, new ConsistentHashRing<>(nodeIds, Function.identity()));
+            // 归属可能已变化，之后的写入重新取得纪元
+            epochs.clear();
+            log.info("SKU ownership ring refreshed: self={}, instances={}", selfId, nodeIds);
+        } catch (Exception e) {
+            log.warn("SKU ownership ring refresh failed, keep previous view", e);
+        }
+    }
+
+    /**
+     * 本实例是否为 SKU 的归属者（实例列表未知时返回 false）
+     */
+    public boolean isOwner(Long skuId) {
+        View current = view;
+        return current.self() != null && current.self().equals(current.ring().locate(String.valueOf(skuId)));
+    }
+
+    /**
+     * 取得本实例对 SKU 的归属纪元，首次调用时从 Redis 递增取得
+     */
+    public long acquireEpoch(Long skuId) {
+        return epochs.computeIfAbsent(skuId, id -> {
+            Long epoch = stringRedisTemplate.opsForValue().increment(EPOCH_KEY_PREFIX + id);
+            if (epoch == null) {
+                throw new BusinessException("获取库存归属纪元失败: skuId=" + id);
+            }
+            log.info("SKU ownership acquired: skuId={}, epoch={}", id, epoch);
+            return epoch;
+        });
+    }
+
+    /**
+     * fence 失败：其他实例已取得更大的纪元，放弃本地纪元
+     */
+    public void revoke(Long skuId, long epoch) {
+        if (epochs.remove(skuId, epoch)) {
+            fencedCounter.increment();
+            log.warn("SKU ownership fenced off: skuId={}, epoch={}", skuId, epoch);
+        }
+    }
+
+    /**
+     * SKU 对应的进程内分段锁
+     */
+    public ReentrantLock lockFor(Long skuId) {
+        return stripes[Math.floorMod(Long.hashCode(skuId * 0x9E3779B97F4A7C15L), stripes.length)];
+    }
+
+    private record View(List<String> nodeIds, String self, ConsistentHashRing<String> ring) {
+    }
+}
@@ -0,0 +1,183 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import com.pingxin403.cuckoo.inventory.entity.InventoryBucket;
+import com.pingxin403.cuckoo.inventory.repository.InventoryBucketRepository;
+import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 库存分桶再平衡
+ * 在 inventory 行与各分桶之间移动可用库存，SKU 的总量保持不变。
+ * 先按编号顺序锁分桶，再锁 inventory 行，与 BucketedStockService 的操作路径（先更新分桶、再更新 inventory 行）
+ * 使用相同的加锁顺序。
+ *
+ * 预占库存始终留在原处，由后续的扣减或释放消耗。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockBucketRebalancer {
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryBucketRepository inventoryBucketRepository;
+    private final InventoryConfig inventoryConfig;
+
+    /**
+     * 按配置的分桶数重新分配 SKU 的可用库存
+     * - 分桶数 > 1：补齐缺失的分桶，把可用库存平均分配到编号小于分桶数的分桶
+     * - 分桶数 = 1：把全部分桶合并回 inventory 行并删除分桶
+     * 各分桶均不低于平均值的一半时视为均衡，不做写入
+     *
+     * @return 是否移动了库存
+     */
+    @Transactional
+    public boolean rebalance(Long skuId) {
+        List<InventoryBucket> buckets = new ArrayList<>(inventoryBucketRepository.findBySkuIdForUpdate(skuId));
+        Optional<Inventory> locked = inventoryRepository.findBySkuIdForUpdate(skuId);
+        if (locked.isEmpty()) {
+            return false;
+        }
+        Inventory inventory = locked.get();
+        int bucketCount = inventoryConfig.getBucketCount(skuId);
+
+        if (bucketCount <= 1) {
+            return mergeBack(inventory, buckets);
+        }
+
+        for (int i = 0; i < bucketCount; i++) {
+            int bucketNo = i;
+            if (buckets.stream().noneMatch(b -> b.getBucketNo() == bucketNo)) {
+                buckets.add(emptyBucket(skuId, bucketNo));
+            }
+        }
+        if (isBalanced(inventory, buckets, bucketCount)) {
+            return false;
+        }
+
+        int pool = inventory.getAvailableStock();
+        for (InventoryBucket bucket : buckets) {
+            pool += bucket.getAvailableStock();
+        }
+        inventory.setAvailableStock(0);
+        inventory.setTotalStock(inventory.getReservedStock());
+
+        List<InventoryBucket> retired = new ArrayList<>();
+        for (InventoryBucket bucket : buckets) {
+            int share = 0;
+            if (bucket.getBucketNo() < bucketCount) {
+                share = pool / bucketCount + (bucket.getBucketNo() < pool % bucketCount ? 1 : 0);
+            } else if (bucket.getReservedStock() == 0) {
+                retired.add(bucket);
+            }
+            bucket.setAvailableStock(share);
+            bucket.setTotalStock(share + bucket.getReservedStock());
+        }
+        buckets.removeAll(retired);
+
+        inventoryRepository.save(inventory);
+        inventoryBucketRepository.saveAll(buckets);
+        inventoryBucketRepository.deleteAll(retired);
+        log.info("Stock buckets rebalanced: skuId={}, buckets={}, available={}", skuId, bucketCount, pool);
+        return true;
+    }
+
+    /**
+     * 把分桶中的可用库存全部收回到 inventory 行
+     * 用于所有分桶都无法单独满足请求数量、但合计充足的情况（通常发生在售罄前），
+     * 下一轮 rebalance 会重新分配
+     */
+    @Transactional
+    public void consolidate(Long skuId) {
+        List<InventoryBucket> buckets = inventoryBucketRepository.findBySkuIdForUpdate(skuId);
+        Optional<Inventory> locked = inventoryRepository.findBySkuIdForUpdate(skuId);
+        if (locked.isEmpty()) {
+            return;
+        }
+        Inventory inventory = locked.get();
+
+        int moved = 0;
+        for (InventoryBucket bucket : buckets) {
+            moved += bucket.getAvailableStock();
+            bucket.setTotalStock(bucket.getReservedStock());
+            bucket.setAvailableStock(0);
+        }
+        if (moved == 0) {
+            return;
+        }
+        inventory.setAvailableStock(inventory.getAvailableStock() + moved);
+        inventory.setTotalStock(inventory.getTotalStock() + moved);
+        inventoryRepository.save(inventory);
+        inventoryBucketRepository.saveAll(buckets);
+        log.info("Stock buckets consolidated: skuId={}, moved={}", skuId, moved);
+    }
+
+    /**
+     * 把全部分桶（可用与预占库存）合并回 inventory 行并删除分桶，返回合并后的 inventory 行
+     * lua 模式加载 Redis 库存前调用：落库流只更新 inventory 行，Redis 需以 SKU 的合计库存为准。
+     * 使用独立事务，合并结果不随调用方事务回滚
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Optional<Inventory> mergeAll(Long skuId) {
+        List<InventoryBucket> buckets = inventoryBucketRepository.findBySkuIdForUpdate(skuId);
+        Optional<Inventory> locked = inventoryRepository.findBySkuIdForUpdate(skuId);
+        locked.ifPresent(inventory -> mergeBack(inventory, buckets));
+        return locked;
+    }
+
+    private boolean mergeBack(Inventory inventory, List<InventoryBucket> buckets) {
+        if (buckets.isEmpty()) {
+            return false;
+        }
+        for (InventoryBucket bucket : buckets) {
+            inventory.setTotalStock(inventory.getTotalStock() + bucket.getTotalStock());
+            inventory.setAvailableStock(inventory.getAvailableStock() + bucket.getAvailableStock());
+            inventory.setReservedStock(inventory.getReservedStock() + bucket.getReservedStock());
+        }
+        inventoryRepository.save(inventory);
+        inventoryBucketRepository.deleteAll(buckets);
+        log.info("Stock buckets merged back: skuId={}, buckets={}", inventory.getSkuId(), buckets.size());
+        return true;
+    }
+
+    private boolean isBalanced(Inventory inventory, List<InventoryBucket> buckets, int bucketCount) {
+        if (inventory.getAvailableStock() > 0) {
+            return false;
+        }
+        int pool = 0;
+        int min = Integer.MAX_VALUE;
+        for (InventoryBucket bucket : buckets) {
+            if (bucket.getId() == null) {
+                return false;
+            }
+            if (bucket.getBucketNo() >= bucketCount) {
+                if (bucket.getAvailableStock() > 0 || bucket.getReservedStock() == 0) {
+                    return false;
+                }
+                continue;
+            }
+            pool += bucket.getAvailableStock();
+            min = Math.min(min, bucket.getAvailableStock());
+        }
+        return min >= pool / bucketCount / 2;
+    }
+
+    private InventoryBucket emptyBucket(Long skuId, int bucketNo) {
+        return InventoryBucket.builder()
+                .skuId(skuId)
+                .bucketNo(bucketNo)
+                .totalStock(0)
+                .availableStock(0)
+                .reservedStock(0)
+                .build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.event.EventPublisherUtil;
+import com.pingxin403.cuckoo.common.event.InventoryStockLevelEvent;
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import com.pingxin403.cuckoo.inventory.mapper.InventoryMapper;
+import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 库存水位发布
+ * 库存变更事务提交后登记 SKU，每个周期（inventory.events.stock-level.flush-interval-ms）读取这些 SKU 的
+ * 当前水位（分桶合计、lua 模式以 Redis 实时库存为准），以 skuId 为消息键发布到日志压缩 topic
+ * inventory-stock-levels。同一周期内多次变更只发布一次最新水位。
+ *
+ * 另按 full-publish-interval-ms 以 ID 游标分页发布全部 SKU，保证从未变更的 SKU 也在 topic 中，
+ * 并修复偶发的发布失败；下游从头消费该 topic 即可完成初始化。
+ */
+@Slf4j
+@Component
+public class StockLevelPublisher {
+
+    public static final String STOCK_LEVELS_TOPIC = "inventory-stock-levels";
+
+    private static final int PAGE_SIZE = 500;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryMapper inventoryMapper;
+    private final BucketedStockService bucketedStockService;
+    private final RedisStockEngine redisStockEngine;
+    private final InventoryConfig inventoryConfig;
+    private final EventPublisherUtil eventPublisher;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Counter publishedCounter;
+    private final Set<Long> changedSkuIds = ConcurrentHashMap.newKeySet();
+
+    public StockLevelPublisher(InventoryRepository inventoryRepository,
+                               InventoryMapper inventoryMapper,
+                               BucketedStockService bucketedStockService,
+                               RedisStockEngine redisStockEngine,
+                               InventoryConfig inventoryConfig,
+                               EventPublisherUtil eventPublisher,
+                               TransactionTemplate transactionTemplate,
+                               MeterRegistry meterRegistry) {
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryMapper = inventoryMapper;
+        this.bucketedStockService = bucketedStockService;
+        this.redisStockEngine = redisStockEngine;
+        this.inventoryConfig = inventoryConfig;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.publishedCounter = Counter.builder("inventory.events.stock-level.published")
+                .description("Number of stock level records published to the compacted topic")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登记库存发生变更的 SKU；在事务中调用时于提交后登记，保证发布时能读到提交后的水位
+     */
+    public void markChanged(Collection<Long> skuIds) {
+        if (!inventoryConfig.isStockLevelEnabled() || skuIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changedSkuIds.addAll(skuIds);
+                }
+            });
+        } else {
+            changedSkuIds.addAll(skuIds);
+        }
+    }
+
+    /**
+     * 默认每 100 毫秒发布一次变更 SKU 的水位
+     */
+    @Scheduled(fixedDelayString = "${inventory.events.stock-level.flush-interval-ms:100}")
+    public void flush() {
+        if (changedSkuIds.isEmpty()) {
+            return;
+        }
+        List<Long> skuIds = new ArrayList<>(changedSkuIds);
+        changedSkuIds.removeAll(skuIds);
+        try {
+            List<Inventory> rows = readOnlyTransactionTemplate.execute(
+                    status -> inventoryRepository.findBySkuIdIn(skuIds));
+            publish(rows);
+        } catch (Exception e) {
+            // 下个周期重试
+            changedSkuIds.addAll(skuIds);
+            log.error("Stock level publish failed: skus={}", skuIds.size(), e);
+        }
+    }
+
+    /**
+     * 默认每小时全量发布一次
+     */
+    @Scheduled(initialDelayString = "${inventory.events.stock-level.full-publish-initial-delay-ms:60000}",
+            fixedDelayString = "${inventory.events.stock-level.full-publish-interval-ms:3600000}")
+    public void publishAll() {
+        if (!inventoryConfig.isStockLevelEnabled()) {
+            return;
+        }
+        long afterId = 0;
+        int published = 0;
+        try {
+            while (true) {
+                long cursor = afterId;
+                List<Inventory> page = readOnlyTransactionTemplate.execute(status ->
+                        inventoryRepository.findByIdGreaterThanOrderById(cursor, PageRequest.of(0, PAGE_SIZE)));
+                publish(page);
+                published += page.size();
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            log.info("Stock levels fully published: skus={}", published);
+        } catch (Exception e) {
+            log.error("Stock level full publish failed: published={}", published, e);
+        }
+    }
+
+    private void publish(List<Inventory> rows) {
+        for (Inventory row : rows) {
+            long observedAt = System.currentTimeMillis();
+            InventoryDTO level = currentLevel(row);
+            InventoryStockLevelEvent event = InventoryStockLevelEvent.create(level.getSkuId(),
+                    level.getTotalStock(), level.getAvailableStock(), level.getReservedStock(), observedAt);
+            eventPublisher.publish(STOCK_LEVELS_TOPIC, String.valueOf(level.getSkuId()), event);
+            publishedCounter.increment();
+        }
+    }
+
+    private InventoryDTO currentLevel(Inventory row) {
+        InventoryDTO dto = inventoryMapper.toDTO(row);
+        if (inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)) {
+            return redisStockEngine.overlay(dto);
+        }
+        return bucketedStockService.isSharded(row.getSkuId()) ? bucketedStockService.aggregate(dto) : dto;
+    }
+}
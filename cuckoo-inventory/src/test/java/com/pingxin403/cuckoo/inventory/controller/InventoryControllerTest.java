@@ -1,9 +1,14 @@
 package com.pingxin403.cuckoo.inventory.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingxin403.cuckoo.common.cache.EncodedResponseCache;
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManagerImpl;
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.pingxin403.cuckoo.common.exception.GlobalExceptionHandler;
 import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
+import com.pingxin403.cuckoo.inventory.dto.BatchInventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.dto.InitInventoryRequest;
 import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
 import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
@@ -14,12 +19,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -40,6 +48,11 @@ class InventoryControllerTest {
     @Mock
     private InventoryService inventoryService;
 
+    @Spy
+    private EncodedResponseCache encodedResponseCache = new EncodedResponseCache(
+            new ObjectMapper().findAndRegisterModules(), new MultiLevelCacheProperties(), new SimpleMeterRegistry(),
+            new DefaultListableBeanFactory().getBeanProvider(MultiLevelCacheManagerImpl.class));
+
     @InjectMocks
     private InventoryController inventoryController;
 
@@ -156,7 +169,7 @@ class InventoryControllerTest {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        when(inventoryService.getInventoryBySkuId(eq(100L))).thenReturn(inventoryDTO);
+        when(inventoryService.getInventoryBySkuId(eq(100L), isNull())).thenReturn(inventoryDTO);
 
         mockMvc.perform(get("/api/inventory/100"))
                 .andExpect(status().isOk())
@@ -166,14 +179,43 @@ class InventoryControllerTest {
                 .andExpect(jsonPath("$.reservedStock").value(20));
     }
 
+    @Test
+    @DisplayName("GET /api/inventory/{skuId} - should pass maxStalenessMs to the service")
+    void getInventory_withMaxStaleness() throws Exception {
+        InventoryDTO inventoryDTO = InventoryDTO.builder().id(1L).skuId(100L).build();
+        when(inventoryService.getInventoryBySkuId(100L, 500L)).thenReturn(inventoryDTO);
+
+        mockMvc.perform(get("/api/inventory/100").param("maxStalenessMs", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.skuId").value(100));
+    }
+
     @Test
     @DisplayName("GET /api/inventory/{skuId} - should return 404 when inventory not found")
     void getInventory_notFound() throws Exception {
-        when(inventoryService.getInventoryBySkuId(eq(999L)))
+        when(inventoryService.getInventoryBySkuId(eq(999L), isNull()))
                 .thenThrow(new ResourceNotFoundException("Inventory", 999L));
 
         mockMvc.perform(get("/api/inventory/999"))
                 .andExpect(status().isNotFound())
                 .andExpect(jsonPath("$.error").value("NOT_FOUND"));
     }
+
+    // ========== Batch Tests ==========
+
+    @Test
+    @DisplayName("POST /api/inventory/reserve-batch - should return 200 when all lines are reserved")
+    void reserveStockBatch_success() throws Exception {
+        BatchInventoryOperationRequest request = new BatchInventoryOperationRequest("order-1", List.of(
+                new BatchInventoryOperationRequest.Item(100L, 1),
+                new BatchInventoryOperationRequest.Item(200L, 2)));
+        doNothing().when(inventoryService).reserveStockBatch(any(BatchInventoryOperationRequest.class));
+
+        mockMvc.perform(post("/api/inventory/reserve-batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        verify(inventoryService).reserveStockBatch(any(BatchInventoryOperationRequest.class));
+    }
 }
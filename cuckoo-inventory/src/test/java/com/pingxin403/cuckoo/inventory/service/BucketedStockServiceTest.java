@@ -0,0 +1,148 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
+import com.pingxin403.cuckoo.inventory.entity.Inventory;
+import com.pingxin403.cuckoo.inventory.entity.InventoryBucket;
+import com.pingxin403.cuckoo.inventory.repository.InventoryBucketRepository;
+import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * BucketedStockService 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class BucketedStockServiceTest {
+
+    private static final Long SKU_ID = 100L;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryBucketRepository inventoryBucketRepository;
+
+    @Mock
+    private InventoryConfig inventoryConfig;
+
+    @Mock
+    private StockBucketRebalancer stockBucketRebalancer;
+
+    private BucketedStockService bucketedStockService;
+
+    @BeforeEach
+    void setUp() {
+        bucketedStockService = new BucketedStockService(
+                inventoryRepository, inventoryBucketRepository, inventoryConfig, stockBucketRebalancer);
+        lenient().when(inventoryConfig.getBucketCount(SKU_ID)).thenReturn(4);
+    }
+
+    @Test
+    @DisplayName("reserve - should update the order's home bucket when it has enough stock")
+    void reserve_homeBucket() {
+        InventoryOperationRequest request = new InventoryOperationRequest(SKU_ID, 1, "order-1");
+        int home = Math.floorMod("order-1".hashCode(), 4);
+        when(inventoryBucketRepository.findBySkuIdOrderByBucketNo(SKU_ID)).thenReturn(buckets(5, 5, 5, 5));
+        when(inventoryBucketRepository.reserveIfAvailable(SKU_ID, home, 1)).thenReturn(1);
+
+        bucketedStockService.reserve(request);
+
+        verify(inventoryBucketRepository).reserveIfAvailable(SKU_ID, home, 1);
+        verify(inventoryRepository, never()).reserveIfAvailable(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("reserve - should fall back to a neighbouring bucket when the home bucket is empty")
+    void reserve_neighbourBucket() {
+        InventoryOperationRequest request = new InventoryOperationRequest(SKU_ID, 1, "order-1");
+        int home = Math.floorMod("order-1".hashCode(), 4);
+        int[] available = {5, 5, 5, 5};
+        available[home] = 0;
+        int next = (home + 1) % 4;
+        when(inventoryBucketRepository.findBySkuIdOrderByBucketNo(SKU_ID)).thenReturn(buckets(available));
+        when(inventoryBucketRepository.reserveIfAvailable(SKU_ID, next, 1)).thenReturn(1);
+
+        bucketedStockService.reserve(request);
+
+        verify(inventoryBucketRepository, never()).reserveIfAvailable(SKU_ID, home, 1);
+    }
+
+    @Test
+    @DisplayName("reserve - should consolidate buckets when no single row can satisfy the quantity")
+    void reserve_consolidate() {
+        InventoryOperationRequest request = new InventoryOperationRequest(SKU_ID, 6, "order-1");
+        when(inventoryBucketRepository.findBySkuIdOrderByBucketNo(SKU_ID))
+                .thenReturn(buckets(2, 2, 2, 2), buckets(0, 0, 0, 0));
+        when(inventoryRepository.reserveIfAvailable(SKU_ID, 6)).thenReturn(0, 1);
+        when(inventoryRepository.findBySkuId(SKU_ID)).thenReturn(Optional.of(inventory(0)));
+
+        bucketedStockService.reserve(request);
+
+        verify(stockBucketRebalancer).consolidate(SKU_ID);
+        verify(inventoryRepository, times(2)).reserveIfAvailable(SKU_ID, 6);
+    }
+
+    @Test
+    @DisplayName("reserve - should throw InsufficientStockException when the sum is not enough")
+    void reserve_insufficient() {
+        InventoryOperationRequest request = new InventoryOperationRequest(SKU_ID, 10, "order-1");
+        when(inventoryBucketRepository.findBySkuIdOrderByBucketNo(SKU_ID)).thenReturn(buckets(2, 2, 2, 2));
+        when(inventoryRepository.reserveIfAvailable(SKU_ID, 10)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(SKU_ID)).thenReturn(Optional.of(inventory(1)));
+
+        assertThatThrownBy(() -> bucketedStockService.reserve(request))
+                .isInstanceOf(InsufficientStockException.class);
+        verify(stockBucketRebalancer, never()).consolidate(any());
+    }
+
+    @Test
+    @DisplayName("release - should throw BusinessException when no reserved stock is left")
+    void release_insufficientReserved() {
+        InventoryOperationRequest request = new InventoryOperationRequest(SKU_ID, 3, "order-1");
+        when(inventoryBucketRepository.findBySkuIdOrderByBucketNo(SKU_ID)).thenReturn(buckets(2, 2, 2, 2));
+        when(inventoryRepository.releaseIfReserved(SKU_ID, 3)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(SKU_ID)).thenReturn(Optional.of(inventory(0)));
+
+        assertThatThrownBy(() -> bucketedStockService.release(request))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Insufficient reserved stock to release");
+    }
+
+    private List<InventoryBucket> buckets(int... available) {
+        return IntStream.range(0, available.length)
+                .mapToObj(i -> InventoryBucket.builder()
+                        .id((long) i + 1)
+                        .skuId(SKU_ID)
+                        .bucketNo(i)
+                        .totalStock(available[i])
+                        .availableStock(available[i])
+                        .reservedStock(0)
+                        .build())
+                .toList();
+    }
+
+    private Inventory inventory(int available) {
+        return Inventory.builder()
+                .id(1L)
+                .skuId(SKU_ID)
+                .totalStock(available)
+                .availableStock(available)
+                .reservedStock(0)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * HierarchicalTimingWheel 单元测试
+ */
+class HierarchicalTimingWheelTest {
+
+    @Test
+    @DisplayName("add - should reject tasks that are already due")
+    void add_expired_rejected() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100, 10, 1_000);
+
+        assertThat(wheel.add("late", 1_000)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("advance - should fire tasks at the first tick not earlier than their expiry")
+    void advance_firesOnExpiry() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(100, 10, 0);
+        wheel.add("a", 350);
+        wheel.add("b", 500);
+
+        assertThat(wheel.advance(399)).isEmpty();
+        assertThat(wheel.advance(400)).containsExactly("a");
+        assertThat(wheel.advance(499)).isEmpty();
+        assertThat(wheel.advance(500)).containsExactly("b");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("advance - should cascade tasks from overflow levels without firing early")
+    void advance_cascadesOverflowLevels() {
+        HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 4, 0);
+        List<Long> expireAts = List.of(15L, 45L, 160L, 175L, 999L, 1_234L);
+        expireAts.forEach(expireAt -> wheel.add(expireAt, expireAt));
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 1_300; now += 10) {
+            for (Long expireAt : wheel.advance(now)) {
+                assertThat(expireAt).isLessThanOrEqualTo(now).isGreaterThan(now - 10);
+                fired.add(expireAt);
+            }
+        }
+
+        assertThat(fired).containsExactlyElementsOf(expireAts);
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,85 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.event.EventPublisherUtil;
+import com.pingxin403.cuckoo.common.event.InventoryDeductedEvent;
+import com.pingxin403.cuckoo.common.event.InventoryDeductedEvent.InventoryChange;
+import com.pingxin403.cuckoo.common.message.LocalMessageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * InventoryEventCoalescer 单元测试
+ */
+class InventoryEventCoalescerTest {
+
+    private LocalMessageService localMessageService;
+    private EventPublisherUtil eventPublisher;
+    private InventoryEventCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        localMessageService = mock(LocalMessageService.class);
+        eventPublisher = mock(EventPublisherUtil.class);
+        coalescer = new InventoryEventCoalescer(localMessageService, eventPublisher,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("drain - deductions on one SKU should merge regardless of arrival order")
+    void drain_mergesChangesPerSku() {
+        // 提交顺序与扣减顺序不同：order-2 先登记
+        coalescer.add("order-2", List.of(new InventoryChange(100L, 3, 95, 92)));
+        coalescer.add("order-1", List.of(new InventoryChange(100L, 5, 100, 95), new InventoryChange(200L, 1, 10, 9)));
+
+        InventoryDeductedEvent event = coalescer.drain();
+
+        assertThat(event.getOrderId()).isNull();
+        assertThat(event.getOrderIds()).containsExactly("order-2", "order-1");
+        assertThat(event.getChanges()).containsExactly(
+                new InventoryChange(100L, 8, 100, 92),
+                new InventoryChange(200L, 1, 10, 9));
+        assertThat(coalescer.drain()).isNull();
+    }
+
+    @Test
+    @DisplayName("flush - one local message and one Kafka event per window")
+    void flush_savesAndPublishesOneEvent() {
+        coalescer.add("order-1", List.of(new InventoryChange(100L, 1, 10, 9)));
+        coalescer.add("order-2", List.of(new InventoryChange(100L, 1, 9, 8)));
+
+        coalescer.flush();
+        coalescer.flush();
+
+        verify(localMessageService, times(1)).saveMessage(any(InventoryDeductedEvent.class));
+        verify(eventPublisher, times(1)).publish(eq("inventory-events"), any(InventoryDeductedEvent.class));
+        verify(localMessageService, times(1)).markAsSent(anyString());
+    }
+
+    @Test
+    @DisplayName("flush - changes should be requeued and merged into the next window when saving fails")
+    void flush_saveFailure_requeuesChanges() {
+        doThrow(new RuntimeException("db down")).doNothing()
+                .when(localMessageService).saveMessage(any(InventoryDeductedEvent.class));
+        coalescer.add("order-1", List.of(new InventoryChange(100L, 5, 100, 95)));
+
+        coalescer.flush();
+        coalescer.add("order-2", List.of(new InventoryChange(100L, 3, 95, 92)));
+        coalescer.flush();
+
+        ArgumentCaptor<InventoryDeductedEvent> published = ArgumentCaptor.forClass(InventoryDeductedEvent.class);
+        verify(eventPublisher, times(1)).publish(eq("inventory-events"), published.capture());
+        assertThat(published.getValue().getOrderIds()).containsExactly("order-1", "order-2");
+        assertThat(published.getValue().getChanges()).containsExactly(new InventoryChange(100L, 8, 100, 92));
+    }
+}
@@ -1,35 +1,51 @@
 package com.pingxin403.cuckoo.inventory.service;
 
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManagerImpl;
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheProperties;
 import com.pingxin403.cuckoo.common.event.EventPublisherUtil;
+import com.pingxin403.cuckoo.common.event.InventoryDeductedEvent;
 import com.pingxin403.cuckoo.common.exception.BusinessException;
 import com.pingxin403.cuckoo.common.exception.DuplicateResourceException;
 import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
 import com.pingxin403.cuckoo.common.message.LocalMessageService;
 import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.BatchInventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.dto.InitInventoryRequest;
 import com.pingxin403.cuckoo.inventory.dto.InventoryDTO;
 import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
 import com.pingxin403.cuckoo.inventory.entity.Inventory;
 import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
 import com.pingxin403.cuckoo.inventory.mapper.InventoryMapper;
 import com.pingxin403.cuckoo.inventory.repository.InventoryLogRepository;
 import com.pingxin403.cuckoo.inventory.repository.InventoryRepository;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.mockito.Mockito.mock;
 
@@ -66,6 +82,32 @@ class InventoryServiceTest {
     @Mock
     private InventoryConfig inventoryConfig;
 
+    @Mock
+    private RedisStockEngine redisStockEngine;
+
+    @Mock
+    private BucketedStockService bucketedStockService;
+
+    @Mock
+    private ReservationLedger reservationLedger;
+
+    @Mock
+    private SkuOwnership skuOwnership;
+
+    @Mock
+    private InventoryEventCoalescer inventoryEventCoalescer;
+
+    @Mock
+    private StockLevelPublisher stockLevelPublisher;
+
+    private LocalMessageService localMessageService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ReservationCombiner reservationCombiner;
+
+    private InventoryNearCache inventoryNearCache;
+
     private InventoryService inventoryService;
 
     private Inventory testInventory;
@@ -84,27 +126,54 @@ class InventoryServiceTest {
         
         // Mock RedisTemplate behavior - set up lenient stubbing for all tests
         lenient().when(redisTemplate.opsForValue()).thenReturn(redisValueOperations);
+        lenient().when(redisValueOperations.setIfAbsent(anyString(), any(), any(Duration.class))).thenReturn(true);
         
         // Mock EventPublisherUtil and LocalMessageService
         EventPublisherUtil eventPublisher = mock(EventPublisherUtil.class);
-        LocalMessageService localMessageService = mock(LocalMessageService.class);
+        localMessageService = mock(LocalMessageService.class);
         
         // Create real InventoryMapper (no need to mock as it's a simple mapper)
         InventoryMapper inventoryMapper = new InventoryMapper();
+        meterRegistry = new SimpleMeterRegistry();
+        reservationCombiner = new ReservationCombiner(inventoryConfig, meterRegistry, 2);
+        inventoryNearCache = new InventoryNearCache(stringRedisTemplate,
+                mock(RedisMessageListenerContainer.class), meterRegistry, 100, 5000);
         
         // Manually create the service with mocked dependencies
-        inventoryService = new InventoryService(
+        inventoryService = newInventoryService(eventPublisher, inventoryMapper,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    private InventoryService newInventoryService(EventPublisherUtil eventPublisher, InventoryMapper inventoryMapper,
+                                                 TransactionTemplate transactionTemplate) {
+        return new InventoryService(
             inventoryRepository,
             inventoryLogRepository,
             stringRedisTemplate,
-            redisTemplate,
+            new MultiLevelCacheManagerImpl(redisTemplate, mock(RedisMessageListenerContainer.class), meterRegistry,
+                    new MultiLevelCacheProperties()),
             inventoryConfig,
             eventPublisher,
             localMessageService,
-            inventoryMapper
+            inventoryMapper,
+            redisStockEngine,
+            bucketedStockService,
+            reservationCombiner,
+            reservationLedger,
+            inventoryNearCache,
+            skuOwnership,
+            inventoryEventCoalescer,
+            stockLevelPublisher,
+            transactionTemplate,
+            meterRegistry
         );
     }
 
+    @AfterEach
+    void tearDown() {
+        reservationCombiner.shutdown();
+    }
+
     // ========== InitInventory Tests ==========
 
     @Test
@@ -372,7 +441,7 @@ class InventoryServiceTest {
         assertThat(result.getReservedStock()).isEqualTo(20);
         
         verify(redisTemplate, atLeastOnce()).opsForValue(); // Called at least once
-        verify(redisValueOperations).set(eq("inventory:100"), any(InventoryDTO.class), eq(10L), eq(TimeUnit.MINUTES));
+        verify(redisValueOperations).set(eq("inventory:100"), any(InventoryDTO.class), eq(Duration.ofMinutes(10)));
     }
 
     @Test
@@ -388,6 +457,39 @@ class InventoryServiceTest {
                 .hasMessageContaining("Inventory");
     }
 
+    @Test
+    @DisplayName("getInventoryBySkuId - near-cache hit should not touch redis or the database")
+    void getInventoryBySkuId_nearCacheHit() {
+        when(inventoryConfig.isNearCacheEnabled()).thenReturn(true);
+        when(redisValueOperations.get("inventory:100")).thenReturn(null);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        InventoryDTO first = inventoryService.getInventoryBySkuId(100L, 60_000L);
+        InventoryDTO second = inventoryService.getInventoryBySkuId(100L, 60_000L);
+
+        assertThat(second).isSameAs(first);
+        verify(redisValueOperations, times(1)).get("inventory:100");
+        verify(inventoryRepository, times(1)).findBySkuId(100L);
+    }
+
+    @Test
+    @DisplayName("getInventoryBySkuId - stock change should invalidate the near-cache and queue a notification")
+    void getInventoryBySkuId_nearCacheInvalidatedOnChange() {
+        when(inventoryConfig.isNearCacheEnabled()).thenReturn(true);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(redisValueOperations.get("inventory:100")).thenReturn(null);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.reserveIfAvailable(100L, 5)).thenReturn(1);
+
+        inventoryService.getInventoryBySkuId(100L, 60_000L);
+        inventoryService.reserveStock(new InventoryOperationRequest(100L, 5, "order-near"));
+        inventoryService.getInventoryBySkuId(100L, 60_000L);
+        inventoryNearCache.publishInvalidations();
+
+        verify(inventoryRepository, times(2)).findBySkuId(100L);
+        verify(stringRedisTemplate).convertAndSend(InventoryNearCache.INVALIDATION_CHANNEL, "100");
+    }
+
     // ========== Invariant Tests ==========
 
     @Test
@@ -473,4 +575,522 @@ class InventoryServiceTest {
         assertThat(saved.getTotalStock())
                 .isEqualTo(saved.getAvailableStock() + saved.getReservedStock());
     }
+
+    // ========== Lua Mode Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - lua mode should delegate to RedisStockEngine without lock or DB write")
+    void reserveStock_luaMode_delegatesToEngine() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-lua");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(true);
+
+        inventoryService.reserveStock(request);
+
+        InOrder inOrder = inOrder(reservationLedger, redisStockEngine);
+        inOrder.verify(reservationLedger).apply(argThat(entry -> "RESERVE".equals(entry.getOperation())));
+        inOrder.verify(redisStockEngine).reserve(request);
+        verifyNoInteractions(stringRedisTemplate);
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    @Test
+    @DisplayName("reserveStock - lua mode should revert redis stock when the ledger transaction fails to commit")
+    void reserveStock_luaMode_commitFailure_revertsRedisStock() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-lua");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(true);
+        TransactionTemplate failingCommit = new TransactionTemplate(new AbstractPlatformTransactionManager() {
+            @Override
+            protected Object doGetTransaction() {
+                return new Object();
+            }
+
+            @Override
+            protected void doBegin(Object transaction, TransactionDefinition definition) {
+            }
+
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                throw new TransactionSystemException("commit failed");
+            }
+
+            @Override
+            protected void doRollback(DefaultTransactionStatus status) {
+            }
+        });
+        InventoryService service = newInventoryService(mock(EventPublisherUtil.class), new InventoryMapper(),
+                failingCommit);
+
+        assertThatThrownBy(() -> service.reserveStock(request)).isInstanceOf(TransactionSystemException.class);
+
+        verify(redisStockEngine).reserve(request);
+        verify(redisStockEngine).executeBatch("order-lua", List.of(request), "RELEASE");
+        assertThat(meterRegistry.get("inventory.lua.reverts").tag("result", "success").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("deductStock - lua mode should propagate engine failures")
+    void deductStock_luaMode_propagatesEngineFailure() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 50, "order-lua");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(true);
+        doThrow(new BusinessException("Insufficient reserved stock for SKU 100"))
+                .when(redisStockEngine).deduct(request);
+
+        assertThatThrownBy(() -> inventoryService.deductStock(request))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Insufficient reserved stock");
+        verifyNoInteractions(stringRedisTemplate);
+    }
+
+    @Test
+    @DisplayName("applyStockChange - should apply delta, write log and publish deducted event")
+    void applyStockChange_deduct() {
+        when(inventoryRepository.applyStockDelta(100L, -10, 0, -10)).thenReturn(1);
+
+        inventoryService.applyStockChange(100L, "order-lua", "DEDUCT", 10, 90);
+
+        verify(inventoryRepository).applyStockDelta(100L, -10, 0, -10);
+        verify(redisTemplate).delete("inventory:100");
+        ArgumentCaptor<InventoryLog> logCaptor = ArgumentCaptor.forClass(InventoryLog.class);
+        verify(inventoryLogRepository).save(logCaptor.capture());
+        assertThat(logCaptor.getValue().getOperation()).isEqualTo("DEDUCT");
+        verify(localMessageService).saveMessage(any());
+    }
+
+    @Test
+    @DisplayName("applyStockChange - should skip log when inventory row is missing")
+    void applyStockChange_missingRow() {
+        when(inventoryRepository.applyStockDelta(999L, 0, -5, 5)).thenReturn(0);
+
+        inventoryService.applyStockChange(999L, "order-lua", "RESERVE", 5, 100);
+
+        verify(inventoryLogRepository, never()).save(any(InventoryLog.class));
+    }
+
+    // ========== CAS Mode Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - cas mode should apply conditional update without lock")
+    void reserveStock_casMode_success() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-cas");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(false);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 10)).thenReturn(1);
+
+        inventoryService.reserveStock(request);
+
+        verify(stringRedisTemplate, never()).opsForValue();
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+        verify(inventoryLogRepository).save(any(InventoryLog.class));
+        verify(redisTemplate).delete("inventory:100");
+        assertThat(meterRegistry.counter("inventory.cas.attempts", "skuId", "100", "operation", "RESERVE").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("reserveStock - cas mode should throw InsufficientStockException and count miss")
+    void reserveStock_casMode_miss() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 90, "order-cas");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(false);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 90)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        assertThatThrownBy(() -> inventoryService.reserveStock(request))
+                .isInstanceOf(InsufficientStockException.class);
+
+        verify(inventoryLogRepository, never()).save(any(InventoryLog.class));
+        assertThat(meterRegistry.counter("inventory.cas.misses", "skuId", "100", "operation", "RESERVE").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("deductStock - cas mode should publish deducted event from updated row")
+    void deductStock_casMode_success() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-cas");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(false);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.deductIfReserved(100L, 10)).thenReturn(1);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        inventoryService.deductStock(request);
+
+        verify(inventoryLogRepository).save(any(InventoryLog.class));
+        verify(localMessageService).saveMessage(any());
+    }
+
+    @Test
+    @DisplayName("releaseStock - cas mode should throw BusinessException when reserved stock is short")
+    void releaseStock_casMode_miss() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 50, "order-cas");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(false);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.releaseIfReserved(100L, 50)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        assertThatThrownBy(() -> inventoryService.releaseStock(request))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("Insufficient reserved stock to release");
+    }
+
+    @Test
+    @DisplayName("deductStock - coalescing mode should hand the change to the coalescer")
+    void deductStock_coalescingMode_handsOffToCoalescer() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-coalesce");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LUA)).thenReturn(false);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryConfig.isEventCoalescingEnabled()).thenReturn(true);
+        when(inventoryRepository.deductIfReserved(100L, 10)).thenReturn(1);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        inventoryService.deductStock(request);
+
+        verify(inventoryEventCoalescer).add(eq("order-coalesce"), argThat(changes ->
+                changes.size() == 1 && changes.get(0).getSkuId().equals(100L) && changes.get(0).getQuantity() == 10));
+        verify(localMessageService, never()).saveMessage(any());
+        verify(stockLevelPublisher).markChanged(List.of(100L));
+    }
+
+    // ========== Single-Writer Ownership Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - owner should fence the row and skip the Redis lock")
+    void reserveStock_owner_fencesWithoutRedisLock() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-owner");
+        when(inventoryConfig.isOwnershipEnabled()).thenReturn(true);
+        when(inventoryConfig.getLockTimeout()).thenReturn(5);
+        when(skuOwnership.isOwner(100L)).thenReturn(true);
+        when(skuOwnership.acquireEpoch(100L)).thenReturn(3L);
+        when(skuOwnership.lockFor(100L)).thenReturn(new ReentrantLock());
+        when(inventoryRepository.fence(100L, 3L)).thenReturn(1);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(any(Inventory.class))).thenReturn(testInventory);
+
+        inventoryService.reserveStock(request);
+
+        InOrder inOrder = inOrder(inventoryRepository);
+        inOrder.verify(inventoryRepository).fence(100L, 3L);
+        inOrder.verify(inventoryRepository).save(any(Inventory.class));
+        assertThat(testInventory.getAvailableStock()).isEqualTo(70);
+        verify(stringRedisTemplate, never()).opsForValue();
+    }
+
+    @Test
+    @DisplayName("deductStock - owner with a stale epoch should be fenced off")
+    void deductStock_staleOwner_fencedOff() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-owner");
+        when(inventoryConfig.isOwnershipEnabled()).thenReturn(true);
+        when(inventoryConfig.getLockTimeout()).thenReturn(5);
+        when(skuOwnership.isOwner(100L)).thenReturn(true);
+        when(skuOwnership.acquireEpoch(100L)).thenReturn(2L);
+        when(skuOwnership.lockFor(100L)).thenReturn(new ReentrantLock());
+        when(inventoryRepository.fence(100L, 2L)).thenReturn(0);
+        when(inventoryRepository.existsBySkuId(100L)).thenReturn(true);
+
+        assertThatThrownBy(() -> inventoryService.deductStock(request))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("库存归属已转移");
+
+        verify(skuOwnership).revoke(100L, 2L);
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+    }
+
+    @Test
+    @DisplayName("releaseStock - non-owner should fall back to conditional update")
+    void releaseStock_nonOwner_fallsBackToCas() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-owner");
+        when(inventoryConfig.isOwnershipEnabled()).thenReturn(true);
+        when(skuOwnership.isOwner(100L)).thenReturn(false);
+        when(inventoryRepository.releaseIfReserved(100L, 10)).thenReturn(1);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        inventoryService.releaseStock(request);
+
+        verify(inventoryRepository).releaseIfReserved(100L, 10);
+        verify(inventoryRepository, never()).fence(anyLong(), anyLong());
+        verify(stringRedisTemplate, never()).opsForValue();
+    }
+
+    // ========== Bucketed Stock Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - sharded SKU should delegate to bucketed stock without lock")
+    void reserveStock_sharded_delegatesToBuckets() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 1, "order-hot");
+        when(bucketedStockService.isSharded(100L)).thenReturn(true);
+
+        inventoryService.reserveStock(request);
+
+        verify(bucketedStockService).reserve(request);
+        verify(stringRedisTemplate, never()).opsForValue();
+        verify(inventoryRepository, never()).reserveIfAvailable(anyLong(), anyInt());
+        verify(inventoryLogRepository).save(any(InventoryLog.class));
+    }
+
+    @Test
+    @DisplayName("deductStock - sharded SKU should publish event with aggregated total")
+    void deductStock_sharded_publishesAggregatedTotal() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 2, "order-hot");
+        when(bucketedStockService.isSharded(100L)).thenReturn(true);
+        when(bucketedStockService.deduct(request)).thenReturn(98);
+
+        inventoryService.deductStock(request);
+
+        ArgumentCaptor<InventoryDeductedEvent> captor =
+                ArgumentCaptor.forClass(InventoryDeductedEvent.class);
+        verify(localMessageService).saveMessage(captor.capture());
+        assertThat(captor.getValue().getChanges().get(0).getBeforeQuantity()).isEqualTo(100);
+        assertThat(captor.getValue().getChanges().get(0).getAfterQuantity()).isEqualTo(98);
+    }
+
+    @Test
+    @DisplayName("getInventoryBySkuId - sharded SKU should sum buckets on cache miss")
+    void getInventoryBySkuId_sharded_aggregates() {
+        when(redisValueOperations.get("inventory:100")).thenReturn(null);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+        when(bucketedStockService.isSharded(100L)).thenReturn(true);
+        when(bucketedStockService.aggregate(any(InventoryDTO.class))).thenAnswer(invocation -> {
+            InventoryDTO dto = invocation.getArgument(0);
+            dto.setAvailableStock(dto.getAvailableStock() + 40);
+            dto.setTotalStock(dto.getTotalStock() + 40);
+            return dto;
+        });
+
+        InventoryDTO result = inventoryService.getInventoryBySkuId(100L);
+
+        assertThat(result.getAvailableStock()).isEqualTo(120);
+        assertThat(result.getTotalStock()).isEqualTo(140);
+    }
+
+    // ========== Combined Reservation Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - combiner should apply one stock update and batch insert the logs")
+    void reserveStock_combined_success() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-combined");
+        when(inventoryConfig.isCombinerEnabled()).thenReturn(true);
+        when(inventoryConfig.getCombinerMaxBatch()).thenReturn(64);
+        when(inventoryConfig.getCombinerMaxWaitMs()).thenReturn(1L);
+        when(inventoryConfig.getLockTimeout()).thenReturn(5);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(inventoryRepository.findBySkuIdForUpdate(100L)).thenReturn(Optional.of(testInventory));
+
+        inventoryService.reserveStock(request);
+
+        verify(inventoryRepository).applyStockDelta(100L, 0, -10, 10);
+        verify(inventoryLogRepository).batchInsert(argThat(logs -> logs.size() == 1
+                && "order-combined".equals(logs.get(0).getOrderId())));
+        verify(inventoryLogRepository, never()).save(any(InventoryLog.class));
+    }
+
+    @Test
+    @DisplayName("reserveStock - combiner should fail only the request that exceeds available stock")
+    void reserveStock_combined_insufficient() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 90, "order-combined");
+        when(inventoryConfig.isCombinerEnabled()).thenReturn(true);
+        when(inventoryConfig.getCombinerMaxBatch()).thenReturn(64);
+        when(inventoryConfig.getCombinerMaxWaitMs()).thenReturn(1L);
+        when(inventoryConfig.getLockTimeout()).thenReturn(5);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(inventoryRepository.findBySkuIdForUpdate(100L)).thenReturn(Optional.of(testInventory));
+
+        assertThatThrownBy(() -> inventoryService.reserveStock(request))
+                .isInstanceOf(InsufficientStockException.class);
+
+        verify(inventoryRepository, never()).applyStockDelta(anyLong(), anyInt(), anyInt(), anyInt());
+        verify(inventoryLogRepository, never()).batchInsert(any());
+    }
+
+    // ========== Batch Operation Tests ==========
+
+    @Test
+    @DisplayName("reserveStockBatch - should lock SKUs in sorted order and write logs in one batch")
+    void reserveStockBatch_success() {
+        BatchInventoryOperationRequest request = new BatchInventoryOperationRequest("order-batch", List.of(
+                new BatchInventoryOperationRequest.Item(300L, 1),
+                new BatchInventoryOperationRequest.Item(100L, 2),
+                new BatchInventoryOperationRequest.Item(300L, 1)));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_LOCK)).thenReturn(true);
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(anyLong(), anyInt())).thenReturn(1);
+
+        inventoryService.reserveStockBatch(request);
+
+        InOrder lockOrder = inOrder(valueOperations);
+        lockOrder.verify(valueOperations).setIfAbsent(eq("inventory:lock:100"), anyString(), any(Duration.class));
+        lockOrder.verify(valueOperations).setIfAbsent(eq("inventory:lock:300"), anyString(), any(Duration.class));
+        verify(inventoryRepository).reserveIfAvailable(100L, 2);
+        verify(inventoryRepository).reserveIfAvailable(300L, 2);
+        verify(inventoryLogRepository).batchInsert(argThat(logs -> logs.size() == 2));
+        verify(redisTemplate).delete(List.of("inventory:100", "inventory:300"));
+    }
+
+    @Test
+    @DisplayName("reserveStockBatch - should fail the whole batch when one SKU is short")
+    void reserveStockBatch_insufficient() {
+        BatchInventoryOperationRequest request = new BatchInventoryOperationRequest("order-batch", List.of(
+                new BatchInventoryOperationRequest.Item(100L, 2),
+                new BatchInventoryOperationRequest.Item(200L, 500)));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 2)).thenReturn(1);
+        when(inventoryRepository.reserveIfAvailable(200L, 500)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(200L)).thenReturn(Optional.of(testInventory));
+
+        assertThatThrownBy(() -> inventoryService.reserveStockBatch(request))
+                .isInstanceOf(InsufficientStockException.class);
+
+        verify(inventoryLogRepository, never()).batchInsert(any());
+        verify(stringRedisTemplate, never()).opsForValue();
+    }
+
+    @Test
+    @DisplayName("deductStockBatch - should publish one event carrying every SKU change")
+    void deductStockBatch_publishesSingleEvent() {
+        BatchInventoryOperationRequest request = new BatchInventoryOperationRequest("order-batch", List.of(
+                new BatchInventoryOperationRequest.Item(100L, 5),
+                new BatchInventoryOperationRequest.Item(200L, 5)));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.deductIfReserved(anyLong(), anyInt())).thenReturn(1);
+        when(inventoryRepository.findBySkuId(anyLong())).thenReturn(Optional.of(testInventory));
+
+        inventoryService.deductStockBatch(request);
+
+        ArgumentCaptor<InventoryDeductedEvent> captor = ArgumentCaptor.forClass(InventoryDeductedEvent.class);
+        verify(localMessageService).saveMessage(captor.capture());
+        assertThat(captor.getValue().getChanges()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("reserveStockBatch - should reject an empty batch")
+    void reserveStockBatch_empty() {
+        BatchInventoryOperationRequest request = new BatchInventoryOperationRequest("order-batch", List.of());
+
+        assertThatThrownBy(() -> inventoryService.reserveStockBatch(request))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    // ========== Reservation Ledger Tests ==========
+
+    @Test
+    @DisplayName("reserveStock - should record the reservation in the ledger")
+    void reserveStock_recordsLedger() {
+        InventoryOperationRequest request = new InventoryOperationRequest(100L, 10, "order-ledger");
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 10)).thenReturn(1);
+
+        inventoryService.reserveStock(request);
+
+        verify(reservationLedger).apply(argThat(entry -> "RESERVE".equals(entry.getOperation())
+                && "order-ledger".equals(entry.getOrderId())));
+    }
+
+    @Test
+    @DisplayName("confirmReservation - should deduct every reserved line of the order in one batch")
+    void confirmReservation_deductsAllLines() {
+        when(reservationLedger.lockReserved("order-ledger")).thenReturn(List.of(
+                reservation(100L, 2), reservation(200L, 3)));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.deductIfReserved(anyLong(), anyInt())).thenReturn(1);
+        when(inventoryRepository.findBySkuId(anyLong())).thenReturn(Optional.of(testInventory));
+
+        int confirmed = inventoryService.confirmReservation("order-ledger");
+
+        assertThat(confirmed).isEqualTo(2);
+        verify(inventoryRepository).deductIfReserved(100L, 2);
+        verify(inventoryRepository).deductIfReserved(200L, 3);
+        verify(reservationLedger).applyAll(argThat(logs -> logs.size() == 2));
+        verify(inventoryLogRepository, never()).findByOrderId(anyString());
+    }
+
+    @Test
+    @DisplayName("confirmReservation - should be a no-op when nothing is reserved (duplicate event)")
+    void confirmReservation_idempotent() {
+        when(reservationLedger.lockReserved("order-ledger")).thenReturn(List.of());
+
+        int confirmed = inventoryService.confirmReservation("order-ledger");
+
+        assertThat(confirmed).isZero();
+        verify(inventoryRepository, never()).deductIfReserved(anyLong(), anyInt());
+        verify(localMessageService, never()).saveMessage(any());
+    }
+
+    @Test
+    @DisplayName("confirmReservation - payment after release should re-reserve and deduct the released lines")
+    void confirmReservation_afterRelease_reReservesAndDeducts() {
+        when(reservationLedger.lockReleased("order-ledger")).thenReturn(List.of(reservation(100L, 2)));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 2)).thenReturn(1);
+        when(inventoryRepository.deductIfReserved(100L, 2)).thenReturn(1);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        int confirmed = inventoryService.confirmReservation("order-ledger");
+
+        assertThat(confirmed).isEqualTo(1);
+        InOrder inOrder = inOrder(inventoryRepository);
+        inOrder.verify(inventoryRepository).reserveIfAvailable(100L, 2);
+        inOrder.verify(inventoryRepository).deductIfReserved(100L, 2);
+        assertThat(meterRegistry.get("inventory.reservation.late.payments").tag("result", "recovered")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("confirmReservation - payment after release without stock should flag the lines as unfulfilled")
+    void confirmReservation_afterRelease_insufficientStock_marksUnfulfilled() {
+        List<InventoryReservation> released = List.of(reservation(100L, 200));
+        when(reservationLedger.lockReleased("order-ledger")).thenReturn(released);
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.reserveIfAvailable(100L, 200)).thenReturn(0);
+        when(inventoryRepository.findBySkuId(100L)).thenReturn(Optional.of(testInventory));
+
+        int confirmed = inventoryService.confirmReservation("order-ledger");
+
+        assertThat(confirmed).isZero();
+        verify(inventoryRepository, never()).deductIfReserved(anyLong(), anyInt());
+        verify(reservationLedger).markUnfulfilled(released);
+        assertThat(meterRegistry.get("inventory.reservation.late.payments").tag("result", "unfulfilled")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("releaseExpiredReservations - should release only the expired lines of the order")
+    void releaseExpiredReservations_releasesExpiredLines() {
+        InventoryReservation expired = reservation(100L, 2);
+        expired.setExpiresAt(LocalDateTime.now().minusSeconds(1));
+        InventoryReservation live = reservation(200L, 3);
+        live.setExpiresAt(LocalDateTime.now().plusMinutes(10));
+        when(reservationLedger.lockReserved("order-ledger")).thenReturn(List.of(expired, live));
+        when(inventoryConfig.isConcurrencyMode(InventoryConfig.MODE_CAS)).thenReturn(true);
+        when(inventoryRepository.releaseIfReserved(100L, 2)).thenReturn(1);
+
+        List<InventoryReservation> released = inventoryService.releaseExpiredReservations("order-ledger");
+
+        assertThat(released).containsExactly(expired);
+        verify(inventoryRepository).releaseIfReserved(100L, 2);
+        verify(inventoryRepository, never()).releaseIfReserved(eq(200L), anyInt());
+        verify(reservationLedger).applyAll(argThat(logs -> logs.size() == 1
+                && "RELEASE".equals(logs.get(0).getOperation())));
+    }
+
+    @Test
+    @DisplayName("cancelReservation - should be a no-op when the reservation already expired")
+    void cancelReservation_afterExpiry_noop() {
+        when(reservationLedger.lockReserved("order-ledger")).thenReturn(List.of());
+
+        int released = inventoryService.cancelReservation("order-ledger");
+
+        assertThat(released).isZero();
+        verify(inventoryRepository, never()).releaseIfReserved(anyLong(), anyInt());
+    }
+
+    private InventoryReservation reservation(Long skuId, int quantity) {
+        return InventoryReservation.builder()
+                .orderId("order-ledger")
+                .skuId(skuId)
+                .quantity(quantity)
+                .status(InventoryReservation.ReservationStatus.RESERVED)
+                .build();
+    }
 }
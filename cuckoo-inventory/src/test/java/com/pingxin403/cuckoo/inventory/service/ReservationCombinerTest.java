@@ -0,0 +1,104 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.common.exception.BusinessException;
+import com.pingxin403.cuckoo.common.exception.InsufficientStockException;
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.dto.InventoryOperationRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReservationCombiner 单元测试
+ */
+class ReservationCombinerTest {
+
+    private InventoryConfig inventoryConfig;
+    private ReservationCombiner combiner;
+
+    @BeforeEach
+    void setUp() {
+        inventoryConfig = mock(InventoryConfig.class);
+        when(inventoryConfig.getCombinerMaxBatch()).thenReturn(16);
+        when(inventoryConfig.getCombinerMaxWaitMs()).thenReturn(20L);
+        when(inventoryConfig.getLockTimeout()).thenReturn(5);
+        combiner = new ReservationCombiner(inventoryConfig, new SimpleMeterRegistry(), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        combiner.shutdown();
+    }
+
+    @Test
+    @DisplayName("reserve - concurrent requests on one SKU should be applied in fewer batches")
+    void reserve_concurrentRequestsAreCombined() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        Consumer<List<ReservationCombiner.PendingReservation>> handler = batch -> {
+            batchSizes.add(batch.size());
+            batch.stream()
+                    .filter(ReservationCombiner.PendingReservation::claim)
+                    .forEach(pending -> pending.future().complete(null));
+        };
+
+        int requests = 32;
+        ExecutorService callers = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String orderId = "order-" + i;
+            results.add(callers.submit(() -> {
+                start.await();
+                combiner.reserve(new InventoryOperationRequest(100L, 1, orderId), handler);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        callers.shutdown();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(requests);
+        assertThat(batchSizes.size()).isLessThan(requests);
+        assertThat(batchSizes).allMatch(size -> size <= 16);
+    }
+
+    @Test
+    @DisplayName("reserve - should rethrow the per-request failure set by the batch handler")
+    void reserve_propagatesPerRequestFailure() {
+        Consumer<List<ReservationCombiner.PendingReservation>> handler = batch -> batch.stream()
+                .filter(ReservationCombiner.PendingReservation::claim)
+                .forEach(pending -> pending.future().completeExceptionally(
+                        new InsufficientStockException(100L, 5, 1)));
+
+        assertThatThrownBy(() -> combiner.reserve(new InventoryOperationRequest(100L, 5, "order-1"), handler))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    @DisplayName("reserve - a failing batch handler should fail every request in the batch")
+    void reserve_handlerFailure() {
+        Consumer<List<ReservationCombiner.PendingReservation>> handler = batch -> {
+            throw new BusinessException("db down");
+        };
+
+        assertThatThrownBy(() -> combiner.reserve(new InventoryOperationRequest(100L, 1, "order-1"), handler))
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("db down");
+    }
+}
@@ -0,0 +1,195 @@
+package com.pingxin403.cuckoo.inventory.service;
+
+import com.pingxin403.cuckoo.inventory.config.InventoryConfig;
+import com.pingxin403.cuckoo.inventory.entity.InventoryLog;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation;
+import com.pingxin403.cuckoo.inventory.entity.InventoryReservation.ReservationStatus;
+import com.pingxin403.cuckoo.inventory.repository.InventoryLogRepository;
+import com.pingxin403.cuckoo.inventory.repository.InventoryReservationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ReservationLedger 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ReservationLedgerTest {
+
+    @Mock
+    private InventoryReservationRepository reservationRepository;
+
+    @Mock
+    private InventoryLogRepository inventoryLogRepository;
+
+    @Mock
+    private InventoryConfig inventoryConfig;
+
+    @Mock
+    private ReservationExpiryWheel reservationExpiryWheel;
+
+    @InjectMocks
+    private ReservationLedger reservationLedger;
+
+    @Test
+    @DisplayName("apply RESERVE - should create a RESERVED ledger row")
+    void apply_reserve_createsRow() {
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.empty());
+
+        reservationLedger.apply(log("RESERVE", 3));
+
+        verify(reservationRepository).save(argThat(r -> r.getStatus() == ReservationStatus.RESERVED
+                && r.getQuantity() == 3));
+    }
+
+    @Test
+    @DisplayName("apply RESERVE - should set expiresAt and schedule expiry when a TTL is configured")
+    void apply_reserve_schedulesExpiry() {
+        when(inventoryConfig.getReservationTtlSeconds()).thenReturn(60L);
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.empty());
+
+        reservationLedger.apply(log("RESERVE", 3));
+
+        verify(reservationRepository).save(argThat(r -> r.getExpiresAt() != null
+                && r.getExpiresAt().isAfter(LocalDateTime.now().plusSeconds(50))));
+        verify(reservationExpiryWheel).schedule(eq("order-1"), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("apply RESERVE - should accumulate quantity of an existing RESERVED row")
+    void apply_reserve_accumulates() {
+        InventoryReservation existing = InventoryReservation.builder()
+                .orderId("order-1").skuId(100L).quantity(2).status(ReservationStatus.RESERVED).build();
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.of(existing));
+
+        reservationLedger.apply(log("RESERVE", 3));
+
+        assertThat(existing.getQuantity()).isEqualTo(5);
+        verify(reservationRepository).save(existing);
+    }
+
+    @Test
+    @DisplayName("apply RESERVE - should reopen a RELEASED row")
+    void apply_reserve_reopensReleasedRow() {
+        InventoryReservation existing = reservation(ReservationStatus.RELEASED);
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.of(existing));
+
+        reservationLedger.apply(log("RESERVE", 2));
+
+        assertThat(existing.getStatus()).isEqualTo(ReservationStatus.RESERVED);
+        assertThat(existing.getQuantity()).isEqualTo(2);
+        verify(reservationRepository).save(existing);
+    }
+
+    @Test
+    @DisplayName("apply RESERVE - should ignore a replay for a DEDUCTED row")
+    void apply_reserve_deductedRow_ignored() {
+        when(inventoryConfig.getReservationTtlSeconds()).thenReturn(60L);
+        InventoryReservation existing = reservation(ReservationStatus.DEDUCTED);
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.of(existing));
+
+        reservationLedger.apply(log("RESERVE", 3));
+
+        assertThat(existing.getStatus()).isEqualTo(ReservationStatus.DEDUCTED);
+        assertThat(existing.getQuantity()).isEqualTo(3);
+        verify(reservationRepository, never()).save(any());
+        verifyNoInteractions(reservationExpiryWheel);
+    }
+
+    @Test
+    @DisplayName("apply RELEASE - should transition RESERVED to RELEASED")
+    void apply_release_transitions() {
+        reservationLedger.apply(log("RELEASE", 3));
+
+        verify(reservationRepository).transition("order-1", 100L,
+                ReservationStatus.RESERVED, ReservationStatus.RELEASED);
+    }
+
+    @Test
+    @DisplayName("backfillFromLogs - should replay logs of an order reserved before the ledger existed")
+    void backfillFromLogs_orderWithoutLedger_replaysLogs() {
+        when(reservationRepository.existsByOrderId("order-1")).thenReturn(false);
+        when(inventoryLogRepository.findByOrderIdOrderById("order-1"))
+                .thenReturn(List.of(log("RESERVE", 3), log("RELEASE", 3)));
+        when(reservationRepository.findByOrderIdAndSkuId("order-1", 100L)).thenReturn(Optional.empty());
+
+        assertThat(reservationLedger.backfillFromLogs("order-1")).isTrue();
+
+        InOrder inOrder = inOrder(reservationRepository);
+        inOrder.verify(reservationRepository).save(argThat(r -> r.getStatus() == ReservationStatus.RESERVED));
+        inOrder.verify(reservationRepository).transition("order-1", 100L,
+                ReservationStatus.RESERVED, ReservationStatus.RELEASED);
+    }
+
+    @Test
+    @DisplayName("backfillFromLogs - should leave orders that already have ledger rows untouched")
+    void backfillFromLogs_existingLedger_skips() {
+        when(reservationRepository.existsByOrderId("order-1")).thenReturn(true);
+
+        assertThat(reservationLedger.backfillFromLogs("order-1")).isFalse();
+
+        verifyNoInteractions(inventoryLogRepository);
+    }
+
+    @Test
+    @DisplayName("markUnfulfilled - should transition a RELEASED row to UNFULFILLED")
+    void markUnfulfilled_releasedRow_becomesUnfulfilled() {
+        InventoryReservation row = reservation(ReservationStatus.RELEASED);
+        persistTransitions(row);
+
+        reservationLedger.markUnfulfilled(List.of(row));
+
+        assertThat(row.getStatus()).isEqualTo(ReservationStatus.UNFULFILLED);
+    }
+
+    @Test
+    @DisplayName("markUnfulfilled - should fail when the row is no longer RELEASED")
+    void markUnfulfilled_rowNotReleased_fails() {
+        InventoryReservation row = reservation(ReservationStatus.RELEASED);
+        persistTransitions(row);
+        row.setStatus(ReservationStatus.DEDUCTED);
+
+        assertThatThrownBy(() -> reservationLedger.markUnfulfilled(List.of(row)))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(row.getStatus()).isEqualTo(ReservationStatus.DEDUCTED);
+    }
+
+    private InventoryReservation reservation(ReservationStatus status) {
+        return InventoryReservation.builder()
+                .orderId("order-1").skuId(100L).quantity(3).status(status).build();
+    }
+
+    /**
+     * 模拟带状态条件的 UPDATE：仅当行处于 from 状态时迁移
+     */
+    private void persistTransitions(InventoryReservation row) {
+        when(reservationRepository.transition(eq("order-1"), eq(100L), any(), any())).thenAnswer(invocation -> {
+            if (row.getStatus() != invocation.getArgument(2)) {
+                return 0;
+            }
+            row.setStatus(invocation.getArgument(3));
+            return 1;
+        });
+    }
+
+    private InventoryLog log(String operation, int quantity) {
+        return InventoryLog.builder()
+                .skuId(100L)
+                .orderId("order-1")
+                .operation(operation)
+                .quantity(quantity)
+                .build();
+    }
+}
@@ -1,14 +1,18 @@
 package com.pingxin403.cuckoo.order.client;
 
 import com.pingxin403.cuckoo.common.feign.BaseFeignConfig;
+import com.pingxin403.cuckoo.common.loadbalancer.ConsistentHashLoadBalancer;
 import com.pingxin403.cuckoo.order.client.fallback.InventoryClientFallback;
+import com.pingxin403.cuckoo.order.dto.BatchInventoryRequest;
 import com.pingxin403.cuckoo.order.dto.ReserveInventoryRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 /**
  * 库存服务 Feign 客户端
+ * 负载均衡使用一致性哈希（InventoryLoadBalancerConfig），单 SKU 请求按路由键落到该 SKU 的归属实例
  */
 @FeignClient(
     name = "inventory-service",
@@ -17,9 +21,37 @@ import org.springframework.web.bind.annotation.RequestBody;
 )
 public interface InventoryClient {
 
+    /**
+     * 预占库存，以 skuId 作为路由键，同一 SKU 的预占落到其归属实例
+     */
+    default void reserveInventory(ReserveInventoryRequest request) {
+        reserveInventory(String.valueOf(request.getSkuId()), request);
+    }
+
     /**
      * 预占库存
+     *
+     * @param routingKey ConsistentHashLoadBalancer 的路由键（skuId）
      */
     @PostMapping("/api/inventory/reserve")
-    void reserveInventory(@RequestBody ReserveInventoryRequest request);
+    void reserveInventory(@RequestHeader(ConsistentHashLoadBalancer.ROUTING_KEY_HEADER) String routingKey,
+                          @RequestBody ReserveInventoryRequest request);
+
+    /**
+     * 批量预占库存（一次调用预占订单的全部 SKU，全部成功或全部失败）
+     */
+    @PostMapping("/api/inventory/reserve-batch")
+    void reserveInventoryBatch(@RequestBody BatchInventoryRequest request);
+
+    /**
+     * 批量扣减库存
+     */
+    @PostMapping("/api/inventory/deduct-batch")
+    void deductInventoryBatch(@RequestBody BatchInventoryRequest request);
+
+    /**
+     * 批量释放库存
+     */
+    @PostMapping("/api/inventory/release-batch")
+    void releaseInventoryBatch(@RequestBody BatchInventoryRequest request);
 }
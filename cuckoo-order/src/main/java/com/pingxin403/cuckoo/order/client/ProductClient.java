@@ -6,6 +6,10 @@ import com.pingxin403.cuckoo.order.dto.ProductDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 /**
  * 商品服务 Feign 客户端
@@ -22,4 +26,10 @@ public interface ProductClient {
      */
     @GetMapping("/api/products/{id}")
     ProductDTO getProduct(@PathVariable("id") Long id);
+
+    /**
+     * 批量查询商品信息（不存在的商品不在结果中）
+     */
+    @PostMapping("/api/products/batch")
+    List<ProductDTO> getProducts(@RequestBody List<Long> ids);
 }
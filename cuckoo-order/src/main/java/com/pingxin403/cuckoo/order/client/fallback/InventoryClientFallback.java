@@ -1,6 +1,7 @@
 package com.pingxin403.cuckoo.order.client.fallback;
 
 import com.pingxin403.cuckoo.order.client.InventoryClient;
+import com.pingxin403.cuckoo.order.dto.BatchInventoryRequest;
 import com.pingxin403.cuckoo.order.dto.ReserveInventoryRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -13,9 +14,30 @@ import org.springframework.stereotype.Component;
 public class InventoryClientFallback implements InventoryClient {
 
     @Override
-    public void reserveInventory(ReserveInventoryRequest request) {
+    public void reserveInventory(String routingKey, ReserveInventoryRequest request) {
         log.error("库存服务调用失败，触发降级逻辑: skuId={}, quantity={}, orderId={}",
                 request.getSkuId(), request.getQuantity(), request.getOrderId());
         throw new RuntimeException("服务暂时不可用，请稍后重试");
     }
+
+    @Override
+    public void reserveInventoryBatch(BatchInventoryRequest request) {
+        log.error("库存服务调用失败，触发降级逻辑: operation=reserve-batch, orderId={}, items={}",
+                request.getOrderId(), request.getItems());
+        throw new RuntimeException("服务暂时不可用，请稍后重试");
+    }
+
+    @Override
+    public void deductInventoryBatch(BatchInventoryRequest request) {
+        log.error("库存服务调用失败，触发降级逻辑: operation=deduct-batch, orderId={}, items={}",
+                request.getOrderId(), request.getItems());
+        throw new RuntimeException("服务暂时不可用，请稍后重试");
+    }
+
+    @Override
+    public void releaseInventoryBatch(BatchInventoryRequest request) {
+        log.error("库存服务调用失败，触发降级逻辑: operation=release-batch, orderId={}, items={}",
+                request.getOrderId(), request.getItems());
+        throw new RuntimeException("服务暂时不可用，请稍后重试");
+    }
 }
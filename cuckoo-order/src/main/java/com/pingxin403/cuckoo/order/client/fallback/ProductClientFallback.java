@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * ProductClient 降级处理
@@ -28,4 +29,12 @@ public class ProductClientFallback implements ProductClient {
         
         return fallbackProduct;
     }
+
+    @Override
+    public List<ProductDTO> getProducts(List<Long> ids) {
+        log.warn("商品服务批量查询失败，执行降级逻辑，商品数量: {}", ids.size());
+        
+        // 无法确认商品信息，返回空列表
+        return List.of();
+    }
 }
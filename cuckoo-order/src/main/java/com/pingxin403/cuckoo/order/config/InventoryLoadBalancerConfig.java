@@ -0,0 +1,15 @@
+package com.pingxin403.cuckoo.order.config;
+
+import com.pingxin403.cuckoo.common.loadbalancer.ConsistentHashLoadBalancerConfiguration;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 库存服务负载均衡配置
+ * inventory-service 使用一致性哈希：同一 SKU 的库存变更路由到该 SKU 的归属实例（单写者），
+ * 与库存服务的 SkuOwnership 基于同一 Nacos 实例列表计算归属
+ */
+@Configuration
+@LoadBalancerClient(name = "inventory-service", configuration = ConsistentHashLoadBalancerConfiguration.class)
+public class InventoryLoadBalancerConfig {
+}
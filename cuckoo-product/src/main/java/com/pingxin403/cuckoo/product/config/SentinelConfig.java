@@ -28,6 +28,22 @@ public class SentinelConfig {
         getProductRule.setCount(50);
         rules.add(getProductRule);
 
+        // 商品批量查询接口限流规则：单次请求最多 1000 个 ID，QPS 20
+        for (String resource : List.of("GET:/api/products/batch", "POST:/api/products/batch")) {
+            FlowRule batchRule = new FlowRule();
+            batchRule.setResource(resource);
+            batchRule.setGrade(RuleConstant.FLOW_GRADE_QPS);
+            batchRule.setCount(20);
+            rules.add(batchRule);
+        }
+
+        // 商品搜索接口限流规则：QPS 100
+        FlowRule searchRule = new FlowRule();
+        searchRule.setResource("GET:/api/products/search");
+        searchRule.setGrade(RuleConstant.FLOW_GRADE_QPS);
+        searchRule.setCount(100);
+        rules.add(searchRule);
+
         // 加载限流规则
         FlowRuleManager.loadRules(rules);
         log.info("Sentinel flow rules initialized for Product Service: {} rules loaded", rules.size());
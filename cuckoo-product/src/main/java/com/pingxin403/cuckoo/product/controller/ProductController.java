@@ -1,15 +1,23 @@
 package com.pingxin403.cuckoo.product.controller;
 
 import com.alibaba.csp.sentinel.annotation.SentinelResource;
+import com.pingxin403.cuckoo.common.cache.EncodedResponseCache;
 import com.pingxin403.cuckoo.common.controller.BaseController;
 import com.pingxin403.cuckoo.product.dto.CreateProductRequest;
 import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductPageDTO;
+import com.pingxin403.cuckoo.product.dto.ProductSearchResultDTO;
 import com.pingxin403.cuckoo.product.dto.UpdateProductRequest;
 import com.pingxin403.cuckoo.product.service.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
@@ -22,6 +30,7 @@ import java.util.List;
 public class ProductController extends BaseController {
 
     private final ProductService productService;
+    private final EncodedResponseCache encodedResponses;
 
     /**
      * 创建商品
@@ -38,28 +47,87 @@ public class ProductController extends BaseController {
     /**
      * 根据 ID 查询商品
      * GET /api/products/{id}
+     * 缓存命中时直接写出预编码的 JSON（或 gzip）字节，支持 ETag 条件请求
      */
     @GetMapping("/{id}")
     @SentinelResource(value = "GET:/api/products/{id}")
-    public ResponseEntity<ProductDTO> getProductById(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getProductById(@PathVariable Long id, HttpServletRequest request) {
         logRequest("查询商品", id);
-        ProductDTO product = productService.getProductById(id);
-        logResponse("查询商品", product.getId());
-        return ok(product);
+        ResponseEntity<byte[]> response = encodedResponses.respond(ProductService.cacheKey(id),
+                () -> productService.getProductById(id), request);
+        logResponse("查询商品", id);
+        return response;
     }
 
     /**
-     * 查询所有商品列表
-     * GET /api/products
+     * 根据 ID 批量查询商品（不存在的 ID 不出现在结果中）
+     * GET /api/products/batch?ids=1,2,3
      */
-    @GetMapping
-    public ResponseEntity<List<ProductDTO>> getAllProducts() {
-        logRequest("查询所有商品");
-        List<ProductDTO> products = productService.getAllProducts();
-        logResponse("查询所有商品", products.size() + " 个商品");
+    @GetMapping("/batch")
+    @SentinelResource(value = "GET:/api/products/batch")
+    public ResponseEntity<List<ProductDTO>> getProductsByIds(@RequestParam List<Long> ids) {
+        logRequest("批量查询商品", ids.size() + " 个 ID");
+        List<ProductDTO> products = productService.getProductsByIds(ids);
+        logResponse("批量查询商品", products.size() + " 个商品");
+        return ok(products);
+    }
+
+    /**
+     * 根据 ID 批量查询商品（ID 较多、超出 URL 长度时使用）
+     * POST /api/products/batch
+     */
+    @PostMapping("/batch")
+    @SentinelResource(value = "POST:/api/products/batch")
+    public ResponseEntity<List<ProductDTO>> getProductsByIdsInBody(@RequestBody List<Long> ids) {
+        logRequest("批量查询商品", ids.size() + " 个 ID");
+        List<ProductDTO> products = productService.getProductsByIds(ids);
+        logResponse("批量查询商品", products.size() + " 个商品");
         return ok(products);
     }
 
+    /**
+     * 游标分页查询商品列表
+     * GET /api/products?limit=20&pageToken=...
+     */
+    @GetMapping
+    public ResponseEntity<ProductPageDTO> listProducts(@RequestParam(required = false) String pageToken,
+                                                       @RequestParam(required = false) Integer limit) {
+        logRequest("分页查询商品", pageToken, limit);
+        ProductPageDTO page = productService.listProducts(pageToken, limit);
+        logResponse("分页查询商品", page.getItems().size() + " 个商品");
+        return ok(page);
+    }
+
+    /**
+     * 搜索商品（关键词 + 价格区间）
+     * GET /api/products/search?q=手机&minPrice=1000&maxPrice=3000&limit=20
+     */
+    @GetMapping("/search")
+    @SentinelResource(value = "GET:/api/products/search")
+    public ResponseEntity<ProductSearchResultDTO> searchProducts(@RequestParam(required = false) String q,
+                                                                 @RequestParam(required = false) BigDecimal minPrice,
+                                                                 @RequestParam(required = false) BigDecimal maxPrice,
+                                                                 @RequestParam(required = false) Integer limit) {
+        logRequest("搜索商品", q, minPrice, maxPrice);
+        ProductSearchResultDTO result = productService.searchProducts(q, minPrice, maxPrice, limit);
+        logResponse("搜索商品", result.getTotal() + " 个匹配");
+        return ok(result);
+    }
+
+    /**
+     * 流式导出全部商品（NDJSON，每行一个商品）
+     * GET /api/products/export
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        logRequest("导出商品");
+        StreamingResponseBody body = productService::exportProducts;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products.ndjson\"")
+                .body(body);
+    }
+
     /**
      * 更新商品
      * PUT /api/products/{id}
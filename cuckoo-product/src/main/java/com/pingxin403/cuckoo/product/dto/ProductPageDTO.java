@@ -0,0 +1,25 @@
+package com.pingxin403.cuckoo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 商品分页结果（游标分页）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPageDTO {
+
+    private List<ProductDTO> items;
+
+    /**
+     * 下一页的分页令牌，已是最后一页时为 null
+     */
+    private String nextPageToken;
+}
@@ -0,0 +1,28 @@
+package com.pingxin403.cuckoo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 商品搜索结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+
+    /**
+     * 按相关度排序的前 limit 个商品（仅价格过滤时按价格升序）
+     */
+    private List<ProductDTO> items;
+
+    /**
+     * 匹配的商品总数
+     */
+    private int total;
+}
@@ -0,0 +1,17 @@
+package com.pingxin403.cuckoo.product.repository;
+
+import com.pingxin403.cuckoo.product.dto.ProductDTO;
+
+import java.util.function.Consumer;
+
+/**
+ * 商品全量导出（JDBC 只进游标逐行读取，绕过 JPA 持久化上下文）
+ */
+public interface ProductExportRepository {
+
+    /**
+     * 按 ID 升序逐行回调全部商品，内存占用与商品总数无关
+     * 数据库连接在整个遍历期间保持占用，回调内不应执行耗时操作以外的阻塞调用
+     */
+    void forEachProduct(Consumer<ProductDTO> action);
+}
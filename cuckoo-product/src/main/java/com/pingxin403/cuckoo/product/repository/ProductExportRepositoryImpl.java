@@ -0,0 +1,48 @@
+package com.pingxin403.cuckoo.product.repository;
+
+import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * ProductExportRepository 实现（Spring Data 按 Impl 后缀自动装配到 ProductRepository）
+ * MySQL Connector/J 默认把整个结果集读入内存，数据源 URL 需开启 useCursorFetch=true，
+ * 此时正的 fetchSize 才会按批从服务端游标拉取
+ */
+@RequiredArgsConstructor
+public class ProductExportRepositoryImpl implements ProductExportRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT id, name, price, description, created_at, updated_at FROM products ORDER BY id";
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void forEachProduct(Consumer<ProductDTO> action) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    SELECT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, (RowCallbackHandler) rs -> action.accept(ProductDTO.builder()
+                .id(rs.getLong("id"))
+                .name(rs.getString("name"))
+                .price(rs.getBigDecimal("price"))
+                .description(rs.getString("description"))
+                .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                .updatedAt(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .build()));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
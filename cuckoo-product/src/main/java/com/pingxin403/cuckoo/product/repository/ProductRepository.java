@@ -1,12 +1,34 @@
 package com.pingxin403.cuckoo.product.repository;
 
 import com.pingxin403.cuckoo.product.entity.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * 商品数据访问层
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductExportRepository {
+
+    /**
+     * 按 ID 游标分页查询商品 ID（ID 大于 afterId，按 ID 升序）
+     */
+    @Query("SELECT p.id FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Long> findIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 按 ID 游标分页查询商品（ID 大于 afterId，按 ID 升序），走主键索引范围扫描，与页码深度无关
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /**
+     * 查询指定时间之后修改过的商品（搜索索引增量同步）
+     */
+    List<Product> findByUpdatedAtGreaterThanEqual(LocalDateTime since);
 }
@@ -0,0 +1,247 @@
+package com.pingxin403.cuckoo.product.search;
+
+import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductSearchResultDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 商品内存搜索索引
+ * - 倒排索引：词 -> (商品 ID -> 加权词频)，名称中的词权重为描述的 3 倍
+ * - 价格索引：按价格排序，用于价格区间过滤
+ * 商品需命中至少 60% 的查询词，按 BM25 风格打分（词频饱和 + IDF），用大小为 K 的最小堆取前 K 个
+ * 读写锁保护：查询并发执行，单个商品的增量更新短暂独占；全量重建在锁外构建新索引后整体替换
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final double TF_SATURATION = 1.2;
+    // 查询词至少命中的比例：中文 bigram 会产生跨词边界的无意义组合（如“小米手机”中的“米手”），不能要求全部命中
+    private static final double MIN_MATCH_RATIO = 0.6;
+
+    // 堆顶为当前前 K 个中最差的结果：分数低者更差，同分时 ID 大者更差
+    private static final Comparator<Hit> HIT_ORDER = Comparator.comparingDouble(Hit::score)
+            .thenComparing(hit -> hit.product().getId(), Comparator.reverseOrder());
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+
+    /**
+     * 新增或更新单个商品（先移除旧版本的词与价格）
+     */
+    public void index(ProductDTO product) {
+        lock.writeLock().lock();
+        try {
+            state.put(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全量重建：从数据源逐个读取商品构建新索引，完成后整体替换，构建期间查询使用旧索引
+     *
+     * @param source 按顺序把全部商品交给回调
+     * @return 索引的商品数量
+     */
+    public int rebuild(Consumer<Consumer<ProductDTO>> source) {
+        State rebuilt = new State();
+        source.accept(rebuilt::put);
+        lock.writeLock().lock();
+        try {
+            state = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Product search index rebuilt: products={}, terms={}", rebuilt.documents.size(), rebuilt.postings.size());
+        return rebuilt.documents.size();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索商品
+     *
+     * @param query    关键词，为空时只按价格区间过滤（按价格升序）
+     * @param minPrice 最低价格（含），可为 null
+     * @param maxPrice 最高价格（含），可为 null
+     * @param limit    返回数量
+     */
+    public ProductSearchResultDTO search(String query, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(ProductTokenizer.queryTokens(query)));
+        if (terms.isEmpty() && query != null && !query.isBlank()) {
+            // 关键词只包含分隔符
+            return new ProductSearchResultDTO(List.of(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            return terms.isEmpty()
+                    ? state.searchByPrice(minPrice, maxPrice, limit)
+                    : state.searchByTerms(terms, minPrice, maxPrice, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Document(ProductDTO product, Set<String> terms) {
+    }
+
+    private record Hit(ProductDTO product, double score) {
+    }
+
+    /**
+     * 一份完整的索引数据，仅在持有写锁（或尚未发布）时修改
+     */
+    private static final class State {
+
+        private final Map<Long, Document> documents = new HashMap<>();
+        private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+        private final NavigableMap<BigDecimal, Set<Long>> priceIndex = new TreeMap<>();
+
+        void put(ProductDTO product) {
+            remove(product.getId());
+            Map<String, Integer> frequencies = new HashMap<>();
+            ProductTokenizer.indexTokens(product.getName()).forEach(term -> frequencies.merge(term, NAME_WEIGHT, Integer::sum));
+            ProductTokenizer.indexTokens(product.getDescription()).forEach(term -> frequencies.merge(term, 1, Integer::sum));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(product.getId(), frequency));
+            if (product.getPrice() != null) {
+                priceIndex.computeIfAbsent(product.getPrice(), key -> new HashSet<>()).add(product.getId());
+            }
+            documents.put(product.getId(), new Document(product, frequencies.keySet()));
+        }
+
+        private void remove(Long id) {
+            Document previous = documents.remove(id);
+            if (previous == null) {
+                return;
+            }
+            for (String term : previous.terms()) {
+                Map<Long, Integer> posting = postings.get(term);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+            BigDecimal price = previous.product().getPrice();
+            if (price != null) {
+                Set<Long> ids = priceIndex.get(price);
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    priceIndex.remove(price);
+                }
+            }
+        }
+
+        ProductSearchResultDTO searchByTerms(List<String> terms, BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+            List<Map<Long, Integer>> termPostings = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                termPostings.add(postings.getOrDefault(term, Map.of()));
+            }
+            int minMatch = (int) Math.ceil(terms.size() * MIN_MATCH_RATIO);
+            // 至少命中 minMatch 个词的商品必然出现在最短的 (n - minMatch + 1) 个倒排表之一中
+            termPostings.sort(Comparator.comparingInt(Map::size));
+            Set<Long> candidates = new HashSet<>();
+            for (Map<Long, Integer> posting : termPostings.subList(0, terms.size() - minMatch + 1)) {
+                candidates.addAll(posting.keySet());
+            }
+            double[] idf = termPostings.stream()
+                    .mapToDouble(posting -> Math.log(1 + (documents.size() - posting.size() + 0.5) / (posting.size() + 0.5)))
+                    .toArray();
+
+            PriorityQueue<Hit> topK = new PriorityQueue<>(HIT_ORDER);
+            int total = 0;
+            for (Long id : candidates) {
+                double score = 0;
+                int matched = 0;
+                for (int i = 0; i < termPostings.size(); i++) {
+                    Integer frequency = termPostings.get(i).get(id);
+                    if (frequency != null) {
+                        score += idf[i] * frequency / (frequency + TF_SATURATION);
+                        matched++;
+                    }
+                }
+                ProductDTO product = documents.get(id).product();
+                if (matched < minMatch || !inRange(product.getPrice(), minPrice, maxPrice)) {
+                    continue;
+                }
+                total++;
+                offer(topK, new Hit(product, score), limit);
+            }
+            return toResult(topK, total);
+        }
+
+        ProductSearchResultDTO searchByPrice(BigDecimal minPrice, BigDecimal maxPrice, int limit) {
+            NavigableMap<BigDecimal, Set<Long>> range = priceIndex;
+            if (minPrice != null && maxPrice != null) {
+                if (minPrice.compareTo(maxPrice) > 0) {
+                    return new ProductSearchResultDTO(List.of(), 0);
+                }
+                range = priceIndex.subMap(minPrice, true, maxPrice, true);
+            } else if (minPrice != null) {
+                range = priceIndex.tailMap(minPrice, true);
+            } else if (maxPrice != null) {
+                range = priceIndex.headMap(maxPrice, true);
+            }
+            List<ProductDTO> items = new ArrayList<>(limit);
+            int total = 0;
+            for (Set<Long> ids : range.values()) {
+                total += ids.size();
+                for (Long id : ids.stream().sorted().toList()) {
+                    if (items.size() < limit) {
+                        items.add(documents.get(id).product());
+                    }
+                }
+            }
+            return new ProductSearchResultDTO(items, total);
+        }
+    }
+
+    private static void offer(PriorityQueue<Hit> topK, Hit hit, int limit) {
+        if (topK.size() < limit) {
+            topK.offer(hit);
+        } else if (limit > 0 && HIT_ORDER.compare(hit, topK.peek()) > 0) {
+            topK.poll();
+            topK.offer(hit);
+        }
+    }
+
+    private static ProductSearchResultDTO toResult(PriorityQueue<Hit> topK, int total) {
+        List<Hit> hits = new ArrayList<>(topK);
+        hits.sort(HIT_ORDER.reversed());
+        return new ProductSearchResultDTO(hits.stream().map(Hit::product).toList(), total);
+    }
+
+    private static boolean inRange(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice) {
+        if (minPrice == null && maxPrice == null) {
+            return true;
+        }
+        return price != null
+                && (minPrice == null || price.compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.compareTo(maxPrice) <= 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.pingxin403.cuckoo.product.search;
+
+import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.mapper.ProductMapper;
+import com.pingxin403.cuckoo.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 商品搜索索引的加载与同步
+ * - 启动预热时全量加载（只进游标逐行读取）
+ * - 本实例的创建/更新由 ProductService 直接写入索引
+ * - 其他实例的修改按 updated_at 定时增量同步；查询窗口向前多取一段，覆盖实例间时钟偏差与未提交事务
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndexer {
+
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ProductSearchIndex searchIndex;
+
+    // 已同步到的时间点，全量加载完成前为 null
+    private volatile LocalDateTime syncedUpTo;
+
+    /**
+     * 全量加载索引
+     */
+    public int rebuild() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        int indexed = searchIndex.rebuild(productRepository::forEachProduct);
+        syncedUpTo = startedAt;
+        return indexed;
+    }
+
+    /**
+     * 增量同步其他实例修改过的商品
+     */
+    @Scheduled(fixedDelayString = "${product.search.sync-interval-ms:5000}")
+    public void syncChanges() {
+        LocalDateTime since = syncedUpTo;
+        if (since == null) {
+            return;
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+        try {
+            List<ProductDTO> changed = productMapper.toDTOList(
+                    productRepository.findByUpdatedAtGreaterThanEqual(since.minus(SYNC_OVERLAP)));
+            changed.forEach(searchIndex::index);
+            syncedUpTo = startedAt;
+            log.debug("Product search index synced: changed={}", changed.size());
+        } catch (Exception e) {
+            log.warn("商品搜索索引增量同步失败，下次重试: {}", e.getMessage());
+        }
+    }
+}
@@ -1,24 +1,45 @@
 package com.pingxin403.cuckoo.product.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.pingxin403.cuckoo.common.cache.BloomFilterService;
 import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManager;
+import com.pingxin403.cuckoo.common.exception.BusinessException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
 import com.pingxin403.cuckoo.product.dto.CreateProductRequest;
 import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductPageDTO;
+import com.pingxin403.cuckoo.product.dto.ProductSearchResultDTO;
 import com.pingxin403.cuckoo.product.entity.Product;
 import com.pingxin403.cuckoo.product.mapper.ProductMapper;
 import com.pingxin403.cuckoo.product.repository.ProductRepository;
+import com.pingxin403.cuckoo.product.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 商品服务
@@ -34,16 +55,28 @@ public class ProductService {
     private final ProductRepository productRepository;
     private final MultiLevelCacheManager cacheManager;
     private final BloomFilterService bloomFilterService;
-    private final RedissonClient redissonClient;
     private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex searchIndex;
 
     private static final String CACHE_KEY_PREFIX = "product:";
-    private static final String LOCK_KEY_PREFIX = "lock:product:";
     private static final long CACHE_TTL_MINUTES = 60;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String PAGE_TOKEN_VERSION = "v1:";
+    private static final int MAX_SEARCH_SIZE = 100;
+
+    /**
+     * 商品在多级缓存中的键，缓存预编码响应时使用同一个键，随商品缓存一起失效
+     */
+    public static String cacheKey(Long id) {
+        return CACHE_KEY_PREFIX + id;
+    }
 
     /**
      * 创建商品
-     * 创建成功后将商品 ID 添加到布隆过滤器
+     * 事务提交后将商品 ID 添加到布隆过滤器并写入搜索索引（回滚时不留下不存在的商品）
      */
     @Transactional
     public ProductDTO createProduct(CreateProductRequest request) {
@@ -56,10 +89,14 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         log.info("Product created successfully: name={}, id={}", savedProduct.getName(), savedProduct.getId());
 
-        // 将商品 ID 添加到布隆过滤器
-        bloomFilterService.add(String.valueOf(savedProduct.getId()));
-        
-        return productMapper.toDTO(savedProduct);
+        ProductDTO productDTO = productMapper.toDTO(savedProduct);
+        afterCommit(() -> {
+            // 将商品 ID 添加到布隆过滤器
+            bloomFilterService.add(String.valueOf(savedProduct.getId()));
+            // 写入本实例的搜索索引（其他实例由定时增量同步）
+            searchIndex.index(productDTO);
+        });
+        return productDTO;
     }
 
     /**
@@ -67,75 +104,167 @@ public class ProductService {
      * 实现多级缓存策略 + 缓存穿透/雪崩/击穿防护：
      * 1. 布隆过滤器检查（防止缓存穿透）
      * 2. 查询多级缓存（本地缓存 -> Redis）
-     * 3. 分布式锁防止缓存击穿
+     * 3. 未命中时由 getOrLoad 合并并发回源（进程内共享加载结果，跨实例租约选出一个加载者）防止缓存击穿
      * 4. 随机 TTL 防止缓存雪崩
+     * 不开启外层事务：等待其他加载者期间不占用数据库连接，回源查询由仓库方法自身的短事务完成
      */
-    @Transactional(readOnly = true)
     public ProductDTO getProductById(Long id) {
-        String cacheKey = CACHE_KEY_PREFIX + id;
-        
         // 1. 布隆过滤器检查，防止缓存穿透
         if (!bloomFilterService.mightContain(String.valueOf(id))) {
             log.warn("Product not found in bloom filter: id={}", id);
             throw new ResourceNotFoundException("Product", id);
         }
         
-        // 2. 查询多级缓存
-        ProductDTO cachedProduct = cacheManager.get(cacheKey, ProductDTO.class);
-        if (cachedProduct != null) {
-            log.debug("Cache hit for product: id={}", id);
-            return cachedProduct;
+        // 2. 查询多级缓存，未命中时回源，使用随机 TTL 防止缓存雪崩
+        Duration ttl = Duration.ofMinutes(CACHE_TTL_MINUTES + ThreadLocalRandom.current().nextInt(10));
+        return cacheManager.getOrLoad(cacheKey(id), ProductDTO.class, ttl, () -> {
+            log.debug("Cache miss for product: id={}, querying database", id);
+            Product product = productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Product", id));
+            return productMapper.toDTO(product);
+        });
+    }
+
+    /**
+     * 根据 ID 批量查询商品
+     * 1. 布隆过滤器剔除一定不存在的 ID
+     * 2. 多级缓存批量查询（本地缓存命中直接返回，其余一次 MGET）
+     * 3. 未命中的 ID 以一次 IN 查询回源，结果以流水线批量回填两级缓存（各自随机 TTL）
+     * 不存在的 ID 不出现在结果中，结果按请求中的 ID 顺序排列（去重）
+     */
+    public List<ProductDTO> getProductsByIds(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        if (distinctIds.size() > MAX_BATCH_SIZE) {
+            throw new BusinessException("批量查询商品数量不能超过 " + MAX_BATCH_SIZE);
+        }
+        
+        // 1. 布隆过滤器检查，防止缓存穿透
+        List<String> keys = distinctIds.stream()
+                .filter(id -> bloomFilterService.mightContain(String.valueOf(id)))
+                .map(ProductService::cacheKey)
+                .toList();
+        if (keys.isEmpty()) {
+            return List.of();
         }
         
-        // 3. 缓存未命中，使用分布式锁防止缓存击穿
-        String lockKey = LOCK_KEY_PREFIX + id;
-        RLock lock = redissonClient.getLock(lockKey);
+        // 2. 批量查询多级缓存
+        Map<String, ProductDTO> cached = cacheManager.getAll(keys, ProductDTO.class);
+        List<Long> missedIds = keys.stream()
+                .filter(key -> !cached.containsKey(key))
+                .map(key -> Long.valueOf(key.substring(CACHE_KEY_PREFIX.length())))
+                .toList();
         
-        try {
-            // 尝试获取锁，最多等待 3 秒，锁持有时间最多 10 秒
-            if (lock.tryLock(3, 10, TimeUnit.SECONDS)) {
-                try {
-                    // 双重检查：获取锁后再次查询缓存
-                    cachedProduct = cacheManager.get(cacheKey, ProductDTO.class);
-                    if (cachedProduct != null) {
-                        log.debug("Cache hit after lock acquisition: id={}", id);
-                        return cachedProduct;
-                    }
-                    
-                    // 查询数据库
-                    log.debug("Cache miss for product: id={}, querying database", id);
-                    Product product = productRepository.findById(id)
-                            .orElseThrow(() -> new ResourceNotFoundException("Product", id));
-                    
-                    ProductDTO productDTO = productMapper.toDTO(product);
-                    
-                    // 写入缓存，使用随机 TTL 防止缓存雪崩
-                    Duration ttl = Duration.ofMinutes(CACHE_TTL_MINUTES + ThreadLocalRandom.current().nextInt(10));
-                    cacheManager.put(cacheKey, productDTO, ttl);
-                    log.debug("Product cached: id={}, ttl={}", id, ttl);
-                    
-                    return productDTO;
-                } finally {
-                    lock.unlock();
-                }
-            } else {
-                // 获取锁失败，等待后重试
-                log.warn("Failed to acquire lock for product: id={}, retrying...", id);
-                Thread.sleep(100);
-                return getProductById(id);
+        // 3. 未命中的 ID 一次回源并批量回填缓存，使用随机 TTL 防止缓存雪崩
+        Map<String, ProductDTO> loaded = Map.of();
+        if (!missedIds.isEmpty()) {
+            log.debug("Batch cache miss for products: ids={}, querying database", missedIds);
+            loaded = productMapper.toDTOList(productRepository.findAllById(missedIds)).stream()
+                    .collect(Collectors.toMap(product -> cacheKey(product.getId()), Function.identity()));
+            if (!loaded.isEmpty()) {
+                cacheManager.putAll(loaded, key ->
+                        Duration.ofMinutes(CACHE_TTL_MINUTES + ThreadLocalRandom.current().nextInt(10)));
+            }
+        }
+        
+        List<ProductDTO> products = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            ProductDTO product = cached.containsKey(key) ? cached.get(key) : loaded.get(key);
+            if (product != null) {
+                products.add(product);
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Interrupted while acquiring lock", e);
         }
+        log.debug("Batch product lookup: requested={}, cacheHits={}, loaded={}",
+                distinctIds.size(), cached.size(), loaded.size());
+        return products;
     }
 
     /**
-     * 查询所有商品列表
+     * 游标分页查询商品列表（按 ID 升序）
+     * 以上一页最后一个 ID 作为游标，多查一条判断是否还有下一页；分页令牌对调用方不透明
+     *
+     * @param pageToken 上一页返回的分页令牌，首页传 null
+     * @param limit     每页数量，默认 20，最大 100
      */
     @Transactional(readOnly = true)
-    public List<ProductDTO> getAllProducts() {
-        return productMapper.toDTOList(productRepository.findAll());
+    public ProductPageDTO listProducts(String pageToken, Integer limit) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        long afterId = pageToken == null || pageToken.isEmpty() ? 0 : decodePageToken(pageToken);
+        
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(pageSize + 1));
+        boolean hasNext = products.size() > pageSize;
+        List<Product> page = hasNext ? products.subList(0, pageSize) : products;
+        return ProductPageDTO.builder()
+                .items(productMapper.toDTOList(page))
+                .nextPageToken(hasNext ? encodePageToken(page.get(page.size() - 1).getId()) : null)
+                .build();
+    }
+
+    /**
+     * 搜索商品（内存索引，不访问数据库）
+     * 关键词匹配名称与描述（中文按相邻两字切分），可按价格区间过滤，按相关度返回前 limit 个
+     *
+     * @param query    关键词，可为空（此时必须给出价格区间）
+     * @param minPrice 最低价格（含）
+     * @param maxPrice 最高价格（含）
+     * @param limit    返回数量，默认 20，最大 100
+     */
+    public ProductSearchResultDTO searchProducts(String query, BigDecimal minPrice, BigDecimal maxPrice, Integer limit) {
+        if ((query == null || query.isBlank()) && minPrice == null && maxPrice == null) {
+            throw new BusinessException("搜索关键词和价格区间不能同时为空");
+        }
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(limit, 1), MAX_SEARCH_SIZE);
+        return searchIndex.search(query, minPrice, maxPrice, size);
+    }
+
+    /**
+     * 以 NDJSON（每行一个商品 JSON）导出全部商品
+     * 通过只进游标逐行读取并直接写出，内存占用与商品总数无关
+     *
+     * @return 导出的商品数量
+     */
+    public long exportProducts(OutputStream out) throws IOException {
+        long[] count = {0};
+        // 关闭生成器时写出缓冲区，但不关闭响应流（由容器负责）；逐行写出时不刷新响应流，避免每个商品一次网络写
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+             SequenceWriter writer = objectMapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(generator)) {
+            productRepository.forEachProduct(product -> {
+                try {
+                    writer.write(product);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            if (count[0] > 0) {
+                generator.writeRaw('\n');
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+        log.info("Products exported: count={}", count[0]);
+        return count[0];
+    }
+
+    private static String encodePageToken(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PAGE_TOKEN_VERSION + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decodePageToken(String pageToken) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            if (decoded.startsWith(PAGE_TOKEN_VERSION)) {
+                return Long.parseLong(decoded.substring(PAGE_TOKEN_VERSION.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // 非法 Base64 或数字，统一按无效令牌处理
+        }
+        throw new BusinessException("无效的分页令牌: " + pageToken);
     }
 
     /**
@@ -166,10 +295,28 @@ public class ProductService {
         log.info("Product updated successfully: id={}", id);
         
         // 2. 再删除缓存（同时删除本地缓存和 Redis，并通知其他实例）
-        String cacheKey = CACHE_KEY_PREFIX + id;
-        cacheManager.evict(cacheKey);
+        cacheManager.evict(cacheKey(id));
         log.debug("Product cache evicted: id={}", id);
         
-        return productMapper.toDTO(updatedProduct);
+        // 3. 事务提交后更新本实例的搜索索引
+        ProductDTO productDTO = productMapper.toDTO(updatedProduct);
+        afterCommit(() -> searchIndex.index(productDTO));
+        return productDTO;
+    }
+
+    /**
+     * 在当前事务提交后执行，没有事务时立即执行
+     */
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 }
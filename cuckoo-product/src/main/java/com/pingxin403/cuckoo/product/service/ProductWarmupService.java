@@ -3,17 +3,15 @@ package com.pingxin403.cuckoo.product.service;
 import com.pingxin403.cuckoo.common.cache.BloomFilterService;
 import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManager;
 import com.pingxin403.cuckoo.common.health.WarmupService;
-import com.pingxin403.cuckoo.product.dto.ProductDTO;
-import com.pingxin403.cuckoo.product.entity.Product;
 import com.pingxin403.cuckoo.product.repository.ProductRepository;
+import com.pingxin403.cuckoo.product.search.ProductSearchIndexer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 商品服务预热逻辑
@@ -32,6 +30,14 @@ public class ProductWarmupService implements WarmupService {
     @Autowired(required = false)
     private BloomFilterService bloomFilterService;
     
+    @Autowired
+    private ProductSearchIndexer searchIndexer;
+    
+    /**
+     * 预热时布隆过滤器初始化失败，由定时任务重试（未初始化期间过滤器放行全部查询）
+     */
+    private volatile boolean bloomFilterPending;
+    
     @Override
     public void performWarmup() throws Exception {
         log.info("Starting product service warmup...");
@@ -47,12 +53,15 @@ public class ProductWarmupService implements WarmupService {
                 initializeBloomFilter();
             }
             
-            // 3. 加载热点商品数据到缓存
+            // 3. 从上次下线时保存的本地快照恢复热点缓存
             if (cacheManager != null) {
-                loadHotProducts();
+                restoreHotCache();
             }
             
-            // 4. 触发 JVM 类加载和 JIT 编译
+            // 4. 全量加载商品搜索索引
+            buildSearchIndex();
+            
+            // 5. 触发 JVM 类加载和 JIT 编译
             triggerClassLoading();
             
             long duration = System.currentTimeMillis() - startTime;
@@ -78,66 +87,77 @@ public class ProductWarmupService implements WarmupService {
         }
     }
     
+    /**
+     * 重试预热时失败的布隆过滤器初始化
+     */
+    @Scheduled(initialDelayString = "${bloom.init-retry-interval-ms:30000}",
+            fixedDelayString = "${bloom.init-retry-interval-ms:30000}")
+    public void retryBloomFilterInitialization() {
+        if (bloomFilterPending && !bloomFilterService.isInitialized(BloomFilterService.PRODUCTS)) {
+            log.info("Retrying bloom filter initialization...");
+            initializeBloomFilter();
+        }
+    }
+    
     /**
      * 初始化布隆过滤器
-     * 将所有商品 ID 添加到布隆过滤器，防止缓存穿透
+     * 优先加载 Redis 中的快照（并重放增量日志）；没有可用快照时按 ID 游标分页读取全部商品 ID 重建，防止缓存穿透
+     * 失败时不阻止启动：过滤器未初始化前放行全部查询，并由 retryBloomFilterInitialization 定时重试
      */
     private void initializeBloomFilter() {
+        bloomFilterPending = true;
         try {
             log.info("Initializing bloom filter...");
             
-            // 清空旧的布隆过滤器
-            bloomFilterService.clear();
-            
-            // 分批加载所有商品 ID
-            int pageSize = 1000;
-            int pageNumber = 0;
-            int totalAdded = 0;
-            
-            while (true) {
-                List<Product> products = productRepository.findAll(PageRequest.of(pageNumber, pageSize)).getContent();
-                if (products.isEmpty()) {
-                    break;
-                }
-                
-                for (Product product : products) {
-                    bloomFilterService.add(String.valueOf(product.getId()));
-                    totalAdded++;
-                }
-                
-                pageNumber++;
+            if (bloomFilterService.load(BloomFilterService.PRODUCTS)) {
+                log.info("Bloom filter loaded from snapshot");
+                bloomFilterPending = false;
+                return;
             }
             
-            log.info("Bloom filter initialized with {} product IDs", totalAdded);
+            bloomFilterService.rebuild(BloomFilterService.PRODUCTS, sink -> {
+                int pageSize = 1000;
+                long afterId = 0;
+                while (true) {
+                    List<Long> ids = productRepository.findIdsAfter(afterId, PageRequest.of(0, pageSize));
+                    ids.forEach(id -> sink.accept(String.valueOf(id)));
+                    if (ids.size() < pageSize) {
+                        break;
+                    }
+                    afterId = ids.get(ids.size() - 1);
+                }
+            });
+            bloomFilterPending = false;
         } catch (Exception e) {
-            log.error("Failed to initialize bloom filter", e);
+            log.error("Failed to initialize bloom filter, lookups bypass the filter until a retry succeeds", e);
             // 不抛出异常，允许服务继续启动
         }
     }
     
     /**
-     * 加载热点商品数据到缓存
-     * 预加载热门商品，减少冷启动时的数据库压力
+     * 恢复热点缓存
+     * 快照记录的是实际的访问热度，恢复时逐条与 Redis 当前值比对版本，避免新实例以空的本地缓存接收流量
      */
-    private void loadHotProducts() {
+    private void restoreHotCache() {
         try {
-            // 加载前 100 个商品到缓存（假设按 ID 排序）
-            List<Product> hotProducts = productRepository.findAll(PageRequest.of(0, 100)).getContent();
-            
-            int loadedCount = 0;
-            for (Product product : hotProducts) {
-                String cacheKey = "product:" + product.getId();
-                ProductDTO productDTO = toDTO(product);
-                
-                // 使用随机 TTL 防止缓存雪崩
-                Duration ttl = Duration.ofMinutes(60 + ThreadLocalRandom.current().nextInt(10));
-                cacheManager.put(cacheKey, productDTO, ttl);
-                loadedCount++;
-            }
-            
-            log.info("Loaded {} hot products into multi-level cache", loadedCount);
+            int restored = cacheManager.restoreSnapshot();
+            log.info("Restored {} hot cache entries from local snapshot", restored);
         } catch (Exception e) {
-            log.error("Failed to load hot products", e);
+            log.error("Failed to restore hot cache entries", e);
+            // 不抛出异常，允许服务继续启动
+        }
+    }
+    
+    /**
+     * 全量加载商品搜索索引
+     * 搜索只查内存索引，未加载完成前接收流量会返回空结果
+     */
+    private void buildSearchIndex() {
+        try {
+            int indexed = searchIndexer.rebuild();
+            log.info("Product search index built: {} products", indexed);
+        } catch (Exception e) {
+            log.error("Failed to build product search index", e);
             // 不抛出异常，允许服务继续启动
         }
     }
@@ -156,18 +176,4 @@ public class ProductWarmupService implements WarmupService {
             log.debug("Class loading trigger completed (error ignored): {}", e.getMessage());
         }
     }
-    
-    /**
-     * 将 Product 实体转换为 ProductDTO
-     */
-    private ProductDTO toDTO(Product product) {
-        return ProductDTO.builder()
-                .id(product.getId())
-                .name(product.getName())
-                .price(product.getPrice())
-                .description(product.getDescription())
-                .createdAt(product.getCreatedAt())
-                .updatedAt(product.getUpdatedAt())
-                .build();
-    }
 }
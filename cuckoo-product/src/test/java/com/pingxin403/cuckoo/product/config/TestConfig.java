@@ -18,6 +18,7 @@ import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.mock;
@@ -80,6 +81,8 @@ public class TestConfig {
         MultiLevelCacheManager cacheManager = mock(MultiLevelCacheManager.class);
         // Mock cache to always return null (cache miss)
         when(cacheManager.get(anyString(), any())).thenReturn(null);
+        when(cacheManager.getOrLoad(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(3)).get());
         return cacheManager;
     }
 
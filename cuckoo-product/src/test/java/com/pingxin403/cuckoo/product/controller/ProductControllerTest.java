@@ -1,10 +1,15 @@
 package com.pingxin403.cuckoo.product.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingxin403.cuckoo.common.cache.EncodedResponseCache;
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManagerImpl;
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import com.pingxin403.cuckoo.common.exception.GlobalExceptionHandler;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
 import com.pingxin403.cuckoo.product.dto.CreateProductRequest;
 import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductPageDTO;
 import com.pingxin403.cuckoo.product.service.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,7 +17,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
@@ -24,6 +31,8 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -41,6 +50,11 @@ class ProductControllerTest {
     @Mock
     private ProductService productService;
 
+    @Spy
+    private EncodedResponseCache encodedResponseCache = new EncodedResponseCache(
+            new ObjectMapper().findAndRegisterModules(), new MultiLevelCacheProperties(), new SimpleMeterRegistry(),
+            new DefaultListableBeanFactory().getBeanProvider(MultiLevelCacheManagerImpl.class));
+
     @InjectMocks
     private ProductController productController;
 
@@ -117,11 +131,11 @@ class ProductControllerTest {
                 .andExpect(jsonPath("$.error").value("NOT_FOUND"));
     }
 
-    // ========== GetAllProducts Tests ==========
+    // ========== ListProducts Tests ==========
 
     @Test
-    @DisplayName("GET /api/products - should return 200 with product list")
-    void getAllProducts_success() throws Exception {
+    @DisplayName("GET /api/products - should return 200 with product page")
+    void listProducts_success() throws Exception {
         ProductDTO product1 = ProductDTO.builder()
                 .id(1L)
                 .name("Product 1")
@@ -139,24 +153,86 @@ class ProductControllerTest {
                 .updatedAt(LocalDateTime.now())
                 .build();
 
-        when(productService.getAllProducts()).thenReturn(List.of(product1, product2));
+        when(productService.listProducts("dG9rZW4", 2))
+                .thenReturn(new ProductPageDTO(List.of(product1, product2), "bmV4dA"));
 
-        mockMvc.perform(get("/api/products"))
+        mockMvc.perform(get("/api/products").param("pageToken", "dG9rZW4").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(2))
+                .andExpect(jsonPath("$.items[0].id").value(1))
+                .andExpect(jsonPath("$.items[0].name").value("Product 1"))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.items[1].name").value("Product 2"))
+                .andExpect(jsonPath("$.nextPageToken").value("bmV4dA"));
+    }
+
+    @Test
+    @DisplayName("GET /api/products/{id} - should return ETag and 304 when it matches")
+    void getProductById_etagConditionalRequest() throws Exception {
+        ProductDTO productDTO = ProductDTO.builder()
+                .id(1L)
+                .name("Test Product")
+                .price(new BigDecimal("99.99"))
+                .build();
+        when(productService.getProductById(1L)).thenReturn(productDTO);
+
+        String etag = mockMvc.perform(get("/api/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/products/1").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("GET /api/products/{id} - should serve cached encoding until the cache key changes")
+    void getProductById_cachedEncoding_reloadsAfterKeyChanged() throws Exception {
+        when(productService.getProductById(1L))
+                .thenReturn(ProductDTO.builder().id(1L).name("Old Name").build())
+                .thenReturn(ProductDTO.builder().id(1L).name("New Name").build());
+
+        mockMvc.perform(get("/api/products/1")).andExpect(jsonPath("$.name").value("Old Name"));
+        mockMvc.perform(get("/api/products/1")).andExpect(jsonPath("$.name").value("Old Name"));
+        encodedResponseCache.changed(List.of("product:1"));
+        mockMvc.perform(get("/api/products/1")).andExpect(jsonPath("$.name").value("New Name"));
+
+        verify(productService, times(2)).getProductById(1L);
+    }
+
+    @Test
+    @DisplayName("GET /api/products/batch - should return products for the given ids")
+    void getProductsByIds_success() throws Exception {
+        ProductDTO product = ProductDTO.builder()
+                .id(2L)
+                .name("Product 2")
+                .price(new BigDecimal("20.00"))
+                .build();
+
+        when(productService.getProductsByIds(List.of(2L, 3L))).thenReturn(List.of(product));
+
+        mockMvc.perform(get("/api/products/batch").param("ids", "2,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(2));
+
+        mockMvc.perform(post("/api/products/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[2,3]"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(2))
-                .andExpect(jsonPath("$[0].id").value(1))
-                .andExpect(jsonPath("$[0].name").value("Product 1"))
-                .andExpect(jsonPath("$[1].id").value(2))
-                .andExpect(jsonPath("$[1].name").value("Product 2"));
+                .andExpect(jsonPath("$[0].name").value("Product 2"));
     }
 
     @Test
-    @DisplayName("GET /api/products - should return 200 with empty list when no products")
-    void getAllProducts_empty() throws Exception {
-        when(productService.getAllProducts()).thenReturn(Collections.emptyList());
+    @DisplayName("GET /api/products - should return 200 with empty page when no products")
+    void listProducts_empty() throws Exception {
+        when(productService.listProducts(null, null)).thenReturn(new ProductPageDTO(Collections.emptyList(), null));
 
         mockMvc.perform(get("/api/products"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.length()").value(0));
+                .andExpect(jsonPath("$.items.length()").value(0))
+                .andExpect(jsonPath("$.nextPageToken").doesNotExist());
     }
 }
@@ -0,0 +1,90 @@
+package com.pingxin403.cuckoo.product.search;
+
+import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductSearchResultDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ProductSearchIndex 单元测试
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(sink -> List.of(
+                product(1L, "华为 Mate 60 Pro 手机", "麒麟芯片，卫星通话", "6999.00"),
+                product(2L, "小米 14 手机", "徕卡光学镜头", "3999.00"),
+                product(3L, "手机壳", "适用于小米 14 手机的硅胶保护壳", "29.90"),
+                product(4L, "Apple iPhone 15", "A16 chip, 48MP camera", "5999.00")
+        ).forEach(sink));
+    }
+
+    @Test
+    @DisplayName("search - CJK bigrams match, name matches rank above description matches")
+    void search_cjkBigrams_rankedByRelevance() {
+        ProductSearchResultDTO result = index.search("小米手机", null, null, 10);
+
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getItems()).extracting(ProductDTO::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    @DisplayName("search - single CJK character and latin words are case-insensitive")
+    void search_unigramAndLatinTerms() {
+        assertThat(index.search("壳", null, null, 10).getItems()).extracting(ProductDTO::getId).containsExactly(3L);
+        assertThat(index.search("IPHONE camera", null, null, 10).getItems()).extracting(ProductDTO::getId)
+                .containsExactly(4L);
+        assertThat(index.search("手机 iphone", null, null, 10).getTotal()).isZero();
+    }
+
+    @Test
+    @DisplayName("search - price range filters keyword matches and works without keywords")
+    void search_priceRange() {
+        assertThat(index.search("手机", new BigDecimal("1000"), new BigDecimal("5000"), 10).getItems())
+                .extracting(ProductDTO::getId).containsExactly(2L);
+
+        ProductSearchResultDTO byPrice = index.search(null, new BigDecimal("3999"), null, 2);
+        assertThat(byPrice.getTotal()).isEqualTo(3);
+        assertThat(byPrice.getItems()).extracting(ProductDTO::getId).containsExactly(2L, 4L);
+    }
+
+    @Test
+    @DisplayName("index - update replaces old terms and price")
+    void index_updateReplacesPreviousVersion() {
+        index.index(product(2L, "小米 14 Ultra", "徕卡光学镜头", "5999.00"));
+
+        assertThat(index.search("手机", null, null, 10).getItems()).extracting(ProductDTO::getId)
+                .containsExactlyInAnyOrder(1L, 3L);
+        assertThat(index.search("ultra", null, new BigDecimal("4000"), 10).getTotal()).isZero();
+        assertThat(index.search("ultra", null, new BigDecimal("6000"), 10).getTotal()).isEqualTo(1);
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("search - top-K keeps only the best matches")
+    void search_topK() {
+        ProductSearchResultDTO result = index.search("手机", null, null, 1);
+
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getItems()).hasSize(1);
+    }
+
+    private static ProductDTO product(Long id, String name, String description, String price) {
+        return ProductDTO.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .price(new BigDecimal(price))
+                .build();
+    }
+}
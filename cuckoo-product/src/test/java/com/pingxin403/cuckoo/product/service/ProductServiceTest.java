@@ -1,24 +1,40 @@
 package com.pingxin403.cuckoo.product.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pingxin403.cuckoo.common.exception.BusinessException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
 import com.pingxin403.cuckoo.product.dto.CreateProductRequest;
 import com.pingxin403.cuckoo.product.dto.ProductDTO;
+import com.pingxin403.cuckoo.product.dto.ProductPageDTO;
+import com.pingxin403.cuckoo.product.dto.ProductSearchResultDTO;
 import com.pingxin403.cuckoo.product.entity.Product;
 import com.pingxin403.cuckoo.product.repository.ProductRepository;
+import com.pingxin403.cuckoo.product.search.ProductSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -40,9 +56,6 @@ class ProductServiceTest {
     @Mock
     private com.pingxin403.cuckoo.common.cache.BloomFilterService bloomFilterService;
 
-    @Mock
-    private org.redisson.api.RedissonClient redissonClient;
-
     @Mock
     private org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate;
 
@@ -52,6 +65,12 @@ class ProductServiceTest {
     @Mock
     private com.pingxin403.cuckoo.product.mapper.ProductMapper productMapper;
 
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     @InjectMocks
     private ProductService productService;
 
@@ -86,6 +105,8 @@ class ProductServiceTest {
         
         // Mock MultiLevelCacheManager to return null (cache miss)
         when(multiLevelCacheManager.get(anyString(), any())).thenReturn(null);
+        when(multiLevelCacheManager.getOrLoad(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(3)).get());
         
         // Mock ProductMapper
         when(productMapper.toDTO(any(Product.class))).thenAnswer(invocation -> {
@@ -115,15 +136,6 @@ class ProductServiceTest {
                             .build())
                     .toList();
         });
-        
-        // Mock RedissonClient lock behavior
-        org.redisson.api.RLock lock = mock(org.redisson.api.RLock.class);
-        try {
-            when(lock.tryLock(anyLong(), anyLong(), any(TimeUnit.class))).thenReturn(true);
-        } catch (InterruptedException e) {
-            // Won't happen in mock
-        }
-        when(redissonClient.getLock(anyString())).thenReturn(lock);
     }
 
     // ========== CreateProduct Tests ==========
@@ -145,6 +157,29 @@ class ProductServiceTest {
         assertThat(result.getDescription()).isEqualTo("A test product description");
 
         verify(productRepository).save(any(Product.class));
+        verify(searchIndex).index(result);
+    }
+
+    @Test
+    @DisplayName("createProduct - should update bloom filter and search index only after commit")
+    void createProduct_inTransaction_indexesAfterCommit() {
+        CreateProductRequest request = new CreateProductRequest(
+                "Test Product", new BigDecimal("99.99"), "A test product description");
+        when(productRepository.save(any(Product.class))).thenReturn(testProduct);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ProductDTO result = productService.createProduct(request);
+
+            verify(bloomFilterService, never()).add(any());
+            verify(searchIndex, never()).index(any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(bloomFilterService).add("1");
+            verify(searchIndex).index(result);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
@@ -186,9 +221,19 @@ class ProductServiceTest {
         assertThat(result.getPrice()).isEqualByComparingTo(new BigDecimal("99.99"));
         assertThat(result.getDescription()).isEqualTo("A test product description");
         
-        // Verify cache was checked twice (initial check + double-check after lock) and updated
-        verify(multiLevelCacheManager, times(2)).get(eq("product:1"), eq(ProductDTO.class));
-        verify(multiLevelCacheManager).put(eq("product:1"), any(ProductDTO.class), any());
+        // Verify the load went through the cache manager and hit the database once
+        verify(multiLevelCacheManager).getOrLoad(eq("product:1"), eq(ProductDTO.class), any(), any());
+        verify(productRepository).findById(1L);
+    }
+
+    @Test
+    @DisplayName("getProductById - should propagate ResourceNotFoundException when bloom filter false positive")
+    void getProductById_bloomFalsePositive() {
+        when(productRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> productService.getProductById(2L))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("Product");
     }
 
     @Test
@@ -202,11 +247,43 @@ class ProductServiceTest {
                 .hasMessageContaining("Product");
     }
 
-    // ========== GetAllProducts Tests ==========
+    // ========== GetProductsByIds Tests ==========
 
     @Test
-    @DisplayName("getAllProducts - should return list of ProductDTOs")
-    void getAllProducts_success() {
+    @DisplayName("getProductsByIds - should serve cache hits and load misses with one query")
+    @SuppressWarnings("unchecked")
+    void getProductsByIds_cacheHitsAndBatchLoad() {
+        ProductDTO cachedProduct = ProductDTO.builder().id(3L).name("Cached Product").build();
+        when(bloomFilterService.mightContain("404")).thenReturn(false);
+        when(multiLevelCacheManager.getAll(List.of("product:3", "product:1", "product:2"), ProductDTO.class))
+                .thenReturn(Map.of("product:3", cachedProduct));
+        when(productRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(testProduct));
+
+        List<ProductDTO> result = productService.getProductsByIds(List.of(3L, 1L, 404L, 2L, 1L));
+
+        // 按请求顺序返回；404 被布隆过滤器剔除，2 在数据库中不存在
+        assertThat(result).extracting(ProductDTO::getId).containsExactly(3L, 1L);
+        ArgumentCaptor<Map<String, ?>> loaded = ArgumentCaptor.forClass(Map.class);
+        verify(multiLevelCacheManager).putAll(loaded.capture(), any(Function.class));
+        assertThat(loaded.getValue()).containsOnlyKeys("product:1");
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("getProductsByIds - should reject oversized batches")
+    void getProductsByIds_tooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, 1001).boxed().toList();
+
+        assertThatThrownBy(() -> productService.getProductsByIds(ids))
+                .isInstanceOf(BusinessException.class);
+        verifyNoInteractions(productRepository);
+    }
+
+    // ========== ListProducts Tests ==========
+
+    @Test
+    @DisplayName("listProducts - should return a page and a token that resumes after its last id")
+    void listProducts_keysetPagination() {
         Product product2 = Product.builder()
                 .id(2L)
                 .name("Another Product")
@@ -215,23 +292,92 @@ class ProductServiceTest {
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
+        Product product3 = Product.builder().id(3L).name("Third Product").price(BigDecimal.ONE).build();
+
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(3)))
+                .thenReturn(List.of(testProduct, product2, product3));
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(2L, PageRequest.ofSize(3)))
+                .thenReturn(List.of(product3));
+
+        ProductPageDTO first = productService.listProducts(null, 2);
 
-        when(productRepository.findAll()).thenReturn(List.of(testProduct, product2));
+        assertThat(first.getItems()).extracting(ProductDTO::getName).containsExactly("Test Product", "Another Product");
+        assertThat(first.getNextPageToken()).isNotBlank();
 
-        List<ProductDTO> result = productService.getAllProducts();
+        ProductPageDTO second = productService.listProducts(first.getNextPageToken(), 2);
 
-        assertThat(result).hasSize(2);
-        assertThat(result.get(0).getName()).isEqualTo("Test Product");
-        assertThat(result.get(1).getName()).isEqualTo("Another Product");
+        assertThat(second.getItems()).extracting(ProductDTO::getId).containsExactly(3L);
+        assertThat(second.getNextPageToken()).isNull();
     }
 
     @Test
-    @DisplayName("getAllProducts - should return empty list when no products exist")
-    void getAllProducts_empty() {
-        when(productRepository.findAll()).thenReturn(Collections.emptyList());
+    @DisplayName("listProducts - should return empty page when no products exist")
+    void listProducts_empty() {
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenReturn(Collections.emptyList());
 
-        List<ProductDTO> result = productService.getAllProducts();
+        ProductPageDTO result = productService.listProducts(null, null);
 
-        assertThat(result).isEmpty();
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getNextPageToken()).isNull();
+        verify(productRepository).findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(21));
+    }
+
+    @Test
+    @DisplayName("listProducts - should reject a tampered page token")
+    void listProducts_invalidToken() {
+        assertThatThrownBy(() -> productService.listProducts("not-a-token", 10))
+                .isInstanceOf(BusinessException.class);
+        verifyNoInteractions(productRepository);
+    }
+
+    // ========== SearchProducts Tests ==========
+
+    @Test
+    @DisplayName("searchProducts - should query the in-memory index with a capped limit")
+    void searchProducts_capsLimit() {
+        ProductSearchResultDTO expected = new ProductSearchResultDTO(List.of(testProductDTO), 1);
+        when(searchIndex.search("test", null, null, 100)).thenReturn(expected);
+
+        assertThat(productService.searchProducts("test", null, null, 500)).isSameAs(expected);
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    @DisplayName("searchProducts - should reject a search without keywords or price range")
+    void searchProducts_emptyCriteria() {
+        assertThatThrownBy(() -> productService.searchProducts(" ", null, null, null))
+                .isInstanceOf(BusinessException.class);
+    }
+
+    // ========== ExportProducts Tests ==========
+
+    @Test
+    @DisplayName("exportProducts - should write one JSON document per line")
+    @SuppressWarnings("unchecked")
+    void exportProducts_writesNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<ProductDTO> action = invocation.getArgument(0);
+            action.accept(testProductDTO);
+            action.accept(ProductDTO.builder().id(2L).name("商品 2").build());
+            return null;
+        }).when(productRepository).forEachProduct(any(Consumer.class));
+        int[] flushes = {0};
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+
+        long count = productService.exportProducts(out);
+
+        String output = out.toString(StandardCharsets.UTF_8);
+        assertThat(count).isEqualTo(2);
+        assertThat(output).isEqualTo(objectMapper.writeValueAsString(testProductDTO) + "\n"
+                + objectMapper.writeValueAsString(ProductDTO.builder().id(2L).name("商品 2").build()) + "\n");
+        assertThat(output).endsWith("\n");
+        assertThat(output.lines()).hasSize(2);
+        // 只在结束时刷新响应流，不按商品逐行刷新
+        assertThat(flushes[0]).isLessThanOrEqualTo(2);
     }
 }
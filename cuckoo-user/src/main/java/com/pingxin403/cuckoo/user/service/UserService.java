@@ -1,5 +1,6 @@
 package com.pingxin403.cuckoo.user.service;
 
+import com.pingxin403.cuckoo.common.cache.MultiLevelCacheManager;
 import com.pingxin403.cuckoo.common.exception.AuthenticationException;
 import com.pingxin403.cuckoo.common.exception.DuplicateResourceException;
 import com.pingxin403.cuckoo.common.exception.ResourceNotFoundException;
@@ -9,12 +10,11 @@ import com.pingxin403.cuckoo.user.mapper.UserMapper;
 import com.pingxin403.cuckoo.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 /**
  * 用户服务
@@ -27,11 +27,11 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final BCryptPasswordEncoder passwordEncoder;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final MultiLevelCacheManager cacheManager;
     private final UserMapper userMapper;
 
     private static final String CACHE_KEY_PREFIX = "user:";
-    private static final long CACHE_TTL_MINUTES = 15;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(15);
 
     /**
      * 用户注册
@@ -90,34 +90,19 @@ public class UserService {
     /**
      * 根据 ID 查询用户
      * 实现 Cache-Aside Pattern：
-     * 1. 先查询缓存
+     * 1. 先查询多级缓存（本地缓存 -> Redis）
      * 2. 缓存命中则直接返回
-     * 3. 缓存未命中则查询数据库
+     * 3. 缓存未命中则由 getOrLoad 合并并发回源查询数据库（防止缓存击穿）
      * 4. 将查询结果写入缓存（TTL 15分钟）
+     * 不开启外层事务：等待其他加载者期间不占用数据库连接
      */
-    @Transactional(readOnly = true)
     public UserDTO getUserById(Long id) {
-        String cacheKey = CACHE_KEY_PREFIX + id;
-        
-        // 1. 先查询缓存
-        UserDTO cachedUser = (UserDTO) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedUser != null) {
-            log.debug("Cache hit for user: id={}", id);
-            return cachedUser;
-        }
-        
-        // 2. 缓存未命中，查询数据库
-        log.debug("Cache miss for user: id={}, querying database", id);
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("User", id));
-        
-        UserDTO userDTO = userMapper.toDTO(user);
-        
-        // 3. 将查询结果写入缓存，设置 TTL 为 15 分钟
-        redisTemplate.opsForValue().set(cacheKey, userDTO, CACHE_TTL_MINUTES, TimeUnit.MINUTES);
-        log.debug("User cached: id={}, ttl={}min", id, CACHE_TTL_MINUTES);
-        
-        return userDTO;
+        return cacheManager.getOrLoad(CACHE_KEY_PREFIX + id, UserDTO.class, CACHE_TTL, () -> {
+            log.debug("Cache miss for user: id={}, querying database", id);
+            User user = userRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("User", id));
+            return userMapper.toDTO(user);
+        });
     }
 
     /**
@@ -147,7 +132,7 @@ public class UserService {
         
         // 2. 再删除缓存
         String cacheKey = CACHE_KEY_PREFIX + id;
-        redisTemplate.delete(cacheKey);
+        cacheManager.evict(cacheKey);
         log.debug("User cache deleted: id={}", id);
         
         return userMapper.toDTO(updatedUser);
@@ -37,10 +37,7 @@ class UserServiceTest {
     private BCryptPasswordEncoder passwordEncoder;
 
     @Mock
-    private org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate;
-
-    @Mock
-    private org.springframework.data.redis.core.ValueOperations<String, Object> valueOperations;
+    private com.pingxin403.cuckoo.common.cache.MultiLevelCacheManager cacheManager;
 
     @Mock
     private UserMapper userMapper;
@@ -70,8 +67,9 @@ class UserServiceTest {
                 .updatedAt(testUser.getUpdatedAt())
                 .build();
         
-        // Mock RedisTemplate behavior
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        // Mock MultiLevelCacheManager to always miss and run the loader
+        when(cacheManager.getOrLoad(anyString(), any(), any(), any()))
+                .thenAnswer(invocation -> ((java.util.function.Supplier<?>) invocation.getArgument(3)).get());
         
         // Mock UserMapper behavior
         when(userMapper.toDTO(any(User.class))).thenAnswer(invocation -> {
@@ -190,7 +188,6 @@ class UserServiceTest {
     @Test
     @DisplayName("getUserById - should return UserDTO when user exists")
     void getUserById_success() {
-        when(valueOperations.get("user:1")).thenReturn(null); // Cache miss
         when(userRepository.findById(1L)).thenReturn(Optional.of(testUser));
 
         UserDTO result = userService.getUserById(1L);
@@ -200,13 +197,12 @@ class UserServiceTest {
         assertThat(result.getUsername()).isEqualTo("testuser");
         assertThat(result.getEmail()).isEqualTo("test@example.com");
         
-        verify(valueOperations).set(eq("user:1"), any(UserDTO.class), eq(15L), eq(java.util.concurrent.TimeUnit.MINUTES));
+        verify(cacheManager).getOrLoad(eq("user:1"), eq(UserDTO.class), eq(java.time.Duration.ofMinutes(15)), any());
     }
 
     @Test
     @DisplayName("getUserById - should throw ResourceNotFoundException when user not found")
     void getUserById_notFound() {
-        when(valueOperations.get("user:999")).thenReturn(null); // Cache miss
         when(userRepository.findById(999L)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> userService.getUserById(999L))
@@ -4,6 +4,7 @@ import com.pingxin403.cuckoo.webbff.dto.InventoryDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 /**
  * 库存服务 Feign 客户端
@@ -17,8 +18,11 @@ public interface InventoryServiceClient {
 
     /**
      * 获取商品库存信息
+     *
+     * @param maxStalenessMs 可接受的最大陈旧时间（毫秒），为空时使用库存服务默认值（默认不读取近端缓存）
      */
     @GetMapping("/{productId}")
-    InventoryDTO getInventory(@PathVariable("productId") Long productId);
+    InventoryDTO getInventory(@PathVariable("productId") Long productId,
+                              @RequestParam(value = "maxStalenessMs", required = false) Long maxStalenessMs);
 
 }
@@ -12,7 +12,7 @@ import org.springframework.stereotype.Component;
 public class InventoryServiceClientFallback implements InventoryServiceClient {
 
     @Override
-    public InventoryDTO getInventory(Long productId) {
+    public InventoryDTO getInventory(Long productId, Long maxStalenessMs) {
         log.warn("Inventory service fallback triggered for productId: {}", productId);
         InventoryDTO fallback = new InventoryDTO();
         fallback.setProductId(productId);
@@ -4,6 +4,10 @@ import com.pingxin403.cuckoo.webbff.dto.ProductDetailDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 /**
  * 商品服务 Feign 客户端
@@ -21,4 +25,10 @@ public interface ProductServiceClient {
     @GetMapping("/{productId}")
     ProductDetailDTO getProductDetail(@PathVariable("productId") Long productId);
 
+    /**
+     * 批量获取商品详情（不存在的商品不在结果中）
+     */
+    @PostMapping("/batch")
+    List<ProductDetailDTO> getProductDetails(@RequestBody List<Long> productIds);
+
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 /**
  * 商品服务降级处理
@@ -24,4 +25,10 @@ public class ProductServiceClientFallback implements ProductServiceClient {
         return fallback;
     }
 
+    @Override
+    public List<ProductDetailDTO> getProductDetails(List<Long> productIds) {
+        log.warn("Product service batch fallback triggered for {} productIds", productIds.size());
+        return List.of();
+    }
+
 }
@@ -21,6 +21,11 @@ import java.util.concurrent.CompletableFuture;
 @Service
 public class WebProductService {
 
+    /**
+     * 商品页可接受的库存陈旧时间（毫秒），命中库存服务的近端缓存
+     */
+    private static final long INVENTORY_MAX_STALENESS_MS = 500;
+
     @Autowired
     private ProductServiceClient productClient;
 
@@ -47,7 +52,7 @@ public class WebProductService {
 
         CompletableFuture<InventoryDTO> inventoryFuture = CompletableFuture.supplyAsync(() -> {
             try {
-                return inventoryClient.getInventory(productId);
+                return inventoryClient.getInventory(productId, INVENTORY_MAX_STALENESS_MS);
             } catch (Exception e) {
                 log.error("Failed to fetch inventory for productId: {}", productId, e);
                 return createFallbackInventory(productId);
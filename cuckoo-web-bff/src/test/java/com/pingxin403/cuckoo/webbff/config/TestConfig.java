@@ -64,7 +64,7 @@ public class TestConfig {
         InventoryServiceClient client = mock(InventoryServiceClient.class);
         
         // Configure default behavior: return inventory with stock
-        when(client.getInventory(any(Long.class))).thenAnswer(invocation -> {
+        when(client.getInventory(any(Long.class), any())).thenAnswer(invocation -> {
             Long productId = invocation.getArgument(0);
             InventoryDTO inventory = new InventoryDTO();
             inventory.setProductId(productId);
@@ -25,6 +25,7 @@ import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
 
 /**
@@ -87,7 +88,7 @@ class WebProductServiceTest {
         mockReview.setCreatedAt(LocalDateTime.now());
         
         when(productServiceClient.getProductDetail(productId)).thenReturn(mockProduct);
-        when(inventoryServiceClient.getInventory(productId)).thenReturn(mockInventory);
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenReturn(mockInventory);
         when(reviewServiceClient.getProductReviews(productId)).thenReturn(Arrays.asList(mockReview));
 
         // When
@@ -132,7 +133,7 @@ class WebProductServiceTest {
         );
         
         when(productServiceClient.getProductDetail(productId)).thenReturn(mockProduct);
-        when(inventoryServiceClient.getInventory(productId)).thenReturn(mockInventory);
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenReturn(mockInventory);
         when(reviewServiceClient.getProductReviews(productId)).thenReturn(mockReviews);
 
         // When
@@ -161,7 +162,7 @@ class WebProductServiceTest {
         mockInventory.setStatus("OUT_OF_STOCK");
         
         when(productServiceClient.getProductDetail(productId)).thenReturn(mockProduct);
-        when(inventoryServiceClient.getInventory(productId)).thenReturn(mockInventory);
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenReturn(mockInventory);
         when(reviewServiceClient.getProductReviews(productId)).thenReturn(Collections.emptyList());
 
         // When
@@ -208,7 +209,7 @@ class WebProductServiceTest {
         mockInventory.setAvailableStock(100);
         
         when(productServiceClient.getProductDetail(productId)).thenThrow(new RuntimeException("Product service unavailable"));
-        when(inventoryServiceClient.getInventory(productId)).thenReturn(mockInventory);
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenReturn(mockInventory);
         when(reviewServiceClient.getProductReviews(productId)).thenReturn(Collections.emptyList());
 
         // When
@@ -236,7 +237,7 @@ class WebProductServiceTest {
         mockProduct.setName("测试商品6");
         
         when(productServiceClient.getProductDetail(productId)).thenReturn(mockProduct);
-        when(inventoryServiceClient.getInventory(productId)).thenThrow(new RuntimeException("Inventory service unavailable"));
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenThrow(new RuntimeException("Inventory service unavailable"));
         when(reviewServiceClient.getProductReviews(productId)).thenReturn(Collections.emptyList());
 
         // When
@@ -265,7 +266,7 @@ class WebProductServiceTest {
         mockInventory.setAvailableStock(100);
         
         when(productServiceClient.getProductDetail(productId)).thenReturn(mockProduct);
-        when(inventoryServiceClient.getInventory(productId)).thenReturn(mockInventory);
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenReturn(mockInventory);
         when(reviewServiceClient.getProductReviews(productId)).thenThrow(new RuntimeException("Review service unavailable"));
 
         // When
@@ -286,7 +287,7 @@ class WebProductServiceTest {
         Long productId = 8L;
         
         when(productServiceClient.getProductDetail(productId)).thenThrow(new RuntimeException("Product service unavailable"));
-        when(inventoryServiceClient.getInventory(productId)).thenThrow(new RuntimeException("Inventory service unavailable"));
+        when(inventoryServiceClient.getInventory(eq(productId), any())).thenThrow(new RuntimeException("Inventory service unavailable"));
         when(reviewServiceClient.getProductReviews(productId)).thenThrow(new RuntimeException("Review service unavailable"));
 
         // When
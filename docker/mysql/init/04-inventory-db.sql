@@ -10,10 +10,24 @@ CREATE TABLE IF NOT EXISTS inventory (
     total_stock INT NOT NULL DEFAULT 0,
     available_stock INT NOT NULL DEFAULT 0,
     reserved_stock INT NOT NULL DEFAULT 0,
+    owner_epoch BIGINT NOT NULL DEFAULT 0 COMMENT '单写者归属纪元（fencing token）',
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 热点 SKU 库存分桶（SKU 库存 = inventory 行 + 全部分桶）
+CREATE TABLE IF NOT EXISTS inventory_bucket (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    sku_id BIGINT NOT NULL,
+    bucket_no INT NOT NULL,
+    total_stock INT NOT NULL DEFAULT 0,
+    available_stock INT NOT NULL DEFAULT 0,
+    reserved_stock INT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_sku_bucket (sku_id, bucket_no)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 CREATE TABLE IF NOT EXISTS inventory_log (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     sku_id BIGINT NOT NULL,
@@ -25,6 +39,20 @@ CREATE TABLE IF NOT EXISTS inventory_log (
     INDEX idx_sku_id (sku_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 预占台账（按订单 ID 确认或释放预占，兼作支付确认的幂等保护）
+CREATE TABLE IF NOT EXISTS inventory_reservation (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    order_id VARCHAR(50) NOT NULL,
+    sku_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    status VARCHAR(20) NOT NULL COMMENT 'RESERVED, DEDUCTED, RELEASED, UNFULFILLED',
+    expires_at TIMESTAMP NULL COMMENT '预占过期时间，为空表示不过期',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_order_sku (order_id, sku_id),
+    INDEX idx_status_expires_at (status, expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- 幂等性检查表（用于 Kafka 事件消费去重）
 CREATE TABLE IF NOT EXISTS processed_events (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,